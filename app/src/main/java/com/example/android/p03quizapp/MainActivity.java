@@ -1,23 +1,30 @@
 package com.example.android.p03quizapp;
 
+import android.content.Intent;
 import android.os.Bundle;
+import android.support.v4.app.FragmentManager;
+import android.text.TextUtils;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.util.Log;
+import android.view.Choreographer;
 import android.view.LayoutInflater;
+import android.view.Menu;
+import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.CheckBox;
 import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
-import android.widget.RadioButton;
-import android.widget.RadioGroup;
 import android.widget.TextView;
 import android.widget.Toast;
 
-import org.xmlpull.v1.XmlPullParserException;
-
+import java.io.File;
+import java.io.FileDescriptor;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 
 
@@ -34,27 +41,76 @@ import java.util.ArrayList;
  * Please note that views are dynamically generated runtime using quiz data taken from XML resource
  * quiz_data.xml. I am aware that this could and should be done using RecyclerViews / ListView with
  * arrayadapter etc., but anyways, here it is.
+ *
+ * By default questions are displayed by a RecyclerView (see QuizQuestionAdapter) and only the
+ * visible ones have views. Set bool resource quiz_recycled_rendering to false to generate views
+ * for all questions up front. Set bool resource quiz_flat_rendering to display Checkbox and Radio
+ * questions by a single QuizQuestionView each rather than a tree of layouts.
+ *
+ * Start the activity with the EXTRA_SAMPLE_ intent extras to take a random exam of quiz_data rather
+ * than all of it, e.g.
+ *      adb shell am start -n com.example.android.p03quizapp/.MainActivity
+ *              --ei com.example.android.p03quizapp.SAMPLE_SIZE 20 --el com.example.android.p03quizapp.SAMPLE_SEED 42
  */
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements QuizLoaderTask.OnQuizLoadListener {
 
     /*
      *  There are dynamically generated views in this layout.
-     *  Views have an autosave / restore feature to maintain user input throughout orientation changes etc.
-     *  In order for this feature to work, views must have a persistent and unique resource id.
-     *
-     *  The native View.generateViewId is not suitable as it would provide a continuously increasing Id,
-     *  so whenever the views would be regenerated by this activity after orientation change, they
-     *  would not receive the same view id again.
-     *
-     *  So we maintain our own resource ID allocation mechanism. Through experience I found out that
-     *  View.generateViewId returns integers beginning with 1 and increasing every time the method is called.
-     *  So we do the same, only difference is we _always_ begin from 1 while View.genereateViewId would only
-     *  begin from 1 if the App was not restored from saved instance state (started for the first time).
-     *
-     *  our own generateViewId will increase lastAllocatedViewId beforehand, so the first Id returned will be 1.
+     *  User input is kept by QuizAnswerStore rather than the views, so input views do not save and
+     *  restore their own state; the answer store is saved as a whole instead. This way views need not
+     *  have persistent and unique ids and can be generated, recycled or restored in any order.
      */
-    private int lastAllocatedViewId = 0;
+
+    //  intent extra: path of a binary quiz bank file to load instead of bundled quiz data
+    static final String EXTRA_QUIZ_BANK_PATH = "com.example.android.p03quizapp.QUIZ_BANK_PATH";
+    //  intent extras to take a random exam of quiz_data instead of all of it, see QuizSampler:
+    //  number of quiz questions (int), seed of random numbers (long, 0 if not given), input types
+    //  to choose from (String[], all if not given) and one of the QuizSampler.HEADER_IMAGE_ filters (int)
+    static final String EXTRA_SAMPLE_SIZE = "com.example.android.p03quizapp.SAMPLE_SIZE";
+    static final String EXTRA_SAMPLE_SEED = "com.example.android.p03quizapp.SAMPLE_SEED";
+    static final String EXTRA_SAMPLE_INPUT_TYPES = "com.example.android.p03quizapp.SAMPLE_INPUT_TYPES";
+    static final String EXTRA_SAMPLE_HEADER_IMAGE = "com.example.android.p03quizapp.SAMPLE_HEADER_IMAGE";
+
+    //  key to save answers given by user under
+    private static final String KEY_ANSWER_STORE = "answerStore";
+
+    //  file in the app's files directory to dump quiz metrics to, see QuizMetrics
+    private static final String METRICS_FILE_NAME = "quiz_metrics.txt";
+
+    //  time budget for generating quiz views in a single frame, in nanoseconds
+    private static final long RENDER_BUDGET_PER_FRAME_NANOS = 8000000L;
+
+    //  QuizQuestion objects already displayed, shared with the check answer handler
+    private ArrayList<QuizQuestion> quizQuestions = new ArrayList<>();
+    //  QuizQuestion objects loaded but not displayed yet
+    private ArrayDeque<QuizQuestion> pendingQuizQuestions = new ArrayDeque<>();
+    //  view to contain quiz questions, null if quiz questions are displayed by a RecyclerView
+    private LinearLayout quizQuestionsContainer;
+    //  adapter to display quiz questions in a RecyclerView, null if views are generated up front
+    private QuizQuestionAdapter quizQuestionAdapter;
+    //  retained fragment holding quiz data and answers across configuration changes
+    private QuizModelFragment quizModel;
+    //  answers given by user, independent of views
+    private QuizAnswerStore answerStore;
+    //  loader decoding header images in the background, retained with quiz data
+    private QuizImageLoader imageLoader;
+    //  size of header images in pixels, images are downsampled to it
+    private int headerImageSize;
+    //  cache of text layouts to display choice questions by QuizQuestionView with, null to display
+    //  them by layouts
+    private QuizTextLayoutCache textLayoutCache;
+    //  true while a frame callback to display pending QuizQuestion objects is posted
+    private boolean isRenderScheduled = false;
+
+    //  frame callback to generate the views for pending QuizQuestion objects, a batch per frame
+    private Choreographer.FrameCallback renderFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            isRenderScheduled = false;
+            renderPendingQuizQuestions();
+        }
+    };
 
     /**
      * method to set up quiz views and handle button
@@ -64,51 +120,343 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
-        ArrayList<QuizQuestion> quizQuestions = null;
-
-        //  read quiz data from xml resource quiz_data
-        try {
-            quizQuestions = QuizXmlParser.parse(this, R.xml.quiz_data);
-            Log.d("Main", "QuizQuestions: " + quizQuestions);
-
-        } catch (XmlPullParserException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            quizQuestions = null;
-        } catch (IOException e) {
-            // TODO Auto-generated catch block
-            e.printStackTrace();
-            quizQuestions = null;
-        }
 
-        //  bail out if failed to read quiz XML data
-        if (quizQuestions == null) {
-            Toast.makeText(this, "1001 Failed to parse Quiz XML, sorry", Toast.LENGTH_LONG).show();
-            finish();
+        //  find quiz data retained from the previous instance of this activity, if any
+        FragmentManager fragmentManager = getSupportFragmentManager();
+        quizModel = (QuizModelFragment) fragmentManager.findFragmentByTag(QuizModelFragment.TAG);
+        if (quizModel == null) {
+            quizModel = new QuizModelFragment();
+            fragmentManager.beginTransaction().add(quizModel, QuizModelFragment.TAG).commit();
         }
 
-        //  find view to contain quiz questions
-        LinearLayout container = (LinearLayout) findViewById(R.id.quizQuestionsContainer);
+        //  answers given so far are retained, or restored if the process has been restarted since;
+        //  input views will display them when bound
+        answerStore = quizModel.getAnswerStore();
+        if (answerStore == null && savedInstanceState != null)
+            answerStore = savedInstanceState.getParcelable(KEY_ANSWER_STORE);
+        if (answerStore == null)
+            answerStore = new QuizAnswerStore();
+        quizModel.setAnswerStore(answerStore);
+        imageLoader = quizModel.getImageLoader(this);
+        headerImageSize = getResources().getDimensionPixelSize(R.dimen.quiz_header_picture_size);
+        if (getResources().getBoolean(R.bool.quiz_flat_rendering))
+            textLayoutCache = quizModel.getTextLayoutCache(this);
+
+        if (getResources().getBoolean(R.bool.quiz_recycled_rendering)) {
+            //  display quiz questions in a RecyclerView, only visible questions will have views
+            setContentView(R.layout.activity_main_recycled);
+            RecyclerView recyclerView = (RecyclerView) findViewById(R.id.quizQuestionsRecyclerView);
+            recyclerView.setLayoutManager(new LinearLayoutManager(this));
+            recyclerView.setHasFixedSize(true);
+            quizQuestionAdapter = new QuizQuestionAdapter(this, quizQuestions, imageLoader, textLayoutCache);
+            recyclerView.setAdapter(quizQuestionAdapter);
+            trackQuizQuestionViewWidth(recyclerView);
+        } else {
+            setContentView(R.layout.activity_main);
+
+            //  find view to contain quiz questions
+            quizQuestionsContainer = (LinearLayout) findViewById(R.id.quizQuestionsContainer);
+            trackQuizQuestionViewWidth(quizQuestionsContainer);
+        }
 
-        // dynamically generate views to hold quiz question and input views, add input handlers
-        for (int i = 0; i < quizQuestions.size(); i++) {
-            setupQuizQuestionView(container, quizQuestions.get(i));
+        //  display quiz questions loaded so far, if any. Only views are created, no parsing is done
+        if (quizModel.isLoadFinished() && quizModel.isLoadFailed()) {
+            onQuizLoadFinished(null);
+            return;
         }
+        if (quizQuestionAdapter != null)
+            quizQuestionAdapter.addQuizQuestions(quizModel.getQuizQuestions());
+        else
+            pendingQuizQuestions.addAll(quizModel.getQuizQuestions());
+        scheduleRender();
+
+        //  read quiz data from quiz bank file given by intent or from xml resource quiz_data, all of it
+        //  or a random exam, in the background unless already done, views are generated as
+        //  QuizQuestion objects arrive
+        quizModel.setOnQuizLoadListener(this);
+        String quizBankPath = getIntent().getStringExtra(EXTRA_QUIZ_BANK_PATH);
+        QuizSampler quizSampler = createQuizSampler();
+        if (quizBankPath != null)
+            quizModel.startLoading(this, new File(quizBankPath));
+        else if (quizSampler != null)
+            quizModel.startSampling(this, quizSampler, R.xml.quiz_data);
+        else
+            quizModel.startLoading(this, R.xml.quiz_data);
 
         //  let the user know the app is ready to go, but only if the app is started for the first time;
         //  not when orientation changes or user returns from other activity
         if (savedInstanceState == null)
             Toast.makeText(this, "Gogogo!", Toast.LENGTH_SHORT).show();
 
-        //  Create listener to receive onclick events
-        QuizCheckAnswer answerHandler = new QuizCheckAnswer(this, quizQuestions);
+        //  Create listener to receive onclick events. Attempts cover all the quiz questions loaded,
+        //  those not rendered yet too
+        QuizCheckAnswer answerHandler = new QuizCheckAnswer(this, quizModel.getQuizQuestions(), answerStore,
+                quizModel.getScoreKeeper(), quizModel.getAttemptJournal(this), quizModel.getAnswerStatistics());
         //  find check answer button and assign OnClick and OnLongClick listener we just created
         ImageButton checkAnswerButton = (ImageButton) findViewById(R.id.CheckInputButton);
         checkAnswerButton.setOnClickListener(answerHandler);
         checkAnswerButton.setOnLongClickListener(answerHandler);
     }
 
+    /**
+     * method to create the QuizSampler of the exam asked for by intent extras
+     * @return the QuizSampler or null if no exam is asked for
+     */
+    private QuizSampler createQuizSampler() {
+        Intent intent = getIntent();
+        if (!intent.hasExtra(EXTRA_SAMPLE_SIZE))
+            return null;
+        QuizSampler quizSampler = new QuizSampler(Math.max(intent.getIntExtra(EXTRA_SAMPLE_SIZE, 0), 0),
+                intent.getLongExtra(EXTRA_SAMPLE_SEED, 0));
+        String[] inputTypes = intent.getStringArrayExtra(EXTRA_SAMPLE_INPUT_TYPES);
+        if (inputTypes != null) {
+            String logTag = "createQuizSampler";
+            int[] inputTypeCodes = new int[inputTypes.length];
+            for (int i = 0; i < inputTypes.length; i++) {
+                inputTypeCodes[i] = QuizInputTypeRegistry.getCode(inputTypes[i]);
+                if (inputTypeCodes[i] == QuizQuestion.INPUT_TYPE_UNKNOWN)
+                    Log.e(logTag, "Unknown input type to sample: " + inputTypes[i]);
+            }
+            quizSampler.setInputTypes(inputTypeCodes);
+        }
+        quizSampler.setHeaderImageFilter(
+                intent.getIntExtra(EXTRA_SAMPLE_HEADER_IMAGE, QuizSampler.HEADER_IMAGE_ANY));
+        return quizSampler;
+    }
+
+    /**
+     * method to save answers given by user, including the ones for quiz questions not displayed yet
+     *
+     * @param outState is the Bundle to save state into
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putParcelable(KEY_ANSWER_STORE, answerStore);
+    }
+
+    /**
+     * method to stop displaying quiz data when activity is destroyed. Quiz data is retained, but
+     * it must not hold on to the views of this activity
+     */
+    @Override
+    protected void onDestroy() {
+        quizModel.setOnQuizLoadListener(null);
+        Choreographer.getInstance().removeFrameCallback(renderFrameCallback);
+        if (quizQuestionAdapter != null) {
+            quizQuestionAdapter.unbindAll();
+        } else {
+            for (QuizQuestion quizQuestion : quizQuestions) {
+                if (quizQuestion.getInputHandler() != null)
+                    quizQuestion.getInputHandler().unbind();
+            }
+        }
+        //  statistics are built only if metrics are enabled, see dump for release builds
+        if (QuizMetrics.ENABLED) {
+            QuizMetrics.debug("Main", "Header images: " + imageLoader.getStats());
+            if (textLayoutCache != null)
+                QuizMetrics.debug("Main", "Text layouts: " + textLayoutCache.getStats());
+            QuizMetrics.debug("Main", "Attempt journal: " + quizModel.getAttemptJournal(this).getStats());
+            QuizMetrics.debug("Main", "Answers: " + quizModel.getAnswerStatistics().getStats());
+            if (quizModel.getClassroomServer() != null)
+                QuizMetrics.debug("Main", "Classroom server: " + quizModel.getClassroomServer().getStats());
+            QuizMetrics.dumpToFile(new File(getFilesDir(), METRICS_FILE_NAME));
+        }
+        super.onDestroy();
+    }
+
+    /**
+     * method to print quiz metrics and cache statistics, e.g. by
+     * adb shell dumpsys activity com.example.android.p03quizapp/.MainActivity
+     *
+     * @param prefix is the prefix of each line
+     * @param fd is the file descriptor to dump to
+     * @param writer is the writer to print to
+     * @param args are additional arguments of the dump request
+     */
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        QuizMetrics.dump(prefix, writer);
+        writer.println(prefix + "Header images: " + imageLoader.getStats());
+        if (textLayoutCache != null)
+            writer.println(prefix + "Text layouts: " + textLayoutCache.getStats());
+        writer.println(prefix + "Attempt journal: " + quizModel.getAttemptJournal(this).getStats());
+        writer.println(prefix + "Answers: " + quizModel.getAnswerStatistics().getStats());
+        if (quizModel.getClassroomServer() != null)
+            writer.println(prefix + "Classroom server: " + quizModel.getClassroomServer().getStats());
+    }
+
+    /**
+     * method to let the cache of text layouts know the width QuizQuestionViews are displayed at
+     * whenever the view holding them is laid out, so text layouts are precomputed for that width
+     *
+     * @param listView is the view holding QuizQuestionViews, which match its width
+     */
+    private void trackQuizQuestionViewWidth(View listView) {
+        if (textLayoutCache == null)
+            return;
+        listView.addOnLayoutChangeListener(new View.OnLayoutChangeListener() {
+            @Override
+            public void onLayoutChange(View view, int left, int top, int right, int bottom,
+                                       int oldLeft, int oldTop, int oldRight, int oldBottom) {
+                textLayoutCache.setViewWidth(right - left - view.getPaddingLeft() - view.getPaddingRight());
+            }
+        });
+    }
+
+    /**
+     * method called by QuizLoaderTask for every QuizQuestion loaded. Queue it for display
+     *
+     * @param quizQuestion is the QuizQuestion just loaded
+     */
+    @Override
+    public void onQuizQuestionLoaded(QuizQuestion quizQuestion) {
+        pendingQuizQuestions.add(quizQuestion);
+        scheduleRender();
+    }
+
+    /**
+     * method called by QuizLoaderTask when some of many quiz banks failed to load. The quiz goes on
+     * with the rest, let the user know what is missing
+     *
+     * @param failedQuizBankNames are the names of the quiz banks failed
+     */
+    @Override
+    public void onQuizBanksFailed(ArrayList<String> failedQuizBankNames) {
+        Toast.makeText(this, getString(R.string.quiz_banks_failed, TextUtils.join(", ", failedQuizBankNames)),
+                Toast.LENGTH_LONG).show();
+    }
+
+    /**
+     * method called by QuizLoaderTask when all quiz data is loaded
+     *
+     * @param loadedQuizQuestions is the ArrayList of all QuizQuestion objects or null on error
+     */
+    @Override
+    public void onQuizLoadFinished(ArrayList<QuizQuestion> loadedQuizQuestions) {
+        if (QuizMetrics.ENABLED)
+            QuizMetrics.debug("Main", "QuizQuestions: " + loadedQuizQuestions);
+
+        //  bail out if failed to read quiz XML data
+        if (loadedQuizQuestions == null) {
+            Toast.makeText(this, "1001 Failed to parse Quiz XML, sorry", Toast.LENGTH_LONG).show();
+            finish();
+            return;
+        }
+        //  the quiz can be served now
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * method to create the options menu
+     *
+     * @param menu is the menu to inflate into
+     * @return true to display the menu
+     */
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.main, menu);
+        return true;
+    }
+
+    /**
+     * method to update the options menu: the classroom server can only be started once the quiz
+     * is loaded
+     *
+     * @param menu is the menu
+     * @return true to display the menu
+     */
+    @Override
+    public boolean onPrepareOptionsMenu(Menu menu) {
+        MenuItem classroomServerMenuItem = menu.findItem(R.id.classroomServerMenuItem);
+        classroomServerMenuItem.setChecked(quizModel.getClassroomServer() != null);
+        classroomServerMenuItem.setEnabled(quizModel.isLoadFinished() && !quizModel.isLoadFailed());
+        return super.onPrepareOptionsMenu(menu);
+    }
+
+    /**
+     * method to handle options menu items
+     *
+     * @param item is the menu item selected
+     * @return true if handled
+     */
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.classroomServerMenuItem) {
+            toggleClassroomServer();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    /**
+     * method to start the classroom server and let the user know the address students can answer
+     * at, or stop it if running
+     */
+    private void toggleClassroomServer() {
+        if (quizModel.getClassroomServer() != null) {
+            if (QuizMetrics.ENABLED)
+                QuizMetrics.debug("Main", "Classroom server: " + quizModel.getClassroomServer().getStats());
+            quizModel.stopClassroomServer();
+            Toast.makeText(this, R.string.classroom_server_stopped, Toast.LENGTH_SHORT).show();
+        } else {
+            try {
+                QuizClassroomServer server = quizModel.startClassroomServer(this);
+                String host = QuizClassroomServer.findLocalNetworkAddress();
+                String address = "http://" + (host != null ? host : "localhost") + ":" + server.getLocalPort() + "/";
+                Toast.makeText(this, getString(R.string.classroom_server_started, address), Toast.LENGTH_LONG).show();
+            } catch (IOException e) {
+                Log.e("Main", "Failed to start classroom server", e);
+                Toast.makeText(this, getString(R.string.classroom_server_failed, e.getMessage()),
+                        Toast.LENGTH_LONG).show();
+            }
+        }
+        invalidateOptionsMenu();
+    }
+
+    /**
+     * method to generate views for pending QuizQuestion objects until the time budget of the
+     * current frame is used up. The rest will be done in the next frame.
+     */
+    private void renderPendingQuizQuestions() {
+        //  adding QuizQuestion objects to the RecyclerView is cheap, views are created when displayed
+        if (quizQuestionAdapter != null) {
+            quizQuestionAdapter.addQuizQuestions(pendingQuizQuestions);
+            pendingQuizQuestions.clear();
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        int rendered = 0;
+        //  always render at least one QuizQuestion per frame so we make progress on slow devices
+        while (!pendingQuizQuestions.isEmpty()
+                && (rendered == 0 || System.nanoTime() - startTime < RENDER_BUDGET_PER_FRAME_NANOS)) {
+            QuizQuestion quizQuestion = pendingQuizQuestions.poll();
+            long inflateStartNanos = QuizMetrics.startTimer();
+            setupQuizQuestionView(quizQuestionsContainer, quizQuestion);
+            QuizMetrics.stopTimer(QuizMetrics.TIMER_INFLATE, inflateStartNanos);
+            QuizMetrics.increment(QuizMetrics.COUNTER_QUESTIONS_RENDERED);
+            quizQuestions.add(quizQuestion);
+            rendered++;
+        }
+        if (QuizMetrics.ENABLED)
+            QuizMetrics.debug("Main", "Rendered " + rendered + " quiz questions, " + pendingQuizQuestions.size() + " pending");
+
+        //  continue in the next frame if there are QuizQuestion objects left
+        scheduleRender();
+    }
+
+    /**
+     * method to display pending QuizQuestion objects in the next frame, if there are any
+     */
+    private void scheduleRender() {
+        if (!pendingQuizQuestions.isEmpty() && !isRenderScheduled) {
+            isRenderScheduled = true;
+            Choreographer.getInstance().postFrameCallback(renderFrameCallback);
+        }
+    }
+
     /**
      * method to assemble and add quiz to parent view. will take care of
      * - setting up quiz image and question ("quiz header")
@@ -121,20 +469,19 @@ public class MainActivity extends AppCompatActivity {
     private void setupQuizQuestionView(LinearLayout parent, QuizQuestion questionObject) {
         String logTag = "setupQuizQuestionView";
 
-        Log.d(logTag, "add question to quiz: " + questionObject.getQuestion());
+        if (QuizMetrics.ENABLED)
+            QuizMetrics.debug(logTag, "add question to quiz: " + questionObject.getQuestion());
+        QuizInputType inputType = QuizInputTypeRegistry.get(questionObject.getInputTypeCode());
+        if (textLayoutCache != null && inputType instanceof QuizInputTypeChoice) {
+            parent.addView(setupFlatQuizQuestionView((QuizInputTypeChoice) inputType, questionObject));
+            return;
+        }
+
         LayoutInflater inflater = getLayoutInflater();
 
         //  set up quiz container to hold header and answer input
         LinearLayout quizContainerView = (LinearLayout) inflater.inflate(R.layout.quiz_container, parent, false);
 
-        //  generate persistent and unique id for this view
-        int id = this.generateViewId();
-        Log.d(logTag, "Created quiz container view and set ID to " + id);
-        quizContainerView.setId(id);
-
-        //  register the conatiner view with the QuizQuestion object for future reference
-        questionObject.setQuizContainer(quizContainerView);
-
         //  add quiz header - image and question - to quiz view
         quizContainerView.addView(setupQuizQuestionHeaderView(quizContainerView, questionObject));
 
@@ -145,13 +492,30 @@ public class MainActivity extends AppCompatActivity {
             Log.e("setupQuizQuestionView", "setupQuizInputView for type "
                     + questionObject.getInputType() + " returned null view");
         } else {
-            Log.d("setupQuizQuestionView", "setupQuizInputView returned " + answerView);
+            if (QuizMetrics.ENABLED)
+                QuizMetrics.debug("setupQuizQuestionView", "setupQuizInputView returned " + answerView);
             quizContainerView.addView(answerView);
         }
 
         parent.addView(quizContainerView);
     }
 
+    /**
+     * method to display a choice question - image, question and choices - by a single view
+     *
+     * @param inputType      is the input type of the quiz
+     * @param questionObject is the quiz object containing type and answers
+     * @return the QuizQuestionView bound to the input handler of the quiz
+     */
+    private View setupFlatQuizQuestionView(QuizInputTypeChoice inputType, QuizQuestion questionObject) {
+        QuizQuestionView quizQuestionView = new QuizQuestionView(this, textLayoutCache);
+        quizQuestionView.setQuizQuestion(questionObject, inputType.isMultipleChoice());
+        if (questionObject.getHeaderImageResId() > 0)
+            imageLoader.loadImage(quizQuestionView, questionObject.getHeaderImageResId(), headerImageSize);
+        questionObject.getInputHandler().bind(quizQuestionView);
+        return quizQuestionView;
+    }
+
     /**
      * method to assemble a quiz view header - image and question
      *
@@ -160,7 +524,6 @@ public class MainActivity extends AppCompatActivity {
      * @return the view with quiz header
      */
     private View setupQuizQuestionHeaderView(ViewGroup parent, QuizQuestion questionObject) {
-        String logTag = "setupQuizQHeaderView";
         LayoutInflater inflater = getLayoutInflater();
         View quizQuestionHeaderView;
 
@@ -170,17 +533,13 @@ public class MainActivity extends AppCompatActivity {
             quizQuestionHeaderView = inflater.inflate(R.layout.quiz_header, parent, false);
             //  question image
             ImageView quizImageView = (ImageView) quizQuestionHeaderView.findViewById(R.id.quizHeaderImageView);
-            quizImageView.setImageResource(questionObject.getHeaderImageResId());
+            //  decoded in the background, downsampled to the size of the view
+            imageLoader.loadImage(quizImageView, questionObject.getHeaderImageResId(), headerImageSize);
         } else {
             // set up question header without image
             quizQuestionHeaderView = inflater.inflate(R.layout.quiz_header_noimage, parent, false);
         }
 
-        //  generate persistent and unique id for this view
-        int id = generateViewId();
-        Log.d(logTag, "Created quiz header view and set ID to " + id);
-        quizQuestionHeaderView.setId(id);
-
         //  find TextView to hold the question
         TextView questionView = (TextView) quizQuestionHeaderView.findViewById(R.id.quizQuestionTextView);
         //  update TextView to display question
@@ -190,145 +549,21 @@ public class MainActivity extends AppCompatActivity {
     }
 
     /**
-     * dispatcher for setting up different quizInputViews.
-     * Actual work will be done by separate methods depending on input type
+     * method to set up the input views matching the input type of a QuizQuestion, see QuizInputTypeRegistry,
+     * and bind them to the input handler of the QuizQuestion to be able to check input data in a uniform manner later
      *
      * @param parent         is the parent View
      * @param questionObject is the quiz object containing type and answers
-     * @return the view with quiz input view
+     * @return the view with quiz input view or null if input type is unknown or has no views
      */
     private View setupQuizInputView(ViewGroup parent, QuizQuestion questionObject) {
-        //  call the appropriate method matching quiz input type
-        switch (questionObject.getInputType()) {
-            case "EditText":
-                return setupQuizInputViewEditText(parent, questionObject);
-            case "Checkbox":
-                return setupQuizInputViewCheckbox(parent, questionObject);
-            case "Radio":
-                return setupQuizInputViewRadio(parent, questionObject);
-            default:
-                return null;
-        }
-    }
-
-    /**
-     * set up EditText view and
-     * assign an input handler to be able to check input data in a uniform manner later
-     *
-     * @param parent         is the parent view
-     * @param questionObject is the object holding quiz data
-     * @return EditText view
-     */
-    private View setupQuizInputViewEditText(ViewGroup parent, QuizQuestion questionObject) {
-        String logTag = "setupQuizInputVEditText";
-        LayoutInflater inflater = getLayoutInflater();
-        //  find layout for edittext input
-        View quizEditTextView = inflater.inflate(R.layout.quiz_input_edittext, parent, false);
-        //  find actual EditText view inside our layout
-        View edittext = quizEditTextView.findViewById(R.id.QuizInputEditText);
-
-        //  generate unique ID for EditText
-        int id = generateViewId();
-        Log.d(logTag, "Created quiz edittext input view and set ID to " + id);
-        edittext.setId(id);
-        //  create and assign an input handler to EditText
-        questionObject.setInputHandler(new QuizInputHandlerEditText(edittext));
-
-        return quizEditTextView;
-    }
-
-    /**
-     * set up CheckBox view for each possible answer and
-     * assign an input handler to be able to check input data in a uniform manner later
-     *
-     * @param parent is the parent view
-     * @param questionObject is the actual QuizQuestion
-     * @return checkbox container view with all the checkboxes related to this particular quiz
-     */
-    private View setupQuizInputViewCheckbox(ViewGroup parent, QuizQuestion questionObject) {
-        String logTag = "setupQuizInputCheckboxV";
-        LayoutInflater inflater = getLayoutInflater();
-        //  first find the container for all the checkboxes that need to be created
-        LinearLayout quizCheckboxContainer = (LinearLayout) inflater.inflate(R.layout.quiz_input_checkbox_container, parent, false);
-        //  set up arraylist to keep track of all the checkboxes
-        ArrayList<CheckBox> checkBoxes = new ArrayList<>();
-        //  iterate over all possible answers and create a checkbox for each answer
-        for (int i = 0; i < questionObject.getAnswers().size(); i++) {
-            //  create checkbox view
-            CheckBox checkBox = (CheckBox) inflater.inflate(R.layout.quiz_input_checkbox, quizCheckboxContainer, false);
-
-            //  generate persistent and unique ID for each checkbox
-            int id = generateViewId();
-            Log.d(logTag, "Created quiz checkbox view and set ID to " + id);
-            checkBox.setId(id);
-            //  set checkbox text to actual answer
-            checkBox.setText(questionObject.getAnswer(i));
-            //  add the actual checkbox to our array
-            checkBoxes.add(checkBox);
-            quizCheckboxContainer.addView(checkBox);
-        }
-
-        //  create and assign an input handler to the checkboxes
-        questionObject.setInputHandler(new QuizInputHandlerCheckbox(checkBoxes));
-
-        return quizCheckboxContainer;
-    }
-
-    /**
-     * set up RadioGroup view for each possible answer and
-     * assign an input handler to be able to check input data in a uniform manner later
-     *
-     * @param parent is the parent view
-     * @param questionObject is the actual QuizQuestion
-     * @return RadioGroup container view with all the RadioButtons related to this particular quiz
-     */
-    private View setupQuizInputViewRadio(ViewGroup parent, QuizQuestion questionObject) {
-        String logTag = "setupQuizInRadioButton";
-        LayoutInflater inflater = getLayoutInflater();
-        //  first find the container for all the RadioGroup that need to be created
-        LinearLayout quizEditRadioContainer = (LinearLayout) inflater.inflate(R.layout.quiz_input_radio_container, parent, false);
-
-        //  find actual RadioGroup view inside our container
-        RadioGroup radioGroup = (RadioGroup) quizEditRadioContainer.findViewById(R.id.QuizInputRadioGroup);
-        //  generate persistent and unique ID for RadioGroup
-        int id = generateViewId();
-        Log.d(logTag, "Created quiz radiogroup view and set ID to " + id);
-        radioGroup.setId(id);
-
-        //  set up arraylist to hold RadioButton views
-        ArrayList<RadioButton> radioButtons = new ArrayList<>();
-
-        //  iterate ovew quiz possible answers and set up a RadioButton for each answer
-        for (int i = 0; i < questionObject.getAnswers().size(); i++) {
-            //  create a RadioButton
-            RadioButton radioButton = (RadioButton) inflater.inflate(R.layout.quiz_input_radiobutton, radioGroup, false);
-
-            //  generate persistent and unique ID for each radiobutton
-            id = generateViewId();
-            Log.d(logTag, "Created quiz checkbox view and set ID to " + id);
-            radioButton.setId(id);
-
-            //  set RadioButton text to actual answer
-            radioButton.setText(questionObject.getAnswer(i));
-            //  make a note of the actual RadioButton
-            radioButtons.add(radioButton);
-            //  add RadioButton to RadioGroup
-            radioGroup.addView(radioButton);
-        }
-
-        //  add an input handler to the current QuizQuestion object
-        questionObject.setInputHandler(new QuizInputHandlerRadio(radioButtons));
-
-        Log.d("setupRadioView", "Returning " + quizEditRadioContainer);
-        return quizEditRadioContainer;
-    }
-
-    /**
-     * generate a persisetent and unique View Id
-     * @return generated View Id
-     */
-    private int generateViewId() {
-        lastAllocatedViewId++;
-        return lastAllocatedViewId;
+        QuizInputType inputType = QuizInputTypeRegistry.get(questionObject.getInputTypeCode());
+        if (!(inputType instanceof QuizInputViewFactory))
+            return null;
+
+        QuizInputViews inputViews = ((QuizInputViewFactory) inputType).createInputViews(getLayoutInflater(), parent);
+        inputViews.show(questionObject);
+        questionObject.getInputHandler().bind(inputViews.getInputView());
+        return inputViews.getLayout();
     }
 }
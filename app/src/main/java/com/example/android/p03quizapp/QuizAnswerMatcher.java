@@ -0,0 +1,20 @@
+package com.example.android.p03quizapp;
+
+/**
+ * interface to check answers typed in by user - text, numbers - against the accepted answers of a
+ * quiz question. Matchers are compiled of the accepted answers once, when the quiz question is added
+ * to its QuizBank, so checking an answer does not go through the accepted answers as strings:
+ * - QuizTextAnswerMatcher for EditText input
+ * - QuizNumericAnswerMatcher for Numeric input
+ *
+ * Matchers never change once built and may be used on any thread.
+ */
+
+interface QuizAnswerMatcher {
+    /**
+     * method to check an answer typed in by user
+     * @param text is the text given or null
+     * @return true if the answer is one of the accepted answers
+     */
+    boolean matches(CharSequence text);
+}
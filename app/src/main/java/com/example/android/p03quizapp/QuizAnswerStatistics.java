@@ -0,0 +1,391 @@
+package com.example.android.p03quizapp;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * class to count how quiz questions are answered, to find the ones users fail and the wrong
+ * answers they pick: per quiz question the number of attempts, correct and missing answers, and per
+ * possible answer the number of times it was selected, indexed like the answers of the QuizQuestion.
+ *
+ * Counters are recorded by the UI and by QuizGradingEngine threads at the same time, without
+ * locking. Counters are split into stripes, a thread only increments the counters of the stripe its
+ * thread id falls into. Within a stripe the counters of quiz questions are packed one after another
+ * into blocks, each quiz question at the same place in every stripe. A block has an AtomicLongArray
+ * per stripe, allocated when a thread of the stripe first records into the block, so stripes no
+ * thread records into take no memory. Only the end of each array is padded, so threads on different
+ * stripes do not contend. Snapshots add up the stripes while counters are being recorded: each
+ * counter is exact as of some moment during the snapshot, counters of the same snapshot need not be
+ * of the same moment.
+ *
+ * Quiz questions are added as they are loaded. The table of quiz questions doubles in size when
+ * full, so adding n quiz questions one at a time copies it O(n) times in total, and adding a list
+ * sizes it once. Growing copies the table, never the counters, so counts recorded while adding are
+ * not lost.
+ */
+
+class QuizAnswerStatistics {
+    //  counters of a quiz question within a stripe
+    private static final int SLOT_ATTEMPTS = 0;
+    private static final int SLOT_CORRECT = 1;
+    private static final int SLOT_UNANSWERED = 2;
+    //  counters of possible answers follow, one per answer
+    private static final int SLOT_ANSWERS = 3;
+
+    //  number of longs in a cache line, the counters of a stripe are padded with it
+    private static final int CACHE_LINE_LONGS = 8;
+    //  number of counters of a block within a stripe, room for the counters of a quiz question of
+    //  64 answers
+    private static final int BLOCK_SLOTS = 512;
+    //  upper limit of stripes, however many CPU cores there are
+    private static final int MAX_STRIPE_COUNT = 16;
+
+    //  initial size of the table of quiz questions
+    private static final int INITIAL_CAPACITY = 16;
+
+    //  number of stripes, a power of two
+    private final int stripeCount;
+    //  counters per quiz question, indexed by quiz question index, null for quiz questions not added.
+    //  Replaced by a copy twice as large when full
+    private volatile QuestionCounters[] questions = new QuestionCounters[0];
+    //  highest index of quiz questions added + 1. Written after the table and the quiz questions
+    //  added, read before them, so quiz questions below it are seen by all threads
+    private volatile int questionCount = 0;
+    //  block quiz questions added are packed into, and the first counter of it not yet taken.
+    //  Accessed with the lock held
+    private Block currentBlock;
+    private int nextSlot = BLOCK_SLOTS;
+
+    /**
+     * constructor for QuizAnswerStatistics object with a stripe per CPU core, without any quiz questions
+     */
+    QuizAnswerStatistics() {
+        int stripeCount = 1;
+        while (stripeCount < Runtime.getRuntime().availableProcessors() && stripeCount < MAX_STRIPE_COUNT) {
+            stripeCount <<= 1;
+        }
+        this.stripeCount = stripeCount;
+    }
+
+    /**
+     * constructor for QuizAnswerStatistics object with all quiz questions of a QuizBank, indexed
+     * like within the QuizBank, e.g. for QuizGradingEngine
+     * @param quizBank is the QuizBank
+     */
+    QuizAnswerStatistics(QuizBank quizBank) {
+        this();
+        QuestionCounters[] bankQuestions = new QuestionCounters[quizBank.size()];
+        for (int i = 0; i < bankQuestions.length; i++) {
+            bankQuestions[i] = newQuestionCounters(quizBank.getAnswerCount(i), quizBank.getCorrectAnswerMask(i));
+        }
+        questions = bankQuestions;
+        questionCount = bankQuestions.length;
+    }
+
+    /**
+     * method to start counting the answers of a quiz question
+     * @param quizQuestion is the QuizQuestion, counted under QuizQuestion.getIndex()
+     */
+    void addQuizQuestion(QuizQuestion quizQuestion) {
+        addQuestion(quizQuestion.getIndex(), quizQuestion.size(), quizQuestion.getCorrectAnswerMask());
+    }
+
+    /**
+     * method to start counting the answers of quiz questions, growing the table of quiz questions
+     * once for all of them
+     * @param quizQuestions are the QuizQuestion objects, each counted under QuizQuestion.getIndex()
+     */
+    synchronized void addQuizQuestions(List<QuizQuestion> quizQuestions) {
+        int count = questionCount;
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            count = Math.max(count, quizQuestion.getIndex() + 1);
+        }
+        QuestionCounters[] current = ensureCapacity(count);
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            if (current[quizQuestion.getIndex()] == null)
+                current[quizQuestion.getIndex()] = newQuestionCounters(quizQuestion.size(),
+                        quizQuestion.getCorrectAnswerMask());
+        }
+        //  publishes the quiz questions added
+        questionCount = count;
+    }
+
+    /**
+     * method to start counting the answers of a quiz question, unless already counted
+     * @param questionIndex is the index of the quiz question
+     * @param answerCount is the number of possible answers
+     * @param correctAnswerMask is the bitmask of correct answers
+     */
+    synchronized void addQuestion(int questionIndex, int answerCount, long correctAnswerMask) {
+        QuestionCounters[] current = ensureCapacity(questionIndex + 1);
+        if (current[questionIndex] != null)
+            return;
+        current[questionIndex] = newQuestionCounters(answerCount, correctAnswerMask);
+        //  publishes the quiz question added
+        questionCount = Math.max(questionCount, questionIndex + 1);
+    }
+
+    /**
+     * method to make room in the table of quiz questions, doubling its size if full. Called with the
+     * lock held
+     * @param capacity is the number of quiz questions to make room for
+     * @return the table of quiz questions
+     */
+    private QuestionCounters[] ensureCapacity(int capacity) {
+        QuestionCounters[] current = questions;
+        if (capacity <= current.length)
+            return current;
+        QuestionCounters[] grown = new QuestionCounters[Math.max(capacity,
+                Math.max(INITIAL_CAPACITY, current.length * 2))];
+        System.arraycopy(current, 0, grown, 0, current.length);
+        questions = grown;
+        return grown;
+    }
+
+    /**
+     * method to take the counters of a quiz question in the current block, starting a new block if
+     * they do not fit. Called with the lock held
+     * @param answerCount is the number of possible answers
+     * @param correctAnswerMask is the bitmask of correct answers
+     * @return the counters of the quiz question
+     */
+    private QuestionCounters newQuestionCounters(int answerCount, long correctAnswerMask) {
+        int slotCount = SLOT_ANSWERS + Math.min(answerCount, 64);
+        if (nextSlot + slotCount > BLOCK_SLOTS) {
+            currentBlock = new Block();
+            nextSlot = 0;
+        }
+        QuestionCounters question = new QuestionCounters(answerCount, correctAnswerMask, currentBlock, nextSlot);
+        nextSlot += slotCount;
+        return question;
+    }
+
+    /**
+     * method to record the answer given to a quiz question. Quiz questions not added are ignored
+     * @param questionIndex is the index of the quiz question
+     * @param selectedAnswerMask is the bitmask of answers selected, 0 for text answers
+     * @param isAnswered is true if any answer is given
+     * @param isCorrect is true if the answer is correct
+     */
+    void record(int questionIndex, long selectedAnswerMask, boolean isAnswered, boolean isCorrect) {
+        int count = questionCount;
+        QuestionCounters[] current = questions;
+        if (questionIndex < 0 || questionIndex >= count || current[questionIndex] == null)
+            return;
+        QuestionCounters question = current[questionIndex];
+        AtomicLongArray counters = question.block.getStripe(
+                (int) (Thread.currentThread().getId() & (stripeCount - 1)));
+        int base = question.offset;
+
+        counters.incrementAndGet(base + SLOT_ATTEMPTS);
+        if (isCorrect)
+            counters.incrementAndGet(base + SLOT_CORRECT);
+        if (!isAnswered)
+            counters.incrementAndGet(base + SLOT_UNANSWERED);
+        //  answers beyond the possible ones are not counted
+        long answerMask = selectedAnswerMask & question.answerMask;
+        while (answerMask != 0) {
+            counters.incrementAndGet(base + SLOT_ANSWERS + Long.numberOfTrailingZeros(answerMask));
+            answerMask &= answerMask - 1;
+        }
+    }
+
+    /**
+     * method to take a snapshot of all counters, without stopping threads recording
+     * @return the snapshot
+     */
+    Snapshot snapshot() {
+        int count = questionCount;
+        QuestionCounters[] current = questions;
+        long[][] counts = new long[count][];
+        long[] correctAnswerMasks = new long[count];
+        for (int i = 0; i < count; i++) {
+            if (current[i] == null)
+                continue;
+            QuestionCounters question = current[i];
+            long[] questionCounts = new long[SLOT_ANSWERS + question.answerCount];
+            for (int stripe = 0; stripe < stripeCount; stripe++) {
+                AtomicLongArray counters = question.block.stripes.get(stripe);
+                if (counters == null)
+                    continue;
+                for (int slot = 0; slot < questionCounts.length; slot++) {
+                    questionCounts[slot] += counters.get(question.offset + slot);
+                }
+            }
+            counts[i] = questionCounts;
+            correctAnswerMasks[i] = question.correctAnswerMask;
+        }
+        return new Snapshot(counts, correctAnswerMasks);
+    }
+
+    /**
+     * method to get statistics on answers, e.g. to be logged
+     * @return human readable statistics
+     */
+    String getStats() {
+        return snapshot().toString();
+    }
+
+    /**
+     * class to hold the counters of the quiz questions packed into a block, an array per stripe
+     */
+    private final class Block {
+        //  counters per stripe, null until a thread of the stripe records into the block
+        private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(stripeCount);
+
+        /**
+         * method to get the counters of a stripe, allocating them on first use
+         * @param stripe is the index of the stripe
+         * @return the counters of the stripe
+         */
+        AtomicLongArray getStripe(int stripe) {
+            AtomicLongArray counters = stripes.get(stripe);
+            if (counters != null)
+                return counters;
+            //  an extra cache line keeps the stripe off whatever follows the array
+            stripes.compareAndSet(stripe, null, new AtomicLongArray(BLOCK_SLOTS + CACHE_LINE_LONGS));
+            return stripes.get(stripe);
+        }
+    }
+
+    /**
+     * class to hold where the counters of a quiz question are, the same place in every stripe
+     */
+    private static final class QuestionCounters {
+        private final int answerCount;
+        //  bitmask of possible answers
+        private final long answerMask;
+        private final long correctAnswerMask;
+        private final Block block;
+        //  index of the first counter within the arrays of the block
+        private final int offset;
+
+        QuestionCounters(int answerCount, long correctAnswerMask, Block block, int offset) {
+            this.answerCount = Math.min(answerCount, 64);
+            this.answerMask = this.answerCount == 64 ? -1L : (1L << this.answerCount) - 1;
+            this.correctAnswerMask = correctAnswerMask;
+            this.block = block;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * class to hold the counters of all quiz questions as of a snapshot
+     */
+    static class Snapshot {
+        //  counters per quiz question, null for quiz questions not added
+        private long[][] counts;
+        private long[] correctAnswerMasks;
+
+        private Snapshot(long[][] counts, long[] correctAnswerMasks) {
+            this.counts = counts;
+            this.correctAnswerMasks = correctAnswerMasks;
+        }
+
+        /**
+         * method to get the number of quiz questions
+         * @return the highest index of quiz questions counted + 1
+         */
+        int getQuestionCount() {
+            return counts.length;
+        }
+
+        /**
+         * method to get the number of possible answers of a quiz question
+         * @param questionIndex is the index of the quiz question
+         * @return the number of answers, 0 if the quiz question is not counted
+         */
+        int getAnswerCount(int questionIndex) {
+            return counts[questionIndex] == null ? 0 : counts[questionIndex].length - SLOT_ANSWERS;
+        }
+
+        long getAttemptCount(int questionIndex) {
+            return get(questionIndex, SLOT_ATTEMPTS);
+        }
+
+        long getCorrectCount(int questionIndex) {
+            return get(questionIndex, SLOT_CORRECT);
+        }
+
+        long getUnansweredCount(int questionIndex) {
+            return get(questionIndex, SLOT_UNANSWERED);
+        }
+
+        /**
+         * method to get the number of times a possible answer was selected
+         * @param questionIndex is the index of the quiz question
+         * @param answerIndex is the index of the answer
+         * @return the number of times selected
+         */
+        long getSelectedCount(int questionIndex, int answerIndex) {
+            return answerIndex < getAnswerCount(questionIndex) ? get(questionIndex, SLOT_ANSWERS + answerIndex) : 0;
+        }
+
+        /**
+         * method to find the wrong answer of a quiz question selected the most times
+         * @param questionIndex is the index of the quiz question
+         * @return the index of the answer, -1 if no wrong answer was selected
+         */
+        int getMostSelectedWrongAnswer(int questionIndex) {
+            int mostSelected = -1;
+            long mostSelectedCount = 0;
+            for (int i = 0; i < getAnswerCount(questionIndex); i++) {
+                long selectedCount = getSelectedCount(questionIndex, i);
+                if ((correctAnswerMasks[questionIndex] & (1L << i)) == 0 && selectedCount > mostSelectedCount) {
+                    mostSelected = i;
+                    mostSelectedCount = selectedCount;
+                }
+            }
+            return mostSelected;
+        }
+
+        /**
+         * method to find the quiz question with the lowest rate of correct answers
+         * @return the index of the quiz question, -1 if no quiz question was attempted
+         */
+        int getMostFailedQuestion() {
+            int mostFailed = -1;
+            double lowestCorrectRate = 2;
+            for (int i = 0; i < counts.length; i++) {
+                long attemptCount = getAttemptCount(i);
+                if (attemptCount == 0)
+                    continue;
+                double correctRate = (double) getCorrectCount(i) / attemptCount;
+                if (correctRate < lowestCorrectRate) {
+                    mostFailed = i;
+                    lowestCorrectRate = correctRate;
+                }
+            }
+            return mostFailed;
+        }
+
+        private long get(int questionIndex, int slot) {
+            return counts[questionIndex] == null ? 0 : counts[questionIndex][slot];
+        }
+
+        /**
+         * method to summarize the snapshot: answers recorded and the most failed quiz question
+         * @return human readable summary
+         */
+        @Override
+        public String toString() {
+            long attemptCount = 0;
+            long correctCount = 0;
+            for (int i = 0; i < counts.length; i++) {
+                attemptCount += getAttemptCount(i);
+                correctCount += getCorrectCount(i);
+            }
+            if (attemptCount == 0)
+                return "no answers recorded";
+            int mostFailed = getMostFailedQuestion();
+            return String.format(Locale.US,
+                    "%d answers recorded, %.1f%% correct; most failed question #%d, %d of %d correct, "
+                            + "most selected wrong answer #%d",
+                    attemptCount, 100.0 * correctCount / attemptCount, mostFailed,
+                    getCorrectCount(mostFailed), getAttemptCount(mostFailed),
+                    getMostSelectedWrongAnswer(mostFailed));
+        }
+    }
+}
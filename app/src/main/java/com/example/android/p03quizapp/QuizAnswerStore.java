@@ -0,0 +1,244 @@
+package com.example.android.p03quizapp;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import java.util.Arrays;
+
+/**
+ * class to hold the answers given by the user, independent of any view:
+ * - a selection bitmask per quiz question for Checkbox and Radio input,
+ *   bit n is set if answer n is checked
+ * - free text per quiz question for EditText input
+ *
+ * Answers are indexed by QuizQuestion.getIndex(). The whole store is saved as a single Parcelable
+ * in onSaveInstanceState, so input views need not save their own state.
+ *
+ * A listener can be set to be notified of every change, e.g. to keep the score up to date.
+ */
+
+class QuizAnswerStore implements Parcelable {
+
+    /**
+     * interface to receive notification when an answer changes
+     */
+    interface OnAnswerChangedListener {
+        /**
+         * method called when the answer given to a quiz question changes
+         * @param questionIndex is the index of the QuizQuestion
+         */
+        void onAnswerChanged(int questionIndex);
+    }
+
+    //  maximum number of possible answers of a choice question, one bit per answer
+    static final int MAX_CHOICES = 64;
+
+    //  initial capacity, arrays grow as quiz questions are loaded
+    private static final int INITIAL_CAPACITY = 16;
+
+    //  number of quiz questions, i.e. highest index used + 1
+    private int size = 0;
+    //  selection bitmask of each quiz question
+    private long[] selections;
+    //  text entered for each quiz question, null if none
+    private String[] texts;
+    //  listener to notify of changes, not saved
+    private OnAnswerChangedListener listener;
+
+    /**
+     * constructor for an empty QuizAnswerStore object
+     */
+    QuizAnswerStore() {
+        selections = new long[INITIAL_CAPACITY];
+        texts = new String[INITIAL_CAPACITY];
+    }
+
+    /**
+     * constructor to restore QuizAnswerStore object from a Parcel
+     * @param in is the Parcel written by writeToParcel
+     */
+    private QuizAnswerStore(Parcel in) {
+        selections = in.createLongArray();
+        size = selections.length;
+        texts = new String[Math.max(size, INITIAL_CAPACITY)];
+        if (selections.length < INITIAL_CAPACITY)
+            selections = Arrays.copyOf(selections, INITIAL_CAPACITY);
+        //  texts are stored as index - text pairs, only for quiz questions having text
+        int textCount = in.readInt();
+        for (int i = 0; i < textCount; i++) {
+            int questionIndex = in.readInt();
+            texts[questionIndex] = in.readString();
+        }
+    }
+
+    /**
+     * method to set the listener to notify when an answer changes
+     * @param listener is the listener or null to stop notifications
+     */
+    void setOnAnswerChangedListener(OnAnswerChangedListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * method to get the selection bitmask of a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     * @return bitmask with bit n set if answer n is selected, 0 if none is selected
+     */
+    long getSelection(int questionIndex) {
+        return questionIndex < size ? selections[questionIndex] : 0;
+    }
+
+    /**
+     * method to replace the selection bitmask of a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     * @param selection is the bitmask with bit n set if answer n is selected
+     */
+    void setSelection(int questionIndex, long selection) {
+        ensureCapacity(questionIndex);
+        selections[questionIndex] = selection;
+        notifyAnswerChanged(questionIndex);
+    }
+
+    /**
+     * method to check whether an answer of a quiz question is selected
+     * @param questionIndex is the index of the QuizQuestion
+     * @param answerIndex is the index of the answer
+     * @return true if selected
+     */
+    boolean isSelected(int questionIndex, int answerIndex) {
+        return (getSelection(questionIndex) & (1L << answerIndex)) != 0;
+    }
+
+    /**
+     * method to select or deselect an answer of a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     * @param answerIndex is the index of the answer
+     * @param selected is true to select, false to deselect
+     */
+    void setSelected(int questionIndex, int answerIndex, boolean selected) {
+        ensureCapacity(questionIndex);
+        if (selected)
+            selections[questionIndex] |= 1L << answerIndex;
+        else
+            selections[questionIndex] &= ~(1L << answerIndex);
+        notifyAnswerChanged(questionIndex);
+    }
+
+    /**
+     * method to get the text entered for a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     * @return the text entered or empty String if none
+     */
+    String getText(int questionIndex) {
+        String text = questionIndex < size ? texts[questionIndex] : null;
+        return text == null ? "" : text;
+    }
+
+    /**
+     * method to set the text entered for a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     * @param text is the text entered
+     */
+    void setText(int questionIndex, String text) {
+        ensureCapacity(questionIndex);
+        texts[questionIndex] = text.isEmpty() ? null : text;
+        notifyAnswerChanged(questionIndex);
+    }
+
+    /**
+     * method to copy the selection bitmasks of quiz questions, e.g. to read them on another thread
+     * @param questionCount is the number of quiz questions to copy, from index 0
+     * @return the bitmasks, indexed by QuizQuestion.getIndex()
+     */
+    long[] copySelections(int questionCount) {
+        long[] copy = new long[questionCount];
+        System.arraycopy(selections, 0, copy, 0, Math.min(size, questionCount));
+        return copy;
+    }
+
+    /**
+     * method to copy the text entered for quiz questions, e.g. to read them on another thread
+     * @param questionCount is the number of quiz questions to copy, from index 0
+     * @return the texts, indexed by QuizQuestion.getIndex(), null where none is entered
+     */
+    String[] copyTexts(int questionCount) {
+        String[] copy = new String[questionCount];
+        System.arraycopy(texts, 0, copy, 0, Math.min(size, questionCount));
+        return copy;
+    }
+
+    /**
+     * method to forget all answers given to a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     */
+    void clear(int questionIndex) {
+        if (questionIndex < size) {
+            selections[questionIndex] = 0;
+            texts[questionIndex] = null;
+            notifyAnswerChanged(questionIndex);
+        }
+    }
+
+    /**
+     * method to let the listener know an answer changed
+     * @param questionIndex is the index of the QuizQuestion
+     */
+    private void notifyAnswerChanged(int questionIndex) {
+        if (listener != null)
+            listener.onAnswerChanged(questionIndex);
+    }
+
+    /**
+     * method to make sure arrays can hold a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     */
+    private void ensureCapacity(int questionIndex) {
+        if (questionIndex >= selections.length) {
+            int capacity = Math.max(questionIndex + 1, selections.length * 2);
+            selections = Arrays.copyOf(selections, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        if (questionIndex >= size)
+            size = questionIndex + 1;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    /**
+     * method to write the answers into a Parcel: selections as a single long array, followed by
+     * the texts of quiz questions having any
+     * @param dest is the Parcel to write into
+     * @param flags is not used
+     */
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLongArray(Arrays.copyOf(selections, size));
+        int textCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (texts[i] != null)
+                textCount++;
+        }
+        dest.writeInt(textCount);
+        for (int i = 0; i < size; i++) {
+            if (texts[i] != null) {
+                dest.writeInt(i);
+                dest.writeString(texts[i]);
+            }
+        }
+    }
+
+    public static final Creator<QuizAnswerStore> CREATOR = new Creator<QuizAnswerStore>() {
+        @Override
+        public QuizAnswerStore createFromParcel(Parcel in) {
+            return new QuizAnswerStore(in);
+        }
+
+        @Override
+        public QuizAnswerStore[] newArray(int size) {
+            return new QuizAnswerStore[size];
+        }
+    };
+}
@@ -0,0 +1,587 @@
+package com.example.android.p03quizapp;
+
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * class to record every attempt - answers checked by the user - into an append-only binary journal
+ * for auditing: time of the attempt, the answer given to each quiz question and its correctness.
+ *
+ * Attempts are appended on the UI thread without blocking: they are queued and written by a
+ * background thread. An attempt may also be queued as a PendingAttempt, built on that thread, so
+ * the UI thread need not build it at all. The writer takes all attempts queued so far as a group, writes them at once
+ * and syncs the file once per group, so however many attempts come in, a sync is shared by all
+ * attempts waiting for it and the cost per attempt stays flat. The file is never rewritten.
+ *
+ * Each record is framed by its length and CRC32. A crash may leave a partially written record at
+ * the end of the journal; on opening, the writer scans the journal and truncates it after the last
+ * intact record before appending. Reader stops at the first damaged record the same way. A group
+ * failing to be written is dropped and the journal truncated after the last group committed; if the
+ * journal cannot be opened or truncated, the writer stops and attempts appended afterwards are
+ * dropped, counted as failed, rather than queued forever.
+ *
+ *  header:
+ *      int     magic number "QZAJ"
+ *      int     format version
+ *
+ *  record:
+ *      int     length of payload in bytes
+ *      int     CRC32 of payload
+ *      payload:
+ *          long    time of the attempt, milliseconds since epoch
+ *          int     number of quiz questions
+ *          per quiz question:
+ *              byte    answer kind: ANSWER_NONE, ANSWER_CHOICE or ANSWER_TEXT
+ *              long    bitmask of selected answers, for ANSWER_CHOICE only
+ *              int     length of text in bytes, followed by UTF-8 bytes of text, for ANSWER_TEXT only
+ *          long[]  correctness bits, bit n of word n / 64 set if quiz question n is answered correctly
+ *
+ * All numbers are big endian. No Android class is used but Log, so journals can be read anywhere.
+ */
+
+class QuizAttemptJournal {
+    private static String logTag = QuizAttemptJournal.class.getSimpleName();
+
+    //  name of the journal file within the app's files directory
+    static final String FILE_NAME = "attempts.journal";
+
+    //  "QZAJ" in ASCII
+    static final int MAGIC = 0x515A414A;
+    //  current format version, increment on any incompatible change
+    static final int VERSION = 1;
+    //  size of header in bytes: 2 ints
+    private static final int HEADER_SIZE = 2 * 4;
+    //  size of record framing in bytes: length and CRC32
+    private static final int FRAME_SIZE = 2 * 4;
+    //  largest payload accepted, a larger length is taken for a damaged record
+    private static final int MAX_PAYLOAD_SIZE = 16 * 1024 * 1024;
+
+    //  answer kinds
+    static final byte ANSWER_NONE = 0;
+    static final byte ANSWER_CHOICE = 1;
+    static final byte ANSWER_TEXT = 2;
+
+    //  queued in place of an attempt to stop the writer once all attempts before it are written
+    private static final Attempt STOP = new Attempt(0, 0);
+
+    private File file;
+    //  attempts waiting to be written
+    private LinkedBlockingQueue<PendingAttempt> queue = new LinkedBlockingQueue<>();
+    private Thread writerThread;
+    private volatile boolean isShutdown = false;
+    //  true once the writer stopped on error, attempts are no longer written
+    private volatile boolean isFailed = false;
+
+    //  statistics
+    private AtomicLong recoveredCount = new AtomicLong();
+    private AtomicLong truncatedBytes = new AtomicLong();
+    private AtomicLong writtenCount = new AtomicLong();
+    private AtomicLong commitCount = new AtomicLong();
+    private AtomicLong failedCount = new AtomicLong();
+
+    /**
+     * constructor for QuizAttemptJournal object. The journal is opened, recovered and appended to
+     * on a background thread, so this does not touch the file
+     * @param file is the journal file, created if it does not exist
+     */
+    QuizAttemptJournal(File file) {
+        this.file = file;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeLoop();
+            }
+        }, logTag);
+        writerThread.start();
+    }
+
+    /**
+     * method to queue an attempt to be written. Returns at once, the attempt is written and synced
+     * to storage on the background thread, along with other attempts queued meanwhile. If the
+     * writer stopped on error, the attempt is dropped and counted as failed
+     * @param attempt is the attempt, must not be changed afterwards, or the PendingAttempt to build
+     *                it on the background thread
+     */
+    void append(PendingAttempt attempt) {
+        if (isShutdown)
+            throw new IllegalStateException("Attempt journal is shut down");
+        if (isFailed) {
+            failedCount.incrementAndGet();
+            return;
+        }
+        queue.add(attempt);
+        //  the writer may have failed and cleared the queue meanwhile
+        if (isFailed && queue.remove(attempt))
+            failedCount.incrementAndGet();
+    }
+
+    /**
+     * method to check whether the writer stopped on error, so attempts are no longer written
+     * @return true if failed
+     */
+    boolean isFailed() {
+        return isFailed;
+    }
+
+    /**
+     * method to stop the writer once all attempts queued so far are written, without waiting for it
+     */
+    void shutdown() {
+        if (isShutdown)
+            return;
+        isShutdown = true;
+        queue.add(STOP);
+    }
+
+    /**
+     * method to wait for the writer to stop after shutdown, e.g. before reading the journal back
+     * @param timeoutMillis is the longest time to wait in milliseconds
+     * @return true if stopped, false on timeout
+     * @throws InterruptedException if interrupted while waiting
+     */
+    boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        writerThread.join(timeoutMillis);
+        return !writerThread.isAlive();
+    }
+
+    /**
+     * method to get statistics on the journal, e.g. to be logged
+     * @return human readable statistics
+     */
+    String getStats() {
+        return String.format(Locale.US,
+                "%d attempts written in %d commits, %d failed; recovered %d attempts, truncated %d bytes",
+                writtenCount.get(), commitCount.get(), failedCount.get(), recoveredCount.get(),
+                truncatedBytes.get());
+    }
+
+    /**
+     * method run by the writer thread: open and recover the journal, then write queued attempts a
+     * group at a time until stopped
+     */
+    private void writeLoop() {
+        RandomAccessFile journal = null;
+        ArrayList<PendingAttempt> group = new ArrayList<>();
+        ByteArrayOutputStream groupBytes = new ByteArrayOutputStream(4096);
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(1024);
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        DataOutputStream frames = new DataOutputStream(groupBytes);
+        CRC32 crc = new CRC32();
+        boolean isStopped = false;
+        try {
+            journal = open();
+            while (!isStopped) {
+                //  wait for an attempt, then take everything queued behind it as the same group
+                group.add(queue.take());
+                queue.drainTo(group);
+                groupBytes.reset();
+                int attemptCount = 0;
+                for (PendingAttempt pendingAttempt : group) {
+                    if (pendingAttempt == STOP) {
+                        isStopped = true;
+                        break;
+                    }
+                    Attempt attempt;
+                    try {
+                        attempt = pendingAttempt.build();
+                    } catch (RuntimeException e) {
+                        Log.e(logTag, "Failed to build attempt", e);
+                        failedCount.incrementAndGet();
+                        continue;
+                    }
+                    payloadBytes.reset();
+                    attempt.writeTo(payload);
+                    crc.reset();
+                    crc.update(payloadBytes.toByteArray(), 0, payloadBytes.size());
+                    frames.writeInt(payloadBytes.size());
+                    frames.writeInt((int) crc.getValue());
+                    payloadBytes.writeTo(frames);
+                    attemptCount++;
+                }
+                group.clear();
+                if (attemptCount == 0)
+                    continue;
+
+                long startNanos = QuizMetrics.startTimer();
+                long end = journal.length();
+                try {
+                    journal.seek(end);
+                    journal.write(groupBytes.toByteArray(), 0, groupBytes.size());
+                    journal.getFD().sync();
+                    writtenCount.addAndGet(attemptCount);
+                    commitCount.incrementAndGet();
+                } catch (IOException e) {
+                    //  drop the group, and whatever part of it made it to the file. If that part
+                    //  cannot be cut off, the outer catch stops the writer, as groups appended after
+                    //  it would be lost on recovery anyway
+                    Log.e(logTag, "Failed to write " + attemptCount + " attempts to " + file, e);
+                    failedCount.addAndGet(attemptCount);
+                    journal.setLength(end);
+                }
+                QuizMetrics.stopTimer(QuizMetrics.TIMER_JOURNAL_COMMIT, startNanos);
+            }
+        } catch (IOException e) {
+            Log.e(logTag, "Attempt journal " + file + " failed, attempts are not recorded", e);
+        } catch (InterruptedException e) {
+            Log.w(logTag, "Attempt journal " + file + " interrupted");
+        } finally {
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    Log.e(logTag, "Failed to close " + file, e);
+                }
+            }
+            //  attempts still queued and appended from now on are never written
+            if (!isStopped)
+                isFailed = true;
+            for (PendingAttempt attempt : group) {
+                if (attempt != STOP)
+                    failedCount.incrementAndGet();
+            }
+            group.clear();
+            PendingAttempt attempt;
+            while ((attempt = queue.poll()) != null) {
+                if (attempt != STOP)
+                    failedCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * method to open the journal for appending: write the header of a new or empty journal, or
+     * truncate an existing one after its last intact record
+     * @return the journal file positioned at its end
+     * @throws IOException on error or if the file is not an attempt journal
+     */
+    private RandomAccessFile open() throws IOException {
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        boolean isOpened = false;
+        try {
+            long length = journal.length();
+            if (length < HEADER_SIZE) {
+                //  new journal, or a crash before the header was written
+                journal.setLength(0);
+                journal.writeInt(MAGIC);
+                journal.writeInt(VERSION);
+                journal.getFD().sync();
+                truncatedBytes.addAndGet(length);
+                isOpened = true;
+                return journal;
+            }
+
+            if (journal.readInt() != MAGIC)
+                throw new IOException(file + " is not an attempt journal");
+            int version = journal.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported attempt journal version " + version + " in " + file);
+
+            long intactLength = HEADER_SIZE;
+            byte[] buffer = new byte[1024];
+            CRC32 crc = new CRC32();
+            while (intactLength + FRAME_SIZE <= length) {
+                journal.seek(intactLength);
+                int payloadSize = journal.readInt();
+                int payloadCrc = journal.readInt();
+                if (payloadSize < 0 || payloadSize > MAX_PAYLOAD_SIZE
+                        || intactLength + FRAME_SIZE + payloadSize > length)
+                    break;
+                if (buffer.length < payloadSize)
+                    buffer = new byte[payloadSize];
+                journal.readFully(buffer, 0, payloadSize);
+                crc.reset();
+                crc.update(buffer, 0, payloadSize);
+                if ((int) crc.getValue() != payloadCrc)
+                    break;
+                intactLength += FRAME_SIZE + payloadSize;
+                recoveredCount.incrementAndGet();
+            }
+            if (intactLength < length) {
+                Log.w(logTag, "Truncating " + (length - intactLength) + " bytes of damaged records from " + file);
+                journal.setLength(intactLength);
+                journal.getFD().sync();
+                truncatedBytes.addAndGet(length - intactLength);
+            }
+            journal.seek(intactLength);
+            isOpened = true;
+            return journal;
+        } finally {
+            if (!isOpened)
+                journal.close();
+        }
+    }
+
+    /**
+     * interface of an attempt to be built on the writer thread, e.g. of answers copied on the UI thread
+     */
+    interface PendingAttempt {
+        /**
+         * method to build the attempt, called on the writer thread once before it is written
+         * @return the attempt
+         */
+        Attempt build();
+    }
+
+    /**
+     * class to hold an attempt: time, answers given and correctness of each quiz question.
+     * Answers are kept in a QuizGradingEngine.Submission, so attempts read back from a journal can
+     * be graded again
+     */
+    static class Attempt implements PendingAttempt {
+        private long timeMillis;
+        private QuizGradingEngine.Submission submission;
+        private long[] correctWords;
+        private int questionCount;
+        private int score = 0;
+
+        /**
+         * constructor for Attempt object without any answers
+         * @param timeMillis is the time of the attempt, milliseconds since epoch. Also used as the
+         *                   id of the submission
+         * @param questionCount is the number of quiz questions
+         */
+        Attempt(long timeMillis, int questionCount) {
+            this.timeMillis = timeMillis;
+            this.questionCount = questionCount;
+            this.submission = new QuizGradingEngine.Submission(timeMillis, questionCount);
+            this.correctWords = new long[(questionCount + 63) >>> 6];
+        }
+
+        /**
+         * method to build the attempt: it is built already
+         * @return this attempt
+         */
+        @Override
+        public Attempt build() {
+            return this;
+        }
+
+        long getTimeMillis() {
+            return timeMillis;
+        }
+
+        int getQuestionCount() {
+            return questionCount;
+        }
+
+        /**
+         * method to get the answers given
+         * @return the answers, indexed by the index of quiz questions
+         */
+        QuizGradingEngine.Submission getSubmission() {
+            return submission;
+        }
+
+        /**
+         * method to set the answers selected for a choice question
+         * @param questionIndex is the index of the quiz question
+         * @param selectedAnswerMask is the bitmask of answers selected
+         */
+        void setSelectedAnswerMask(int questionIndex, long selectedAnswerMask) {
+            submission.setSelectedAnswerMask(questionIndex, selectedAnswerMask);
+        }
+
+        /**
+         * method to set the answer entered for a text question
+         * @param questionIndex is the index of the quiz question
+         * @param inputText is the text entered, null for none
+         */
+        void setInputText(int questionIndex, String inputText) {
+            submission.setInputText(questionIndex, inputText);
+        }
+
+        /**
+         * method to set whether a quiz question is answered correctly
+         * @param questionIndex is the index of the quiz question
+         * @param isCorrect is true if the answer is correct
+         */
+        void setCorrect(int questionIndex, boolean isCorrect) {
+            if (isCorrect == isCorrect(questionIndex))
+                return;
+            correctWords[questionIndex >>> 6] ^= 1L << questionIndex;
+            score += isCorrect ? 1 : -1;
+        }
+
+        /**
+         * method to check whether a quiz question is answered correctly
+         * @param questionIndex is the index of the quiz question
+         * @return true if correct
+         */
+        boolean isCorrect(int questionIndex) {
+            return (correctWords[questionIndex >>> 6] & (1L << questionIndex)) != 0;
+        }
+
+        /**
+         * method to get the number of correct answers
+         * @return the score
+         */
+        int getScore() {
+            return score;
+        }
+
+        /**
+         * method to write the attempt as a record payload
+         * @param out is the stream to write to
+         * @throws IOException on error
+         */
+        private void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(timeMillis);
+            out.writeInt(questionCount);
+            for (int i = 0; i < questionCount; i++) {
+                String inputText = submission.getInputText(i);
+                long selectedAnswerMask = submission.getSelectedAnswerMask(i);
+                if (inputText != null) {
+                    byte[] text = inputText.getBytes("UTF-8");
+                    out.writeByte(ANSWER_TEXT);
+                    out.writeInt(text.length);
+                    out.write(text);
+                } else if (selectedAnswerMask != 0) {
+                    out.writeByte(ANSWER_CHOICE);
+                    out.writeLong(selectedAnswerMask);
+                } else {
+                    out.writeByte(ANSWER_NONE);
+                }
+            }
+            for (long word : correctWords) {
+                out.writeLong(word);
+            }
+        }
+
+        /**
+         * method to read an attempt from a record payload
+         * @param in is the stream to read from
+         * @return the attempt
+         * @throws IOException on error or if the payload is malformed
+         */
+        private static Attempt readFrom(DataInputStream in) throws IOException {
+            long timeMillis = in.readLong();
+            int questionCount = in.readInt();
+            if (questionCount < 0 || questionCount > MAX_PAYLOAD_SIZE)
+                throw new IOException("Invalid question count " + questionCount);
+            Attempt attempt = new Attempt(timeMillis, questionCount);
+            for (int i = 0; i < questionCount; i++) {
+                byte answerKind = in.readByte();
+                if (answerKind == ANSWER_TEXT) {
+                    int textLength = in.readInt();
+                    if (textLength < 0 || textLength > MAX_PAYLOAD_SIZE)
+                        throw new IOException("Invalid text length " + textLength);
+                    byte[] text = new byte[textLength];
+                    in.readFully(text);
+                    attempt.setInputText(i, new String(text, "UTF-8"));
+                } else if (answerKind == ANSWER_CHOICE) {
+                    attempt.setSelectedAnswerMask(i, in.readLong());
+                } else if (answerKind != ANSWER_NONE) {
+                    throw new IOException("Invalid answer kind " + answerKind);
+                }
+            }
+            for (int i = 0; i < attempt.correctWords.length; i++) {
+                attempt.correctWords[i] = in.readLong();
+                attempt.score += Long.bitCount(attempt.correctWords[i]);
+            }
+            return attempt;
+        }
+    }
+
+    /**
+     * class to read attempts back from a journal, one at a time, e.g. to audit or re-grade them.
+     * A journal may be read while being written, only attempts synced so far are read
+     */
+    static class Reader implements Closeable {
+        private DataInputStream in;
+        private byte[] buffer = new byte[1024];
+        private CRC32 crc = new CRC32();
+        //  true once the end or a damaged record is reached
+        private boolean isFinished = false;
+        //  true if reading stopped at a damaged record rather than the end of the journal
+        private boolean isDamaged = false;
+
+        /**
+         * constructor for Reader object
+         * @param file is the journal file
+         * @throws IOException on error or if the file is not an attempt journal
+         */
+        Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            boolean isOpened = false;
+            try {
+                if (in.readInt() != MAGIC)
+                    throw new IOException(file + " is not an attempt journal");
+                int version = in.readInt();
+                if (version != VERSION)
+                    throw new IOException("Unsupported attempt journal version " + version + " in " + file);
+                isOpened = true;
+            } finally {
+                if (!isOpened)
+                    in.close();
+            }
+        }
+
+        /**
+         * method to read the next attempt
+         * @return the attempt or null at the end of the journal or at a damaged record
+         * @throws IOException on error
+         */
+        Attempt next() throws IOException {
+            if (isFinished)
+                return null;
+            try {
+                //  the end of the journal may only come before a record
+                int first = in.read();
+                if (first < 0)
+                    return finish(false);
+                int payloadSize = (first << 24) | (in.readUnsignedByte() << 16) | in.readUnsignedShort();
+                int payloadCrc = in.readInt();
+                if (payloadSize < 0 || payloadSize > MAX_PAYLOAD_SIZE)
+                    return finish(true);
+                if (buffer.length < payloadSize)
+                    buffer = new byte[payloadSize];
+                in.readFully(buffer, 0, payloadSize);
+                crc.reset();
+                crc.update(buffer, 0, payloadSize);
+                if ((int) crc.getValue() != payloadCrc)
+                    return finish(true);
+                return Attempt.readFrom(new DataInputStream(
+                        new ByteArrayInputStream(buffer, 0, payloadSize)));
+            } catch (EOFException e) {
+                //  partially written record
+                return finish(true);
+            }
+        }
+
+        /**
+         * method to check whether reading stopped at a damaged record, e.g. one partially written
+         * when the app crashed
+         * @return true if damaged, false if the end of the journal is reached or not yet
+         */
+        boolean isDamaged() {
+            return isDamaged;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private Attempt finish(boolean isDamaged) {
+            this.isFinished = true;
+            this.isDamaged = isDamaged;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.example.android.p03quizapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * class to hold the data of many quiz questions in flat primitive arrays, one element per quiz
+ * question, instead of an object graph of lists and boxed values per quiz question:
+ * - question, input type and header image name are indexes into a string pool
+ * - answers of quiz question n are the string indexes from answerStarts[n] to answerStarts[n + 1]
+ * - correct answers are a bitmask, bit n set if answer n is correct
+ * - input type codes and header image resource ids are stored as they are
+ * - accepted answers of text and Numeric questions are compiled into a QuizAnswerMatcher when added
+ *
+ * Strings are deduplicated within the pool, so answers repeated all over a quiz bank such as
+ * "True" and "False" are stored once. QuizQuestion objects are lightweight views of a quiz question
+ * of the bank, see getQuizQuestion.
+ *
+ * QuizBank objects are created by a QuizBank.Builder. Quiz questions of a bank never change once
+ * added, so they may be read on any thread once published. A bank can also be read while it is still
+ * being built, see Builder.getQuizQuestion: it then only grows, its arrays are replaced by larger
+ * copies through volatile fields, so quiz questions already handed out stay readable.
+ */
+
+class QuizBank {
+    //  number of quiz questions. Arrays may be longer while the bank is being built
+    private volatile int size;
+    //  string pool, shared by all quiz questions of the bank
+    private volatile String[] strings;
+    //  per quiz question: string indexes, QuizBankFile.NO_STRING if null
+    private volatile int[] headerImageNames;
+    private volatile int[] questions;
+    private volatile int[] inputTypes;
+    //  per quiz question: resource id of header image, 0 if none
+    private volatile int[] headerImageResIds;
+    //  per quiz question: input type code, see QuizInputTypeRegistry
+    private volatile byte[] inputTypeCodes;
+    //  per quiz question: bitmask of correct answers
+    private volatile long[] correctAnswerMasks;
+    //  per quiz question: number of characters text answers may differ in from accepted answers
+    private volatile byte[] maxEditDistances;
+    //  per quiz question: tolerance and range of accepted numbers of Numeric questions, NaN if no range
+    private volatile double[] numericTolerances;
+    private volatile double[] numericMinimums;
+    private volatile double[] numericMaximums;
+    //  per quiz question: matcher of accepted answers of text and Numeric questions, null for choice questions
+    private volatile QuizAnswerMatcher[] answerMatchers;
+    //  per quiz question plus one: index of first answer in answers, answers of the next one follow
+    private volatile int[] answerStarts;
+    //  string indexes of answers of all quiz questions, in order
+    private volatile int[] answers;
+
+    /**
+     * class to build a QuizBank by adding quiz questions one by one
+     */
+    static class Builder {
+        private HashMap<String, Integer> stringIndexes = new HashMap<>();
+        private String[] strings = new String[16];
+        private int stringCount = 0;
+        private int[] headerImageNames;
+        private int[] questions;
+        private int[] inputTypes;
+        private int[] headerImageResIds;
+        private byte[] inputTypeCodes;
+        private long[] correctAnswerMasks;
+        private byte[] maxEditDistances;
+        private double[] numericTolerances;
+        private double[] numericMinimums;
+        private double[] numericMaximums;
+        private QuizAnswerMatcher[] answerMatchers;
+        private int[] answerStarts;
+        private int[] answers;
+        private int size = 0;
+        private int answerCount = 0;
+        //  bank read while being built, see getQuizQuestion, null if not asked for
+        private QuizBank growingQuizBank;
+
+        /**
+         * constructor for Builder object
+         */
+        Builder() {
+            this(16);
+        }
+
+        /**
+         * constructor for Builder object with room for a known number of quiz questions
+         * @param capacity is the expected number of quiz questions
+         */
+        Builder(int capacity) {
+            capacity = Math.max(capacity, 1);
+            headerImageNames = new int[capacity];
+            questions = new int[capacity];
+            inputTypes = new int[capacity];
+            headerImageResIds = new int[capacity];
+            inputTypeCodes = new byte[capacity];
+            correctAnswerMasks = new long[capacity];
+            maxEditDistances = new byte[capacity];
+            numericTolerances = new double[capacity];
+            numericMinimums = new double[capacity];
+            numericMaximums = new double[capacity];
+            answerMatchers = new QuizAnswerMatcher[capacity];
+            answerStarts = new int[capacity + 1];
+            answers = new int[capacity * 4];
+        }
+
+        /**
+         * method to add a quiz question, text answers matched exactly
+         * @param headerImageName is the drawable resource name of header image or null
+         * @param headerImageResId is the resource id of header image or 0
+         * @param question is the question text
+         * @param inputType is the input type string - EditText, Radio, Checkbox, Numeric
+         * @param quizAnswers are the possible answers, see the other add method for limits
+         * @param correctAnswerMask is the bitmask of correct answers, bit n set if answer n is correct
+         * @return index of the quiz question within the bank
+         */
+        int add(String headerImageName, int headerImageResId, String question, String inputType,
+                List<String> quizAnswers, long correctAnswerMask) {
+            return add(headerImageName, headerImageResId, question, inputType, quizAnswers, correctAnswerMask, 0);
+        }
+
+        /**
+         * method to add a quiz question, numbers of Numeric questions matched exactly
+         * @param headerImageName is the drawable resource name of header image or null
+         * @param headerImageResId is the resource id of header image or 0
+         * @param question is the question text
+         * @param inputType is the input type string - EditText, Radio, Checkbox, Numeric
+         * @param quizAnswers are the possible answers, at most QuizAnswerStore.MAX_CHOICES for choice
+         *                    questions. Text and Numeric questions may have up to
+         *                    QuizTextAnswerMatcher.MAX_VARIANTS accepted answers, answers beyond the
+         *                    bits of correctAnswerMask are accepted
+         * @param correctAnswerMask is the bitmask of correct answers, bit n set if answer n is correct
+         * @param maxEditDistance is the number of characters text answers may differ in from accepted
+         *                        answers, from 0 to QuizTextAnswerMatcher.MAX_EDIT_DISTANCE
+         * @return index of the quiz question within the bank
+         */
+        int add(String headerImageName, int headerImageResId, String question, String inputType,
+                List<String> quizAnswers, long correctAnswerMask, int maxEditDistance) {
+            return add(headerImageName, headerImageResId, question, inputType, quizAnswers, correctAnswerMask,
+                    maxEditDistance, 0, Double.NaN, Double.NaN);
+        }
+
+        /**
+         * method to add a quiz question, with the tolerance and range of accepted numbers of Numeric
+         * questions. Answers of a Numeric question are parsed into numbers here, once
+         * @param headerImageName is the drawable resource name of header image or null
+         * @param headerImageResId is the resource id of header image or 0
+         * @param question is the question text
+         * @param inputType is the input type string - EditText, Radio, Checkbox, Numeric
+         * @param quizAnswers are the possible answers, see the 7 argument add method for limits
+         * @param correctAnswerMask is the bitmask of correct answers, bit n set if answer n is correct
+         * @param maxEditDistance is the number of characters text answers may differ in from accepted answers
+         * @param numericTolerance is the largest difference from an accepted number still accepted
+         * @param numericMinimum is the lowest number of a range of accepted numbers, NaN for no range
+         * @param numericMaximum is the highest number of a range of accepted numbers, NaN for no range
+         * @return index of the quiz question within the bank
+         */
+        int add(String headerImageName, int headerImageResId, String question, String inputType,
+                List<String> quizAnswers, long correctAnswerMask, int maxEditDistance,
+                double numericTolerance, double numericMinimum, double numericMaximum) {
+            int inputTypeCode = QuizInputTypeRegistry.getCode(inputType);
+            boolean isChoiceInput = QuizInputTypeRegistry.isChoiceInput(inputTypeCode);
+            int maxAnswerCount = isChoiceInput ? QuizAnswerStore.MAX_CHOICES : QuizTextAnswerMatcher.MAX_VARIANTS;
+            if (quizAnswers.size() > maxAnswerCount)
+                throw new IllegalArgumentException("More than " + maxAnswerCount
+                        + " answers for question " + question);
+            //  compiled before anything is added, so invalid answers leave the builder as it was
+            QuizAnswerMatcher answerMatcher = null;
+            if (QuizInputTypeRegistry.getKind(inputTypeCode) == QuizInputType.KIND_NUMERIC)
+                answerMatcher = new QuizNumericAnswerMatcher(getAcceptedAnswers(quizAnswers, correctAnswerMask),
+                        numericTolerance, numericMinimum, numericMaximum);
+            else if (!isChoiceInput)
+                answerMatcher = new QuizTextAnswerMatcher(getAcceptedAnswers(quizAnswers, correctAnswerMask),
+                        maxEditDistance);
+            if (size == questions.length)
+                grow(size * 2);
+            if (answerCount + quizAnswers.size() > answers.length)
+                answers = Arrays.copyOf(answers, Math.max(answers.length * 2, answerCount + quizAnswers.size()));
+
+            headerImageNames[size] = addString(headerImageName);
+            headerImageResIds[size] = headerImageResId;
+            questions[size] = addString(question);
+            inputTypes[size] = addString(inputType);
+            inputTypeCodes[size] = (byte) inputTypeCode;
+            correctAnswerMasks[size] = correctAnswerMask;
+            maxEditDistances[size] = (byte) maxEditDistance;
+            numericTolerances[size] = numericTolerance;
+            numericMinimums[size] = numericMinimum;
+            numericMaximums[size] = numericMaximum;
+            answerMatchers[size] = answerMatcher;
+            answerStarts[size] = answerCount;
+            for (String answer : quizAnswers) {
+                answers[answerCount++] = addString(answer);
+            }
+            answerStarts[size + 1] = answerCount;
+            size++;
+            if (growingQuizBank != null)
+                publish(growingQuizBank);
+            return size - 1;
+        }
+
+        /**
+         * method to add a copy of a quiz question, e.g. of another bank
+         * @param quizQuestion is the QuizQuestion object
+         * @return index of the quiz question within the bank
+         */
+        int add(QuizQuestion quizQuestion) {
+            ArrayList<String> quizAnswers = new ArrayList<>(quizQuestion.size());
+            for (int i = 0; i < quizQuestion.size(); i++) {
+                quizAnswers.add(quizQuestion.getAnswer(i));
+            }
+            return add(quizQuestion.getHeaderImageName(), quizQuestion.getHeaderImageResId(),
+                    quizQuestion.getQuestion(), quizQuestion.getInputType(), quizAnswers,
+                    quizQuestion.getCorrectAnswerMask(), quizQuestion.getMaxEditDistance(),
+                    quizQuestion.getNumericTolerance(), quizQuestion.getNumericMinimum(),
+                    quizQuestion.getNumericMaximum());
+        }
+
+        /**
+         * method to select the accepted answers of a text question
+         * @param quizAnswers are the possible answers
+         * @param correctAnswerMask is the bitmask of correct answers
+         * @return the answers with their bit set, and all answers beyond the bits of the bitmask
+         */
+        private static List<String> getAcceptedAnswers(List<String> quizAnswers, long correctAnswerMask) {
+            ArrayList<String> acceptedAnswers = new ArrayList<>(quizAnswers.size());
+            for (int i = 0; i < quizAnswers.size(); i++) {
+                if (i >= QuizAnswerStore.MAX_CHOICES || (correctAnswerMask & (1L << i)) != 0)
+                    acceptedAnswers.add(quizAnswers.get(i));
+            }
+            return acceptedAnswers;
+        }
+
+        /**
+         * method to get the number of quiz questions added so far
+         * @return number of quiz questions
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * method to get a QuizQuestion view of a quiz question added so far, while more are added.
+         * All such views are backed by a single QuizBank, which is updated to the arrays of the
+         * builder on every add, so they may be handed over to other threads, e.g. by a Handler, and
+         * read while the bank grows. build() then returns that same QuizBank
+         * @param bankIndex is the index of the quiz question, as returned by add
+         * @return new QuizQuestion object, its index set to the index within the bank
+         */
+        QuizQuestion getQuizQuestion(int bankIndex) {
+            if (growingQuizBank == null) {
+                growingQuizBank = new QuizBank();
+                publish(growingQuizBank);
+            }
+            return growingQuizBank.getQuizQuestion(bankIndex);
+        }
+
+        /**
+         * method to point a QuizBank to the arrays of the builder. Arrays are written before size,
+         * so a reader finding a quiz question within size finds its data too
+         * @param quizBank is the QuizBank
+         */
+        private void publish(QuizBank quizBank) {
+            quizBank.strings = strings;
+            quizBank.headerImageNames = headerImageNames;
+            quizBank.questions = questions;
+            quizBank.inputTypes = inputTypes;
+            quizBank.headerImageResIds = headerImageResIds;
+            quizBank.inputTypeCodes = inputTypeCodes;
+            quizBank.correctAnswerMasks = correctAnswerMasks;
+            quizBank.maxEditDistances = maxEditDistances;
+            quizBank.numericTolerances = numericTolerances;
+            quizBank.numericMinimums = numericMinimums;
+            quizBank.numericMaximums = numericMaximums;
+            quizBank.answerMatchers = answerMatchers;
+            quizBank.answerStarts = answerStarts;
+            quizBank.answers = answers;
+            quizBank.size = size;
+        }
+
+        /**
+         * method to create the QuizBank of quiz questions added so far, arrays trimmed to size. If
+         * quiz questions were read while being built, it is the QuizBank backing them, and quiz
+         * questions added afterwards go into a new one
+         * @return the QuizBank object
+         */
+        QuizBank build() {
+            QuizBank quizBank = growingQuizBank != null ? growingQuizBank : new QuizBank();
+            growingQuizBank = null;
+            quizBank.strings = Arrays.copyOf(strings, stringCount);
+            quizBank.headerImageNames = Arrays.copyOf(headerImageNames, size);
+            quizBank.questions = Arrays.copyOf(questions, size);
+            quizBank.inputTypes = Arrays.copyOf(inputTypes, size);
+            quizBank.headerImageResIds = Arrays.copyOf(headerImageResIds, size);
+            quizBank.inputTypeCodes = Arrays.copyOf(inputTypeCodes, size);
+            quizBank.correctAnswerMasks = Arrays.copyOf(correctAnswerMasks, size);
+            quizBank.maxEditDistances = Arrays.copyOf(maxEditDistances, size);
+            quizBank.numericTolerances = Arrays.copyOf(numericTolerances, size);
+            quizBank.numericMinimums = Arrays.copyOf(numericMinimums, size);
+            quizBank.numericMaximums = Arrays.copyOf(numericMaximums, size);
+            quizBank.answerMatchers = Arrays.copyOf(answerMatchers, size);
+            quizBank.answerStarts = Arrays.copyOf(answerStarts, size + 1);
+            quizBank.answers = Arrays.copyOf(answers, answerCount);
+            quizBank.size = size;
+            return quizBank;
+        }
+
+        /**
+         * method to make room for more quiz questions
+         * @param capacity is the new number of quiz questions
+         */
+        private void grow(int capacity) {
+            headerImageNames = Arrays.copyOf(headerImageNames, capacity);
+            questions = Arrays.copyOf(questions, capacity);
+            inputTypes = Arrays.copyOf(inputTypes, capacity);
+            headerImageResIds = Arrays.copyOf(headerImageResIds, capacity);
+            inputTypeCodes = Arrays.copyOf(inputTypeCodes, capacity);
+            correctAnswerMasks = Arrays.copyOf(correctAnswerMasks, capacity);
+            maxEditDistances = Arrays.copyOf(maxEditDistances, capacity);
+            numericTolerances = Arrays.copyOf(numericTolerances, capacity);
+            numericMinimums = Arrays.copyOf(numericMinimums, capacity);
+            numericMaximums = Arrays.copyOf(numericMaximums, capacity);
+            answerMatchers = Arrays.copyOf(answerMatchers, capacity);
+            answerStarts = Arrays.copyOf(answerStarts, capacity + 1);
+        }
+
+        /**
+         * method to add a string to the string pool, unless already added
+         * @param string is the string or null
+         * @return the index of string in string pool or QuizBankFile.NO_STRING if null
+         */
+        private int addString(String string) {
+            if (string == null)
+                return QuizBankFile.NO_STRING;
+            Integer index = stringIndexes.get(string);
+            if (index == null) {
+                if (stringCount == strings.length)
+                    strings = Arrays.copyOf(strings, stringCount * 2);
+                index = stringCount;
+                strings[stringCount++] = string;
+                stringIndexes.put(string, index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * constructor for QuizBank object, see Builder
+     */
+    private QuizBank() {
+    }
+
+    /**
+     * method to get the number of quiz questions in the bank
+     * @return number of quiz questions
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * method to create a QuizQuestion view of a quiz question in the bank
+     * @param bankIndex is the index of the quiz question, from 0 to size() - 1
+     * @return new QuizQuestion object, its index set to the index within the bank
+     */
+    QuizQuestion getQuizQuestion(int bankIndex) {
+        if (bankIndex < 0 || bankIndex >= size)
+            throw new IndexOutOfBoundsException("Quiz question " + bankIndex + " of " + size);
+        return new QuizQuestion(this, bankIndex);
+    }
+
+    /**
+     * method to create QuizQuestion views of all quiz questions in the bank
+     * @return ArrayList of QuizQuestion objects, in order of the bank and indexed from 0
+     */
+    ArrayList<QuizQuestion> getQuizQuestions() {
+        int size = this.size;
+        ArrayList<QuizQuestion> quizQuestions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            quizQuestions.add(new QuizQuestion(this, i));
+        }
+        return quizQuestions;
+    }
+
+    //  field accessors of QuizQuestion, by index within the bank
+
+    String getHeaderImageName(int bankIndex) {
+        return getString(headerImageNames[bankIndex]);
+    }
+
+    int getHeaderImageResId(int bankIndex) {
+        return headerImageResIds[bankIndex];
+    }
+
+    String getQuestion(int bankIndex) {
+        return getString(questions[bankIndex]);
+    }
+
+    String getInputType(int bankIndex) {
+        return getString(inputTypes[bankIndex]);
+    }
+
+    int getInputTypeCode(int bankIndex) {
+        return inputTypeCodes[bankIndex];
+    }
+
+    long getCorrectAnswerMask(int bankIndex) {
+        return correctAnswerMasks[bankIndex];
+    }
+
+    int getMaxEditDistance(int bankIndex) {
+        return maxEditDistances[bankIndex];
+    }
+
+    double getNumericTolerance(int bankIndex) {
+        return numericTolerances[bankIndex];
+    }
+
+    double getNumericMinimum(int bankIndex) {
+        return numericMinimums[bankIndex];
+    }
+
+    double getNumericMaximum(int bankIndex) {
+        return numericMaximums[bankIndex];
+    }
+
+    QuizAnswerMatcher getAnswerMatcher(int bankIndex) {
+        return answerMatchers[bankIndex];
+    }
+
+    int getAnswerCount(int bankIndex) {
+        return answerStarts[bankIndex + 1] - answerStarts[bankIndex];
+    }
+
+    /**
+     * method to get a possible answer of a quiz question
+     * @param bankIndex is the index of the quiz question
+     * @param answerIndex is the index of the answer, from 0 to getAnswerCount(bankIndex) - 1
+     * @return the answer text
+     */
+    String getAnswer(int bankIndex, int answerIndex) {
+        return strings[answers[answerStarts[bankIndex] + answerIndex]];
+    }
+
+    /**
+     * method to get a string of the string pool
+     * @param stringIndex is the index of the string
+     * @return the string or null if index is QuizBankFile.NO_STRING
+     */
+    private String getString(int stringIndex) {
+        return stringIndex == QuizBankFile.NO_STRING ? null : strings[stringIndex];
+    }
+}
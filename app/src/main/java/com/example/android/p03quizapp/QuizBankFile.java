@@ -0,0 +1,70 @@
+package com.example.android.p03quizapp;
+
+/**
+ * class to describe the layout of binary quiz bank files, written by QuizBankWriter and read by
+ * QuizBankReader. All numbers are big endian, offsets are counted from the start of the file.
+ *
+ *  header:
+ *      int     magic number "QZBK"
+ *      int     format version
+ *      int     number of quiz questions
+ *      int     offset of question offset table
+ *      int     number of strings in string pool
+ *      int     offset of string offset table
+ *      int     offset of string data
+ *
+ *  question offset table: int offset of each question record
+ *
+ *  question record:
+ *      int     string index of header image resource name, -1 if none
+ *      int     string index of question
+ *      int     string index of input type
+ *      long    bitmask of correct answers
+ *      int     number of characters text answers may differ in from accepted answers
+ *      double  tolerance of numbers given to Numeric questions
+ *      double  lowest number of the range of numbers accepted, NaN if none
+ *      double  highest number of the range of numbers accepted, NaN if none
+ *      int     number of answers
+ *      int[]   string index of each answer
+ *
+ *  string offset table: number of strings + 1 ints, offset of each string relative to string data,
+ *      followed by the offset of the end of string data; string length is the difference
+ *
+ *  string data: UTF-8 bytes of all strings. Equal strings, e.g. input types, are stored once
+ */
+
+final class QuizBankFile {
+    //  "QZBK" in ASCII
+    static final int MAGIC = 0x515A424B;
+    //  current format version, increment on any incompatible change
+    static final int VERSION = 3;
+
+    //  size of header in bytes: 7 ints
+    static final int HEADER_SIZE = 7 * 4;
+    //  offsets of header fields
+    static final int HEADER_MAGIC = 0;
+    static final int HEADER_VERSION = 4;
+    static final int HEADER_QUESTION_COUNT = 8;
+    static final int HEADER_QUESTION_TABLE_OFFSET = 12;
+    static final int HEADER_STRING_COUNT = 16;
+    static final int HEADER_STRING_TABLE_OFFSET = 20;
+    static final int HEADER_STRING_DATA_OFFSET = 24;
+
+    //  offsets of question record fields
+    static final int RECORD_HEADER_IMAGE = 0;
+    static final int RECORD_QUESTION = 4;
+    static final int RECORD_INPUT_TYPE = 8;
+    static final int RECORD_CORRECT_MASK = 12;
+    static final int RECORD_MAX_EDIT_DISTANCE = 20;
+    static final int RECORD_NUMERIC_TOLERANCE = 24;
+    static final int RECORD_NUMERIC_MINIMUM = 32;
+    static final int RECORD_NUMERIC_MAXIMUM = 40;
+    static final int RECORD_ANSWER_COUNT = 48;
+    static final int RECORD_ANSWERS = 52;
+
+    //  string index meaning no string
+    static final int NO_STRING = -1;
+
+    private QuizBankFile() {
+    }
+}
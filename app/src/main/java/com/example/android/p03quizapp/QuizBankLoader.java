@@ -0,0 +1,236 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * class to load many quiz banks in parallel and merge them into a single quiz, e.g. an exam made
+ * of topic banks. Quiz banks are loaded on a bounded thread pool, one thread per CPU core by default,
+ * so load time scales with the number of cores.
+ *
+ * Results are merged in the order of sources, no matter which one finishes first, and renumbered
+ * from 0. A source failing to load does not stop the others; failures are reported per source.
+ *
+ * ForkJoinPool would need API 21, so a ThreadPoolExecutor is used: each quiz bank is a single
+ * sequential parse, there is no finer grained work to split anyway.
+ */
+
+class QuizBankLoader {
+    //  seconds idle threads are kept alive for
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * interface of a quiz bank to load
+     */
+    interface Source {
+        /**
+         * method to get the name of the quiz bank, for error reporting
+         * @return the name
+         */
+        String getName();
+
+        /**
+         * method to load quiz bank, called on a thread of the pool
+         * @return ArrayList of QuizQuestion objects
+         * @throws XmlPullParserException if quiz data is malformed or not valid
+         * @throws IOException if quiz data cannot be read
+         */
+        ArrayList<QuizQuestion> load() throws XmlPullParserException, IOException;
+    }
+
+    /**
+     * class to hold the merged result of loading many quiz banks
+     */
+    static class Result {
+        private ArrayList<QuizQuestion> quizQuestions = new ArrayList<>();
+        private LinkedHashMap<String, Exception> failures = new LinkedHashMap<>();
+
+        /**
+         * method to get QuizQuestion objects of all quiz banks loaded successfully, in order of sources
+         * @return ArrayList of QuizQuestion objects, indexed from 0
+         */
+        ArrayList<QuizQuestion> getQuizQuestions() {
+            return quizQuestions;
+        }
+
+        /**
+         * method to get the errors of quiz banks failed to load
+         * @return map of source name to exception, in order of sources
+         */
+        LinkedHashMap<String, Exception> getFailures() {
+            return failures;
+        }
+
+        /**
+         * method to check whether all quiz banks are loaded
+         * @return true if no source failed
+         */
+        boolean isSuccessful() {
+            return failures.isEmpty();
+        }
+    }
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * constructor for QuizBankLoader object using a thread per CPU core
+     */
+    QuizBankLoader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor for QuizBankLoader object
+     * @param threadCount is the maximum number of quiz banks loaded at the same time
+     */
+    QuizBankLoader(int threadCount) {
+        executor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, QuizBankLoader.class.getSimpleName()
+                                + " #" + threadNumber.incrementAndGet());
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * method to load quiz banks in parallel and merge them, blocks until all are loaded
+     * @param sources are the quiz banks to load
+     * @return the merged Result
+     * @throws InterruptedException if interrupted while waiting, loading is cancelled
+     */
+    Result load(List<? extends Source> sources) throws InterruptedException {
+        ArrayList<Callable<ArrayList<QuizQuestion>>> tasks = new ArrayList<>(sources.size());
+        for (final Source source : sources) {
+            tasks.add(new Callable<ArrayList<QuizQuestion>>() {
+                @Override
+                public ArrayList<QuizQuestion> call() throws Exception {
+                    return source.load();
+                }
+            });
+        }
+        List<Future<ArrayList<QuizQuestion>>> futures = executor.invokeAll(tasks);
+
+        Result result = new Result();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                for (QuizQuestion quizQuestion : futures.get(i).get()) {
+                    quizQuestion.setIndex(result.quizQuestions.size());
+                    result.quizQuestions.add(quizQuestion);
+                }
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof Error)
+                    throw (Error) e.getCause();
+                result.failures.put(sources.get(i).getName(), (Exception) e.getCause());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * method to stop the threads, the QuizBankLoader cannot be used afterwards
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * method to create the Source of an XML resource: compiled quiz bank if there is one,
+     * otherwise parsed by QuizParseCache
+     * @param context is the context to take resources from
+     * @param xmlResourceId is the resource id of the XML resource
+     * @return the Source
+     */
+    static Source fromResource(final Context context, final int xmlResourceId) {
+        return new Source() {
+            @Override
+            public String getName() {
+                return context.getResources().getResourceEntryName(xmlResourceId);
+            }
+
+            @Override
+            public ArrayList<QuizQuestion> load() throws XmlPullParserException, IOException {
+                ArrayList<QuizQuestion> quizQuestions = CompiledQuizBanks.load(xmlResourceId);
+                if (quizQuestions != null)
+                    return quizQuestions;
+                return new QuizParseCache(context).parse(xmlResourceId, null);
+            }
+        };
+    }
+
+    /**
+     * method to create the Source of an XML quiz bank file, gzip compressed if its name ends with .gz
+     * @param xmlFile is the XML file
+     * @param headerImageResolver is the resolver of header image names or null
+     * @return the Source
+     */
+    static Source fromXmlFile(final File xmlFile, final QuizXmlParser.HeaderImageResolver headerImageResolver) {
+        return new Source() {
+            @Override
+            public String getName() {
+                return xmlFile.getPath();
+            }
+
+            @Override
+            public ArrayList<QuizQuestion> load() throws XmlPullParserException, IOException {
+                InputStream inputStream = new BufferedInputStream(new FileInputStream(xmlFile));
+                try {
+                    if (xmlFile.getName().endsWith(".gz"))
+                        inputStream = new GZIPInputStream(inputStream);
+                    return QuizXmlParser.parse(
+                            QuizXmlParser.fromInputStream(inputStream, null, headerImageResolver), null);
+                } finally {
+                    inputStream.close();
+                }
+            }
+        };
+    }
+
+    /**
+     * method to create the Source of a binary quiz bank file
+     * @param bankFile is the quiz bank file, see QuizBankFile
+     * @param headerImageResolver is the resolver of header image names or null
+     * @return the Source
+     */
+    static Source fromBankFile(final File bankFile, final QuizXmlParser.HeaderImageResolver headerImageResolver) {
+        return new Source() {
+            @Override
+            public String getName() {
+                return bankFile.getPath();
+            }
+
+            @Override
+            public ArrayList<QuizQuestion> load() throws IOException {
+                QuizBankReader quizBankReader = new QuizBankReader(bankFile, headerImageResolver);
+                try {
+                    return quizBankReader.readQuizBank().getQuizQuestions();
+                } finally {
+                    quizBankReader.close();
+                }
+            }
+        };
+    }
+}
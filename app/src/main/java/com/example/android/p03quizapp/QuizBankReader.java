@@ -0,0 +1,196 @@
+package com.example.android.p03quizapp;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * class to read a binary quiz bank file, see QuizBankFile for the layout.
+ *
+ * The file is memory mapped, so opening it only reads the header: pages are loaded by the OS
+ * as they are accessed and take no heap. A QuizQuestion object is only created when its index
+ * is requested, so random access to a single question of a large bank is cheap. readQuizBank reads
+ * the whole bank into a compact QuizBank.
+ *
+ * getQuizQuestion and readQuizBank may be called from any thread. Only java.nio is used, so the reader can also run
+ * on a plain JVM.
+ */
+
+class QuizBankReader implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private RandomAccessFile file;
+    //  the whole file, mapped read only. Only absolute reads are used so it can be shared by threads
+    private MappedByteBuffer buffer;
+    private int questionCount;
+    private int questionTableOffset;
+    private int stringCount;
+    private int stringTableOffset;
+    private int stringDataOffset;
+
+    //  resolver of header image names, null to leave resource ids 0
+    private QuizXmlParser.HeaderImageResolver headerImageResolver;
+
+    /**
+     * constructor to open a quiz bank file
+     * @param bankFile is the quiz bank file
+     * @param headerImageResolver is the resolver of header image names or null
+     * @throws IOException if the file cannot be read or is not a valid quiz bank
+     */
+    QuizBankReader(File bankFile, QuizXmlParser.HeaderImageResolver headerImageResolver) throws IOException {
+        this.headerImageResolver = headerImageResolver;
+        file = new RandomAccessFile(bankFile, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Quiz bank is too large: " + bankFile);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readHeader(bankFile);
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * method to read and check the header
+     * @param bankFile is the quiz bank file, for error messages
+     * @throws IOException if the file is not a valid quiz bank
+     */
+    private void readHeader(File bankFile) throws IOException {
+        int size = buffer.capacity();
+        if (size < QuizBankFile.HEADER_SIZE || buffer.getInt(QuizBankFile.HEADER_MAGIC) != QuizBankFile.MAGIC)
+            throw new IOException("Not a quiz bank: " + bankFile);
+        int version = buffer.getInt(QuizBankFile.HEADER_VERSION);
+        if (version != QuizBankFile.VERSION)
+            throw new IOException("Unsupported quiz bank version " + version + ": " + bankFile);
+
+        questionCount = buffer.getInt(QuizBankFile.HEADER_QUESTION_COUNT);
+        questionTableOffset = buffer.getInt(QuizBankFile.HEADER_QUESTION_TABLE_OFFSET);
+        stringCount = buffer.getInt(QuizBankFile.HEADER_STRING_COUNT);
+        stringTableOffset = buffer.getInt(QuizBankFile.HEADER_STRING_TABLE_OFFSET);
+        stringDataOffset = buffer.getInt(QuizBankFile.HEADER_STRING_DATA_OFFSET);
+
+        //  tables must fit into the file, so reads of a truncated file fail here and not later
+        if (questionCount < 0 || stringCount < 0
+                || questionTableOffset < QuizBankFile.HEADER_SIZE
+                || (long) questionTableOffset + 4L * questionCount > size
+                || stringTableOffset < QuizBankFile.HEADER_SIZE
+                || (long) stringTableOffset + 4L * (stringCount + 1) > size
+                || (long) stringDataOffset + buffer.getInt(stringTableOffset + 4 * stringCount) > size)
+            throw new IOException("Corrupt quiz bank header: " + bankFile);
+    }
+
+    /**
+     * method to get the number of quiz questions in the bank
+     * @return number of quiz questions
+     */
+    int size() {
+        return questionCount;
+    }
+
+    /**
+     * method to create the QuizQuestion object of a quiz question in the bank
+     * @param index is the index of the quiz question, from 0 to size() - 1
+     * @return new QuizQuestion object backed by a QuizBank of its own, its index set to the index within the bank
+     */
+    QuizQuestion getQuizQuestion(int index) {
+        QuizBank.Builder quizBankBuilder = new QuizBank.Builder(1);
+        addQuizQuestion(index, quizBankBuilder, null);
+        QuizQuestion quizQuestion = quizBankBuilder.build().getQuizQuestion(0);
+        quizQuestion.setIndex(index);
+        return quizQuestion;
+    }
+
+    /**
+     * method to read all quiz questions of the bank into a QuizBank. Every string of the string pool
+     * is decoded once, no matter how many quiz questions share it
+     * @return new QuizBank object
+     */
+    QuizBank readQuizBank() {
+        QuizBank.Builder quizBankBuilder = new QuizBank.Builder(questionCount);
+        String[] decodedStrings = new String[stringCount];
+        for (int i = 0; i < questionCount; i++) {
+            addQuizQuestion(i, quizBankBuilder, decodedStrings);
+        }
+        return quizBankBuilder.build();
+    }
+
+    /**
+     * method to add a quiz question of the bank to a QuizBank being built
+     * @param index is the index of the quiz question, from 0 to size() - 1
+     * @param quizBankBuilder is the QuizBank.Builder to add to
+     * @param decodedStrings are strings decoded so far by string index, or null to decode every string
+     */
+    private void addQuizQuestion(int index, QuizBank.Builder quizBankBuilder, String[] decodedStrings) {
+        if (index < 0 || index >= questionCount)
+            throw new IndexOutOfBoundsException("Quiz question " + index + " of " + questionCount);
+        int record = buffer.getInt(questionTableOffset + 4 * index);
+
+        String headerImageName = getString(buffer.getInt(record + QuizBankFile.RECORD_HEADER_IMAGE), decodedStrings);
+        int headerImageResId = 0;
+        if (headerImageName != null && headerImageResolver != null)
+            headerImageResId = headerImageResolver.getHeaderImageResId(headerImageName);
+        String question = getString(buffer.getInt(record + QuizBankFile.RECORD_QUESTION), decodedStrings);
+        String inputType = getString(buffer.getInt(record + QuizBankFile.RECORD_INPUT_TYPE), decodedStrings);
+
+        long correctAnswerMask = buffer.getLong(record + QuizBankFile.RECORD_CORRECT_MASK);
+        int maxEditDistance = buffer.getInt(record + QuizBankFile.RECORD_MAX_EDIT_DISTANCE);
+        if (maxEditDistance < 0 || maxEditDistance > QuizTextAnswerMatcher.MAX_EDIT_DISTANCE)
+            throw new IllegalStateException("Corrupt quiz bank: edit distance " + maxEditDistance);
+        //  checked by QuizNumericAnswerMatcher for Numeric questions, ignored otherwise
+        double numericTolerance = buffer.getDouble(record + QuizBankFile.RECORD_NUMERIC_TOLERANCE);
+        double numericMinimum = buffer.getDouble(record + QuizBankFile.RECORD_NUMERIC_MINIMUM);
+        double numericMaximum = buffer.getDouble(record + QuizBankFile.RECORD_NUMERIC_MAXIMUM);
+        //  the limit of the input type is checked by QuizBank.Builder.add
+        int answerCount = buffer.getInt(record + QuizBankFile.RECORD_ANSWER_COUNT);
+        if (answerCount < 0 || answerCount > QuizTextAnswerMatcher.MAX_VARIANTS)
+            throw new IllegalStateException("Corrupt quiz bank: " + answerCount + " answers");
+        ArrayList<String> answers = new ArrayList<>(answerCount);
+        for (int i = 0; i < answerCount; i++) {
+            answers.add(getString(buffer.getInt(record + QuizBankFile.RECORD_ANSWERS + 4 * i), decodedStrings));
+        }
+        quizBankBuilder.add(headerImageName, headerImageResId, question, inputType, answers, correctAnswerMask,
+                maxEditDistance, numericTolerance, numericMinimum, numericMaximum);
+    }
+
+    /**
+     * method to decode a string of the string pool
+     * @param stringIndex is the index of the string
+     * @param decodedStrings are strings decoded so far by string index, or null to decode every string
+     * @return the string or null if index is QuizBankFile.NO_STRING
+     */
+    private String getString(int stringIndex, String[] decodedStrings) {
+        if (stringIndex == QuizBankFile.NO_STRING)
+            return null;
+        if (stringIndex < 0 || stringIndex >= stringCount)
+            throw new IllegalStateException("Corrupt quiz bank: string index " + stringIndex);
+        if (decodedStrings != null) {
+            if (decodedStrings[stringIndex] == null)
+                decodedStrings[stringIndex] = getString(stringIndex, null);
+            return decodedStrings[stringIndex];
+        }
+        int start = buffer.getInt(stringTableOffset + 4 * stringIndex);
+        int end = buffer.getInt(stringTableOffset + 4 * stringIndex + 4);
+        byte[] bytes = new byte[end - start];
+        //  relative bulk read on a private duplicate, the shared buffer position is never moved
+        ByteBuffer stringBuffer = buffer.duplicate();
+        stringBuffer.position(stringDataOffset + start);
+        stringBuffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    /**
+     * method to close the quiz bank file. The mapping is released when garbage collected
+     */
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
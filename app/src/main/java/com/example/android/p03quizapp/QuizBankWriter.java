@@ -0,0 +1,153 @@
+package com.example.android.p03quizapp;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * class to write QuizQuestion objects into a binary quiz bank file, see QuizBankFile for the layout.
+ * Quiz banks in the <quizquestions> XML format of QuizXmlParser can be converted with convertXml.
+ *
+ * QuizQuestion objects are serialized as they are added, so only the compact records and the
+ * string pool are held in memory, not the QuizQuestion objects. No Android class is used, so
+ * quiz banks can also be converted on a plain JVM.
+ *
+ * Header images are written by resource name, as resource ids are only valid within a single build.
+ */
+
+class QuizBankWriter {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    //  string pool: index of each string added so far, and the strings in order of index
+    private HashMap<String, Integer> stringIndexes = new HashMap<>();
+    private ArrayList<String> strings = new ArrayList<>();
+    //  question records, offsets are relative to the first record until the header is known
+    private ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+    private DataOutputStream records = new DataOutputStream(recordBytes);
+    private int[] recordOffsets = new int[16];
+    private int questionCount = 0;
+
+    /**
+     * method to convert a quiz bank from XML into binary format, reading quiz questions one by one
+     * @param xmlInputStream is the XML quiz bank, it is not closed
+     * @param bankOutputStream is the stream to write binary quiz bank into, it is not closed
+     * @return number of quiz questions written
+     * @throws XmlPullParserException if XML is malformed or is not a valid quiz bank
+     * @throws IOException if XML cannot be read or output cannot be written
+     */
+    static int convertXml(InputStream xmlInputStream, OutputStream bankOutputStream)
+            throws XmlPullParserException, IOException {
+        //  resource ids are not needed, header images are written by name
+        QuizXmlParser quizXmlParser = QuizXmlParser.fromInputStream(xmlInputStream, null, null);
+        QuizBankWriter quizBankWriter = new QuizBankWriter();
+        QuizQuestion quizQuestion;
+        while ((quizQuestion = quizXmlParser.next()) != null) {
+            quizBankWriter.add(quizQuestion);
+        }
+        quizBankWriter.writeTo(bankOutputStream);
+        return quizBankWriter.questionCount;
+    }
+
+    /**
+     * method to write QuizQuestion objects as a binary quiz bank
+     * @param quizQuestions is the List of QuizQuestion objects, in order
+     * @param outputStream is the stream to write into, it is not closed
+     * @throws IOException if output cannot be written
+     */
+    void write(List<QuizQuestion> quizQuestions, OutputStream outputStream) throws IOException {
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            add(quizQuestion);
+        }
+        writeTo(outputStream);
+    }
+
+    /**
+     * method to append a QuizQuestion to the quiz bank
+     * @param quizQuestion is the QuizQuestion object
+     * @throws IOException never, records are written into memory
+     */
+    void add(QuizQuestion quizQuestion) throws IOException {
+        if (questionCount == recordOffsets.length)
+            recordOffsets = Arrays.copyOf(recordOffsets, questionCount * 2);
+        recordOffsets[questionCount++] = records.size();
+        records.writeInt(addString(quizQuestion.getHeaderImageName()));
+        records.writeInt(addString(quizQuestion.getQuestion()));
+        records.writeInt(addString(quizQuestion.getInputType()));
+        records.writeLong(quizQuestion.getCorrectAnswerMask());
+        records.writeInt(quizQuestion.getMaxEditDistance());
+        records.writeDouble(quizQuestion.getNumericTolerance());
+        records.writeDouble(quizQuestion.getNumericMinimum());
+        records.writeDouble(quizQuestion.getNumericMaximum());
+        records.writeInt(quizQuestion.size());
+        for (int i = 0; i < quizQuestion.size(); i++) {
+            records.writeInt(addString(quizQuestion.getAnswer(i)));
+        }
+    }
+
+    /**
+     * method to write the quiz bank of QuizQuestion objects added so far
+     * @param outputStream is the stream to write into, it is not closed
+     * @throws IOException if output cannot be written
+     */
+    void writeTo(OutputStream outputStream) throws IOException {
+        records.flush();
+
+        //  string data and offset of each string within it
+        ByteArrayOutputStream stringData = new ByteArrayOutputStream();
+        int[] stringOffsets = new int[strings.size() + 1];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = stringData.size();
+            stringData.write(strings.get(i).getBytes(UTF_8));
+        }
+        stringOffsets[strings.size()] = stringData.size();
+
+        int questionTableOffset = QuizBankFile.HEADER_SIZE;
+        int recordsOffset = questionTableOffset + 4 * questionCount;
+        int stringTableOffset = recordsOffset + recordBytes.size();
+        int stringDataOffset = stringTableOffset + 4 * stringOffsets.length;
+
+        DataOutputStream out = new DataOutputStream(outputStream);
+        out.writeInt(QuizBankFile.MAGIC);
+        out.writeInt(QuizBankFile.VERSION);
+        out.writeInt(questionCount);
+        out.writeInt(questionTableOffset);
+        out.writeInt(strings.size());
+        out.writeInt(stringTableOffset);
+        out.writeInt(stringDataOffset);
+        for (int i = 0; i < questionCount; i++) {
+            out.writeInt(recordsOffset + recordOffsets[i]);
+        }
+        recordBytes.writeTo(out);
+        for (int stringOffset : stringOffsets) {
+            out.writeInt(stringOffset);
+        }
+        stringData.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * method to add a string to the string pool, unless already added
+     * @param string is the string or null
+     * @return the index of string in string pool or QuizBankFile.NO_STRING if null
+     */
+    private int addString(String string) {
+        if (string == null)
+            return QuizBankFile.NO_STRING;
+        Integer index = stringIndexes.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.add(string);
+            stringIndexes.put(string, index);
+        }
+        return index;
+    }
+}
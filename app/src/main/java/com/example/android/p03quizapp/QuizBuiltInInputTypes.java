@@ -0,0 +1,21 @@
+package com.example.android.p03quizapp;
+
+/**
+ * class to register the input types built into the app with QuizInputTypeRegistry. A new input type
+ * is added by implementing QuizInputType, and QuizInputViewFactory to display it, and registering it here
+ */
+
+final class QuizBuiltInInputTypes {
+    private QuizBuiltInInputTypes() {
+    }
+
+    /**
+     * method to register the built in input types, called once by QuizInputTypeRegistry
+     */
+    static void register() {
+        QuizInputTypeRegistry.register(new QuizInputTypeEditText());
+        QuizInputTypeRegistry.register(new QuizInputTypeCheckbox());
+        QuizInputTypeRegistry.register(new QuizInputTypeRadio());
+        QuizInputTypeRegistry.register(new QuizInputTypeNumeric());
+    }
+}
@@ -6,30 +6,56 @@ import android.view.View;
 import android.widget.Toast;
 
 import java.util.ArrayList;
-import java.util.Collections;
 
 /**
  * Created by bivanbi on 2017.02.24..
  *
  * class to
  *      - check user input and display score on clicking the check answer button,
+ *      - record the attempt - answers given and their correctness - in the attempt journal and
+ *        in the answer statistics
  *      - reset form on long clicking check answer button
+ *
+ * Answers are graded by QuizScoreKeeper as they change, so displaying the score need not
+ * evaluate all the quiz questions again. Recording the attempt only copies answers and their
+ * correctness on the UI thread; the attempt is built and counted in the answer statistics on the
+ * journal's background thread, see AnswerSnapshot. Attempts the journal drops on error are not
+ * counted either.
  */
 class QuizCheckAnswer implements View.OnClickListener, View.OnLongClickListener {
-    //  ArrayList of QuizQuestion objects
+    //  ArrayList of all the QuizQuestion objects loaded, graded by scoreKeeper
     private ArrayList<QuizQuestion> quizQuestions;
+    //  answers given by user
+    private QuizAnswerStore answerStore;
+    //  score keeper grading answers as they change
+    private QuizScoreKeeper scoreKeeper;
+    //  journal to record attempts in
+    private QuizAttemptJournal attemptJournal;
+    //  statistics to count answers in
+    private QuizAnswerStatistics answerStatistics;
     //  context of our activity
     private Context context;
-    private String logTag = QuizCheckAnswer.class.getSimpleName();
+    private static String logTag = QuizCheckAnswer.class.getSimpleName();
 
     /**
      * constructor for QuizCheckAnswer object
      * @param context is the context of our activity
-     * @param quizQuestions is the ArrayList of QuizQuestion objects
+     * @param quizQuestions is the ArrayList of all the QuizQuestion objects loaded, rendered or not,
+     *                      the same the score keeper grades, see QuizModelFragment.getQuizQuestions
+     * @param answerStore is the QuizAnswerStore holding the answers given by user
+     * @param scoreKeeper is the QuizScoreKeeper grading answers as they change
+     * @param attemptJournal is the QuizAttemptJournal to record attempts in
+     * @param answerStatistics is the QuizAnswerStatistics to count answers in
      */
-    QuizCheckAnswer(Context context, ArrayList<QuizQuestion> quizQuestions) {
+    QuizCheckAnswer(Context context, ArrayList<QuizQuestion> quizQuestions, QuizAnswerStore answerStore,
+                    QuizScoreKeeper scoreKeeper, QuizAttemptJournal attemptJournal,
+                    QuizAnswerStatistics answerStatistics) {
         this.context = context;
         this.quizQuestions = quizQuestions;
+        this.answerStore = answerStore;
+        this.scoreKeeper = scoreKeeper;
+        this.attemptJournal = attemptJournal;
+        this.answerStatistics = answerStatistics;
     }
 
     /**
@@ -38,26 +64,24 @@ class QuizCheckAnswer implements View.OnClickListener, View.OnLongClickListener
      */
     @Override
     public void onClick(View v) {
-        Log.d(logTag,"button clicked");
-
-        int score = 0;
-        //  iterate over quiz questions, check answers and increase score if correct
-        for (QuizQuestion quizQuestion: quizQuestions)
-        {
-            if (isAnswerCorrect(quizQuestion))
-            {
-                Log.i(logTag,quizQuestion.getQuestion()+": Answer is correct");
-                score++;
-            }
-            else
-            {
-                Log.i(logTag,quizQuestion.getQuestion()+": Answer is incorrect");
-            }
-        }
+        if (QuizMetrics.ENABLED)
+            QuizMetrics.debug(logTag, "button clicked");
+
+        //  answers are graded as they change, only those edited a moment ago are left to grade
+        int score = scoreKeeper.getScore();
+        int questionCount = scoreKeeper.getQuestionCount();
+        if (QuizMetrics.ENABLED)
+            QuizMetrics.debug(logTag, score + " correct answers out of " + questionCount);
+        //  answers are copied as they are now, the attempt is built, counted and written on the
+        //  journal's background thread
+        attemptJournal.append(new AnswerSnapshot(System.currentTimeMillis(),
+                answerStore.copySelections(questionCount), answerStore.copyTexts(questionCount),
+                scoreKeeper.copyCorrectness(), answerStatistics));
         //  let the user know how many answers were correct
-        Toast.makeText(context, score + " correct answers out of "+ quizQuestions.size(),Toast.LENGTH_SHORT).show();
+        Toast.makeText(context, score + " correct answers out of "+ questionCount,Toast.LENGTH_SHORT).show();
     }
 
+
     /**
      * method to reset form on long click of check answer button
      * @param v is the view long clicked
@@ -65,7 +89,8 @@ class QuizCheckAnswer implements View.OnClickListener, View.OnLongClickListener
      */
     @Override
     public boolean onLongClick(View v) {
-        Log.d(logTag,"button long clicked");
+        if (QuizMetrics.ENABLED)
+            QuizMetrics.debug(logTag, "button long clicked");
         for (QuizQuestion quizQuestion: quizQuestions)
         {
             quizQuestion.resetInput();
@@ -78,10 +103,15 @@ class QuizCheckAnswer implements View.OnClickListener, View.OnLongClickListener
      * Method to check if answer to a given quiz question is correct.
      * Handles single or multiple correct answers. If multiple correct answers are possibble,
      * it will only evaluate as correct if all possible correct answers are selected by user.
+     *
+     * Choice answers are compared as bitmasks of selected and correct answers, text and numeric
+     * answers are looked up in the QuizAnswerMatcher compiled of the accepted answers, so no objects
+     * are allocated while grading, however many answers are accepted.
+     * The rules are shared with QuizGradingEngine, which grades submissions without input handlers.
      * @param quizQuestion is the actual QuizQuestion object
      * @return true if answer is correct, false if not correct, no input received or error detected
      */
-    private boolean isAnswerCorrect(QuizQuestion quizQuestion) {
+    static boolean isAnswerCorrect(QuizQuestion quizQuestion) {
         QuizInputHandler inputHandler = quizQuestion.getInputHandler();
         //  failsafe: all QuizQuestion objects *should* have an InputHandler at this point, but
         //  to avoid force close, check it
@@ -92,43 +122,67 @@ class QuizCheckAnswer implements View.OnClickListener, View.OnLongClickListener
             return false;
         }
 
-        //  get list of actual answers from input handler
-        ArrayList<String> givenAnswers = inputHandler.getInputAnswers();
+        /*  Checkbox and Radio: the answer is correct if some answers are selected and the selection
+         *  is exactly the set of correct answers - all correct answers selected, no incorrect one.
+         */
+        if (quizQuestion.isChoiceInput())
+            return QuizGradingEngine.isChoiceAnswerCorrect(inputHandler.getSelectedAnswerMask(),
+                    quizQuestion.getCorrectAnswerMask());
+
+        //  get actual answer text from input handler
+        String givenAnswer = inputHandler.getInputText();
 
         //  failsafe: if null is returned by inputHandler, log error
-        if (givenAnswers == null)
+        if (givenAnswer == null)
         {
-            Log.e(logTag, "Cannot check answer, inputHandler.getInputAnswer() returned null. Question: "
+            Log.e(logTag, "Cannot check answer, inputHandler.getInputText() returned null. Question: "
                     + quizQuestion.getQuestion() + ", input type: "
                     + quizQuestion.getInputType());
             return false;
         }
 
-        //  get actual correct answer list from QuizQuestion object
-        ArrayList<String> correctAnswers = quizQuestion.getCorrectAnswers();
-
-        Log.d(logTag,"correctAnswers: "+correctAnswers);
-        Log.d(logTag,"givenAnswers: "+givenAnswers);
-
-        /*  simple checks:
-         *      - if no answer is received
-         *      - if the number of given answers do not match the number of correct answers,
-         *  then the answer is not correct.
+        /*  EditText gives a single answer, it is correct if it matches any of the accepted answers,
+         *  ignoring case and extra whitespace, within the edit distance allowed for the quiz question.
+         *  A number given to a Numeric question is correct within the tolerance of an accepted number.
          */
-        if ( givenAnswers.size() == 0 || givenAnswers.size() != correctAnswers.size())
-        {
-            Log.i(logTag,quizQuestion.getQuestion()+": no answer given or answer count ("+givenAnswers.size()
-                    +") differs from correct ("+correctAnswers.size()+")");
-            return false;
-        }
+        return QuizGradingEngine.isTextAnswerCorrect(givenAnswer, quizQuestion.getAnswerMatcher());
+    }
 
-        //  both list should be in the same order, but make sure they are.
-        Collections.sort(correctAnswers);
-        Collections.sort(givenAnswers);
-        Log.d(logTag,"correctAnswers after sorting: "+correctAnswers);
-        Log.d(logTag,"givenAnswers after sorting: "+givenAnswers);
+    /**
+     * class to hold the answers of an attempt and their correctness as copied on the UI thread, to
+     * build the attempt and count the answers in the answer statistics on the journal's background
+     * thread. A quiz question has either a selection or a text, whichever its input type keeps
+     */
+    private static class AnswerSnapshot implements QuizAttemptJournal.PendingAttempt {
+        private long timeMillis;
+        private long[] selections;
+        private String[] texts;
+        private boolean[] isCorrect;
+        private QuizAnswerStatistics answerStatistics;
+
+        AnswerSnapshot(long timeMillis, long[] selections, String[] texts, boolean[] isCorrect,
+                       QuizAnswerStatistics answerStatistics) {
+            this.timeMillis = timeMillis;
+            this.selections = selections;
+            this.texts = texts;
+            this.isCorrect = isCorrect;
+            this.answerStatistics = answerStatistics;
+        }
 
-        //  compare input to correct answers
-        return givenAnswers.equals(correctAnswers);
+        @Override
+        public QuizAttemptJournal.Attempt build() {
+            QuizAttemptJournal.Attempt attempt = new QuizAttemptJournal.Attempt(timeMillis, isCorrect.length);
+            for (int i = 0; i < isCorrect.length; i++) {
+                if (texts[i] != null) {
+                    attempt.setInputText(i, texts[i]);
+                    answerStatistics.record(i, 0, true, isCorrect[i]);
+                } else {
+                    attempt.setSelectedAnswerMask(i, selections[i]);
+                    answerStatistics.record(i, selections[i], selections[i] != 0, isCorrect[i]);
+                }
+                attempt.setCorrect(i, isCorrect[i]);
+            }
+            return attempt;
+        }
     }
 }
@@ -0,0 +1,809 @@
+package com.example.android.p03quizapp;
+
+import android.util.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * class to serve the quiz to students' browsers over the local network during a classroom session,
+ * and grade their answers as they come in:
+ *      GET  /          the quiz page, which loads the quiz and posts answers by itself
+ *      GET  /quiz      the quiz questions as JSON, without correct answers of text questions
+ *      POST /submit    answers as a form, e.g. a0=1,3&a1=Washington: indexes of answers selected for
+ *                      choice questions, text for text questions; returns score and correctness as JSON
+ *      GET  /results   results aggregated so far as JSON: number of submissions, submissions per
+ *                      score and, per quiz question, attempts, correct and missing answers and the
+ *                      number of times each answer was selected
+ *
+ * A single thread multiplexes all connections with a Selector: accepting, reading requests and
+ * writing responses never block, so a burst from every student at once only costs a few buffers per
+ * connection. Static responses are served on the selector thread right away. Submissions and
+ * results are handled on a pool of a thread per CPU core: answers are graded by QuizGradingEngine,
+ * by the same rules as QuizCheckAnswer.isAnswerCorrect, and counted in QuizAnswerStatistics and
+ * per score, all without locking. Connections are kept alive between requests, and closed once idle
+ * for the idle timeout, so clients that went away without closing do not hold on to them.
+ *
+ * Only the subset of HTTP/1.1 browsers need for the above is implemented: no chunked requests,
+ * no pipelining - a request sent before the previous response is written waits for it.
+ *
+ * No Android class is used but Log, so the server can be tested over loopback on any JVM.
+ */
+
+class QuizClassroomServer {
+    private static String logTag = QuizClassroomServer.class.getSimpleName();
+
+    //  port the server listens on by default
+    static final int DEFAULT_PORT = 8080;
+
+    //  initial size of the buffer a request is read into, grown up to the size limit as needed
+    private static final int READ_BUFFER_SIZE = 4 * 1024;
+    //  largest request accepted, headers and body
+    private static final int MAX_REQUEST_SIZE = 64 * 1024;
+    //  seconds idle worker threads are kept alive for
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    //  seconds a connection may be idle for by default before it is closed
+    static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 30;
+    //  longest time between checks for idle connections
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 1000;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    //  quiz questions served, indexed by QuizQuestion.getIndex()
+    private ArrayList<QuizQuestion> quizQuestions;
+    //  responses of GET / and GET /quiz, built once
+    private byte[] pageBody;
+    private byte[] quizBody;
+
+    private QuizGradingEngine gradingEngine;
+    //  results aggregated so far
+    private QuizAnswerStatistics answerStatistics = new QuizAnswerStatistics();
+    private AtomicLongArray scoreCounts;
+    private AtomicLong submissionCount = new AtomicLong();
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread selectorThread;
+    //  threads grading submissions and building results
+    private ThreadPoolExecutor workers;
+    //  connections with a response built by a worker, to be written by the selector thread
+    private ConcurrentLinkedQueue<Connection> respondedConnections = new ConcurrentLinkedQueue<>();
+    private volatile boolean isRunning = false;
+    private long idleTimeoutNanos = TimeUnit.SECONDS.toNanos(DEFAULT_IDLE_TIMEOUT_SECONDS);
+
+    //  statistics
+    private AtomicInteger connectionCount = new AtomicInteger();
+    private AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * constructor for QuizClassroomServer object
+     * @param quizQuestions is the list of QuizQuestion objects to serve, indexed by
+     *                      QuizQuestion.getIndex(). Must not change while the server is running
+     * @param page is the HTML of the quiz page to serve as /, null for none
+     */
+    QuizClassroomServer(List<QuizQuestion> quizQuestions, byte[] page) {
+        this.quizQuestions = new ArrayList<>(quizQuestions);
+        this.pageBody = page;
+        this.quizBody = buildQuizJson().getBytes(UTF_8);
+        answerStatistics.addQuizQuestions(this.quizQuestions);
+        scoreCounts = new AtomicLongArray(this.quizQuestions.size() + 1);
+
+        int threadCount = Runtime.getRuntime().availableProcessors();
+        //  grading a submission takes microseconds, it is done on the workers rather than the pool
+        //  of the engine, which is never started
+        gradingEngine = new QuizGradingEngine(this.quizQuestions, 1);
+        gradingEngine.setAnswerStatistics(answerStatistics);
+        workers = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, logTag + " #" + threadNumber.incrementAndGet());
+                    }
+                });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * method to set how long a connection may be idle - neither reading a request nor writing a
+     * response - before it is closed. Connections waiting for a submission to be graded are not idle.
+     * To be called before start
+     * @param seconds is the idle timeout in seconds
+     */
+    void setIdleTimeout(int seconds) {
+        if (seconds <= 0)
+            throw new IllegalArgumentException("Idle timeout " + seconds + " is not positive");
+        idleTimeoutNanos = TimeUnit.SECONDS.toNanos(seconds);
+    }
+
+    /**
+     * method to start listening and serving on a background thread
+     * @param address is the address to listen on, e.g. new InetSocketAddress(DEFAULT_PORT) for all
+     *                interfaces or port 0 on the loopback address for any free port
+     * @throws IOException if the address cannot be listened on
+     */
+    void start(InetSocketAddress address) throws IOException {
+        if (isRunning || selector != null)
+            throw new IllegalStateException("Classroom server already started");
+        selector = Selector.open();
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.configureBlocking(false);
+            serverChannel.socket().setReuseAddress(true);
+            serverChannel.socket().bind(address);
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            if (serverChannel != null)
+                serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        isRunning = true;
+        selectorThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                selectLoop();
+            }
+        }, logTag);
+        selectorThread.start();
+    }
+
+    /**
+     * method to stop serving and close all connections, without waiting for the threads to finish
+     */
+    void stop() {
+        isRunning = false;
+        if (selector != null)
+            selector.wakeup();
+        workers.shutdownNow();
+        gradingEngine.shutdown();
+    }
+
+    /**
+     * method to get the port the server listens on
+     * @return the port, 0 if not started
+     */
+    int getLocalPort() {
+        return serverChannel == null ? 0 : serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * method to get statistics on the server, e.g. to be logged
+     * @return human readable statistics
+     */
+    String getStats() {
+        return String.format(Locale.US, "%d connections open, %d requests, %d submissions; %s",
+                connectionCount.get(), requestCount.get(), submissionCount.get(), answerStatistics.getStats());
+    }
+
+    /**
+     * method to find an address students on the local network can reach the device at
+     * @return the first site local IPv4 address, e.g. of Wi-Fi, or null if there is none
+     */
+    static String findLocalNetworkAddress() {
+        try {
+            Enumeration<NetworkInterface> networkInterfaces = NetworkInterface.getNetworkInterfaces();
+            while (networkInterfaces != null && networkInterfaces.hasMoreElements()) {
+                NetworkInterface networkInterface = networkInterfaces.nextElement();
+                if (!networkInterface.isUp() || networkInterface.isLoopback())
+                    continue;
+                Enumeration<InetAddress> addresses = networkInterface.getInetAddresses();
+                while (addresses.hasMoreElements()) {
+                    InetAddress address = addresses.nextElement();
+                    if (address instanceof Inet4Address && address.isSiteLocalAddress())
+                        return address.getHostAddress();
+                }
+            }
+        } catch (SocketException e) {
+            Log.w(logTag, "Cannot list network interfaces", e);
+        }
+        return null;
+    }
+
+    /**
+     * method run by the selector thread: accept connections, read requests and write responses
+     * until stopped, then close all connections
+     */
+    private void selectLoop() {
+        long checkIntervalMillis =
+                Math.min(IDLE_CHECK_INTERVAL_MILLIS, TimeUnit.NANOSECONDS.toMillis(idleTimeoutNanos));
+        long nextIdleCheckNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+        try {
+            while (isRunning) {
+                selector.select(checkIntervalMillis);
+                Connection responded;
+                while ((responded = respondedConnections.poll()) != null) {
+                    responded.isWaiting = false;
+                    responded.startWriting();
+                }
+                long nowNanos = System.nanoTime();
+                if (nowNanos - nextIdleCheckNanos >= 0) {
+                    closeIdleConnections(nowNanos);
+                    nextIdleCheckNanos = nowNanos + TimeUnit.MILLISECONDS.toNanos(checkIntervalMillis);
+                }
+                Iterator<SelectionKey> selectedKeys = selector.selectedKeys().iterator();
+                while (selectedKeys.hasNext()) {
+                    SelectionKey key = selectedKeys.next();
+                    selectedKeys.remove();
+                    if (!key.isValid())
+                        continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable())
+                            connection.read();
+                        if (key.isValid() && key.isWritable())
+                            connection.write();
+                    } catch (IOException e) {
+                        //  client went away
+                        connection.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(logTag, "Classroom server failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+            isRunning = false;
+        }
+    }
+
+    /**
+     * method to close the connections idle for longer than the idle timeout
+     * @param nowNanos is the current time, System.nanoTime()
+     */
+    private void closeIdleConnections(long nowNanos) {
+        for (SelectionKey key : selector.keys()) {
+            Connection connection = (Connection) key.attachment();
+            if (connection != null && key.isValid() && !connection.isWaiting
+                    && nowNanos - connection.lastActiveNanos > idleTimeoutNanos)
+                connection.close();
+        }
+    }
+
+    /**
+     * method to accept a pending connection and start reading requests from it
+     * @throws IOException on error of the server channel
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            Connection connection = new Connection(channel);
+            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            connectionCount.incrementAndGet();
+        } catch (IOException e) {
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * method to handle a request, called on the selector thread. Static responses are served
+     * right away, others are built by the workers
+     * @param connection is the connection the request came in on
+     * @param method is the request method, e.g. GET
+     * @param path is the request path without query
+     * @param body is the request body, empty if none
+     */
+    private void handle(final Connection connection, String method, String path, final byte[] body) {
+        requestCount.incrementAndGet();
+        boolean isGet = "GET".equals(method);
+        if ("/".equals(path) && isGet && pageBody != null) {
+            connection.respond(200, "text/html; charset=utf-8", pageBody);
+        } else if ("/quiz".equals(path) && isGet) {
+            connection.respond(200, "application/json; charset=utf-8", quizBody);
+        } else if ("/submit".equals(path) && "POST".equals(method)) {
+            final long startNanos = QuizMetrics.startTimer();
+            dispatch(connection, new Runnable() {
+                @Override
+                public void run() {
+                    byte[] response = submit(body);
+                    QuizMetrics.stopTimer(QuizMetrics.TIMER_SUBMISSION, startNanos);
+                    connection.respondLater(200, "application/json; charset=utf-8", response);
+                }
+            });
+        } else if ("/results".equals(path) && isGet) {
+            dispatch(connection, new Runnable() {
+                @Override
+                public void run() {
+                    connection.respondLater(200, "application/json; charset=utf-8",
+                            buildResultsJson().getBytes(UTF_8));
+                }
+            });
+        } else if ("/".equals(path) || "/quiz".equals(path) || "/submit".equals(path)
+                || "/results".equals(path)) {
+            connection.keepAlive = false;
+            connection.respond(405, "text/plain", "Method not allowed\n".getBytes(UTF_8));
+        } else {
+            connection.respond(404, "text/plain", "Not found\n".getBytes(UTF_8));
+        }
+    }
+
+    /**
+     * method to run a task on the workers, or close the connection if the server is stopping
+     * @param connection is the connection the task responds on
+     * @param task is the task
+     */
+    private void dispatch(Connection connection, Runnable task) {
+        connection.isWaiting = true;
+        try {
+            workers.execute(task);
+        } catch (RejectedExecutionException e) {
+            //  stop shut the workers down meanwhile
+            connection.close();
+        }
+    }
+
+    /**
+     * method to grade a submission and count it in the results, called on a worker
+     * @param body is the form posted, URL encoded
+     * @return the response body: JSON of id, score and correctness per quiz question
+     */
+    private byte[] submit(byte[] body) {
+        long id = submissionCount.incrementAndGet();
+        QuizGradingEngine.Submission submission = new QuizGradingEngine.Submission(id, quizQuestions.size());
+        String form = new String(body, UTF_8);
+        for (String field : form.split("&")) {
+            int separator = field.indexOf('=');
+            if (separator < 2 || field.charAt(0) != 'a')
+                continue;
+            int questionIndex;
+            String value;
+            try {
+                questionIndex = Integer.parseInt(field.substring(1, separator));
+                value = URLDecoder.decode(field.substring(separator + 1), "UTF-8");
+            } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+                continue;
+            }
+            if (questionIndex < 0 || questionIndex >= quizQuestions.size())
+                continue;
+            if (quizQuestions.get(questionIndex).isChoiceInput())
+                submission.setSelectedAnswerMask(questionIndex, parseAnswerIndexes(value));
+            else
+                submission.setInputText(questionIndex, value);
+        }
+
+        QuizGradingEngine.GradedSubmission gradedSubmission = gradingEngine.grade(submission);
+        scoreCounts.incrementAndGet(gradedSubmission.getScore());
+
+        StringBuilder json = new StringBuilder(64 + quizQuestions.size() * 6);
+        json.append("{\"id\":").append(id)
+                .append(",\"score\":").append(gradedSubmission.getScore())
+                .append(",\"questionCount\":").append(quizQuestions.size())
+                .append(",\"correct\":[");
+        for (int i = 0; i < quizQuestions.size(); i++) {
+            json.append(i == 0 ? "" : ",").append(gradedSubmission.isCorrect(i));
+        }
+        json.append("]}");
+        return json.toString().getBytes(UTF_8);
+    }
+
+    /**
+     * method to parse the answers selected for a choice question
+     * @param value is the comma separated indexes of answers selected, e.g. "0,2"
+     * @return the bitmask of answers selected, invalid indexes are ignored
+     */
+    private static long parseAnswerIndexes(String value) {
+        long selectedAnswerMask = 0;
+        for (String answerIndex : value.split(",")) {
+            try {
+                int index = Integer.parseInt(answerIndex.trim());
+                if (index >= 0 && index < 64)
+                    selectedAnswerMask |= 1L << index;
+            } catch (NumberFormatException e) {
+                //  ignored
+            }
+        }
+        return selectedAnswerMask;
+    }
+
+    /**
+     * method to describe the quiz questions as JSON. Answers of text questions are left out, as they
+     * are the correct answers
+     * @return the JSON
+     */
+    private String buildQuizJson() {
+        StringBuilder json = new StringBuilder(quizQuestions.size() * 256);
+        json.append("{\"questions\":[");
+        for (int i = 0; i < quizQuestions.size(); i++) {
+            QuizQuestion quizQuestion = quizQuestions.get(i);
+            json.append(i == 0 ? "{" : ",{");
+            json.append("\"index\":").append(quizQuestion.getIndex());
+            json.append(",\"question\":");
+            appendJsonString(json, quizQuestion.getQuestion());
+            json.append(",\"inputType\":");
+            appendJsonString(json, quizQuestion.getInputType());
+            json.append(",\"choice\":").append(quizQuestion.isChoiceInput());
+            json.append(",\"multiple\":")
+                    .append(quizQuestion.getInputKind() == QuizInputType.KIND_MULTIPLE_CHOICE);
+            json.append(",\"numeric\":").append(quizQuestion.getInputKind() == QuizInputType.KIND_NUMERIC);
+            json.append(",\"answers\":[");
+            if (quizQuestion.isChoiceInput()) {
+                for (int j = 0; j < quizQuestion.size(); j++) {
+                    if (j > 0)
+                        json.append(',');
+                    appendJsonString(json, quizQuestion.getAnswer(j));
+                }
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * method to describe the results aggregated so far as JSON, while submissions keep coming in
+     * @return the JSON
+     */
+    private String buildResultsJson() {
+        QuizAnswerStatistics.Snapshot snapshot = answerStatistics.snapshot();
+        StringBuilder json = new StringBuilder(128 + quizQuestions.size() * 64);
+        json.append("{\"submissions\":").append(submissionCount.get())
+                .append(",\"questionCount\":").append(quizQuestions.size())
+                .append(",\"scores\":[");
+        for (int i = 0; i < scoreCounts.length(); i++) {
+            json.append(i == 0 ? "" : ",").append(scoreCounts.get(i));
+        }
+        json.append("],\"questions\":[");
+        for (int i = 0; i < snapshot.getQuestionCount(); i++) {
+            json.append(i == 0 ? "{" : ",{");
+            json.append("\"index\":").append(i)
+                    .append(",\"attempts\":").append(snapshot.getAttemptCount(i))
+                    .append(",\"correct\":").append(snapshot.getCorrectCount(i))
+                    .append(",\"unanswered\":").append(snapshot.getUnansweredCount(i))
+                    .append(",\"selected\":[");
+            for (int j = 0; j < snapshot.getAnswerCount(i); j++) {
+                json.append(j == 0 ? "" : ",").append(snapshot.getSelectedCount(i, j));
+            }
+            json.append("]}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    /**
+     * method to append a string to JSON, quoted and escaped
+     * @param json is the JSON being built
+     * @param value is the string, null for JSON null
+     */
+    private static void appendJsonString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    //  also escape < so that JSON can not close a script tag
+                    if (c < 0x20 || c == '<')
+                        json.append(String.format(Locale.US, "\\u%04x", (int) c));
+                    else
+                        json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            //  nothing left to do
+        }
+    }
+
+    /**
+     * class to hold the state of a connection: the request being read and the response being written.
+     * Only used on the selector thread, but respondLater, which hands a response over from a worker
+     */
+    private class Connection {
+        private SocketChannel channel;
+        private SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private ByteBuffer out;
+        //  false to close the connection once the response is written
+        private boolean keepAlive = true;
+        //  true while a worker builds the response, the connection is not idle meanwhile
+        private boolean isWaiting = false;
+        //  time of the last byte read or written, System.nanoTime()
+        private long lastActiveNanos = System.nanoTime();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * method to read what is available and handle the request once complete
+         * @throws IOException on error
+         */
+        void read() throws IOException {
+            int readCount = channel.read(in);
+            if (readCount < 0) {
+                close();
+                return;
+            }
+            if (readCount > 0)
+                lastActiveNanos = System.nanoTime();
+            parse();
+        }
+
+        /**
+         * method to handle the request at the start of the input buffer if it is complete,
+         * and stop reading until responded
+         */
+        private void parse() {
+            int headerEnd = indexOf(in, HEADER_END);
+            if (headerEnd < 0) {
+                if (!in.hasRemaining() && !grow(in.capacity() * 2))
+                    reject(431, "Request header fields too large");
+                return;
+            }
+
+            String header = new String(in.array(), 0, headerEnd, ISO_8859_1);
+            String[] lines = header.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) {
+                reject(400, "Bad request");
+                return;
+            }
+            int contentLength = 0;
+            keepAlive = !"HTTP/1.0".equals(requestLine[2]);
+            for (int i = 1; i < lines.length; i++) {
+                int separator = lines[i].indexOf(':');
+                if (separator < 0)
+                    continue;
+                String name = lines[i].substring(0, separator).trim().toLowerCase(Locale.US);
+                String value = lines[i].substring(separator + 1).trim();
+                if ("content-length".equals(name)) {
+                    try {
+                        contentLength = Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        contentLength = -1;
+                    }
+                } else if ("connection".equals(name)) {
+                    keepAlive = "keep-alive".equalsIgnoreCase(value)
+                            || (keepAlive && !"close".equalsIgnoreCase(value));
+                } else if ("transfer-encoding".equals(name)) {
+                    contentLength = -1;
+                }
+            }
+            int requestSize = headerEnd + HEADER_END.length + contentLength;
+            if (contentLength < 0 || requestSize > MAX_REQUEST_SIZE) {
+                reject(contentLength < 0 ? 411 : 413, contentLength < 0 ? "Length required" : "Payload too large");
+                return;
+            }
+            if (in.position() < requestSize) {
+                if (in.capacity() < requestSize)
+                    grow(requestSize);
+                return;
+            }
+
+            byte[] body = new byte[contentLength];
+            System.arraycopy(in.array(), headerEnd + HEADER_END.length, body, 0, contentLength);
+            //  keep what came after the request, it is handled once responded
+            in.flip();
+            in.position(requestSize);
+            in.compact();
+            key.interestOps(0);
+
+            String path = requestLine[1];
+            int queryStart = path.indexOf('?');
+            handle(this, requestLine[0], queryStart < 0 ? path : path.substring(0, queryStart), body);
+        }
+
+        /**
+         * method to grow the input buffer, keeping what is read so far
+         * @param capacity is the capacity wanted
+         * @return false if the buffer is at its size limit already
+         */
+        private boolean grow(int capacity) {
+            if (in.capacity() >= MAX_REQUEST_SIZE)
+                return false;
+            ByteBuffer grown = ByteBuffer.allocate(Math.min(Math.max(capacity, in.capacity() * 2), MAX_REQUEST_SIZE));
+            in.flip();
+            grown.put(in);
+            in = grown;
+            return true;
+        }
+
+        /**
+         * method to respond with an error and close the connection afterwards
+         * @param status is the status code
+         * @param reason is the reason phrase
+         */
+        private void reject(int status, String reason) {
+            key.interestOps(0);
+            keepAlive = false;
+            respond(status, "text/plain", (reason + "\n").getBytes(UTF_8));
+        }
+
+        /**
+         * method to start writing a response, called on the selector thread
+         * @param status is the status code
+         * @param contentType is the content type of body
+         * @param body is the body
+         */
+        void respond(int status, String contentType, byte[] body) {
+            out = buildResponse(status, contentType, body);
+            startWriting();
+        }
+
+        /**
+         * method to hand a response over to the selector thread to write, called on a worker
+         * @param status is the status code
+         * @param contentType is the content type of body
+         * @param body is the body
+         */
+        void respondLater(int status, String contentType, byte[] body) {
+            out = buildResponse(status, contentType, body);
+            respondedConnections.add(this);
+            selector.wakeup();
+        }
+
+        /**
+         * method to write as much of the response as possible, and wait to write the rest
+         */
+        void startWriting() {
+            try {
+                write();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * method to write what the connection accepts of the response. Once written, close the
+         * connection or read the next request
+         * @throws IOException on error
+         */
+        void write() throws IOException {
+            if (!key.isValid())
+                return;
+            if (channel.write(out) > 0)
+                lastActiveNanos = System.nanoTime();
+            if (out.hasRemaining()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            out = null;
+            if (!keepAlive) {
+                close();
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ);
+            //  a request may have been read before the response was written
+            if (in.position() > 0)
+                parse();
+        }
+
+        void close() {
+            if (key != null && key.isValid()) {
+                key.cancel();
+                connectionCount.decrementAndGet();
+            }
+            closeQuietly(channel);
+        }
+
+        /**
+         * method to build the bytes of a response
+         * @param status is the status code
+         * @param contentType is the content type of body
+         * @param body is the body
+         * @return the response, ready to be written
+         */
+        private ByteBuffer buildResponse(int status, String contentType, byte[] body) {
+            String header = "HTTP/1.1 " + status + " " + getReasonPhrase(status) + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Length: " + body.length + "\r\n"
+                    + "Cache-Control: no-store\r\n"
+                    + "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n\r\n";
+            byte[] headerBytes = header.getBytes(ISO_8859_1);
+            ByteBuffer response = ByteBuffer.allocate(headerBytes.length + body.length);
+            response.put(headerBytes).put(body);
+            response.flip();
+            return response;
+        }
+    }
+
+    /**
+     * method to get the reason phrase of the status codes the server responds with
+     * @param status is the status code
+     * @return the reason phrase
+     */
+    private static String getReasonPhrase(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 411:
+                return "Length Required";
+            case 413:
+                return "Payload Too Large";
+            case 431:
+                return "Request Header Fields Too Large";
+            default:
+                return "Error";
+        }
+    }
+
+    /**
+     * method to find a sequence of bytes within what is read into a buffer
+     * @param buffer is the buffer, read up to its position
+     * @param sequence is the sequence to find
+     * @return the offset of the sequence or -1 if not found
+     */
+    private static int indexOf(ByteBuffer buffer, byte[] sequence) {
+        byte[] bytes = buffer.array();
+        int end = buffer.position() - sequence.length;
+        for (int i = 0; i <= end; i++) {
+            int j = 0;
+            while (j < sequence.length && bytes[i + j] == sequence[j]) {
+                j++;
+            }
+            if (j == sequence.length)
+                return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,443 @@
+package com.example.android.p03quizapp;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * class to grade answers without any Android dependency, e.g. to re-grade submissions collected
+ * from many devices on a server. The grading rules are the ones of QuizCheckAnswer.isAnswerCorrect,
+ * which uses them too:
+ * - Checkbox and Radio: correct if some answers are selected and the selection is exactly the set of
+ *   correct answers, i.e. all correct answers of a Checkbox question must be selected
+ * - EditText and other text input: correct if the text given matches any of the accepted answers,
+ *   ignoring case and extra whitespace and within the edit distance of the quiz question, see
+ *   QuizTextAnswerMatcher
+ * - Numeric: correct if the number given is within the tolerance of any of the accepted numbers or
+ *   within the range of accepted numbers, see QuizNumericAnswerMatcher
+ *
+ * A stream of submissions is graded in parallel on a thread per CPU core: submissions are read in
+ * batches on the calling thread, batches are graded on the pool and results are delivered to the
+ * listener on the calling thread, in the order of submissions. Only a few batches are in flight at
+ * a time, so any number of submissions can be streamed through without holding them in memory.
+ */
+
+class QuizGradingEngine {
+    //  number of submissions graded by a single task
+    static final int BATCH_SIZE = 1024;
+    //  number of batches queued or being graded per thread, reading pauses beyond that
+    private static final int PENDING_BATCHES_PER_THREAD = 4;
+    //  seconds idle threads are kept alive for
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * interface to receive graded submissions, called on the thread calling gradeAll
+     */
+    interface OnSubmissionGradedListener {
+        /**
+         * method called for every submission, in the order of submissions
+         * @param gradedSubmission is the graded submission
+         */
+        void onSubmissionGraded(GradedSubmission gradedSubmission);
+    }
+
+    /**
+     * class to hold the answers of a submission, indexed by the index of quiz questions within
+     * the QuizBank: bitmask of selected answers for choice questions, text for text questions
+     */
+    static class Submission {
+        private long id;
+        private long[] selectedAnswerMasks;
+        //  text answers, null until the first one is set
+        private String[] inputTexts;
+
+        /**
+         * constructor for Submission object without any answers
+         * @param id is the id of the submission, e.g. to match graded submissions to the source
+         * @param questionCount is the number of quiz questions of the QuizBank
+         */
+        Submission(long id, int questionCount) {
+            this.id = id;
+            this.selectedAnswerMasks = new long[questionCount];
+        }
+
+        long getId() {
+            return id;
+        }
+
+        /**
+         * method to set the answers selected for a choice question
+         * @param bankIndex is the index of the quiz question within the QuizBank
+         * @param selectedAnswerMask is the bitmask of answers selected, bit n set if answer n is selected
+         */
+        void setSelectedAnswerMask(int bankIndex, long selectedAnswerMask) {
+            selectedAnswerMasks[bankIndex] = selectedAnswerMask;
+        }
+
+        /**
+         * method to get the answers selected for a choice question
+         * @param bankIndex is the index of the quiz question within the QuizBank
+         * @return the bitmask of answers selected, 0 if none
+         */
+        long getSelectedAnswerMask(int bankIndex) {
+            return bankIndex < selectedAnswerMasks.length ? selectedAnswerMasks[bankIndex] : 0;
+        }
+
+        /**
+         * method to set the text given for a text question
+         * @param bankIndex is the index of the quiz question within the QuizBank
+         * @param inputText is the text given
+         */
+        void setInputText(int bankIndex, String inputText) {
+            if (inputTexts == null)
+                inputTexts = new String[selectedAnswerMasks.length];
+            inputTexts[bankIndex] = inputText;
+        }
+
+        /**
+         * method to get the text given for a text question
+         * @param bankIndex is the index of the quiz question within the QuizBank
+         * @return the text or null if none is given
+         */
+        String getInputText(int bankIndex) {
+            return inputTexts != null && bankIndex < inputTexts.length ? inputTexts[bankIndex] : null;
+        }
+    }
+
+    /**
+     * class to hold the result of grading a submission: score and correctness per quiz question
+     */
+    static class GradedSubmission {
+        private long id;
+        private int score;
+        //  bit n of word n / 64 is set if the answer to quiz question n is correct
+        private long[] correctWords;
+
+        GradedSubmission(long id, int questionCount) {
+            this.id = id;
+            this.correctWords = new long[(questionCount + 63) >>> 6];
+        }
+
+        /**
+         * method to get the id of the submission graded
+         * @return the id
+         */
+        long getId() {
+            return id;
+        }
+
+        /**
+         * method to get the number of correct answers
+         * @return the score
+         */
+        int getScore() {
+            return score;
+        }
+
+        /**
+         * method to check whether the answer to a quiz question is correct
+         * @param bankIndex is the index of the quiz question within the QuizBank
+         * @return true if correct
+         */
+        boolean isCorrect(int bankIndex) {
+            return (correctWords[bankIndex >>> 6] & (1L << bankIndex)) != 0;
+        }
+    }
+
+    /**
+     * class to hold the totals of grading many submissions
+     */
+    static class Summary {
+        private long submissionCount;
+        private long totalScore;
+        //  number of submissions answering each quiz question correctly
+        private long[] correctCounts;
+        //  number of submissions per score, index is the score
+        private long[] scoreCounts;
+
+        Summary(int questionCount) {
+            correctCounts = new long[questionCount];
+            scoreCounts = new long[questionCount + 1];
+        }
+
+        /**
+         * method to add a graded submission to the totals
+         * @param gradedSubmission is the graded submission
+         */
+        private void add(GradedSubmission gradedSubmission) {
+            submissionCount++;
+            totalScore += gradedSubmission.score;
+            scoreCounts[gradedSubmission.score]++;
+            for (int word = 0; word < gradedSubmission.correctWords.length; word++) {
+                //  go through set bits only
+                long bits = gradedSubmission.correctWords[word];
+                while (bits != 0) {
+                    correctCounts[(word << 6) + Long.numberOfTrailingZeros(bits)]++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        long getSubmissionCount() {
+            return submissionCount;
+        }
+
+        long getTotalScore() {
+            return totalScore;
+        }
+
+        /**
+         * method to get the number of submissions answering a quiz question correctly
+         * @param bankIndex is the index of the quiz question within the QuizBank
+         * @return the number of submissions
+         */
+        long getCorrectCount(int bankIndex) {
+            return correctCounts[bankIndex];
+        }
+
+        /**
+         * method to get the number of submissions of a score
+         * @param score is the score
+         * @return the number of submissions
+         */
+        long getScoreCount(int score) {
+            return scoreCounts[score];
+        }
+
+        @Override
+        public String toString() {
+            return "Summary{submissions=" + submissionCount + ", totalScore=" + totalScore
+                    + ", correctCounts=" + Arrays.toString(correctCounts) + '}';
+        }
+    }
+
+    //  grading rules per quiz question, taken from the QuizBank once
+    private int questionCount;
+    private boolean[] isChoiceInput;
+    private long[] correctAnswerMasks;
+    //  matcher of accepted answers of text and Numeric questions, null for choice questions
+    private QuizAnswerMatcher[] answerMatchers;
+
+    private int threadCount;
+    private ThreadPoolExecutor executor;
+    //  statistics to record answers graded in, null for none
+    private QuizAnswerStatistics answerStatistics;
+
+    /**
+     * constructor for QuizGradingEngine object using a thread per CPU core
+     * @param quizBank is the QuizBank submissions answer
+     */
+    QuizGradingEngine(QuizBank quizBank) {
+        this(quizBank, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * constructor for QuizGradingEngine object
+     * @param quizBank is the QuizBank submissions answer
+     * @param threadCount is the number of threads grading in parallel
+     */
+    QuizGradingEngine(QuizBank quizBank, int threadCount) {
+        this(quizBank.size(), threadCount);
+        for (int i = 0; i < questionCount; i++) {
+            isChoiceInput[i] = QuizInputTypeRegistry.isChoiceInput(quizBank.getInputTypeCode(i));
+            correctAnswerMasks[i] = quizBank.getCorrectAnswerMask(i);
+            answerMatchers[i] = quizBank.getAnswerMatcher(i);
+        }
+    }
+
+    /**
+     * constructor for QuizGradingEngine object grading the quiz questions of a quiz, e.g. merged
+     * from several QuizBanks. Submissions are indexed by QuizQuestion.getIndex()
+     * @param quizQuestions is the list of QuizQuestion objects, indexed by QuizQuestion.getIndex()
+     * @param threadCount is the number of threads grading in parallel
+     */
+    QuizGradingEngine(List<QuizQuestion> quizQuestions, int threadCount) {
+        this(quizQuestions.size(), threadCount);
+        for (int i = 0; i < questionCount; i++) {
+            QuizQuestion quizQuestion = quizQuestions.get(i);
+            isChoiceInput[i] = quizQuestion.isChoiceInput();
+            correctAnswerMasks[i] = quizQuestion.getCorrectAnswerMask();
+            answerMatchers[i] = quizQuestion.getAnswerMatcher();
+        }
+    }
+
+    /**
+     * constructor for QuizGradingEngine object without grading rules, to be filled in by the
+     * other constructors
+     * @param questionCount is the number of quiz questions
+     * @param threadCount is the number of threads grading in parallel
+     */
+    private QuizGradingEngine(int questionCount, int threadCount) {
+        this.questionCount = questionCount;
+        isChoiceInput = new boolean[questionCount];
+        correctAnswerMasks = new long[questionCount];
+        answerMatchers = new QuizAnswerMatcher[questionCount];
+
+        this.threadCount = threadCount;
+        executor = new ThreadPoolExecutor(threadCount, threadCount, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    private AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        return new Thread(runnable, QuizGradingEngine.class.getSimpleName()
+                                + " #" + threadNumber.incrementAndGet());
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * method to record the answers of submissions graded from now on, e.g. to find the quiz questions
+     * users fail. Must be set before grading starts
+     * @param answerStatistics is the statistics indexed like the QuizBank, see
+     *                         QuizAnswerStatistics(QuizBank), null to stop recording
+     */
+    void setAnswerStatistics(QuizAnswerStatistics answerStatistics) {
+        this.answerStatistics = answerStatistics;
+    }
+
+    /**
+     * method to check whether the answers selected for a choice question are correct
+     * @param selectedAnswerMask is the bitmask of answers selected
+     * @param correctAnswerMask is the bitmask of correct answers
+     * @return true if some answers are selected and those are exactly the correct answers
+     */
+    static boolean isChoiceAnswerCorrect(long selectedAnswerMask, long correctAnswerMask) {
+        return selectedAnswerMask != 0 && selectedAnswerMask == correctAnswerMask;
+    }
+
+    /**
+     * method to check whether the text given for a text or Numeric question is correct
+     * @param inputText is the text given or null
+     * @param answerMatcher is the matcher of accepted answers, null if there are none
+     * @return true if the text matches any of the accepted answers
+     */
+    static boolean isTextAnswerCorrect(String inputText, QuizAnswerMatcher answerMatcher) {
+        return inputText != null && answerMatcher != null && answerMatcher.matches(inputText);
+    }
+
+    /**
+     * method to grade a single submission on the calling thread
+     * @param submission is the submission
+     * @return the graded submission
+     */
+    GradedSubmission grade(Submission submission) {
+        GradedSubmission gradedSubmission = new GradedSubmission(submission.getId(), questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            boolean correct = isChoiceInput[i]
+                    ? isChoiceAnswerCorrect(submission.getSelectedAnswerMask(i), correctAnswerMasks[i])
+                    : isTextAnswerCorrect(submission.getInputText(i), answerMatchers[i]);
+            if (correct) {
+                gradedSubmission.correctWords[i >>> 6] |= 1L << i;
+                gradedSubmission.score++;
+            }
+            if (answerStatistics != null) {
+                if (isChoiceInput[i]) {
+                    long selectedAnswerMask = submission.getSelectedAnswerMask(i);
+                    answerStatistics.record(i, selectedAnswerMask, selectedAnswerMask != 0, correct);
+                } else {
+                    String inputText = submission.getInputText(i);
+                    answerStatistics.record(i, 0, inputText != null && !inputText.isEmpty(), correct);
+                }
+            }
+        }
+        return gradedSubmission;
+    }
+
+    /**
+     * method to grade a stream of submissions in parallel, blocks until all are graded
+     * @param submissions is the iterator of submissions, read on the calling thread
+     * @param listener is the listener to deliver graded submissions to in order, may be null
+     * @return the totals of all submissions
+     * @throws InterruptedException if interrupted while waiting, grading is cancelled
+     */
+    Summary gradeAll(Iterator<? extends Submission> submissions, OnSubmissionGradedListener listener)
+            throws InterruptedException {
+        Summary summary = new Summary(questionCount);
+        ArrayDeque<Future<GradedSubmission[]>> pendingBatches = new ArrayDeque<>();
+        int maxPendingBatches = threadCount * PENDING_BATCHES_PER_THREAD;
+        try {
+            while (submissions.hasNext()) {
+                Submission[] batch = new Submission[BATCH_SIZE];
+                int batchSize = 0;
+                while (batchSize < BATCH_SIZE && submissions.hasNext()) {
+                    batch[batchSize++] = submissions.next();
+                }
+                pendingBatches.add(executor.submit(new GradeBatchTask(batch, batchSize)));
+                if (pendingBatches.size() >= maxPendingBatches)
+                    deliver(pendingBatches.poll(), summary, listener);
+            }
+            while (!pendingBatches.isEmpty()) {
+                deliver(pendingBatches.poll(), summary, listener);
+            }
+        } finally {
+            for (Future<GradedSubmission[]> pendingBatch : pendingBatches) {
+                pendingBatch.cancel(true);
+            }
+        }
+        return summary;
+    }
+
+    /**
+     * method to wait for a batch to be graded, add it to the totals and deliver it to the listener
+     * @param pendingBatch is the batch being graded
+     * @param summary is the totals
+     * @param listener is the listener or null
+     * @throws InterruptedException if interrupted while waiting
+     */
+    private void deliver(Future<GradedSubmission[]> pendingBatch, Summary summary,
+                         OnSubmissionGradedListener listener) throws InterruptedException {
+        GradedSubmission[] gradedSubmissions;
+        try {
+            gradedSubmissions = pendingBatch.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw (RuntimeException) e.getCause();
+        }
+        for (GradedSubmission gradedSubmission : gradedSubmissions) {
+            summary.add(gradedSubmission);
+            if (listener != null)
+                listener.onSubmissionGraded(gradedSubmission);
+        }
+    }
+
+    /**
+     * method to stop the threads, the QuizGradingEngine cannot be used for gradeAll afterwards
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * class to grade a batch of submissions on a thread of the pool
+     */
+    private class GradeBatchTask implements Callable<GradedSubmission[]> {
+        private Submission[] batch;
+        private int batchSize;
+
+        GradeBatchTask(Submission[] batch, int batchSize) {
+            this.batch = batch;
+            this.batchSize = batchSize;
+        }
+
+        @Override
+        public GradedSubmission[] call() {
+            GradedSubmission[] gradedSubmissions = new GradedSubmission[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                gradedSubmissions[i] = grade(batch[i]);
+            }
+            return gradedSubmissions;
+        }
+    }
+}
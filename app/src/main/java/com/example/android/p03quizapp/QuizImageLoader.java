@@ -0,0 +1,388 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.View;
+import android.widget.ImageView;
+
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * class to load quiz header images without blocking the UI thread:
+ * - images are decoded on background threads, downsampled to the size they are displayed at
+ * - decoded bitmaps are kept in a memory bounded LRU cache, keyed by resource id and size
+ * - bitmaps evicted from the cache are reused to decode other images into, unless still displayed
+ * - images of upcoming quiz questions can be prefetched into the cache
+ *
+ * Images are displayed in ImageViews or QuizQuestionViews. Views are tagged with the image last
+ * requested, so a recycled view never shows an image decoded for the quiz question it displayed before.
+ *
+ * All methods except getStats must be called on the UI thread.
+ */
+
+class QuizImageLoader {
+    private String logTag = QuizImageLoader.class.getSimpleName();
+
+    //  part of the maximum heap size to use for the bitmap cache: 1/8
+    private static final int CACHE_SIZE_DIVISOR = 8;
+
+    //  number of background threads decoding images
+    private static final int DECODE_THREAD_COUNT = 2;
+
+    private Resources resources;
+    //  handler to deliver decoded bitmaps to the UI thread
+    private Handler mainHandler = new Handler(Looper.getMainLooper());
+    //  threads decoding images
+    private ExecutorService decodeExecutor;
+    //  decoded bitmaps, size is measured in bytes
+    private LruCache<Long, Bitmap> memoryCache;
+    //  bitmaps evicted from cache, candidates to decode other images into
+    private final ArrayList<SoftReference<Bitmap>> reusableBitmaps = new ArrayList<>();
+    //  bitmap currently displayed by each view, guarded by reusableBitmaps.
+    //  Views are weak keys so views of a destroyed activity are not kept
+    private final WeakHashMap<View, Bitmap> displayedBitmaps = new WeakHashMap<>();
+    //  views waiting for an image being decoded, per cache key. Prefetches have no view
+    private HashMap<Long, ArrayList<WeakReference<View>>> pendingRequests = new HashMap<>();
+
+    //  statistics: image requests served from cache, requests needing a decode, prefetches started
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int prefetchCount = 0;
+    //  statistics updated by decoding threads
+    private AtomicInteger decodeCount = new AtomicInteger();
+    private AtomicLong decodeNanos = new AtomicLong();
+    private AtomicInteger reuseCount = new AtomicInteger();
+
+    /**
+     * constructor for QuizImageLoader object
+     * @param context is the context to take resources from. Application context is used so that
+     *                the loader can be retained across configuration changes
+     */
+    QuizImageLoader(Context context) {
+        resources = context.getApplicationContext().getResources();
+
+        int cacheSize = (int) (Runtime.getRuntime().maxMemory() / CACHE_SIZE_DIVISOR);
+        memoryCache = new LruCache<Long, Bitmap>(cacheSize) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return getBitmapSize(bitmap);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Long key, Bitmap oldValue, Bitmap newValue) {
+                synchronized (reusableBitmaps) {
+                    reusableBitmaps.add(new SoftReference<>(oldValue));
+                }
+            }
+        };
+
+        decodeExecutor = Executors.newFixedThreadPool(DECODE_THREAD_COUNT, new ThreadFactory() {
+            private int threadCount = 0;
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, logTag + " #" + ++threadCount);
+            }
+        });
+    }
+
+    /**
+     * method to display an image in an ImageView. Cached image is displayed at once, otherwise
+     * the ImageView is cleared and the image is displayed when decoded
+     * @param imageView is the ImageView to display the image in
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the ImageView in pixels, image is downsampled to fit it
+     */
+    void loadImage(ImageView imageView, int resourceId, int targetSize) {
+        loadImageInto(imageView, resourceId, targetSize);
+    }
+
+    /**
+     * method to display a header image in a QuizQuestionView, see loadImage(ImageView, int, int)
+     * @param questionView is the QuizQuestionView to display the image in
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the header image in pixels, image is downsampled to fit it
+     */
+    void loadImage(QuizQuestionView questionView, int resourceId, int targetSize) {
+        loadImageInto(questionView, resourceId, targetSize);
+    }
+
+    /**
+     * method to display an image in an ImageView or QuizQuestionView
+     * @param view is the view to display the image in
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the image in pixels
+     */
+    private void loadImageInto(View view, int resourceId, int targetSize) {
+        long key = getCacheKey(resourceId, targetSize);
+        view.setTag(R.id.quizHeaderImageView, key);
+
+        Bitmap bitmap = memoryCache.get(key);
+        if (bitmap != null) {
+            hitCount++;
+            display(view, bitmap);
+            return;
+        }
+        missCount++;
+        display(view, null);
+        requestDecode(key, resourceId, targetSize, view);
+    }
+
+    /**
+     * method to decode an image into the cache in advance, e.g. for quiz questions about to be
+     * scrolled into view
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the ImageView in pixels
+     */
+    void prefetch(int resourceId, int targetSize) {
+        long key = getCacheKey(resourceId, targetSize);
+        if (pendingRequests.containsKey(key) || memoryCache.get(key) != null)
+            return;
+        prefetchCount++;
+        requestDecode(key, resourceId, targetSize, null);
+    }
+
+    /**
+     * method to stop decoding and release all bitmaps, e.g. when quiz app is finishing
+     */
+    void shutdown() {
+        decodeExecutor.shutdownNow();
+        pendingRequests.clear();
+        memoryCache.evictAll();
+        synchronized (reusableBitmaps) {
+            reusableBitmaps.clear();
+            displayedBitmaps.clear();
+        }
+    }
+
+    /**
+     * method to get statistics of image loading: decode time, cache hits and misses, bytes held
+     * @return human readable statistics
+     */
+    String getStats() {
+        int decodes = decodeCount.get();
+        return String.format(Locale.US,
+                "decoded %d images in %.1f ms (%.1f ms avg), %d reused bitmaps; "
+                        + "cache hits %d, misses %d, prefetches %d; "
+                        + "cache holds %d of %d bytes, %d evictions",
+                decodes, decodeNanos.get() / 1e6, decodes > 0 ? decodeNanos.get() / 1e6 / decodes : 0.0,
+                reuseCount.get(), hitCount, missCount, prefetchCount,
+                memoryCache.size(), memoryCache.maxSize(), memoryCache.evictionCount());
+    }
+
+    /**
+     * method to start decoding an image in the background, unless already being decoded
+     * @param key is the cache key of the image
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the ImageView in pixels
+     * @param view is the view waiting for the image or null if prefetching
+     */
+    private void requestDecode(final long key, final int resourceId, final int targetSize, View view) {
+        ArrayList<WeakReference<View>> waitingViews = pendingRequests.get(key);
+        boolean isPending = waitingViews != null;
+        if (!isPending) {
+            waitingViews = new ArrayList<>();
+            pendingRequests.put(key, waitingViews);
+        }
+        if (view != null)
+            waitingViews.add(new WeakReference<>(view));
+        if (isPending)
+            return;
+
+        decodeExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final Bitmap bitmap = decode(resourceId, targetSize);
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onDecoded(key, bitmap);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * method called on the UI thread when an image is decoded. Cache the bitmap and display it in
+     * views still waiting for it
+     * @param key is the cache key of the image
+     * @param bitmap is the decoded bitmap or null if decoding failed
+     */
+    private void onDecoded(long key, Bitmap bitmap) {
+        ArrayList<WeakReference<View>> waitingViews = pendingRequests.remove(key);
+        if (waitingViews == null || bitmap == null)
+            return;
+
+        memoryCache.put(key, bitmap);
+        for (WeakReference<View> reference : waitingViews) {
+            View view = reference.get();
+            //  view may have been recycled to display another image meanwhile
+            if (view != null && Long.valueOf(key).equals(view.getTag(R.id.quizHeaderImageView)))
+                display(view, bitmap);
+        }
+    }
+
+    /**
+     * method to display a bitmap, keeping track of displayed bitmaps so they are not reused
+     * @param view is the ImageView or QuizQuestionView
+     * @param bitmap is the bitmap or null to clear the image
+     */
+    private void display(View view, Bitmap bitmap) {
+        synchronized (reusableBitmaps) {
+            if (bitmap != null)
+                displayedBitmaps.put(view, bitmap);
+            else
+                displayedBitmaps.remove(view);
+        }
+        if (view instanceof QuizQuestionView)
+            ((QuizQuestionView) view).setHeaderImage(bitmap);
+        else
+            ((ImageView) view).setImageBitmap(bitmap);
+    }
+
+    /**
+     * method to decode an image downsampled to the target size, called on a background thread
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the ImageView in pixels
+     * @return the bitmap or null if decoding failed
+     */
+    private Bitmap decode(int resourceId, int targetSize) {
+        long startNanos = System.nanoTime();
+
+        //  read image size only, without allocating pixels
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        options.inScaled = false;
+        BitmapFactory.decodeResource(resources, resourceId, options);
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, targetSize);
+
+        options.inJustDecodeBounds = false;
+        options.inMutable = true;
+        options.inBitmap = takeReusableBitmap(options);
+        Bitmap bitmap;
+        try {
+            bitmap = BitmapFactory.decodeResource(resources, resourceId, options);
+        } catch (IllegalArgumentException e) {
+            //  reusable bitmap turned out not to be suitable after all, decode into a new one
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeResource(resources, resourceId, options);
+        } catch (OutOfMemoryError e) {
+            Log.e(logTag, "Out of memory decoding image " + resourceId, e);
+            return null;
+        }
+        if (options.inBitmap != null && bitmap == options.inBitmap)
+            reuseCount.incrementAndGet();
+
+        decodeCount.incrementAndGet();
+        decodeNanos.addAndGet(System.nanoTime() - startNanos);
+        QuizMetrics.stopTimer(QuizMetrics.TIMER_IMAGE_DECODE, startNanos);
+        QuizMetrics.increment(QuizMetrics.COUNTER_IMAGES_DECODED);
+        if (bitmap == null)
+            Log.e(logTag, "Failed to decode image " + resourceId);
+        return bitmap;
+    }
+
+    /**
+     * method to find a bitmap evicted from cache that the image can be decoded into
+     * @param options is the BitmapFactory.Options with image size and inSampleSize set
+     * @return the bitmap, removed from reusable bitmaps, or null if there is none suitable
+     */
+    private Bitmap takeReusableBitmap(BitmapFactory.Options options) {
+        synchronized (reusableBitmaps) {
+            Iterator<SoftReference<Bitmap>> iterator = reusableBitmaps.iterator();
+            while (iterator.hasNext()) {
+                Bitmap candidate = iterator.next().get();
+                if (candidate == null || !candidate.isMutable()) {
+                    iterator.remove();
+                } else if (!displayedBitmaps.containsValue(candidate) && canReuse(candidate, options)) {
+                    iterator.remove();
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * method to check whether an image can be decoded into a bitmap.
+     * Before KitKat, sizes must match exactly and no downsampling is allowed
+     * @param candidate is the bitmap to be reused
+     * @param options is the BitmapFactory.Options with image size and inSampleSize set
+     * @return true if the bitmap can be reused
+     */
+    private static boolean canReuse(Bitmap candidate, BitmapFactory.Options options) {
+        int width = options.outWidth / options.inSampleSize;
+        int height = options.outHeight / options.inSampleSize;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            //  ARGB_8888: 4 bytes per pixel
+            return width * height * 4 <= candidate.getAllocationByteCount();
+        }
+        return candidate.getWidth() == options.outWidth && candidate.getHeight() == options.outHeight
+                && options.inSampleSize == 1;
+    }
+
+    /**
+     * method to calculate the largest power of 2 downsampling that keeps the image at least as
+     * large as the target size in both dimensions
+     * @param width is the width of the image
+     * @param height is the height of the image
+     * @param targetSize is the size of the ImageView in pixels
+     * @return the inSampleSize
+     */
+    static int calculateInSampleSize(int width, int height, int targetSize) {
+        int inSampleSize = 1;
+        if (targetSize <= 0)
+            return inSampleSize;
+        while (width / (inSampleSize * 2) >= targetSize && height / (inSampleSize * 2) >= targetSize) {
+            inSampleSize *= 2;
+        }
+        return inSampleSize;
+    }
+
+    /**
+     * method to get the number of bytes used by a bitmap
+     * @param bitmap is the bitmap
+     * @return the size in bytes
+     */
+    private static int getBitmapSize(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return bitmap.getAllocationByteCount();
+        return bitmap.getByteCount();
+    }
+
+    /**
+     * method to get the cache key of an image: resource id and target size
+     * @param resourceId is the drawable resource id of the image
+     * @param targetSize is the size of the ImageView in pixels
+     * @return the cache key
+     */
+    private static long getCacheKey(int resourceId, int targetSize) {
+        return ((long) resourceId << 32) | (targetSize & 0xffffffffL);
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.android.p03quizapp;
 
-import java.util.ArrayList;
+import android.view.View;
 
 /**
  * Created by bivanbi on 2017.02.24..
@@ -10,19 +10,40 @@ import java.util.ArrayList;
  * Creating interface and different implementation for each input type might be overkill for a
  * small project such as this, but it is important to get familiar with the basic idea and this
  * is a good opportunity, so here we go.
+ *
+ * Input handlers keep the answers in a QuizAnswerStore rather than in the views, so views can be
+ * bound and unbound (recycled) at any time without losing user input.
  */
 
 interface QuizInputHandler {
     /**
-     * method to get an ArrayList of Strings of the actual answers given by the user by means of
-     *  editing a text field (EditText)
-     *  checking checkboxes (selecting multiple answers from a list)
-     *  checking a radio button in a RadiGroup (selecting a single answer from a list)
+     * method to get the answers selected by the user as a bitmask, without building any list
+     * @return bitmask with bit n set if answer n is selected, 0 if none is selected or input is
+     * not a selection (EditText)
      */
-    ArrayList<String> getInputAnswers();
+    long getSelectedAnswerMask();
+
+    /**
+     * method to get the text entered by the user, without building any list
+     * @return text entered (possibly empty) or null if input is not a text field
+     */
+    String getInputText();
 
     /**
      * method to reset input when requested: empty EditText, uncheck checkboxes and clear RadioGroups
      */
     void resetInput();
+
+    /**
+     * method to attach input view to this handler: display the answers given so far and
+     * track further user input
+     * @param inputView is the view holding the input widgets for this quiz
+     */
+    void bind(View inputView);
+
+    /**
+     * method to detach input view from this handler, so the view can be reused for another quiz.
+     * Answers given so far are kept by the handler.
+     */
+    void unbind();
 }
@@ -1,55 +1,137 @@
 package com.example.android.p03quizapp;
 
+import android.view.View;
+import android.view.ViewGroup;
 import android.widget.CheckBox;
+import android.widget.CompoundButton;
 
-import java.lang.reflect.Array;
 import java.util.ArrayList;
 
 /**
  * Created by bivanbi on 2017.02.24..
  *
- * class to implement QuizInputHandler interface on Checkbox inputs
+ * class to implement QuizInputHandler interface on Checkbox inputs: checkboxes in a container
+ * or the choices of a QuizQuestionView
  *
  */
 
-public class QuizInputHandlerCheckbox implements QuizInputHandler {
-    //  ArrayList holding the checkbox views related to the particular quiz question
-    //  actual answers will be read from checkboxes text attribute
-    private ArrayList<CheckBox> checkBoxes;
+public class QuizInputHandlerCheckbox implements QuizInputHandler,
+        CompoundButton.OnCheckedChangeListener, QuizQuestionView.OnChoiceClickListener {
+    //  the store holding checked state of answers, bit n is set if checkbox n is checked
+    private QuizAnswerStore answerStore;
+    //  the quiz question this handler belongs to. Answers will be read from here
+    private QuizQuestion quizQuestion;
+    //  ArrayList holding the checkbox views currently bound to this handler
+    private ArrayList<CheckBox> checkBoxes = new ArrayList<>();
+    //  QuizQuestionView currently bound to this handler, null if not bound
+    private QuizQuestionView questionView;
 
     /**
      * constructor for QuizInputHandlerCheckbox object
-     * @param checkBoxes is the ArrayList holding the Checkbox objects contributing to the involved quiz
+     * @param answerStore is the QuizAnswerStore holding the answers given by user
+     * @param quizQuestion is the QuizQuestion object this handler belongs to
      */
-    QuizInputHandlerCheckbox(ArrayList<CheckBox> checkBoxes) {
-        this.checkBoxes = checkBoxes;
+    QuizInputHandlerCheckbox(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        this.answerStore = answerStore;
+        this.quizQuestion = quizQuestion;
     }
 
     /**
-     * method to get ArrayList<String> of the answer(s) checked by user.
-     * @return ArrayList of checked answer or empty ArrayList if none is checked
+     * method to get the bitmask of answer(s) checked by user
+     * @return bitmask with bit n set if checkbox n is checked
      */
     @Override
-    public ArrayList<String> getInputAnswers() {
-        ArrayList<String> checkedAnswers = new ArrayList<>();
-        for (int i = 0; i < checkBoxes.size(); i++)
+    public long getSelectedAnswerMask() {
+        return answerStore.getSelection(quizQuestion.getIndex());
+    }
+
+    /**
+     * method to get text entered by user. There is no text for checkbox input
+     * @return null
+     */
+    @Override
+    public String getInputText() {
+        return null;
+    }
+
+    /**
+     * method to reset the checkboxes contributing to the involved quiz
+     */
+    @Override
+    public void resetInput() {
+        answerStore.clear(quizQuestion.getIndex());
+        for (CheckBox checkBox: checkBoxes)
         {
-            if (checkBoxes.get(i).isChecked())
+            checkBox.setChecked(false);
+        }
+        if (questionView != null)
+            questionView.setCheckedMask(0);
+    }
+
+    /**
+     * method to bind checkboxes to this handler. Checkboxes are taken from the children of
+     * input view in the order of possible answers
+     * @param inputView is the view containing the checkboxes or a QuizQuestionView
+     */
+    @Override
+    public void bind(View inputView) {
+        unbind();
+        if (inputView instanceof QuizQuestionView) {
+            questionView = (QuizQuestionView) inputView;
+            questionView.setCheckedMask(answerStore.getSelection(quizQuestion.getIndex()));
+            questionView.setOnChoiceClickListener(this);
+            return;
+        }
+        ViewGroup container = (ViewGroup) inputView;
+        for (int i = 0; i < container.getChildCount() && checkBoxes.size() < quizQuestion.size(); i++)
+        {
+            View child = container.getChildAt(i);
+            if (child instanceof CheckBox)
             {
-                checkedAnswers.add(checkBoxes.get(i).getText().toString());
+                CheckBox checkBox = (CheckBox) child;
+                checkBox.setChecked(answerStore.isSelected(quizQuestion.getIndex(), checkBoxes.size()));
+                checkBox.setOnCheckedChangeListener(this);
+                checkBoxes.add(checkBox);
             }
         }
-        return checkedAnswers;
     }
 
     /**
-     * method to reset the checkboxes contributing to the involved quiz
+     * method to release the checkboxes bound to this handler
      */
     @Override
-    public void resetInput() {
+    public void unbind() {
         for (CheckBox checkBox: checkBoxes)
         {
-            checkBox.setChecked(false);
+            checkBox.setOnCheckedChangeListener(null);
         }
+        checkBoxes.clear();
+        if (questionView != null)
+            questionView.setOnChoiceClickListener(null);
+        questionView = null;
+    }
+
+    /**
+     * method to keep track of checkboxes being checked or unchecked
+     * @param buttonView is the checkbox changed
+     * @param checked is the new checked state
+     */
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean checked) {
+        int index = checkBoxes.indexOf(buttonView);
+        if (index >= 0)
+            answerStore.setSelected(quizQuestion.getIndex(), index, checked);
+    }
+
+    /**
+     * method to toggle the checked state of a choice clicked in the QuizQuestionView
+     * @param view is the QuizQuestionView
+     * @param answerIndex is the index of the answer clicked
+     */
+    @Override
+    public void onChoiceClick(QuizQuestionView view, int answerIndex) {
+        boolean checked = !answerStore.isSelected(quizQuestion.getIndex(), answerIndex);
+        answerStore.setSelected(quizQuestion.getIndex(), answerIndex, checked);
+        view.setChecked(answerIndex, checked);
     }
 }
@@ -1,37 +1,49 @@
 package com.example.android.p03quizapp;
 
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.view.View;
 import android.widget.EditText;
 
-import java.util.ArrayList;
-
 /**
  * Created by bivanbi on 2017.02.24..
  * class to implement QuizInputHandler interface on EditText input
  */
 
-public class QuizInputHandlerEditText implements QuizInputHandler {
-    //  the EditText view containing user input
+public class QuizInputHandlerEditText implements QuizInputHandler, TextWatcher {
+    //  the store holding the text entered by user
+    private QuizAnswerStore answerStore;
+    //  the quiz question this handler belongs to
+    private QuizQuestion quizQuestion;
+    //  the EditText view currently bound to this handler, null if not bound
     private EditText input;
 
     /**
-     * constructor for QuizInputHandlerRadio object
-     * @param input is the EditText view object contributing to the involved quiz
+     * constructor for QuizInputHandlerEditText object
+     * @param answerStore is the QuizAnswerStore holding the answers given by user
+     * @param quizQuestion is the QuizQuestion object this handler belongs to
      */
-    QuizInputHandlerEditText(View input) {
-        this.input = (EditText) input;
+    QuizInputHandlerEditText(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        this.answerStore = answerStore;
+        this.quizQuestion = quizQuestion;
     }
 
     /**
-     * method to get ArrayList<String> of the answer entered by user. Since the input is EditText,
-     * ArrayList will most likely 1 (possibly empty) answer.
-     * @return ArrayList with one element holding the answer
+     * method to get the bitmask of answers selected by user. Nothing can be selected in EditText
+     * @return 0
      */
     @Override
-    public ArrayList<String> getInputAnswers() {
-        ArrayList<String> inputStringArray = new ArrayList<>();
-        inputStringArray.add(input.getText().toString());
-        return inputStringArray;
+    public long getSelectedAnswerMask() {
+        return 0;
+    }
+
+    /**
+     * method to get the text entered by user
+     * @return the text entered, possibly empty
+     */
+    @Override
+    public String getInputText() {
+        return answerStore.getText(quizQuestion.getIndex());
     }
 
     /**
@@ -39,6 +51,50 @@ public class QuizInputHandlerEditText implements QuizInputHandler {
      */
     @Override
     public void resetInput() {
-        input.setText("");
+        answerStore.clear(quizQuestion.getIndex());
+        if (input != null)
+            input.setText("");
+    }
+
+    /**
+     * method to bind EditText to this handler
+     * @param inputView is the EditText view or a layout containing it
+     */
+    @Override
+    public void bind(View inputView) {
+        unbind();
+        if (inputView instanceof EditText)
+            input = (EditText) inputView;
+        else
+            input = (EditText) inputView.findViewById(R.id.QuizInputEditText);
+        input.setText(answerStore.getText(quizQuestion.getIndex()));
+        input.addTextChangedListener(this);
+    }
+
+    /**
+     * method to release the EditText bound to this handler
+     */
+    @Override
+    public void unbind() {
+        if (input != null)
+            input.removeTextChangedListener(this);
+        input = null;
+    }
+
+    @Override
+    public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+    }
+
+    @Override
+    public void onTextChanged(CharSequence s, int start, int before, int count) {
+    }
+
+    /**
+     * method to keep track of the text entered by user
+     * @param s is the current text of the EditText
+     */
+    @Override
+    public void afterTextChanged(Editable s) {
+        answerStore.setText(quizQuestion.getIndex(), s.toString());
     }
 }
@@ -1,8 +1,7 @@
 package com.example.android.p03quizapp;
 
-import android.util.Log;
 import android.view.View;
-import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.RadioButton;
 import android.widget.RadioGroup;
 
@@ -11,53 +10,133 @@ import java.util.ArrayList;
 /**
  * Created by bivanbi on 2017.02.24..
  *
- * class to implement QuizInputHandler interface on RadioButton inputs
+ * class to implement QuizInputHandler interface on RadioButton inputs: RadioButtons in a RadioGroup
+ * or the choices of a QuizQuestionView
  */
 
-public class QuizInputHandlerRadio implements QuizInputHandler {
-    private String logTag = QuizInputHandlerRadio.class.getSimpleName();
-    //  ArrayList for holding RadioButton objects
-    //  actual answers will be read from RadioButton objects
-    private ArrayList<RadioButton> radioButtons;
+public class QuizInputHandlerRadio implements QuizInputHandler,
+        CompoundButton.OnCheckedChangeListener, QuizQuestionView.OnChoiceClickListener {
+    //  the store holding the checked answer, bit n is set if RadioButton n is checked
+    private QuizAnswerStore answerStore;
+    //  the quiz question this handler belongs to. Answers will be read from here
+    private QuizQuestion quizQuestion;
+    //  RadioGroup currently bound to this handler, null if not bound
+    private RadioGroup radioGroup;
+    //  ArrayList for holding RadioButton objects currently bound to this handler
+    private ArrayList<RadioButton> radioButtons = new ArrayList<>();
+    //  QuizQuestionView currently bound to this handler, null if not bound
+    private QuizQuestionView questionView;
 
     /**
      * constructor for QuizInputHandlerRadio object
-     * @param radioButtons is the ArrayList holding the RadioButton objects contributing to the involved quiz
+     * @param answerStore is the QuizAnswerStore holding the answers given by user
+     * @param quizQuestion is the QuizQuestion object this handler belongs to
      */
-    public QuizInputHandlerRadio(ArrayList<RadioButton> radioButtons) {
-        this.radioButtons = radioButtons;
+    public QuizInputHandlerRadio(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        this.answerStore = answerStore;
+        this.quizQuestion = quizQuestion;
     }
 
     /**
-     * method to get ArrayList<String> of the answer checked by user. Since the input is RadioGroup,
-     * ArrayList will most likely hold 0 or 1 answer.
-     * @return ArrayList of checked answer or empty ArrayList if none is checked
+     * method to get the bitmask of answer(s) checked by user
+     * @return bitmask with bit n set if RadioButton n is checked
      */
     @Override
-    public ArrayList<String> getInputAnswers() {
-        Log.d(logTag,"called");
+    public long getSelectedAnswerMask() {
+        return answerStore.getSelection(quizQuestion.getIndex());
+    }
+
+    /**
+     * method to get text entered by user. There is no text for RadioButton input
+     * @return null
+     */
+    @Override
+    public String getInputText() {
+        return null;
+    }
+
+    /**
+     * method to reset the RadioGroup and belonging RadioButtons contributing to the involved quiz
+     */
+    @Override
+    public void resetInput() {
+        answerStore.clear(quizQuestion.getIndex());
+        if (radioGroup != null)
+            radioGroup.clearCheck();
+        if (questionView != null)
+            questionView.setCheckedMask(0);
+    }
 
-        ArrayList<String> checkedAnswers = new ArrayList<>();
-        for (int i = 0; i < radioButtons.size(); i++)
+    /**
+     * method to bind RadioGroup to this handler. RadioButtons are taken from the children of
+     * the RadioGroup in the order of possible answers
+     * @param inputView is the RadioGroup containing the RadioButtons or a QuizQuestionView
+     */
+    @Override
+    public void bind(View inputView) {
+        unbind();
+        if (inputView instanceof QuizQuestionView) {
+            questionView = (QuizQuestionView) inputView;
+            questionView.setCheckedMask(answerStore.getSelection(quizQuestion.getIndex()));
+            questionView.setOnChoiceClickListener(this);
+            return;
+        }
+        radioGroup = (RadioGroup) inputView;
+        radioGroup.clearCheck();
+        for (int i = 0; i < radioGroup.getChildCount() && radioButtons.size() < quizQuestion.size(); i++)
         {
-            Log.d(logTag,"RadioButton#" + i + ": "+radioButtons.get(i).getText());
-            if (radioButtons.get(i).isChecked())
+            View child = radioGroup.getChildAt(i);
+            if (child instanceof RadioButton)
             {
-                Log.d(logTag,"RadioButton#" + i + ": checked");
-                checkedAnswers.add(radioButtons.get(i).getText().toString());
+                RadioButton radioButton = (RadioButton) child;
+                if (answerStore.isSelected(quizQuestion.getIndex(), radioButtons.size()))
+                    radioGroup.check(radioButton.getId());
+                radioButton.setOnCheckedChangeListener(this);
+                radioButtons.add(radioButton);
             }
         }
+    }
+
+    /**
+     * method to release the RadioGroup bound to this handler
+     */
+    @Override
+    public void unbind() {
+        for (RadioButton radioButton: radioButtons)
+        {
+            radioButton.setOnCheckedChangeListener(null);
+        }
+        radioButtons.clear();
+        radioGroup = null;
+        if (questionView != null)
+            questionView.setOnChoiceClickListener(null);
+        questionView = null;
+    }
 
-        Log.d(logTag,"End: "+checkedAnswers.size()+ " answers checked: "+checkedAnswers);
-        return checkedAnswers;
+    /**
+     * method to keep track of the RadioButton checked
+     * @param buttonView is the RadioButton changed
+     * @param checked is the new checked state
+     */
+    @Override
+    public void onCheckedChanged(CompoundButton buttonView, boolean checked) {
+        int index = radioButtons.indexOf(buttonView);
+        if (index < 0)
+            return;
+        if (checked)
+            answerStore.setSelection(quizQuestion.getIndex(), 1L << index);
+        else
+            answerStore.setSelected(quizQuestion.getIndex(), index, false);
     }
 
     /**
-     * method to reset the RadioGroup and belonging RadioButtons contributing to the involved quiz
+     * method to check the choice clicked in the QuizQuestionView, unchecking the others
+     * @param view is the QuizQuestionView
+     * @param answerIndex is the index of the answer clicked
      */
     @Override
-    public void resetInput() {
-        RadioGroup radioGroup = (RadioGroup) radioButtons.get(0).getParent();
-        radioGroup.clearCheck();
+    public void onChoiceClick(QuizQuestionView view, int answerIndex) {
+        answerStore.setSelection(quizQuestion.getIndex(), 1L << answerIndex);
+        view.setCheckedMask(1L << answerIndex);
     }
 }
@@ -0,0 +1,46 @@
+package com.example.android.p03quizapp;
+
+/**
+ * interface of a quiz input type - EditText, Checkbox, Radio etc. - giving its name in quiz data and
+ * its kind, and creating the QuizInputHandler holding the answers of its quiz questions. Input types
+ * displayed by input views implement QuizInputViewFactory too; this interface has no Android
+ * dependencies, so quiz questions are loaded and graded on a plain JVM as well.
+ *
+ * Input types are registered in QuizInputTypeRegistry, which resolves input type names to input type
+ * codes. The kind tells how answers are given and graded, so a new input type is added by
+ * implementing this interface and registering it, see QuizBuiltInInputTypes; views, handlers and
+ * grading are looked up by input type code, nothing dispatches on input type otherwise.
+ *
+ * Implementations declare name and kind as constants NAME and KIND too, quizbank.gradle reads them to
+ * validate quiz banks at build time.
+ */
+
+interface QuizInputType {
+    //  kinds of input types. Answers chosen from possible answers, a single one or any number of
+    //  them, graded by bitmask
+    int KIND_SINGLE_CHOICE = 1;
+    int KIND_MULTIPLE_CHOICE = 2;
+    //  answers typed in, graded by QuizTextAnswerMatcher or QuizNumericAnswerMatcher
+    int KIND_TEXT = 3;
+    int KIND_NUMERIC = 4;
+
+    /**
+     * method to get the name of this input type, as given in the <input_type> tag of quiz data
+     * @return the name, e.g. Radio
+     */
+    String getName();
+
+    /**
+     * method to get the kind of this input type
+     * @return one of the KIND_ constants
+     */
+    int getKind();
+
+    /**
+     * method to create the input handler of a QuizQuestion of this input type
+     * @param answerStore is the QuizAnswerStore holding the answers given by user
+     * @param quizQuestion is the QuizQuestion object
+     * @return the input handler
+     */
+    QuizInputHandler createInputHandler(QuizAnswerStore answerStore, QuizQuestion quizQuestion);
+}
@@ -0,0 +1,51 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.support.v7.widget.AppCompatCheckBox;
+import android.view.ViewGroup;
+import android.widget.CompoundButton;
+import android.widget.LinearLayout;
+
+/**
+ * class to implement QuizInputType interface on CheckBox inputs
+ */
+
+class QuizInputTypeCheckbox extends QuizInputTypeChoice {
+    //  name in quiz data and kind, also read by quizbank.gradle
+    static final String NAME = "Checkbox";
+    static final int KIND = KIND_MULTIPLE_CHOICE;
+
+    QuizInputTypeCheckbox() {
+        super(R.layout.quiz_input_checkbox_container, 0, R.layout.quiz_input_checkbox);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getKind() {
+        return KIND;
+    }
+
+    @Override
+    public QuizInputHandler createInputHandler(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        return new QuizInputHandlerCheckbox(answerStore, quizQuestion);
+    }
+
+    /**
+     * method to create a CheckBox, AppCompat version as the activity would inflate
+     * @param context is the context of the activity
+     * @return the CheckBox
+     */
+    @Override
+    CompoundButton newChoiceButton(Context context) {
+        return new AppCompatCheckBox(context);
+    }
+
+    @Override
+    ViewGroup.MarginLayoutParams newLayoutParams(ViewGroup.MarginLayoutParams source) {
+        return new LinearLayout.LayoutParams(source);
+    }
+}
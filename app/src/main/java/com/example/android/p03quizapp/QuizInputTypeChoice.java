@@ -0,0 +1,178 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.ColorStateList;
+import android.graphics.Typeface;
+import android.util.TypedValue;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.CompoundButton;
+
+import java.util.ArrayList;
+import java.util.WeakHashMap;
+
+/**
+ * class to implement QuizInputType and QuizInputViewFactory interfaces on inputs choosing from possible answers: a container
+ * holding a choice button - CheckBox, RadioButton - per possible answer.
+ *
+ * Choice buttons are not inflated one by one, that would parse the choice button layout every time.
+ * The layout is inflated once per activity as a template instead, and choice buttons are created
+ * in code with the attributes of the template: layout parameters, padding, text size, color and
+ * typeface. Choice buttons of input views shown for another QuizQuestion are reused.
+ */
+
+abstract class QuizInputTypeChoice implements QuizInputType, QuizInputViewFactory {
+    //  layout holding the choice container
+    private int layoutResId;
+    //  id of the choice container within layout, 0 if the layout itself is the container
+    private int choiceContainerId;
+    //  layout of a single choice button
+    private int choiceLayoutResId;
+    //  choice button templates per activity. Weak keys, templates hold no reference to the activity.
+    //  Only used on the UI thread
+    private WeakHashMap<Context, ChoiceButtonTemplate> templates = new WeakHashMap<>();
+
+    /**
+     * constructor for QuizInputTypeChoice object
+     * @param layoutResId is the layout holding the choice container
+     * @param choiceContainerId is the id of the choice container within layout, 0 if the layout itself
+     * @param choiceLayoutResId is the layout of a single choice button, its root must be a CompoundButton
+     */
+    QuizInputTypeChoice(int layoutResId, int choiceContainerId, int choiceLayoutResId) {
+        this.layoutResId = layoutResId;
+        this.choiceContainerId = choiceContainerId;
+        this.choiceLayoutResId = choiceLayoutResId;
+    }
+
+    /**
+     * method to check whether more than one choice may be checked
+     * @return true for input types of KIND_MULTIPLE_CHOICE, e.g. checkboxes
+     */
+    boolean isMultipleChoice() {
+        return getKind() == KIND_MULTIPLE_CHOICE;
+    }
+
+    /**
+     * method to create a choice button without any attributes of the template
+     * @param context is the context of the activity
+     * @return the choice button
+     */
+    abstract CompoundButton newChoiceButton(Context context);
+
+    /**
+     * method to create layout parameters a choice container accepts as they are: a container may
+     * convert other types, losing margins on older platforms
+     * @param source is the layout parameters of the template
+     * @return copy of source, of the type of the choice container
+     */
+    abstract ViewGroup.MarginLayoutParams newLayoutParams(ViewGroup.MarginLayoutParams source);
+
+    /**
+     * method to create the input views: layout and choice container bound to the input handler.
+     * Choice buttons are created when a QuizQuestion is shown
+     * @param inflater is the LayoutInflater of the activity
+     * @param parent is the view the input views will be added to
+     * @return the input views
+     */
+    @Override
+    public QuizInputViews createInputViews(LayoutInflater inflater, ViewGroup parent) {
+        View layout = inflater.inflate(layoutResId, parent, false);
+        ViewGroup choiceContainer = choiceContainerId == 0
+                ? (ViewGroup) layout : (ViewGroup) layout.findViewById(choiceContainerId);
+
+        ChoiceButtonTemplate template = templates.get(inflater.getContext());
+        if (template == null) {
+            template = new ChoiceButtonTemplate(
+                    (CompoundButton) inflater.inflate(choiceLayoutResId, choiceContainer, false));
+            templates.put(inflater.getContext(), template);
+        }
+        return new ChoiceInputViews(layout, choiceContainer, template);
+    }
+
+    /**
+     * class to hold the attributes of a choice button inflated from layout, without holding the
+     * button itself, and create further choice buttons with the same attributes
+     */
+    private class ChoiceButtonTemplate {
+        private ViewGroup.MarginLayoutParams layoutParams;
+        private int paddingLeft;
+        private int paddingTop;
+        private int paddingRight;
+        private int paddingBottom;
+        private float textSize;
+        private ColorStateList textColors;
+        private Typeface typeface;
+
+        /**
+         * constructor for ChoiceButtonTemplate object
+         * @param prototype is the choice button inflated from layout
+         */
+        ChoiceButtonTemplate(CompoundButton prototype) {
+            layoutParams = newLayoutParams((ViewGroup.MarginLayoutParams) prototype.getLayoutParams());
+            paddingLeft = prototype.getPaddingLeft();
+            paddingTop = prototype.getPaddingTop();
+            paddingRight = prototype.getPaddingRight();
+            paddingBottom = prototype.getPaddingBottom();
+            textSize = prototype.getTextSize();
+            textColors = prototype.getTextColors();
+            typeface = prototype.getTypeface();
+        }
+
+        /**
+         * method to create a choice button with the attributes of the template
+         * @param context is the context of the activity
+         * @return the choice button
+         */
+        CompoundButton createChoiceButton(Context context) {
+            CompoundButton button = newChoiceButton(context);
+            button.setLayoutParams(newLayoutParams(layoutParams));
+            button.setPadding(paddingLeft, paddingTop, paddingRight, paddingBottom);
+            button.setTextSize(TypedValue.COMPLEX_UNIT_PX, textSize);
+            button.setTextColor(textColors);
+            button.setTypeface(typeface);
+            //  RadioGroup needs unique ids to work, input is kept by input handlers
+            button.setId(View.generateViewId());
+            button.setSaveEnabled(false);
+            return button;
+        }
+    }
+
+    /**
+     * class to hold input views with a choice button per possible answer
+     */
+    private static class ChoiceInputViews extends QuizInputViews {
+        private ViewGroup choiceContainer;
+        private ChoiceButtonTemplate template;
+        //  choice buttons created so far. Buttons not needed by the QuizQuestion shown are hidden
+        private ArrayList<CompoundButton> choiceButtons = new ArrayList<>();
+
+        ChoiceInputViews(View layout, ViewGroup choiceContainer, ChoiceButtonTemplate template) {
+            super(layout, choiceContainer);
+            this.choiceContainer = choiceContainer;
+            this.template = template;
+        }
+
+        /**
+         * method to make sure there is a visible choice button for each possible answer
+         * @param quizQuestion is the QuizQuestion to display
+         */
+        @Override
+        void show(QuizQuestion quizQuestion) {
+            while (choiceButtons.size() < quizQuestion.size()) {
+                CompoundButton button = template.createChoiceButton(choiceContainer.getContext());
+                choiceButtons.add(button);
+                choiceContainer.addView(button);
+            }
+            for (int i = 0; i < choiceButtons.size(); i++) {
+                CompoundButton button = choiceButtons.get(i);
+                if (i < quizQuestion.size()) {
+                    button.setText(quizQuestion.getAnswer(i));
+                    button.setVisibility(View.VISIBLE);
+                } else {
+                    button.setVisibility(View.GONE);
+                }
+            }
+        }
+    }
+}
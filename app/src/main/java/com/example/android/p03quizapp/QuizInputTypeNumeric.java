@@ -0,0 +1,44 @@
+package com.example.android.p03quizapp;
+
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * class to implement QuizInputType and QuizInputViewFactory interfaces on Numeric input: an EditText
+ * with a numeric keyboard. The number is kept as text typed in, like EditText input, and graded by
+ * QuizNumericAnswerMatcher
+ */
+
+class QuizInputTypeNumeric implements QuizInputType, QuizInputViewFactory {
+    //  name in quiz data and kind, also read by quizbank.gradle
+    static final String NAME = "Numeric";
+    static final int KIND = KIND_NUMERIC;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getKind() {
+        return KIND;
+    }
+
+    @Override
+    public QuizInputHandler createInputHandler(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        return new QuizInputHandlerEditText(answerStore, quizQuestion);
+    }
+
+    /**
+     * method to create the numeric EditText layout, the EditText itself is bound to the input handler
+     * @param inflater is the LayoutInflater of the activity
+     * @param parent is the view the input views will be added to
+     * @return the input views
+     */
+    @Override
+    public QuizInputViews createInputViews(LayoutInflater inflater, ViewGroup parent) {
+        View layout = inflater.inflate(R.layout.quiz_input_numeric, parent, false);
+        return new QuizInputViews(layout, layout.findViewById(R.id.QuizInputEditText));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.support.v7.widget.AppCompatRadioButton;
+import android.view.ViewGroup;
+import android.widget.CompoundButton;
+import android.widget.RadioGroup;
+
+/**
+ * class to implement QuizInputType interface on RadioButton inputs
+ */
+
+class QuizInputTypeRadio extends QuizInputTypeChoice {
+    //  name in quiz data and kind, also read by quizbank.gradle
+    static final String NAME = "Radio";
+    static final int KIND = KIND_SINGLE_CHOICE;
+
+    QuizInputTypeRadio() {
+        super(R.layout.quiz_input_radio_container, R.id.QuizInputRadioGroup, R.layout.quiz_input_radiobutton);
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public int getKind() {
+        return KIND;
+    }
+
+    @Override
+    public QuizInputHandler createInputHandler(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        return new QuizInputHandlerRadio(answerStore, quizQuestion);
+    }
+
+    /**
+     * method to create a RadioButton, AppCompat version as the activity would inflate
+     * @param context is the context of the activity
+     * @return the RadioButton
+     */
+    @Override
+    CompoundButton newChoiceButton(Context context) {
+        return new AppCompatRadioButton(context);
+    }
+
+    @Override
+    ViewGroup.MarginLayoutParams newLayoutParams(ViewGroup.MarginLayoutParams source) {
+        return new RadioGroup.LayoutParams(source);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.android.p03quizapp;
+
+import java.util.HashMap;
+
+/**
+ * class to resolve input type names given in quiz data to input type codes, and to look up
+ * QuizInputType objects and their kinds by code. Codes are assigned when input types are registered,
+ * starting from 1; QuizQuestion.INPUT_TYPE_UNKNOWN is 0. Input types built into the app are registered
+ * up front, see QuizBuiltInInputTypes; further ones, e.g. sliders, can be registered before quiz
+ * questions are loaded:
+ *
+ *      QuizInputTypeRegistry.register(new QuizInputTypeSlider());
+ *
+ * Quiz questions of input types not registered are displayed without input views and graded as text.
+ *
+ * Lookups do not lock: tables are replaced by copies when an input type is registered, so input types
+ * may be looked up on any thread, e.g. while quiz banks are loaded in parallel. Only java.util is used,
+ * so the registry also runs on a plain JVM.
+ */
+
+final class QuizInputTypeRegistry {
+    //  largest input type code, QuizBank keeps codes in a byte
+    private static final int MAX_CODE = Byte.MAX_VALUE;
+
+    //  input types by code, index 0 - QuizQuestion.INPUT_TYPE_UNKNOWN - is always null
+    private static volatile QuizInputType[] inputTypes = new QuizInputType[1];
+    //  input type codes by name
+    private static volatile HashMap<String, Integer> codes = new HashMap<>();
+
+    static {
+        QuizBuiltInInputTypes.register();
+    }
+
+    private QuizInputTypeRegistry() {
+    }
+
+    /**
+     * method to register an input type, replacing the one registered with the same name
+     * @param inputType is the QuizInputType object
+     * @return the input type code, the code of the input type replaced if any
+     * @throws IllegalStateException if there are too many input types
+     */
+    static synchronized int register(QuizInputType inputType) {
+        Integer code = codes.get(inputType.getName());
+        QuizInputType[] newInputTypes;
+        if (code == null) {
+            code = inputTypes.length;
+            if (code > MAX_CODE)
+                throw new IllegalStateException("More than " + MAX_CODE + " input types");
+            newInputTypes = new QuizInputType[code + 1];
+            System.arraycopy(inputTypes, 0, newInputTypes, 0, code);
+            HashMap<String, Integer> newCodes = new HashMap<>(codes);
+            newCodes.put(inputType.getName(), code);
+            codes = newCodes;
+        } else {
+            newInputTypes = inputTypes.clone();
+        }
+        newInputTypes[code] = inputType;
+        inputTypes = newInputTypes;
+        return code;
+    }
+
+    /**
+     * method to get the code of an input type name
+     * @param name is the input type name as given in quiz data, may be null
+     * @return the input type code, QuizQuestion.INPUT_TYPE_UNKNOWN if null or not registered
+     */
+    static int getCode(String name) {
+        Integer code = name == null ? null : codes.get(name);
+        return code == null ? QuizQuestion.INPUT_TYPE_UNKNOWN : code;
+    }
+
+    /**
+     * method to get the input type registered with a code
+     * @param inputTypeCode is the input type code
+     * @return the QuizInputType object or null if none is registered
+     */
+    static QuizInputType get(int inputTypeCode) {
+        QuizInputType[] inputTypes = QuizInputTypeRegistry.inputTypes;
+        return inputTypeCode >= 0 && inputTypeCode < inputTypes.length ? inputTypes[inputTypeCode] : null;
+    }
+
+    /**
+     * method to get the kind of the input type registered with a code
+     * @param inputTypeCode is the input type code
+     * @return one of the QuizInputType.KIND_ constants, KIND_TEXT if no input type is registered
+     */
+    static int getKind(int inputTypeCode) {
+        QuizInputType inputType = get(inputTypeCode);
+        return inputType == null ? QuizInputType.KIND_TEXT : inputType.getKind();
+    }
+
+    /**
+     * method to check whether answers of an input type are given by selecting from possible answers
+     * @param inputTypeCode is the input type code
+     * @return true for input types of a choice kind, false otherwise
+     */
+    static boolean isChoiceInput(int inputTypeCode) {
+        int kind = getKind(inputTypeCode);
+        return kind == QuizInputType.KIND_SINGLE_CHOICE || kind == QuizInputType.KIND_MULTIPLE_CHOICE;
+    }
+
+    /**
+     * method to create the input handler of a QuizQuestion matching its input type
+     * @param answerStore is the QuizAnswerStore holding the answers given by user
+     * @param quizQuestion is the QuizQuestion object
+     * @return the input handler or null if input type is not registered
+     */
+    static QuizInputHandler createInputHandler(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+        QuizInputType inputType = get(quizQuestion.getInputTypeCode());
+        return inputType == null ? null : inputType.createInputHandler(answerStore, quizQuestion);
+    }
+}
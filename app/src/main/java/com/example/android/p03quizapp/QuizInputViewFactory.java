@@ -0,0 +1,21 @@
+package com.example.android.p03quizapp;
+
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+/**
+ * interface of a QuizInputType displayed by input views, pairing the input views of the type with
+ * the QuizInputHandler reading them. Quiz questions of input types not implementing it are displayed
+ * without input views.
+ */
+
+interface QuizInputViewFactory {
+    /**
+     * method to create input views of this input type. Views may be shown for any QuizQuestion of
+     * this input type, one after the other, see QuizInputViews.show. Called on the UI thread
+     * @param inflater is the LayoutInflater of the activity
+     * @param parent is the view the input views will be added to
+     * @return the input views
+     */
+    QuizInputViews createInputViews(LayoutInflater inflater, ViewGroup parent);
+}
@@ -0,0 +1,55 @@
+package com.example.android.p03quizapp;
+
+import android.view.View;
+
+/**
+ * class to hold the input views of a quiz, created by a QuizInputViewFactory:
+ * - the layout to add to the quiz container
+ * - the view to bind to the input handler of the QuizQuestion displayed
+ *
+ * Input views can be shown for one QuizQuestion after the other, e.g. when recycled, as user input
+ * is kept by input handlers rather than the views.
+ */
+
+class QuizInputViews {
+    //  the layout holding all input views
+    private View layout;
+    //  the view to bind to input handler: EditText, checkbox container, RadioGroup
+    private View inputView;
+
+    /**
+     * constructor for QuizInputViews object. Input is kept by input handlers, so the input view
+     * is set not to save and restore its own state
+     * @param layout is the layout holding all input views
+     * @param inputView is the view to bind to input handler
+     */
+    QuizInputViews(View layout, View inputView) {
+        this.layout = layout;
+        this.inputView = inputView;
+        inputView.setSaveEnabled(false);
+    }
+
+    /**
+     * method to get the layout to add to the quiz container
+     * @return the layout
+     */
+    View getLayout() {
+        return layout;
+    }
+
+    /**
+     * method to get the view to bind to the input handler of the QuizQuestion displayed
+     * @return the input view
+     */
+    View getInputView() {
+        return inputView;
+    }
+
+    /**
+     * method to display the answers of a QuizQuestion, e.g. set up a choice button per answer.
+     * Nothing to display by default
+     * @param quizQuestion is the QuizQuestion to display
+     */
+    void show(QuizQuestion quizQuestion) {
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.XmlResourceParser;
+import android.os.AsyncTask;
+import android.util.Log;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * class to load quiz data in the background so the UI thread is not blocked by XML parsing.
+ * QuizQuestion objects are published to the listener one by one as soon as they are parsed,
+ * so the first questions can be displayed before the rest of the document has been read.
+ *
+ * Quiz banks bundled with the app are compiled into Java classes at build time, see CompiledQuizBanks;
+ * those are loaded without any XML parsing. Resources not compiled are parsed by QuizXmlParser once,
+ * then loaded from QuizParseCache as long as they are unchanged.
+ * Quiz banks outside the APK are read from binary quiz bank files, see QuizBankReader.
+ * To take a random exam of an XML resource, give a QuizSampler: the resource is then streamed and
+ * only the quiz questions chosen are built, so memory depends on the size of the exam only.
+ */
+
+class QuizLoaderTask extends AsyncTask<Integer, QuizQuestion, ArrayList<QuizQuestion>>
+        implements QuizXmlParser.OnQuizQuestionParsedListener {
+
+    /**
+     * interface to receive loaded quiz data on the UI thread
+     */
+    interface OnQuizLoadListener {
+        /**
+         * method called on the UI thread for every QuizQuestion, in document order
+         * @param quizQuestion is the QuizQuestion just loaded
+         */
+        void onQuizQuestionLoaded(QuizQuestion quizQuestion);
+
+        /**
+         * method called on the UI thread before onQuizLoadFinished if some of many quiz banks failed
+         * to load. The quiz is made of the quiz banks loaded
+         * @param failedQuizBankNames are the names of the quiz banks failed, in the order given
+         */
+        void onQuizBanksFailed(ArrayList<String> failedQuizBankNames);
+
+        /**
+         * method called on the UI thread when loading is finished
+         * @param quizQuestions is the ArrayList of all QuizQuestion objects or null if loading failed
+         */
+        void onQuizLoadFinished(ArrayList<QuizQuestion> quizQuestions);
+    }
+
+    private String logTag = QuizLoaderTask.class.getSimpleName();
+    //  context to take resources from
+    private Context context;
+    //  binary quiz bank file to load, null to load an XML resource
+    private File quizBankFile;
+    //  sampler to draw a random exam of the XML resource with, null to load all quiz questions
+    private QuizSampler quizSampler;
+    //  listener to publish QuizQuestion objects to
+    private OnQuizLoadListener listener;
+    //  names of quiz banks failed to load when loading many, written in the background
+    private ArrayList<String> failedQuizBankNames = new ArrayList<>();
+
+    /**
+     * constructor for QuizLoaderTask object
+     * @param context is the context to take resources from
+     * @param listener is the listener to publish loaded QuizQuestion objects to
+     */
+    QuizLoaderTask(Context context, OnQuizLoadListener listener) {
+        this.context = context;
+        this.listener = listener;
+    }
+
+    /**
+     * constructor for QuizLoaderTask object loading a binary quiz bank file, execute without parameters
+     * @param context is the context to take resources from
+     * @param quizBankFile is the quiz bank file
+     * @param listener is the listener to publish loaded QuizQuestion objects to
+     */
+    QuizLoaderTask(Context context, File quizBankFile, OnQuizLoadListener listener) {
+        this(context, listener);
+        this.quizBankFile = quizBankFile;
+    }
+
+    /**
+     * constructor for QuizLoaderTask object drawing a random exam of an XML resource, execute with
+     * the resource id of the XML resource
+     * @param context is the context to take resources from
+     * @param quizSampler is the QuizSampler, holding exam size, seed and filters
+     * @param listener is the listener to publish chosen QuizQuestion objects to
+     */
+    QuizLoaderTask(Context context, QuizSampler quizSampler, OnQuizLoadListener listener) {
+        this(context, listener);
+        this.quizSampler = quizSampler;
+    }
+
+    /**
+     * method to load quiz data on a background thread: take the compiled quiz bank if there is one,
+     * parse the XML resource otherwise
+     * @param xmlResourceIds are the resource ids of the XML resources to be loaded. If there are more
+     *                       than one, they are loaded in parallel and merged in the order given
+     * @return the ArrayList of QuizQuestion objects or null if parsing failed
+     */
+    @Override
+    protected ArrayList<QuizQuestion> doInBackground(Integer... xmlResourceIds) {
+        long startNanos = QuizMetrics.startTimer();
+        ArrayList<QuizQuestion> quizQuestions = load(xmlResourceIds);
+        QuizMetrics.stopTimer(QuizMetrics.TIMER_LOAD, startNanos);
+        return quizQuestions;
+    }
+
+    /**
+     * method to load quiz data from the source given, see doInBackground
+     * @param xmlResourceIds are the resource ids of the XML resources to be loaded
+     * @return the ArrayList of QuizQuestion objects or null if parsing failed
+     */
+    private ArrayList<QuizQuestion> load(Integer... xmlResourceIds) {
+        if (quizBankFile != null)
+            return loadQuizBankFile();
+        if (quizSampler != null)
+            return sampleQuizBank(xmlResourceIds[0]);
+        if (xmlResourceIds.length > 1)
+            return loadQuizBanks(xmlResourceIds);
+
+        ArrayList<QuizQuestion> compiledQuizQuestions = CompiledQuizBanks.load(xmlResourceIds[0]);
+        if (compiledQuizQuestions != null) {
+            for (QuizQuestion quizQuestion : compiledQuizQuestions) {
+                onQuizQuestionParsed(quizQuestion);
+            }
+            return compiledQuizQuestions;
+        }
+
+        try {
+            return new QuizParseCache(context).parse(xmlResourceIds[0], this);
+        } catch (XmlPullParserException e) {
+            Log.e(logTag, "Failed to parse quiz XML", e);
+        } catch (IOException e) {
+            Log.e(logTag, "Failed to read quiz XML", e);
+        }
+        return null;
+    }
+
+    /**
+     * method to load many XML resources in parallel and merge them into a single quiz, in the order
+     * given. QuizQuestion objects are published once all are loaded. Resources failed to load are
+     * left out of the quiz and reported to the listener, see onQuizBanksFailed
+     * @param xmlResourceIds are the resource ids of XML resources
+     * @return the ArrayList of QuizQuestion objects of the resources loaded or null if none loaded
+     */
+    private ArrayList<QuizQuestion> loadQuizBanks(Integer... xmlResourceIds) {
+        ArrayList<QuizBankLoader.Source> sources = new ArrayList<>(xmlResourceIds.length);
+        for (int xmlResourceId : xmlResourceIds) {
+            sources.add(QuizBankLoader.fromResource(context, xmlResourceId));
+        }
+
+        QuizBankLoader quizBankLoader = new QuizBankLoader();
+        QuizBankLoader.Result result;
+        try {
+            result = quizBankLoader.load(sources);
+        } catch (InterruptedException e) {
+            Log.e(logTag, "Interrupted while loading quiz banks", e);
+            return null;
+        } finally {
+            quizBankLoader.shutdown();
+        }
+
+        for (Map.Entry<String, Exception> failure : result.getFailures().entrySet()) {
+            Log.e(logTag, "Failed to load quiz bank " + failure.getKey(), failure.getValue());
+            failedQuizBankNames.add(failure.getKey());
+        }
+        if (failedQuizBankNames.size() == sources.size())
+            return null;
+        for (QuizQuestion quizQuestion : result.getQuizQuestions()) {
+            onQuizQuestionParsed(quizQuestion);
+        }
+        return result.getQuizQuestions();
+    }
+
+    /**
+     * method to draw a random exam of an XML resource, publishing each QuizQuestion chosen. The
+     * resource is always parsed rather than taken from compiled quiz banks or QuizParseCache, as
+     * those hold every quiz question in memory
+     * @param xmlResourceId is the resource id of the XML resource
+     * @return the ArrayList of chosen QuizQuestion objects or null if parsing failed
+     */
+    private ArrayList<QuizQuestion> sampleQuizBank(int xmlResourceId) {
+        XmlResourceParser xmlParser = context.getResources().getXml(xmlResourceId);
+        try {
+            ArrayList<QuizQuestion> quizQuestions =
+                    quizSampler.sample(new QuizXmlParser(xmlParser, new QuizResourceImageResolver(context)));
+            if (QuizMetrics.ENABLED)
+                QuizMetrics.debug(logTag, "Sampled " + quizQuestions.size() + " of "
+                        + quizSampler.getMatchingCount() + " matching quiz questions, "
+                        + quizSampler.getScannedCount() + " scanned");
+            for (QuizQuestion quizQuestion : quizQuestions) {
+                onQuizQuestionParsed(quizQuestion);
+            }
+            return quizQuestions;
+        } catch (XmlPullParserException e) {
+            Log.e(logTag, "Failed to parse quiz XML", e);
+        } catch (IOException e) {
+            Log.e(logTag, "Failed to read quiz XML", e);
+        } finally {
+            xmlParser.close();
+        }
+        return null;
+    }
+
+    /**
+     * method to read all QuizQuestion objects of a binary quiz bank file, publishing each one
+     * @return the ArrayList of QuizQuestion objects or null if the file cannot be read
+     */
+    private ArrayList<QuizQuestion> loadQuizBankFile() {
+        QuizBankReader quizBankReader = null;
+        try {
+            quizBankReader = new QuizBankReader(quizBankFile, new QuizResourceImageResolver(context));
+            ArrayList<QuizQuestion> quizQuestions = quizBankReader.readQuizBank().getQuizQuestions();
+            for (QuizQuestion quizQuestion : quizQuestions) {
+                onQuizQuestionParsed(quizQuestion);
+            }
+            return quizQuestions;
+        } catch (IOException e) {
+            Log.e(logTag, "Failed to read quiz bank " + quizBankFile, e);
+        } catch (RuntimeException e) {
+            Log.e(logTag, "Corrupt quiz bank " + quizBankFile, e);
+        } finally {
+            if (quizBankReader != null) {
+                try {
+                    quizBankReader.close();
+                } catch (IOException e) {
+                    Log.e(logTag, "Failed to close quiz bank " + quizBankFile, e);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * method called by QuizXmlParser on the background thread, hand over QuizQuestion to UI thread
+     * @param quizQuestion is the QuizQuestion object just parsed
+     */
+    @Override
+    public void onQuizQuestionParsed(QuizQuestion quizQuestion) {
+        QuizMetrics.increment(QuizMetrics.COUNTER_QUESTIONS_LOADED);
+        if (!isCancelled())
+            publishProgress(quizQuestion);
+    }
+
+    /**
+     * method to pass QuizQuestion objects published by the background thread to the listener
+     * @param quizQuestions is the QuizQuestion published
+     */
+    @Override
+    protected void onProgressUpdate(QuizQuestion... quizQuestions) {
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            listener.onQuizQuestionLoaded(quizQuestion);
+        }
+    }
+
+    /**
+     * method to let the listener know loading is finished
+     * @param quizQuestions is the ArrayList of QuizQuestion objects or null if parsing failed
+     */
+    @Override
+    protected void onPostExecute(ArrayList<QuizQuestion> quizQuestions) {
+        if (quizQuestions != null && !failedQuizBankNames.isEmpty())
+            listener.onQuizBanksFailed(failedQuizBankNames);
+        listener.onQuizLoadFinished(quizQuestions);
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.android.p03quizapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * class to instrument hot paths of the quiz app with counters and timers:
+ * - counters count events, e.g. quiz questions loaded or answers graded
+ * - timers record durations into log2 histograms, e.g. load, inflate, grade, image decode and
+ *   journal commit time
+ *
+ * Metrics are enabled by build config field QUIZ_METRICS, set for debug builds only. ENABLED is a
+ * compile time constant, so instrumentation guarded by it is removed from release builds by the
+ * compiler, and the unguarded methods return at once. Debug logging goes through debug() behind
+ * the same guard, so log messages are not even concatenated in release builds:
+ *
+ *      if (QuizMetrics.ENABLED)
+ *          QuizMetrics.debug(logTag, "RadioButton#" + i + ": checked");
+ *
+ * Metrics are dumped by MainActivity.dump, i.e. adb shell dumpsys activity
+ * com.example.android.p03quizapp/.MainActivity, and to a file in the app's files directory.
+ *
+ * All methods are thread safe.
+ */
+
+final class QuizMetrics {
+    static final boolean ENABLED = BuildConfig.QUIZ_METRICS;
+
+    //  counters
+    static final int COUNTER_QUESTIONS_LOADED = 0;
+    static final int COUNTER_QUESTIONS_RENDERED = 1;
+    static final int COUNTER_ANSWERS_GRADED = 2;
+    static final int COUNTER_IMAGES_DECODED = 3;
+    static final int COUNTER_DEBUG_MESSAGES = 4;
+    private static final String[] COUNTER_NAMES = {
+            "questions loaded", "questions rendered", "answers graded", "images decoded", "debug messages"};
+
+    //  timers
+    static final int TIMER_LOAD = 0;
+    static final int TIMER_INFLATE = 1;
+    static final int TIMER_BIND = 2;
+    static final int TIMER_GRADE = 3;
+    static final int TIMER_IMAGE_DECODE = 4;
+    static final int TIMER_JOURNAL_COMMIT = 5;
+    static final int TIMER_SUBMISSION = 6;
+    private static final String[] TIMER_NAMES = {
+            "load quiz data", "inflate question", "bind question", "grade answer", "decode image",
+            "commit attempts", "serve submission"};
+
+    private static final AtomicLongArray counters = new AtomicLongArray(COUNTER_NAMES.length);
+    private static final Histogram[] histograms = new Histogram[TIMER_NAMES.length];
+
+    static {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new Histogram();
+        }
+    }
+
+    private QuizMetrics() {
+    }
+
+    /**
+     * method to count an event
+     * @param counter is the counter, see COUNTER_ constants
+     */
+    static void increment(int counter) {
+        if (ENABLED)
+            counters.incrementAndGet(counter);
+    }
+
+    /**
+     * method to start timing
+     * @return the start time to pass to stopTimer, 0 if metrics are disabled
+     */
+    static long startTimer() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * method to record the time elapsed since startTimer
+     * @param timer is the timer, see TIMER_ constants
+     * @param startNanos is the start time returned by startTimer
+     */
+    static void stopTimer(int timer, long startNanos) {
+        if (ENABLED)
+            histograms[timer].record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * method to log a debug message. Callers should check ENABLED first, so the message is not
+     * built when metrics are disabled
+     * @param tag is the log tag
+     * @param message is the message
+     */
+    static void debug(String tag, String message) {
+        if (ENABLED) {
+            counters.incrementAndGet(COUNTER_DEBUG_MESSAGES);
+            Log.d(tag, message);
+        }
+    }
+
+    /**
+     * method to clear all metrics
+     */
+    static void reset() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+        for (Histogram histogram : histograms) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * method to print all metrics
+     * @param prefix is the prefix of each line
+     * @param writer is the writer to print to
+     */
+    static void dump(String prefix, PrintWriter writer) {
+        if (!ENABLED) {
+            writer.println(prefix + "Quiz metrics disabled");
+            return;
+        }
+        writer.println(prefix + "Quiz metrics:");
+        for (int i = 0; i < COUNTER_NAMES.length; i++) {
+            writer.println(prefix + "  " + COUNTER_NAMES[i] + ": " + counters.get(i));
+        }
+        long loadNanos = histograms[TIMER_LOAD].getTotalNanos();
+        if (loadNanos > 0)
+            writer.println(prefix + String.format(Locale.US, "  questions per second: %.0f",
+                    counters.get(COUNTER_QUESTIONS_LOADED) * 1e9 / loadNanos));
+        for (int i = 0; i < TIMER_NAMES.length; i++) {
+            writer.println(prefix + "  " + TIMER_NAMES[i] + ": " + histograms[i]);
+        }
+    }
+
+    /**
+     * method to print all metrics to a file, replacing its content
+     * @param file is the file
+     * @return true if written, false on error
+     */
+    static boolean dumpToFile(File file) {
+        PrintWriter writer = null;
+        try {
+            writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+            dump("", writer);
+            return !writer.checkError();
+        } catch (IOException e) {
+            Log.e(QuizMetrics.class.getSimpleName(), "Failed to dump metrics to " + file, e);
+            return false;
+        } finally {
+            if (writer != null)
+                writer.close();
+        }
+    }
+
+    /**
+     * class to record durations into buckets of powers of two nanoseconds, without locking:
+     * bucket n counts durations of at least 2^n and less than 2^(n+1) nanoseconds
+     */
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        /**
+         * method to record a duration
+         * @param nanos is the duration in nanoseconds
+         */
+        void record(long nanos) {
+            if (nanos < 0)
+                nanos = 0;
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos | 1));
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        long getTotalNanos() {
+            return totalNanos.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < buckets.length(); i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalNanos.set(0);
+            maxNanos.set(0);
+        }
+
+        /**
+         * method to estimate a percentile: the upper bound of the bucket it falls into
+         * @param percentile is the percentile, 0 to 100
+         * @param total is the number of durations recorded
+         * @return the estimate in nanoseconds
+         */
+        private long getPercentileNanos(int percentile, long total) {
+            long rank = (total * percentile + 99) / 100;
+            long seen = 0;
+            for (int i = 0; i < buckets.length(); i++) {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                    return Math.min(i < 62 ? 1L << (i + 1) : Long.MAX_VALUE, maxNanos.get());
+            }
+            return maxNanos.get();
+        }
+
+        /**
+         * method to summarize the histogram: count, total and mean time, percentiles and maximum
+         * @return human readable summary
+         */
+        @Override
+        public String toString() {
+            long total = count.get();
+            if (total == 0)
+                return "none";
+            return String.format(Locale.US,
+                    "%d in %.1f ms, mean %.3f ms, p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms",
+                    total, totalNanos.get() / 1e6, totalNanos.get() / 1e6 / total,
+                    getPercentileNanos(50, total) / 1e6, getPercentileNanos(90, total) / 1e6,
+                    getPercentileNanos(99, total) / 1e6, maxNanos.get() / 1e6);
+        }
+    }
+}
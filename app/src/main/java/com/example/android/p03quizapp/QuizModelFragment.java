@@ -0,0 +1,335 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+
+/**
+ * headless fragment to retain quiz data across configuration changes (e.g. orientation change):
+ * - QuizQuestion objects loaded so far, with their input handlers
+ * - answers given by user and the score kept up to date as they change
+ * - the background task loading quiz data, if still running
+ * - the loader of header images, along with its cache of decoded images
+ * - the cache of text layouts precomputed for QuizQuestionViews, if used
+ * - the journal recording attempts, so attempts queued are written even if the activity is recreated
+ * - statistics on answers checked, per quiz question and per possible answer
+ * - the classroom server serving the quiz to students' browsers, if running
+ *
+ * This way quiz XML is parsed only once; a recreated activity only needs to rebind its views.
+ * Loaded QuizQuestion objects are forwarded to the activity currently listening, if any.
+ */
+
+public class QuizModelFragment extends Fragment implements QuizLoaderTask.OnQuizLoadListener {
+    //  tag to find the retained fragment with
+    static final String TAG = QuizModelFragment.class.getSimpleName();
+
+    //  QuizQuestion objects loaded so far
+    private ArrayList<QuizQuestion> quizQuestions = new ArrayList<>();
+    //  answers given by user
+    private QuizAnswerStore answerStore;
+    //  score of answers given by user, graded as answers change
+    private QuizScoreKeeper scoreKeeper = new QuizScoreKeeper(quizQuestions);
+    //  background task loading quiz data, null if not started yet
+    private QuizLoaderTask quizLoaderTask;
+    //  true if loading is finished, whether successful or not
+    private boolean isLoadFinished = false;
+    //  true if loading failed
+    private boolean isLoadFailed = false;
+    //  listener to forward loaded QuizQuestion objects to, null if no activity is listening
+    private QuizLoaderTask.OnQuizLoadListener listener;
+    //  loader of header images, null if not created yet
+    private QuizImageLoader imageLoader;
+    //  cache of text layouts, null if not created yet
+    private QuizTextLayoutCache textLayoutCache;
+    //  journal of attempts, null if not created yet
+    private QuizAttemptJournal attemptJournal;
+    //  statistics on answers checked
+    private QuizAnswerStatistics answerStatistics = new QuizAnswerStatistics();
+    //  classroom server, null if not running
+    private QuizClassroomServer classroomServer;
+
+    /**
+     * method to set up fragment to be retained across configuration changes
+     * @param savedInstanceState is not used
+     */
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setRetainInstance(true);
+    }
+
+    /**
+     * method to stop loading when the fragment is destroyed for good, i.e. the activity is finishing
+     */
+    @Override
+    public void onDestroy() {
+        if (quizLoaderTask != null)
+            quizLoaderTask.cancel(false);
+        if (imageLoader != null)
+            imageLoader.shutdown();
+        if (textLayoutCache != null)
+            textLayoutCache.shutdown();
+        if (attemptJournal != null)
+            attemptJournal.shutdown();
+        stopClassroomServer();
+        super.onDestroy();
+    }
+
+    /**
+     * method to start loading quiz data in the background, unless already started
+     * @param context is the context to take resources from. Application context is used so that
+     *                the running task does not hold on to the activity
+     * @param xmlResourceIds are the resource ids of XML resources to be loaded, merged into a single quiz
+     */
+    void startLoading(Context context, int... xmlResourceIds) {
+        if (quizLoaderTask != null || isLoadFinished)
+            return;
+        Integer[] taskParameters = new Integer[xmlResourceIds.length];
+        for (int i = 0; i < xmlResourceIds.length; i++) {
+            taskParameters[i] = xmlResourceIds[i];
+        }
+        quizLoaderTask = new QuizLoaderTask(context.getApplicationContext(), this);
+        quizLoaderTask.execute(taskParameters);
+    }
+
+    /**
+     * method to start loading quiz data from a binary quiz bank file in the background,
+     * unless already started
+     * @param context is the context to take resources from
+     * @param quizBankFile is the quiz bank file, see QuizBankFile
+     */
+    void startLoading(Context context, File quizBankFile) {
+        if (quizLoaderTask != null || isLoadFinished)
+            return;
+        quizLoaderTask = new QuizLoaderTask(context.getApplicationContext(), quizBankFile, this);
+        quizLoaderTask.execute();
+    }
+
+    /**
+     * method to start drawing a random exam of an XML resource in the background, unless already started
+     * @param context is the context to take resources from
+     * @param quizSampler is the QuizSampler holding exam size, seed and filters
+     * @param xmlResourceId is the resource id of the XML resource to draw quiz questions from
+     */
+    void startSampling(Context context, QuizSampler quizSampler, int xmlResourceId) {
+        if (quizLoaderTask != null || isLoadFinished)
+            return;
+        quizLoaderTask = new QuizLoaderTask(context.getApplicationContext(), quizSampler, this);
+        quizLoaderTask.execute(xmlResourceId);
+    }
+
+    /**
+     * method to set the listener to forward loaded QuizQuestion objects to
+     * @param listener is the listener or null to stop forwarding
+     */
+    void setOnQuizLoadListener(QuizLoaderTask.OnQuizLoadListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * method to get QuizQuestion objects loaded so far
+     * @return ArrayList of QuizQuestion objects
+     */
+    ArrayList<QuizQuestion> getQuizQuestions() {
+        return quizQuestions;
+    }
+
+    /**
+     * method to get the store of answers given by user
+     * @return the QuizAnswerStore or null if not set yet
+     */
+    QuizAnswerStore getAnswerStore() {
+        return answerStore;
+    }
+
+    /**
+     * method to set the store of answers given by user
+     * @param answerStore is the QuizAnswerStore
+     */
+    void setAnswerStore(QuizAnswerStore answerStore) {
+        this.answerStore = answerStore;
+        answerStore.setOnAnswerChangedListener(scoreKeeper);
+    }
+
+    /**
+     * method to get the loader of header images, create it if not created yet
+     * @param context is the context to take resources from
+     * @return the QuizImageLoader
+     */
+    QuizImageLoader getImageLoader(Context context) {
+        if (imageLoader == null)
+            imageLoader = new QuizImageLoader(context);
+        return imageLoader;
+    }
+
+    /**
+     * method to get the cache of text layouts, create it if not created yet. Text layouts of the
+     * first QuizQuestion objects loaded, so far or later, are precomputed
+     * @param context is the context to take resources from
+     * @return the QuizTextLayoutCache
+     */
+    QuizTextLayoutCache getTextLayoutCache(Context context) {
+        if (textLayoutCache == null) {
+            textLayoutCache = new QuizTextLayoutCache(context);
+            textLayoutCache.addQuizQuestions(quizQuestions);
+        }
+        return textLayoutCache;
+    }
+
+    /**
+     * method to get the journal recording attempts, create it if not created yet
+     * @param context is the context to take the files directory from
+     * @return the QuizAttemptJournal
+     */
+    QuizAttemptJournal getAttemptJournal(Context context) {
+        if (attemptJournal == null)
+            attemptJournal = new QuizAttemptJournal(
+                    new File(context.getApplicationContext().getFilesDir(), QuizAttemptJournal.FILE_NAME));
+        return attemptJournal;
+    }
+
+    /**
+     * method to get the statistics on answers checked
+     * @return the QuizAnswerStatistics
+     */
+    QuizAnswerStatistics getAnswerStatistics() {
+        return answerStatistics;
+    }
+
+    /**
+     * method to start serving the quiz loaded to students' browsers on the local network. Loading
+     * must be finished, the quiz served does not change while the server is running
+     * @param context is the context to take resources from
+     * @return the QuizClassroomServer started
+     * @throws IOException if the server cannot listen on its port
+     */
+    QuizClassroomServer startClassroomServer(Context context) throws IOException {
+        if (classroomServer != null)
+            return classroomServer;
+        Resources resources = context.getApplicationContext().getResources();
+        QuizClassroomServer server =
+                new QuizClassroomServer(quizQuestions, readRawResource(resources, R.raw.classroom));
+        try {
+            server.start(new InetSocketAddress(resources.getInteger(R.integer.classroom_server_port)));
+        } catch (IOException e) {
+            server.stop();
+            throw e;
+        }
+        classroomServer = server;
+        return classroomServer;
+    }
+
+    /**
+     * method to stop the classroom server, if running
+     */
+    void stopClassroomServer() {
+        if (classroomServer != null) {
+            classroomServer.stop();
+            classroomServer = null;
+        }
+    }
+
+    /**
+     * method to get the classroom server
+     * @return the QuizClassroomServer or null if not running
+     */
+    QuizClassroomServer getClassroomServer() {
+        return classroomServer;
+    }
+
+    /**
+     * method to read a raw resource into memory
+     * @param resources is the resources to read from
+     * @param rawResId is the raw resource
+     * @return the bytes of the resource
+     * @throws IOException on error
+     */
+    private static byte[] readRawResource(Resources resources, int rawResId) throws IOException {
+        InputStream in = resources.openRawResource(rawResId);
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int count;
+            while ((count = in.read(buffer)) > 0) {
+                bytes.write(buffer, 0, count);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * method to get the score keeper grading answers as they change
+     * @return the QuizScoreKeeper
+     */
+    QuizScoreKeeper getScoreKeeper() {
+        return scoreKeeper;
+    }
+
+    /**
+     * method to check whether loading is finished
+     * @return true if finished, whether successful or not
+     */
+    boolean isLoadFinished() {
+        return isLoadFinished;
+    }
+
+    /**
+     * method to check whether loading failed
+     * @return true if failed
+     */
+    boolean isLoadFailed() {
+        return isLoadFailed;
+    }
+
+    /**
+     * method called by QuizLoaderTask for every QuizQuestion loaded. Create its input handler,
+     * keep it, start keeping its score and statistics, start precomputing its text layouts and
+     * forward to listener
+     * @param quizQuestion is the QuizQuestion just loaded
+     */
+    @Override
+    public void onQuizQuestionLoaded(QuizQuestion quizQuestion) {
+        //  input handlers do not depend on views, they are bound to views when displayed
+        quizQuestion.setInputHandler(QuizInputTypeRegistry.createInputHandler(answerStore, quizQuestion));
+        quizQuestions.add(quizQuestion);
+        scoreKeeper.onQuizQuestionAdded(quizQuestion);
+        answerStatistics.addQuizQuestion(quizQuestion);
+        if (textLayoutCache != null)
+            textLayoutCache.addQuizQuestion(quizQuestion);
+        if (listener != null)
+            listener.onQuizQuestionLoaded(quizQuestion);
+    }
+
+    /**
+     * method called by QuizLoaderTask when some of many quiz banks failed to load. Forward to listener
+     * @param failedQuizBankNames are the names of the quiz banks failed
+     */
+    @Override
+    public void onQuizBanksFailed(ArrayList<String> failedQuizBankNames) {
+        if (listener != null)
+            listener.onQuizBanksFailed(failedQuizBankNames);
+    }
+
+    /**
+     * method called by QuizLoaderTask when loading is finished. Make a note and forward to listener
+     * @param loadedQuizQuestions is the ArrayList of all QuizQuestion objects or null on error
+     */
+    @Override
+    public void onQuizLoadFinished(ArrayList<QuizQuestion> loadedQuizQuestions) {
+        isLoadFinished = true;
+        isLoadFailed = loadedQuizQuestions == null;
+        quizLoaderTask = null;
+        if (listener != null)
+            listener.onQuizLoadFinished(loadedQuizQuestions);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.android.p03quizapp;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * class to check numeric answers against the accepted answers of a Numeric question, compiled once
+ * when the quiz question is added to its QuizBank. Accepted answers are parsed into numbers, each
+ * widened by the tolerance of the quiz question, and an optional range of accepted numbers is added:
+ * the result is a sorted list of disjoint ranges of doubles.
+ *
+ * Checking an answer parses the text given into a double - without creating any object - and looks
+ * it up in the ranges by binary search, so "2", "2.0", "+2" and " 2e0 " all match the accepted
+ * answer "2". A comma is taken as decimal separator too, as numeric keyboards of some locales give
+ * one, unless exactly three digits follow it: "1,000" may as well mean a thousand, so it is not a
+ * number rather than 1. Thousands separators are not supported otherwise.
+ *
+ * QuizNumericAnswerMatcher objects never change once built, so they may be used on any thread.
+ */
+
+final class QuizNumericAnswerMatcher implements QuizAnswerMatcher {
+    //  powers of ten exactly representable as double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    //  digits beyond 18 significant ones are dropped, so the mantissa fits into a long
+    private static final long MANTISSA_LIMIT = 100000000000000000L;
+    //  exponents beyond this are out of the range of double anyway
+    private static final int EXPONENT_LIMIT = 10000;
+
+    //  sorted, disjoint ranges of accepted numbers, bounds included
+    private final double[] lows;
+    private final double[] highs;
+
+    /**
+     * constructor for QuizNumericAnswerMatcher object
+     * @param answers are the accepted answers, numbers as text
+     * @param tolerance is the largest difference from an accepted answer still accepted, 0 for exact
+     * @param minimum is the lowest number of a range of accepted numbers, NaN for no range
+     * @param maximum is the highest number of a range of accepted numbers, NaN for no range
+     * @throws IllegalArgumentException if an answer is not a number, tolerance is negative or the
+     *                                  range is not valid
+     */
+    QuizNumericAnswerMatcher(List<String> answers, double tolerance, double minimum, double maximum) {
+        if (!(tolerance >= 0) || Double.isInfinite(tolerance))
+            throw new IllegalArgumentException("Tolerance " + tolerance + " is negative or not a number");
+        boolean hasRange = !Double.isNaN(minimum) || !Double.isNaN(maximum);
+        if (hasRange && !(minimum <= maximum))
+            throw new IllegalArgumentException("Range " + minimum + " to " + maximum + " is not valid");
+        if (answers.size() > QuizTextAnswerMatcher.MAX_VARIANTS)
+            throw new IllegalArgumentException("More than " + QuizTextAnswerMatcher.MAX_VARIANTS
+                    + " accepted answers");
+
+        double[][] ranges = new double[answers.size() + (hasRange ? 1 : 0)][];
+        for (int i = 0; i < answers.size(); i++) {
+            double value = answers.get(i) == null ? Double.NaN : parse(answers.get(i));
+            if (Double.isNaN(value))
+                throw new IllegalArgumentException("Not a number: " + answers.get(i));
+            ranges[i] = new double[]{value - tolerance, value + tolerance};
+        }
+        if (hasRange)
+            ranges[answers.size()] = new double[]{minimum, maximum};
+        Arrays.sort(ranges, new Comparator<double[]>() {
+            @Override
+            public int compare(double[] range, double[] otherRange) {
+                return Double.compare(range[0], otherRange[0]);
+            }
+        });
+
+        //  merge overlapping ranges, so a number falls into one range at most
+        double[] lows = new double[ranges.length];
+        double[] highs = new double[ranges.length];
+        int rangeCount = 0;
+        for (double[] range : ranges) {
+            if (rangeCount > 0 && range[0] <= highs[rangeCount - 1]) {
+                highs[rangeCount - 1] = Math.max(highs[rangeCount - 1], range[1]);
+            } else {
+                lows[rangeCount] = range[0];
+                highs[rangeCount++] = range[1];
+            }
+        }
+        this.lows = Arrays.copyOf(lows, rangeCount);
+        this.highs = Arrays.copyOf(highs, rangeCount);
+    }
+
+    /**
+     * method to parse a number: optional sign - a minus sign too -, digits with an optional decimal
+     * point or comma, an optional exponent, surrounded by optional whitespace. A comma followed by
+     * exactly three digits is taken for a thousands separator, so the text is not a number. No
+     * object is created
+     * @param text is the text
+     * @return the number or NaN if the text is not a number
+     */
+    static double parse(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while (start < end && Character.isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+
+        int i = start;
+        boolean isNegative = false;
+        if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-' || text.charAt(i) == '\u2212')) {
+            isNegative = text.charAt(i) != '+';
+            i++;
+        }
+
+        //  value is mantissa * 10^exponent
+        long mantissa = 0;
+        int exponent = 0;
+        int digitCount = 0;
+        int fractionDigitCount = 0;
+        boolean isFraction = false;
+        boolean isComma = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digitCount++;
+                if (isFraction)
+                    fractionDigitCount++;
+                if (mantissa < MANTISSA_LIMIT) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (isFraction)
+                        exponent--;
+                } else if (!isFraction) {
+                    exponent++;
+                }
+            } else if ((c == '.' || c == ',') && !isFraction) {
+                isFraction = true;
+                isComma = c == ',';
+            } else {
+                break;
+            }
+        }
+        if (digitCount == 0 || (isComma && fractionDigitCount == 3))
+            return Double.NaN;
+
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            boolean isExponentNegative = false;
+            if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                isExponentNegative = text.charAt(i) == '-';
+                i++;
+            }
+            int exponentDigitCount = 0;
+            int givenExponent = 0;
+            for (; i < end && text.charAt(i) >= '0' && text.charAt(i) <= '9'; i++) {
+                if (givenExponent < EXPONENT_LIMIT)
+                    givenExponent = givenExponent * 10 + (text.charAt(i) - '0');
+                exponentDigitCount++;
+            }
+            if (exponentDigitCount == 0)
+                return Double.NaN;
+            exponent += isExponentNegative ? -givenExponent : givenExponent;
+        }
+        if (i != end)
+            return Double.NaN;
+
+        //  a single multiplication or division of exact values is correctly rounded, so numbers of up
+        //  to 15 digits are parsed exactly like Double.parseDouble does, longer ones within an ulp or so
+        double value;
+        if (mantissa == 0)
+            value = 0;
+        else if (exponent >= 0 && exponent < POWERS_OF_TEN.length)
+            value = mantissa * POWERS_OF_TEN[exponent];
+        else if (exponent < 0 && -exponent < POWERS_OF_TEN.length)
+            value = mantissa / POWERS_OF_TEN[-exponent];
+        else
+            value = mantissa * Math.pow(10, exponent);
+        return isNegative ? -value : value;
+    }
+
+    /**
+     * method to check a number given against the accepted answers
+     * @param text is the text given or null
+     * @return true if the text is a number within one of the ranges of accepted numbers
+     */
+    @Override
+    public boolean matches(CharSequence text) {
+        if (text == null)
+            return false;
+        double value = parse(text);
+        if (Double.isNaN(value))
+            return false;
+
+        //  find the last range starting at or below value
+        int low = 0;
+        int high = lows.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (lows[middle] <= value)
+                low = middle + 1;
+            else
+                high = middle - 1;
+        }
+        return high >= 0 && value <= highs[high];
+    }
+
+    /**
+     * method to get the number of disjoint ranges of accepted numbers
+     * @return the number of ranges
+     */
+    int getRangeCount() {
+        return lows.length;
+    }
+}
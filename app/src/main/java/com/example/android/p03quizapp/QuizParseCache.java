@@ -0,0 +1,311 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.util.Log;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * class to cache QuizQuestion objects parsed from XML resources on disk, so an unchanged quiz
+ * needs to be parsed only once rather than on every cold start.
+ *
+ * Parsed quiz questions are written as binary quiz bank files (see QuizBankFile) into the cache
+ * directory. The file name holds the resource name, cache and file format versions and the SHA-1
+ * hash of the XML resource, so a changed resource or a new version of the parser or format never
+ * matches an old cache file. Stale cache files of the same resource are deleted when a new one
+ * is written; corrupt ones are deleted when reading them fails.
+ *
+ * Cache hits and re-parses are counted for the lifetime of the process, see getStats.
+ * QuizParseCache objects may be used on different threads at the same time.
+ */
+
+class QuizParseCache {
+    private static String logTag = QuizParseCache.class.getSimpleName();
+
+    //  increment when QuizXmlParser produces different QuizQuestion objects from the same XML
+    private static final int CACHE_VERSION = 1;
+    //  directory within the cache directory of the app
+    private static final String CACHE_DIR_NAME = "quizparsecache";
+    private static final String CACHE_FILE_EXTENSION = ".qbk";
+    //  age of temporary files left over by a crash, to be deleted
+    private static final long STALE_TEMP_FILE_AGE_MILLIS = 60 * 60 * 1000L;
+
+    //  statistics: quizzes loaded from cache, quizzes parsed from XML
+    private static final AtomicInteger hitCount = new AtomicInteger();
+    private static final AtomicInteger parseCount = new AtomicInteger();
+
+    private QuizSource quizSource;
+    private File cacheDir;
+
+    /**
+     * interface to the XML quiz resources cached, so the cache can also be used with quizzes not
+     * taken from resources, e.g. on a plain JVM
+     */
+    interface QuizSource {
+        /**
+         * method to get the name of an XML resource, cache files are named after it
+         * @param xmlResourceId is the resource id of XML resource
+         * @return the resource name
+         */
+        String getName(int xmlResourceId);
+
+        /**
+         * method to open the raw bytes of an XML resource, to be hashed
+         * @param xmlResourceId is the resource id of XML resource
+         * @return the stream, closed by the caller
+         * @throws IOException if the resource cannot be opened
+         */
+        InputStream open(int xmlResourceId) throws IOException;
+
+        /**
+         * method to parse an XML resource with QuizXmlParser
+         * @param xmlResourceId is the resource id of XML resource
+         * @param listener is notified of every QuizQuestion parsed, may be null
+         * @return ArrayList of QuizQuestion objects
+         * @throws XmlPullParserException if XML is malformed or is not valid quiz data
+         * @throws IOException
+         */
+        ArrayList<QuizQuestion> parse(int xmlResourceId, QuizXmlParser.OnQuizQuestionParsedListener listener)
+                throws XmlPullParserException, IOException;
+
+        /**
+         * method to get the resolver of header image names of quiz questions read from cache
+         * @return the resolver or null to leave resource ids 0
+         */
+        QuizXmlParser.HeaderImageResolver getHeaderImageResolver();
+    }
+
+    /**
+     * constructor for QuizParseCache object
+     * @param context is the context to take resources and cache directory from
+     */
+    QuizParseCache(Context context) {
+        this(new File(context.getCacheDir(), CACHE_DIR_NAME), new ResourceQuizSource(context));
+    }
+
+    /**
+     * constructor for QuizParseCache object
+     * @param cacheDir is the directory of cache files
+     * @param quizSource is the source of XML quiz resources
+     */
+    QuizParseCache(File cacheDir, QuizSource quizSource) {
+        this.cacheDir = cacheDir;
+        this.quizSource = quizSource;
+    }
+
+    /**
+     * method to get QuizQuestion objects of an XML resource: from cache if the resource is unchanged
+     * since cached, otherwise parse it with QuizXmlParser and cache the result
+     * @param xmlResourceId is the resource id of XML resource
+     * @param listener is notified of every QuizQuestion loaded, may be null
+     * @return ArrayList of QuizQuestion objects
+     * @throws XmlPullParserException if XML is malformed or is not valid quiz data
+     * @throws IOException
+     */
+    ArrayList<QuizQuestion> parse(int xmlResourceId, QuizXmlParser.OnQuizQuestionParsedListener listener)
+            throws XmlPullParserException, IOException {
+        String resourceName = quizSource.getName(xmlResourceId);
+        File cacheFile = null;
+        try {
+            cacheFile = new File(cacheDir, getCacheFilePrefix(resourceName)
+                    + hash(quizSource.open(xmlResourceId)) + CACHE_FILE_EXTENSION);
+        } catch (IOException e) {
+            Log.e(logTag, "Failed to hash quiz resource " + resourceName + ", not caching", e);
+        }
+
+        if (cacheFile != null && cacheFile.exists()) {
+            ArrayList<QuizQuestion> quizQuestions = readCacheFile(cacheFile, listener);
+            if (quizQuestions != null) {
+                hitCount.incrementAndGet();
+                Log.i(logTag, "Loaded " + resourceName + " from cache; " + getStats());
+                return quizQuestions;
+            }
+        }
+
+        ArrayList<QuizQuestion> quizQuestions = quizSource.parse(xmlResourceId, listener);
+        parseCount.incrementAndGet();
+        Log.i(logTag, "Parsed " + resourceName + " from XML; " + getStats());
+        if (cacheFile != null)
+            writeCacheFile(cacheFile, resourceName, quizQuestions);
+        return quizQuestions;
+    }
+
+    /**
+     * method to get cache statistics
+     * @return human readable number of cache hits and re-parses
+     */
+    static String getStats() {
+        int hits = hitCount.get();
+        int parses = parseCount.get();
+        return String.format(Locale.US, "parse cache hits %d, re-parses %d (%.0f%% hit rate)",
+                hits, parses, hits + parses > 0 ? 100.0 * hits / (hits + parses) : 0.0);
+    }
+
+    /**
+     * method to read QuizQuestion objects from a cache file. A corrupt cache file is deleted
+     * @param cacheFile is the cache file
+     * @param listener is notified of every QuizQuestion read, may be null
+     * @return ArrayList of QuizQuestion objects or null if the cache file cannot be read
+     */
+    private ArrayList<QuizQuestion> readCacheFile(File cacheFile,
+                                                  QuizXmlParser.OnQuizQuestionParsedListener listener) {
+        QuizBankReader quizBankReader = null;
+        try {
+            quizBankReader = new QuizBankReader(cacheFile, quizSource.getHeaderImageResolver());
+            //  read all quiz questions before publishing any, so a corrupt file publishes nothing
+            ArrayList<QuizQuestion> quizQuestions = quizBankReader.readQuizBank().getQuizQuestions();
+            if (listener != null) {
+                for (QuizQuestion quizQuestion : quizQuestions) {
+                    listener.onQuizQuestionParsed(quizQuestion);
+                }
+            }
+            return quizQuestions;
+        } catch (IOException | RuntimeException e) {
+            Log.e(logTag, "Failed to read parse cache " + cacheFile + ", deleting", e);
+            if (!cacheFile.delete())
+                Log.e(logTag, "Failed to delete " + cacheFile);
+            return null;
+        } finally {
+            if (quizBankReader != null) {
+                try {
+                    quizBankReader.close();
+                } catch (IOException e) {
+                    Log.e(logTag, "Failed to close parse cache " + cacheFile, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * method to write QuizQuestion objects into a cache file and delete stale cache files of the
+     * same resource. The file is written under a temporary name first, so a cache file is always complete
+     * @param cacheFile is the cache file
+     * @param resourceName is the name of the XML resource
+     * @param quizQuestions is the ArrayList of QuizQuestion objects parsed
+     */
+    private void writeCacheFile(File cacheFile, String resourceName, ArrayList<QuizQuestion> quizQuestions) {
+        if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+            Log.e(logTag, "Failed to create " + cacheDir);
+            return;
+        }
+
+        //  stale: same resource, but older version or different content. Recent temporary files may be
+        //  being written by another thread loading the same resource, only old ones are left over
+        String prefix = resourceName + "-";
+        long staleTempFileTime = System.currentTimeMillis() - STALE_TEMP_FILE_AGE_MILLIS;
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                boolean isStale = name.startsWith(prefix) && (name.endsWith(CACHE_FILE_EXTENSION)
+                        ? !file.equals(cacheFile) : file.lastModified() < staleTempFileTime);
+                if (isStale && !file.delete())
+                    Log.e(logTag, "Failed to delete stale parse cache " + file);
+            }
+        }
+
+        File tempFile = null;
+        try {
+            //  unique name, so concurrent loads of the same resource do not write the same file
+            tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheDir);
+            OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(tempFile));
+            try {
+                new QuizBankWriter().write(quizQuestions, outputStream);
+            } finally {
+                outputStream.close();
+            }
+            if (!tempFile.renameTo(cacheFile))
+                throw new IOException("Failed to rename " + tempFile + " to " + cacheFile);
+        } catch (IOException e) {
+            Log.e(logTag, "Failed to write parse cache " + cacheFile, e);
+            if (tempFile != null && tempFile.exists() && !tempFile.delete())
+                Log.e(logTag, "Failed to delete " + tempFile);
+        }
+    }
+
+    /**
+     * method to get the part of cache file name identifying resource and versions
+     * @param resourceName is the name of the XML resource
+     * @return the cache file name without hash and extension
+     */
+    private static String getCacheFilePrefix(String resourceName) {
+        return resourceName + "-v" + CACHE_VERSION + "." + QuizBankFile.VERSION + "-";
+    }
+
+    /**
+     * method to compute the SHA-1 hash of a stream, the stream is closed
+     * @param inputStream is the stream to hash
+     * @return hash as hexadecimal string
+     * @throws IOException if the stream cannot be read
+     */
+    private static String hash(InputStream inputStream) throws IOException {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest.digest()) {
+                hex.append(String.format(Locale.US, "%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * class to take XML quiz resources from the resources of the app
+     */
+    private static class ResourceQuizSource implements QuizSource {
+        private Context context;
+        private QuizXmlParser.HeaderImageResolver headerImageResolver;
+
+        ResourceQuizSource(Context context) {
+            this.context = context;
+            this.headerImageResolver = new QuizResourceImageResolver(context);
+        }
+
+        @Override
+        public String getName(int xmlResourceId) {
+            return context.getResources().getResourceEntryName(xmlResourceId);
+        }
+
+        @Override
+        public InputStream open(int xmlResourceId) throws IOException {
+            try {
+                return context.getResources().openRawResource(xmlResourceId);
+            } catch (Resources.NotFoundException e) {
+                throw new IOException("No raw resource " + xmlResourceId, e);
+            }
+        }
+
+        @Override
+        public ArrayList<QuizQuestion> parse(int xmlResourceId, QuizXmlParser.OnQuizQuestionParsedListener listener)
+                throws XmlPullParserException, IOException {
+            return QuizXmlParser.parse(context, xmlResourceId, listener);
+        }
+
+        @Override
+        public QuizXmlParser.HeaderImageResolver getHeaderImageResolver() {
+            return headerImageResolver;
+        }
+    }
+}
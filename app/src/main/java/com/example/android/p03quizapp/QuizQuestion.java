@@ -1,10 +1,6 @@
 package com.example.android.p03quizapp;
 
 import android.util.Log;
-import android.view.View;
-import android.widget.EditText;
-
-import java.util.ArrayList;
 
 /**
  * Created by bivanbi on 2017.02.23..
@@ -14,48 +10,53 @@ import java.util.ArrayList;
  * - input type,
  * - possible and correct answers,
  * - input handler to get answers given / checked by user
- * - provide getter and setter methods for the above data
+ * - provide getter methods for the above data
+ *
+ * Quiz data is not held by the QuizQuestion object but by the QuizBank it belongs to, in flat arrays
+ * shared by all quiz questions of the bank. A QuizQuestion object is a lightweight view of a quiz
+ * question of the bank, plus its position within the quiz and its input handler.
  */
 
 class QuizQuestion {
-    private String logTag = QuizQuestion.class.getSimpleName();
-    //  if the quiz has an image associated, store its resource id here
-    private int headerImageResId;
-    //  the actual question
-    private String question;
-    //  input type: EditText, Radio, Checkbox
-    private String inputType;
-    //  possible answers
-    private ArrayList<String> answers;
-    //  array of booleans to know which answers are correct and which are not
-    private ArrayList<Boolean> answerIsCorrect;
-    //  array of indexes of correct answers
-    private ArrayList<Integer> correctAnswerIndexes;
-    //  View object containing this quiz - image, question, inputs
-    private View quizContainer;
-    //  input handler for this quiz
+    //  input type code of input types not registered, see QuizInputTypeRegistry
+    static final int INPUT_TYPE_UNKNOWN = 0;
+
+    private static String logTag = QuizQuestion.class.getSimpleName();
+    //  the quiz bank holding quiz data, and the index of this quiz question within it
+    private final QuizBank quizBank;
+    private final int bankIndex;
+    //  position of this quiz within the quiz, answers given are stored under this index
+    private int index;
+    //  input handler for this quiz. Views are bound to it only while displayed, so this object
+    //  can outlive the activity without holding on to its views
     private QuizInputHandler inputHandler;
 
     /**
-     * constructor for QuizQuestion object
+     * constructor for QuizQuestion object, see QuizBank.getQuizQuestion
+     * @param quizBank is the quiz bank holding quiz data
+     * @param bankIndex is the index of the quiz question within the bank, also the initial index
+     */
+    QuizQuestion(QuizBank quizBank, int bankIndex) {
+        this.quizBank = quizBank;
+        this.bankIndex = bankIndex;
+        this.index = bankIndex;
+        this.inputHandler = null;
+    }
+
+    /**
+     * method to set the position of this quiz within the quiz
+     * @param index is the position, starting from 0
      */
-    QuizQuestion() {
-        headerImageResId = 0;
-        question = null;
-        inputType = null;
-        answers = new ArrayList<>();
-        answerIsCorrect = new ArrayList<>();
-        correctAnswerIndexes = new ArrayList<>();
-        quizContainer = null;
-        inputHandler = null;
+    void setIndex(int index) {
+        this.index = index;
     }
 
     /**
-     * method to set header image resource id
-     * @param headerImageResId is the resource id of header image
+     * method to get the position of this quiz within the quiz
+     * @return the position, starting from 0
      */
-    void setHeaderImageResId(int headerImageResId) {
-        this.headerImageResId = headerImageResId;
+    int getIndex() {
+        return index;
     }
 
     /**
@@ -63,15 +64,16 @@ class QuizQuestion {
      * @return the image resource id or 0 if not set / invalid
      */
     int getHeaderImageResId() {
-        return headerImageResId;
+        return quizBank.getHeaderImageResId(bankIndex);
     }
 
     /**
-     * method to set the question text for this quiz
-     * @param question is the question
+     * method to get the name of the drawable resource of header image, as given in quiz data.
+     * It is kept so that quiz data can be written to a quiz bank file, where resource ids are not valid
+     * @return the resource name or null if none
      */
-    void setQuestion(String question) {
-        this.question = question;
+    String getHeaderImageName() {
+        return quizBank.getHeaderImageName(bankIndex);
     }
 
     /**
@@ -79,76 +81,103 @@ class QuizQuestion {
      * @return is the string containing question text
      */
     String getQuestion() {
-        return question;
+        return quizBank.getQuestion(bankIndex);
     }
 
     /**
-     * method to set quiz input type - EditText, Radio, Checkbox
-     * @param inputType is the string containing input type
+     * method to get quiz input type - EditText, Radio, Checkbox, Numeric
+     * @return is the string containing input method
      */
-    void setInputType(String inputType) {
-        this.inputType = inputType;
+    String getInputType() {
+        return quizBank.getInputType(bankIndex);
     }
 
     /**
-     * method to get quiz input type - EditText, Radio, Checkbox
-     * @return is the string containing input method
+     * method to get quiz input type code, resolved from input type string when the quiz question
+     * was added to its QuizBank
+     * @return the code registered in QuizInputTypeRegistry, INPUT_TYPE_UNKNOWN if not registered
      */
-    String getInputType() {
-        return inputType;
+    int getInputTypeCode() {
+        return quizBank.getInputTypeCode(bankIndex);
     }
 
     /**
-     * method to add answer to the ArrayList of possible answers
-     * @param answer is the answer text
-     * @param isCorrect is true if the answer is correct
+     * method to get the kind of the input type, telling how answers are given and graded
+     * @return one of the QuizInputType.KIND_ constants
      */
-    void addAnswer(String answer, boolean isCorrect) {
-        if (isCorrect)
-            correctAnswerIndexes.add(answers.size());
-        answers.add(answer);
-        answerIsCorrect.add(isCorrect);
+    int getInputKind() {
+        return QuizInputTypeRegistry.getKind(getInputTypeCode());
     }
 
     /**
-     * method to get the ArrayList of possible answers
-     * @return ArrayList<String> of possible answers
+     * method to check whether answers are given by selecting from possible answers
+     * @return true for input types of a choice kind, e.g. Checkbox and Radio, false otherwise
      */
-    ArrayList<String> getAnswers() {
-        return answers;
+    boolean isChoiceInput() {
+        return QuizInputTypeRegistry.isChoiceInput(getInputTypeCode());
     }
 
-    String getAnswer(int index) {
-        // check index to avoid out of bounds exception
-        if (index < answers.size()) {
-            return answers.get(index);
-        } else {
-            return null;
-        }
+    /**
+     * method to get the number of characters text answers may differ in from accepted answers
+     * @return the edit distance, 0 if text answers must match exactly, apart from case and whitespace
+     */
+    int getMaxEditDistance() {
+        return quizBank.getMaxEditDistance(bankIndex);
     }
 
     /**
-     * method to get the number of possible answers associated with this quiz
-     * @return int with number of possible answers
+     * method to get the largest difference from an accepted answer of a Numeric question still accepted
+     * @return the tolerance, 0 if numbers must match exactly
      */
-    int size() {
-        return answers.size();
+    double getNumericTolerance() {
+        return quizBank.getNumericTolerance(bankIndex);
+    }
+
+    /**
+     * method to get the lowest number of the range of numbers a Numeric question accepts
+     * @return the lowest number or NaN if there is no range
+     */
+    double getNumericMinimum() {
+        return quizBank.getNumericMinimum(bankIndex);
     }
 
     /**
-     * method to set the View containing quiz question and input
-     * @param quizContainer it the View containing this quiz
+     * method to get the highest number of the range of numbers a Numeric question accepts
+     * @return the highest number or NaN if there is no range
      */
-    void setQuizContainer(View quizContainer) {
-        this.quizContainer = quizContainer;
+    double getNumericMaximum() {
+        return quizBank.getNumericMaximum(bankIndex);
     }
 
     /**
-     * method to get containing View for this quiz
-     * @return the View containing this quiz
+     * method to get the matcher of accepted answers of a text or Numeric question, compiled when
+     * the quiz question was added to its QuizBank
+     * @return the matcher or null for choice questions
      */
-    public View getQuizContainer() {
-        return quizContainer;
+    QuizAnswerMatcher getAnswerMatcher() {
+        return quizBank.getAnswerMatcher(bankIndex);
+    }
+
+    /**
+     * method to get a possible answer
+     * @param index is the index of the answer, starting from 0
+     * @return the answer text or null if there is no such answer
+     */
+    String getAnswer(int index) {
+        // check index to avoid out of bounds exception
+        if (index >= 0 && index < size()) {
+            return quizBank.getAnswer(bankIndex, index);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * method to get the number of possible answers associated with this quiz
+     * @return int with number of possible answers
+     */
+    int size() {
+        return quizBank.getAnswerCount(bankIndex);
     }
 
     /**
@@ -168,16 +197,36 @@ class QuizQuestion {
     }
 
     /**
-     * method to get an ArrayList containing correct answers
-     * @return ArrayList<String> of correct answers
+     * method to get the number of correct answers. Accepted answers of a text question beyond
+     * QuizAnswerStore.MAX_CHOICES are not counted, see getAnswerMatcher
+     * @return number of correct answers
+     */
+    int getCorrectAnswerCount() {
+        return Long.bitCount(getCorrectAnswerMask());
+    }
+
+    /**
+     * method to get a correct answer without building a list
+     * @param index is the index among correct answers, starting from 0
+     * @return the correct answer
      */
-    ArrayList<String> getCorrectAnswers()
-    {
-        ArrayList<String> correctAnswers = new ArrayList<>();
-        for (int i: correctAnswerIndexes){
-            correctAnswers.add(answers.get(i));
+    String getCorrectAnswer(int index) {
+        //  drop the lowest set bits of correct answers before the one asked for
+        long correctAnswerMask = getCorrectAnswerMask();
+        for (int i = 0; i < index && correctAnswerMask != 0; i++) {
+            correctAnswerMask &= correctAnswerMask - 1;
         }
-        return correctAnswers;
+        if (correctAnswerMask == 0)
+            throw new IndexOutOfBoundsException("Correct answer " + index + " of " + getCorrectAnswerCount());
+        return quizBank.getAnswer(bankIndex, Long.numberOfTrailingZeros(correctAnswerMask));
+    }
+
+    /**
+     * method to get the bitmask of correct answers
+     * @return bitmask with bit n set if answer n is correct
+     */
+    long getCorrectAnswerMask() {
+        return quizBank.getCorrectAnswerMask(bankIndex);
     }
 
     /**
@@ -185,7 +234,8 @@ class QuizQuestion {
      */
     void resetInput() {
         if (inputHandler == null) {
-            Log.e(logTag, "Cannot call resetInput, handler is null. Question: " + question + ", input type: " + inputType);
+            Log.e(logTag, "Cannot call resetInput, handler is null. Question: " + getQuestion()
+                    + ", input type: " + getInputType());
         } else {
             inputHandler.resetInput();
         }
@@ -198,13 +248,14 @@ class QuizQuestion {
     @Override
     public String toString() {
         return "QuizQuestion{" +
-                "headerImageResId=" + headerImageResId +
-                ", question='" + question + '\'' +
-                ", inputType='" + inputType + '\'' +
-                ", answers=" + answers +
-                ", answerIsCorrect=" + answerIsCorrect +
-                ", correctAnswerIndexes=" + correctAnswerIndexes +
+                "index=" + index +
+                ", bankIndex=" + bankIndex +
+                ", headerImageResId=" + getHeaderImageResId() +
+                ", question='" + getQuestion() + '\'' +
+                ", inputType='" + getInputType() + '\'' +
+                ", inputTypeCode=" + getInputTypeCode() +
+                ", answerCount=" + size() +
+                ", correctAnswerMask=" + Long.toBinaryString(getCorrectAnswerMask()) +
                 '}';
     }
 }
-
@@ -0,0 +1,306 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * RecyclerView adapter to display quiz questions. Only the visible questions have views;
+ * views scrolled out of sight are reused for other questions of the same layout.
+ *
+ * User input is kept by the QuizInputHandler of each QuizQuestion: input views are bound to the
+ * handler when displayed and unbound when recycled.
+ *
+ * Header images are loaded by QuizImageLoader in the background; images of the questions following
+ * the one bound are prefetched so they are likely decoded by the time they are scrolled into view.
+ *
+ * Given a QuizTextLayoutCache (bool resource quiz_flat_rendering set), Checkbox and Radio questions
+ * are displayed by a single QuizQuestionView each instead of a tree of layouts and choice buttons.
+ * Text layouts of the questions around the one bound are precomputed, like header images.
+ *
+ * The first item is the explanation on how to use quiz app, QuizQuestion objects follow.
+ */
+
+class QuizQuestionAdapter extends RecyclerView.Adapter<QuizQuestionAdapter.QuizViewHolder> {
+    //  view type of the first item: explanation on how to use quiz app
+    private static final int VIEW_TYPE_HOWTO = 0;
+    //  flag of view types displayed by QuizQuestionView, combined with input type code
+    private static final int VIEW_TYPE_FLAT = 1 << 16;
+
+    //  number of items preceding QuizQuestion objects
+    private static final int HEADER_ITEM_COUNT = 1;
+
+    //  number of QuizQuestion objects following the one bound to prefetch header images of
+    private static final int PREFETCH_DISTANCE = 3;
+
+    private LayoutInflater inflater;
+    //  ArrayList of QuizQuestion objects to display
+    private ArrayList<QuizQuestion> quizQuestions;
+    //  all view holders created, to be able to release input views when the activity is destroyed
+    private ArrayList<QuizViewHolder> viewHolders = new ArrayList<>();
+    //  loader of header images
+    private QuizImageLoader imageLoader;
+    //  size of header images in pixels
+    private int headerImageSize;
+    //  cache of text layouts for QuizQuestionViews, null unless flat rendering
+    private QuizTextLayoutCache textLayoutCache;
+
+    /**
+     * constructor for QuizQuestionAdapter object
+     * @param context is the context of our activity
+     * @param quizQuestions is the ArrayList to hold the QuizQuestion objects displayed
+     * @param imageLoader is the loader of header images
+     * @param textLayoutCache is the cache of text layouts to display choice questions by
+     *                        QuizQuestionViews with, null to display them by layouts
+     */
+    QuizQuestionAdapter(Context context, ArrayList<QuizQuestion> quizQuestions, QuizImageLoader imageLoader,
+                        QuizTextLayoutCache textLayoutCache) {
+        this.inflater = LayoutInflater.from(context);
+        this.quizQuestions = quizQuestions;
+        this.imageLoader = imageLoader;
+        this.headerImageSize = context.getResources().getDimensionPixelSize(R.dimen.quiz_header_picture_size);
+        this.textLayoutCache = textLayoutCache;
+    }
+
+    /**
+     * method to append QuizQuestion objects to the list
+     * @param newQuizQuestions is the collection of QuizQuestion objects to append
+     */
+    void addQuizQuestions(Collection<QuizQuestion> newQuizQuestions) {
+        int positionStart = HEADER_ITEM_COUNT + quizQuestions.size();
+        quizQuestions.addAll(newQuizQuestions);
+        notifyItemRangeInserted(positionStart, newQuizQuestions.size());
+    }
+
+    @Override
+    public int getItemCount() {
+        return HEADER_ITEM_COUNT + quizQuestions.size();
+    }
+
+    /**
+     * method to determine the view type of an item: input type and whether there is a header image.
+     * Question view type is input type code + 1 shifted left, lowest bit set if there is an image;
+     * or VIEW_TYPE_FLAT combined with input type code if displayed by QuizQuestionView
+     * @param position is the adapter position of the item
+     * @return the view type
+     */
+    @Override
+    public int getItemViewType(int position) {
+        if (position < HEADER_ITEM_COUNT)
+            return VIEW_TYPE_HOWTO;
+
+        QuizQuestion quizQuestion = quizQuestions.get(position - HEADER_ITEM_COUNT);
+        if (textLayoutCache != null && QuizInputTypeRegistry.get(quizQuestion.getInputTypeCode()) instanceof QuizInputTypeChoice)
+            return VIEW_TYPE_FLAT | quizQuestion.getInputTypeCode();
+        int viewType = (quizQuestion.getInputTypeCode() + 1) << 1;
+        if (quizQuestion.getHeaderImageResId() > 0)
+            viewType |= 1;
+        return viewType;
+    }
+
+    /**
+     * method to create views for a view type: quiz container, quiz header and input views.
+     * Choice buttons are added on binding, as their number depends on the actual QuizQuestion.
+     * Input views are recycled for any QuizQuestion of the same input type
+     * @param parent is the RecyclerView
+     * @param viewType is the view type
+     * @return the view holder
+     */
+    @Override
+    public QuizViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        long startNanos = QuizMetrics.startTimer();
+        QuizViewHolder holder = createViewHolder(parent, viewType);
+        QuizMetrics.stopTimer(QuizMetrics.TIMER_INFLATE, startNanos);
+        return holder;
+    }
+
+    /**
+     * method to create views for a view type, see onCreateViewHolder
+     * @param parent is the RecyclerView
+     * @param viewType is the view type
+     * @return the view holder
+     */
+    private QuizViewHolder createViewHolder(ViewGroup parent, int viewType) {
+        if (viewType == VIEW_TYPE_HOWTO)
+            return new QuizViewHolder(inflater.inflate(R.layout.quiz_howto, parent, false));
+        if ((viewType & VIEW_TYPE_FLAT) != 0) {
+            QuizQuestionView questionView = new QuizQuestionView(parent.getContext(), textLayoutCache);
+            questionView.setLayoutParams(new RecyclerView.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+            QuizViewHolder holder = new QuizViewHolder(questionView);
+            holder.flatView = questionView;
+            holder.isMultipleChoice = ((QuizInputTypeChoice) QuizInputTypeRegistry.get(
+                    viewType & ~VIEW_TYPE_FLAT)).isMultipleChoice();
+            viewHolders.add(holder);
+            return holder;
+        }
+
+        //  set up quiz container to hold header and answer input
+        LinearLayout quizContainerView = (LinearLayout) inflater.inflate(R.layout.quiz_container, parent, false);
+        QuizViewHolder holder = new QuizViewHolder(quizContainerView);
+        viewHolders.add(holder);
+
+        //  add quiz header - image and question - to quiz view
+        boolean hasImage = (viewType & 1) != 0;
+        View headerView = inflater.inflate(hasImage ? R.layout.quiz_header : R.layout.quiz_header_noimage,
+                quizContainerView, false);
+        if (hasImage)
+            holder.headerImageView = (ImageView) headerView.findViewById(R.id.quizHeaderImageView);
+        holder.questionView = (TextView) headerView.findViewById(R.id.quizQuestionTextView);
+        quizContainerView.addView(headerView);
+
+        //  add quiz input views matching input type, none if the input type is not registered or has no views
+        QuizInputType inputType = QuizInputTypeRegistry.get((viewType >> 1) - 1);
+        if (inputType instanceof QuizInputViewFactory) {
+            holder.inputViews = ((QuizInputViewFactory) inputType).createInputViews(inflater, quizContainerView);
+            quizContainerView.addView(holder.inputViews.getLayout());
+        }
+        return holder;
+    }
+
+    /**
+     * method to display a QuizQuestion in a recycled view and bind input views to its input handler
+     * @param holder is the view holder
+     * @param position is the adapter position
+     */
+    @Override
+    public void onBindViewHolder(QuizViewHolder holder, int position) {
+        if (position < HEADER_ITEM_COUNT)
+            return;
+
+        long startNanos = QuizMetrics.startTimer();
+        bindViewHolder(holder, position);
+        QuizMetrics.stopTimer(QuizMetrics.TIMER_BIND, startNanos);
+        QuizMetrics.increment(QuizMetrics.COUNTER_QUESTIONS_RENDERED);
+    }
+
+    /**
+     * method to display a QuizQuestion in a recycled view, see onBindViewHolder
+     * @param holder is the view holder
+     * @param position is the adapter position of a QuizQuestion
+     */
+    private void bindViewHolder(QuizViewHolder holder, int position) {
+        QuizQuestion quizQuestion = quizQuestions.get(position - HEADER_ITEM_COUNT);
+        holder.unbind();
+        if (textLayoutCache != null)
+            textLayoutCache.precomputeAround(quizQuestions, position - HEADER_ITEM_COUNT);
+
+        if (holder.flatView != null) {
+            bindFlatView(holder, quizQuestion);
+            prefetchHeaderImages(position - HEADER_ITEM_COUNT + 1);
+            return;
+        }
+
+        if (holder.headerImageView != null)
+            imageLoader.loadImage(holder.headerImageView, quizQuestion.getHeaderImageResId(), headerImageSize);
+        prefetchHeaderImages(position - HEADER_ITEM_COUNT + 1);
+        holder.questionView.setText(quizQuestion.getQuestion());
+
+        QuizInputHandler inputHandler = quizQuestion.getInputHandler();
+        if (holder.inputViews != null && inputHandler != null) {
+            holder.inputViews.show(quizQuestion);
+            inputHandler.bind(holder.inputViews.getInputView());
+            holder.inputHandler = inputHandler;
+        }
+    }
+
+    /**
+     * method to display a QuizQuestion in a QuizQuestionView and bind the view to its input handler
+     * @param holder is the view holder of the QuizQuestionView
+     * @param quizQuestion is the QuizQuestion to display
+     */
+    private void bindFlatView(QuizViewHolder holder, QuizQuestion quizQuestion) {
+        holder.flatView.setQuizQuestion(quizQuestion, holder.isMultipleChoice);
+        if (quizQuestion.getHeaderImageResId() > 0)
+            imageLoader.loadImage(holder.flatView, quizQuestion.getHeaderImageResId(), headerImageSize);
+
+        QuizInputHandler inputHandler = quizQuestion.getInputHandler();
+        if (inputHandler != null) {
+            inputHandler.bind(holder.flatView);
+            holder.inputHandler = inputHandler;
+        }
+    }
+
+    /**
+     * method to start decoding the header images of QuizQuestion objects about to be displayed
+     * @param firstIndex is the index of the first QuizQuestion to prefetch image of
+     */
+    private void prefetchHeaderImages(int firstIndex) {
+        int endIndex = Math.min(firstIndex + PREFETCH_DISTANCE, quizQuestions.size());
+        for (int i = firstIndex; i < endIndex; i++) {
+            int headerImageResId = quizQuestions.get(i).getHeaderImageResId();
+            if (headerImageResId > 0)
+                imageLoader.prefetch(headerImageResId, headerImageSize);
+        }
+    }
+
+    /**
+     * method to release input views from the input handler when the views are recycled
+     * @param holder is the view holder being recycled
+     */
+    @Override
+    public void onViewRecycled(QuizViewHolder holder) {
+        holder.unbind();
+    }
+
+    /**
+     * method called when a view with transient state (e.g. a focused EditText) is to be recycled.
+     * Input is kept by the input handler, so it is safe to recycle anyway.
+     * @param holder is the view holder
+     * @return true to recycle the view
+     */
+    @Override
+    public boolean onFailedToRecycleView(QuizViewHolder holder) {
+        holder.unbind();
+        return true;
+    }
+
+    /**
+     * method to release all input views from input handlers, e.g. when the activity is destroyed
+     * but QuizQuestion objects are retained
+     */
+    void unbindAll() {
+        for (QuizViewHolder holder : viewHolders) {
+            holder.unbind();
+        }
+    }
+
+    /**
+     * class to hold the views of a single item
+     */
+    static class QuizViewHolder extends RecyclerView.ViewHolder {
+        //  header image, null if the view type has no image
+        ImageView headerImageView;
+        //  TextView holding the question
+        TextView questionView;
+        //  input views, null if the input type is not registered
+        QuizInputViews inputViews;
+        //  QuizQuestionView displaying the whole question, null unless flat rendering
+        QuizQuestionView flatView;
+        //  true if flatView displays checkboxes, false for radio buttons
+        boolean isMultipleChoice;
+        //  input handler currently bound to the input view
+        QuizInputHandler inputHandler;
+
+        QuizViewHolder(View itemView) {
+            super(itemView);
+        }
+
+        /**
+         * method to release input views from the input handler currently bound
+         */
+        void unbind() {
+            if (inputHandler != null)
+                inputHandler.unbind();
+            inputHandler = null;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.os.Bundle;
+import android.support.v4.content.ContextCompat;
+import android.support.v4.view.ViewCompat;
+import android.support.v4.view.accessibility.AccessibilityNodeInfoCompat;
+import android.support.v4.widget.ExploreByTouchHelper;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.SoundEffectConstants;
+import android.view.View;
+import android.view.accessibility.AccessibilityEvent;
+import android.widget.CheckBox;
+import android.widget.RadioButton;
+
+import java.util.List;
+
+/**
+ * custom view to display a choice quiz question - Checkbox or Radio - as a single view: divider,
+ * header image, question text, input instruction and a choice per possible answer are all drawn
+ * by this view, and touches are hit tested against the choices. It replaces the tree of quiz
+ * container, header and input layouts and a CompoundButton per answer, so measure and layout
+ * passes have one view per quiz question to go through.
+ *
+ * The view looks like the layouts it replaces (quiz_container, quiz_header, quiz_input_..._container)
+ * and uses the same dimension resources. Choices are exposed to accessibility services as virtual
+ * views, so they can be explored and checked like CheckBoxes and RadioButtons.
+ *
+ * Text is laid out by QuizTextLayoutCache, usually ahead of time on a background thread, so
+ * measuring the view is mostly cache lookups.
+ *
+ * The view keeps the checked state of choices for drawing only: input handlers bind to it as to
+ * any input view, receive choice clicks through OnChoiceClickListener and set the checked state
+ * from the QuizAnswerStore. Text input is not supported, EditText questions use the layouts.
+ */
+
+class QuizQuestionView extends View {
+    /**
+     * interface to be notified of choices clicked by user
+     */
+    interface OnChoiceClickListener {
+        /**
+         * method called when a choice is clicked
+         * @param view is the QuizQuestionView
+         * @param answerIndex is the index of the answer clicked
+         */
+        void onChoiceClick(QuizQuestionView view, int answerIndex);
+    }
+
+    //  dimensions in pixels
+    private int margin;
+    private int headerImageSize;
+    private int dividerHeight;
+    private int indicatorSize;
+    private int indicatorGap;
+    private int choiceMinHeight;
+
+    //  text layouts for any width, shared by all QuizQuestionViews
+    private QuizTextLayoutCache textLayoutCache;
+    private Paint indicatorPaint;
+    private Paint dividerPaint;
+    private Paint imagePaint;
+    private int checkedColor;
+    private int uncheckedColor;
+
+    //  quiz question displayed
+    private CharSequence question;
+    private CharSequence[] answers = new CharSequence[0];
+    private boolean isMultipleChoice;
+    private boolean hasHeaderImage;
+    private Bitmap headerImage;
+    //  bitmask of checked choices, bit n set if answer n is checked
+    private long checkedMask;
+    private OnChoiceClickListener onChoiceClickListener;
+
+    //  text layouts for the current width, null until measured
+    private int layoutWidth = -1;
+    private StaticLayout questionLayout;
+    private StaticLayout instructionLayout;
+    private StaticLayout[] answerLayouts = new StaticLayout[0];
+    //  vertical positions: top of each choice, choiceTops[answers.length] is the bottom of the last
+    private int[] choiceTops = new int[1];
+    private int headerTop;
+    private int instructionTop;
+    private int measuredContentHeight;
+    //  choice being pressed, -1 if none
+    private int pressedChoice = -1;
+
+    //  scratch objects for drawing, to avoid allocation in onDraw
+    private Rect imageSourceRect = new Rect();
+    private RectF imageRect = new RectF();
+    private RectF indicatorRect = new RectF();
+
+    private ChoiceTouchHelper touchHelper;
+
+    /**
+     * constructor for QuizQuestionView object
+     * @param context is the context of the activity
+     * @param textLayoutCache is the cache to take text layouts from
+     */
+    QuizQuestionView(Context context, QuizTextLayoutCache textLayoutCache) {
+        super(context);
+        this.textLayoutCache = textLayoutCache;
+        Resources resources = context.getResources();
+        margin = resources.getDimensionPixelSize(R.dimen.activity_horizontal_margin);
+        headerImageSize = resources.getDimensionPixelSize(R.dimen.quiz_header_picture_size);
+        dividerHeight = Math.max(1, dp(1));
+        indicatorSize = resources.getDimensionPixelSize(R.dimen.quiz_choice_indicator_size);
+        indicatorGap = resources.getDimensionPixelSize(R.dimen.quiz_choice_indicator_gap);
+        choiceMinHeight = resources.getDimensionPixelSize(R.dimen.quiz_choice_min_height);
+        checkedColor = ContextCompat.getColor(context, R.color.colorAccent);
+        uncheckedColor = ContextCompat.getColor(context, R.color.quizChoiceUnchecked);
+
+        indicatorPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        indicatorPaint.setStrokeWidth(dp(2));
+        dividerPaint = new Paint();
+        dividerPaint.setColor(ContextCompat.getColor(context, R.color.quizDivider));
+        imagePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        touchHelper = new ChoiceTouchHelper(this);
+        ViewCompat.setAccessibilityDelegate(this, touchHelper);
+    }
+
+    /**
+     * method to display a QuizQuestion. Header image is cleared until set by setHeaderImage
+     * @param quizQuestion is the QuizQuestion to display
+     * @param isMultipleChoice is true to display checkboxes, false to display radio buttons
+     */
+    void setQuizQuestion(QuizQuestion quizQuestion, boolean isMultipleChoice) {
+        this.question = quizQuestion.getQuestion();
+        this.isMultipleChoice = isMultipleChoice;
+        this.hasHeaderImage = quizQuestion.getHeaderImageResId() > 0;
+        this.headerImage = null;
+        this.checkedMask = 0;
+        this.pressedChoice = -1;
+        if (answers.length != quizQuestion.size()) {
+            answers = new CharSequence[quizQuestion.size()];
+            answerLayouts = new StaticLayout[answers.length];
+            choiceTops = new int[answers.length + 1];
+        }
+        for (int i = 0; i < answers.length; i++) {
+            answers[i] = quizQuestion.getAnswer(i);
+        }
+        //  layouts of the quiz question displayed before are stale until built again, readers check
+        //  questionLayout before reading choiceTops or answerLayouts
+        questionLayout = null;
+        layoutWidth = -1;
+        touchHelper.invalidateRoot();
+        requestLayout();
+        invalidate();
+    }
+
+    /**
+     * method to set the header image, ignored if the quiz question displayed has no header image
+     * @param bitmap is the header image or null to clear it
+     */
+    void setHeaderImage(Bitmap bitmap) {
+        if (hasHeaderImage) {
+            headerImage = bitmap;
+            invalidate();
+        }
+    }
+
+    /**
+     * method to set the listener notified of choices clicked
+     * @param listener is the listener or null
+     */
+    void setOnChoiceClickListener(OnChoiceClickListener listener) {
+        this.onChoiceClickListener = listener;
+    }
+
+    /**
+     * method to set the checked state of a choice
+     * @param answerIndex is the index of the answer
+     * @param checked is true to check the choice
+     */
+    void setChecked(int answerIndex, boolean checked) {
+        setCheckedMask(checked ? checkedMask | (1L << answerIndex) : checkedMask & ~(1L << answerIndex));
+    }
+
+    /**
+     * method to set the checked state of all choices
+     * @param checkedMask is the bitmask of checked choices, bit n set if answer n is checked
+     */
+    void setCheckedMask(long checkedMask) {
+        if (this.checkedMask != checkedMask) {
+            long changed = this.checkedMask ^ checkedMask;
+            this.checkedMask = checkedMask;
+            for (int i = 0; i < answers.length; i++) {
+                if ((changed & (1L << i)) != 0)
+                    touchHelper.invalidateVirtualView(i);
+            }
+            invalidate();
+        }
+    }
+
+    /**
+     * method to get the checked state of all choices
+     * @return bitmask of checked choices, bit n set if answer n is checked
+     */
+    long getCheckedMask() {
+        return checkedMask;
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = MeasureSpec.getSize(widthMeasureSpec);
+        if (MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED)
+            width = getResources().getDisplayMetrics().widthPixels;
+        buildLayouts(width);
+        setMeasuredDimension(width, resolveSize(measuredContentHeight, heightMeasureSpec));
+    }
+
+    /**
+     * method to get text layouts from cache and compute vertical positions for a width, unless already done
+     * @param width is the width of the view in pixels
+     */
+    private void buildLayouts(int width) {
+        if (width == layoutWidth)
+            return;
+        layoutWidth = width;
+
+        //  header: image on the left, question next to it, see quiz_header and quiz_header_noimage
+        headerTop = dividerHeight + margin;
+        questionLayout = textLayoutCache.getQuestionLayout(question, hasHeaderImage, width);
+        int headerHeight = Math.max(questionLayout.getHeight(), hasHeaderImage ? headerImageSize : 0);
+
+        instructionTop = headerTop + headerHeight + margin;
+        instructionLayout = textLayoutCache.getInstructionLayout(isMultipleChoice, width);
+
+        choiceTops[0] = instructionTop + instructionLayout.getHeight();
+        for (int i = 0; i < answers.length; i++) {
+            answerLayouts[i] = textLayoutCache.getAnswerLayout(answers[i], width);
+            choiceTops[i + 1] = choiceTops[i] + Math.max(choiceMinHeight, answerLayouts[i].getHeight());
+        }
+        measuredContentHeight = choiceTops[answers.length] + margin;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (questionLayout == null)
+            return;
+        int width = getWidth();
+
+        //  divider, see quiz_container
+        canvas.drawRect(margin, 0, width - margin, dividerHeight, dividerPaint);
+
+        //  header image, center cropped
+        if (hasHeaderImage) {
+            if (headerImage != null) {
+                int bitmapWidth = headerImage.getWidth();
+                int bitmapHeight = headerImage.getHeight();
+                int cropSize = Math.min(bitmapWidth, bitmapHeight);
+                imageSourceRect.set((bitmapWidth - cropSize) / 2, (bitmapHeight - cropSize) / 2,
+                        (bitmapWidth + cropSize) / 2, (bitmapHeight + cropSize) / 2);
+                imageRect.set(margin, headerTop, margin + headerImageSize, headerTop + headerImageSize);
+                canvas.drawBitmap(headerImage, imageSourceRect, imageRect, imagePaint);
+            }
+        }
+        drawLayout(canvas, questionLayout, textLayoutCache.getQuestionLeft(hasHeaderImage), headerTop);
+        drawLayout(canvas, instructionLayout, margin, instructionTop);
+
+        //  choices: indicator and answer text, vertically centered within the row
+        for (int i = 0; i < answers.length; i++) {
+            int rowCenter = (choiceTops[i] + choiceTops[i + 1]) / 2;
+            drawIndicator(canvas, margin, rowCenter - indicatorSize / 2,
+                    (checkedMask & (1L << i)) != 0, i == pressedChoice);
+            drawLayout(canvas, answerLayouts[i], margin + indicatorSize + indicatorGap,
+                    rowCenter - answerLayouts[i].getHeight() / 2);
+        }
+    }
+
+    /**
+     * method to draw a text layout at a position
+     */
+    private static void drawLayout(Canvas canvas, Layout layout, int left, int top) {
+        canvas.save();
+        canvas.translate(left, top);
+        layout.draw(canvas);
+        canvas.restore();
+    }
+
+    /**
+     * method to draw the indicator of a choice: box for checkboxes, circle for radio buttons
+     * @param canvas is the canvas to draw on
+     * @param left is the left edge of the indicator
+     * @param top is the top edge of the indicator
+     * @param checked is true if the choice is checked
+     * @param pressed is true if the choice is being pressed
+     */
+    private void drawIndicator(Canvas canvas, int left, int top, boolean checked, boolean pressed) {
+        float inset = indicatorPaint.getStrokeWidth() / 2;
+        indicatorRect.set(left + inset, top + inset, left + indicatorSize - inset, top + indicatorSize - inset);
+        indicatorPaint.setColor(checked || pressed ? checkedColor : uncheckedColor);
+        if (isMultipleChoice) {
+            indicatorPaint.setStyle(checked ? Paint.Style.FILL_AND_STROKE : Paint.Style.STROKE);
+            canvas.drawRoundRect(indicatorRect, inset, inset, indicatorPaint);
+            if (checked) {
+                //  check mark
+                indicatorPaint.setColor(0xffffffff);
+                indicatorPaint.setStyle(Paint.Style.STROKE);
+                float unit = indicatorSize / 18f;
+                canvas.drawLine(left + 4 * unit, top + 9 * unit, left + 7.5f * unit, top + 12.5f * unit, indicatorPaint);
+                canvas.drawLine(left + 7.5f * unit, top + 12.5f * unit, left + 14 * unit, top + 5.5f * unit, indicatorPaint);
+            }
+        } else {
+            indicatorPaint.setStyle(Paint.Style.STROKE);
+            canvas.drawOval(indicatorRect, indicatorPaint);
+            if (checked) {
+                indicatorPaint.setStyle(Paint.Style.FILL);
+                float dotInset = indicatorSize / 4f;
+                indicatorRect.inset(dotInset - inset, dotInset - inset);
+                canvas.drawOval(indicatorRect, indicatorPaint);
+            }
+        }
+    }
+
+    /**
+     * method to find the choice at a position
+     * @param x is the horizontal position within the view
+     * @param y is the vertical position within the view
+     * @return the index of the answer or -1 if there is no choice at the position
+     */
+    int getChoiceAt(float x, float y) {
+        if (questionLayout == null || x < margin || x > getWidth() - margin)
+            return -1;
+        for (int i = 0; i < answers.length; i++) {
+            if (y >= choiceTops[i] && y < choiceTops[i + 1])
+                return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                setPressedChoice(getChoiceAt(event.getX(), event.getY()));
+                return pressedChoice >= 0;
+            case MotionEvent.ACTION_MOVE:
+                if (pressedChoice >= 0 && getChoiceAt(event.getX(), event.getY()) != pressedChoice)
+                    setPressedChoice(-1);
+                return true;
+            case MotionEvent.ACTION_UP:
+                int choice = pressedChoice;
+                setPressedChoice(-1);
+                if (choice >= 0)
+                    clickChoice(choice);
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                setPressedChoice(-1);
+                return true;
+            default:
+                return super.onTouchEvent(event);
+        }
+    }
+
+    @Override
+    protected boolean dispatchHoverEvent(MotionEvent event) {
+        return touchHelper.dispatchHoverEvent(event) || super.dispatchHoverEvent(event);
+    }
+
+    /**
+     * method to highlight the choice being pressed
+     * @param choice is the index of the answer or -1 for none
+     */
+    private void setPressedChoice(int choice) {
+        if (pressedChoice != choice) {
+            pressedChoice = choice;
+            invalidate();
+        }
+    }
+
+    /**
+     * method to click a choice: play click sound and notify listener, which sets the checked state
+     * @param answerIndex is the index of the answer
+     */
+    private void clickChoice(int answerIndex) {
+        playSoundEffect(SoundEffectConstants.CLICK);
+        if (onChoiceClickListener != null)
+            onChoiceClickListener.onChoiceClick(this, answerIndex);
+        touchHelper.sendEventForVirtualView(answerIndex, AccessibilityEvent.TYPE_VIEW_CLICKED);
+    }
+
+    /**
+     * method to convert density independent pixels to pixels
+     */
+    private int dp(float dp) {
+        return Math.round(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp,
+                getResources().getDisplayMetrics()));
+    }
+
+    /**
+     * class to expose choices to accessibility services as virtual CheckBox or RadioButton views
+     */
+    private class ChoiceTouchHelper extends ExploreByTouchHelper {
+        private Rect bounds = new Rect();
+
+        ChoiceTouchHelper(View view) {
+            super(view);
+        }
+
+        @Override
+        protected int getVirtualViewAt(float x, float y) {
+            int choice = getChoiceAt(x, y);
+            return choice >= 0 ? choice : INVALID_ID;
+        }
+
+        @Override
+        protected void getVisibleVirtualViews(List<Integer> virtualViewIds) {
+            for (int i = 0; i < answers.length; i++) {
+                virtualViewIds.add(i);
+            }
+        }
+
+        @Override
+        protected void onPopulateEventForVirtualView(int virtualViewId, AccessibilityEvent event) {
+            event.setContentDescription(answers[virtualViewId]);
+            event.setChecked((checkedMask & (1L << virtualViewId)) != 0);
+        }
+
+        @Override
+        protected void onPopulateNodeForVirtualView(int virtualViewId, AccessibilityNodeInfoCompat node) {
+            //  layouts may not be built yet, bounds must not be empty
+            int top = questionLayout == null ? 0 : choiceTops[virtualViewId];
+            int bottom = questionLayout == null ? 1 : choiceTops[virtualViewId + 1];
+            bounds.set(margin, top, Math.max(getWidth() - margin, margin + 1), bottom);
+            node.setBoundsInParent(bounds);
+            node.setText(answers[virtualViewId]);
+            node.setClassName((isMultipleChoice ? CheckBox.class : RadioButton.class).getName());
+            node.setCheckable(true);
+            node.setChecked((checkedMask & (1L << virtualViewId)) != 0);
+            node.addAction(AccessibilityNodeInfoCompat.ACTION_CLICK);
+        }
+
+        @Override
+        protected boolean onPerformActionForVirtualView(int virtualViewId, int action, Bundle arguments) {
+            if (action != AccessibilityNodeInfoCompat.ACTION_CLICK)
+                return false;
+            clickChoice(virtualViewId);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+
+import java.util.HashMap;
+
+/**
+ * class to turn header image names into drawable resource ids of the app.
+ * Resources.getIdentifier is slow, so each name is looked up only once.
+ *
+ * May be used from any thread.
+ */
+
+class QuizResourceImageResolver implements QuizXmlParser.HeaderImageResolver {
+    private Resources resources;
+    private String packageName;
+    //  resource ids looked up so far, by resource name
+    private final HashMap<String, Integer> resourceIds = new HashMap<>();
+
+    /**
+     * constructor for QuizResourceImageResolver object
+     * @param context is the context to take resources from
+     */
+    QuizResourceImageResolver(Context context) {
+        resources = context.getResources();
+        packageName = context.getPackageName();
+    }
+
+    /**
+     * method to look up the resource id of a header image, once per name
+     * @param headerImageName is the drawable resource name
+     * @return the resource id or 0 if there is no such drawable
+     */
+    @Override
+    public int getHeaderImageResId(String headerImageName) {
+        synchronized (resourceIds) {
+            Integer resourceId = resourceIds.get(headerImageName);
+            if (resourceId == null) {
+                resourceId = resources.getIdentifier(headerImageName, "drawable", packageName);
+                resourceIds.put(headerImageName, resourceId);
+            }
+            return resourceId;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.android.p03quizapp;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * class to draw a random exam of a given number of quiz questions from a quiz bank of any size
+ * in a single streaming pass, using reservoir sampling:
+ * - the first N matching quiz questions fill the reservoir
+ * - the i-th matching quiz question after that replaces a random one with probability N / i
+ *
+ * Quiz questions not matching the filters or not chosen are never built into QuizQuestion objects,
+ * so memory depends on exam size only. The same seed and quiz bank always give the same exam.
+ *
+ * Chosen quiz questions are returned in the order they appear in the quiz bank, indexed from 0,
+ * backed by a single QuizBank.
+ */
+
+class QuizSampler {
+    //  header image filters
+    static final int HEADER_IMAGE_ANY = 0;
+    static final int HEADER_IMAGE_REQUIRED = 1;
+    static final int HEADER_IMAGE_NONE = 2;
+
+    //  number of quiz questions to choose
+    private int sampleSize;
+    //  seed of random numbers, same seed gives same exam
+    private long seed;
+    //  input type codes accepted, bit n set if input type code n is accepted. Null to accept all
+    private BitSet acceptedInputTypeCodes;
+    //  one of the HEADER_IMAGE_ constants
+    private int headerImageFilter = HEADER_IMAGE_ANY;
+
+    //  statistics of the last sampling: quiz questions read and quiz questions matching filters
+    private int scannedCount = 0;
+    private int matchingCount = 0;
+
+    /**
+     * constructor for QuizSampler object
+     * @param sampleSize is the number of quiz questions to choose
+     * @param seed is the seed of random numbers
+     */
+    QuizSampler(int sampleSize, long seed) {
+        if (sampleSize < 0)
+            throw new IllegalArgumentException("Negative sample size " + sampleSize);
+        this.sampleSize = sampleSize;
+        this.seed = seed;
+    }
+
+    /**
+     * method to accept only quiz questions of some input types
+     * @param inputTypeCodes are the input type codes to accept, see QuizInputTypeRegistry.getCode
+     */
+    void setInputTypes(int... inputTypeCodes) {
+        acceptedInputTypeCodes = new BitSet();
+        for (int inputTypeCode : inputTypeCodes) {
+            acceptedInputTypeCodes.set(inputTypeCode);
+        }
+    }
+
+    /**
+     * method to accept only quiz questions with or without header image
+     * @param headerImageFilter is one of the HEADER_IMAGE_ constants
+     */
+    void setHeaderImageFilter(int headerImageFilter) {
+        this.headerImageFilter = headerImageFilter;
+    }
+
+    /**
+     * method to choose quiz questions read by a QuizXmlParser
+     * @param quizXmlParser is the QuizXmlParser positioned at the start of the document
+     * @return ArrayList of chosen QuizQuestion objects, fewer than sample size if not enough match
+     * @throws XmlPullParserException if XML is malformed or is not valid quiz data
+     * @throws IOException
+     */
+    ArrayList<QuizQuestion> sample(QuizXmlParser quizXmlParser) throws XmlPullParserException, IOException {
+        Random random = new Random(scramble(seed));
+        QuizQuestion[] reservoir = new QuizQuestion[sampleSize];
+        scannedCount = 0;
+        matchingCount = 0;
+
+        while (quizXmlParser.advance()) {
+            scannedCount++;
+            if (!matches(quizXmlParser))
+                continue;
+
+            matchingCount++;
+            int slot = matchingCount <= sampleSize ? matchingCount - 1 : random.nextInt(matchingCount);
+            if (slot < sampleSize)
+                reservoir[slot] = quizXmlParser.createQuizQuestion();
+        }
+
+        //  restore quiz bank order, indexes are positions within the quiz bank until renumbered
+        int chosenCount = Math.min(matchingCount, sampleSize);
+        QuizQuestion[] chosen = Arrays.copyOf(reservoir, chosenCount);
+        Arrays.sort(chosen, new Comparator<QuizQuestion>() {
+            @Override
+            public int compare(QuizQuestion a, QuizQuestion b) {
+                return a.getIndex() < b.getIndex() ? -1 : (a.getIndex() == b.getIndex() ? 0 : 1);
+            }
+        });
+        //  copy chosen quiz questions into a single QuizBank, sharing the string pool
+        QuizBank.Builder quizBankBuilder = new QuizBank.Builder(chosenCount);
+        for (QuizQuestion quizQuestion : chosen) {
+            quizBankBuilder.add(quizQuestion);
+        }
+        return quizBankBuilder.build().getQuizQuestions();
+    }
+
+    /**
+     * method to get the number of quiz questions read by the last sampling
+     * @return number of quiz questions in quiz bank
+     */
+    int getScannedCount() {
+        return scannedCount;
+    }
+
+    /**
+     * method to get the number of quiz questions matching filters in the last sampling
+     * @return number of quiz questions the exam was chosen from
+     */
+    int getMatchingCount() {
+        return matchingCount;
+    }
+
+    /**
+     * method to spread the bits of a seed. The first numbers of java.util.Random are correlated
+     * for close seeds, so consecutive seeds, e.g. exam numbers, would favour some quiz questions
+     * @param seed is the seed
+     * @return the scrambled seed (SplitMix64 finalizer)
+     */
+    private static long scramble(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * method to check whether the current quiz question of a QuizXmlParser matches filters
+     * @param quizXmlParser is the QuizXmlParser
+     * @return true if the quiz question may be chosen
+     */
+    private boolean matches(QuizXmlParser quizXmlParser) {
+        if (acceptedInputTypeCodes != null
+                && !acceptedInputTypeCodes.get(QuizInputTypeRegistry.getCode(quizXmlParser.getCurrentInputType())))
+            return false;
+        boolean hasHeaderImage = quizXmlParser.getCurrentHeaderImageName() != null;
+        switch (headerImageFilter) {
+            case HEADER_IMAGE_REQUIRED:
+                return hasHeaderImage;
+            case HEADER_IMAGE_NONE:
+                return !hasHeaderImage;
+            default:
+                return true;
+        }
+    }
+}
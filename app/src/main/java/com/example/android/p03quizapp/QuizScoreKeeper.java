@@ -0,0 +1,167 @@
+package com.example.android.p03quizapp;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * class to keep the score up to date while the user is answering, so checking the answers
+ * costs the same no matter how many quiz questions there are.
+ *
+ * Listens to the QuizAnswerStore and re-grades only the quiz question whose answer changed:
+ * - Checkbox and Radio answers are graded right away
+ * - EditText answers are graded once the user stopped typing for a moment, or when the score is
+ *   requested, whichever comes first
+ *
+ * All methods are to be called on the UI thread.
+ */
+
+class QuizScoreKeeper implements QuizAnswerStore.OnAnswerChangedListener {
+    //  time to wait after the last edit before grading text answers
+    private static final long TEXT_GRADING_DELAY_MILLIS = 300;
+
+    //  initial capacity, arrays grow as quiz questions are added
+    private static final int INITIAL_CAPACITY = 16;
+
+    //  QuizQuestion objects graded, indexed by QuizQuestion.getIndex()
+    private ArrayList<QuizQuestion> quizQuestions;
+    //  correctness of the current answer of each quiz question
+    private boolean[] isCorrect = new boolean[INITIAL_CAPACITY];
+    //  number of correct answers
+    private int score = 0;
+
+    //  true for each quiz question changed but not graded yet
+    private boolean[] isPending = new boolean[INITIAL_CAPACITY];
+    //  indexes of quiz questions changed but not graded yet
+    private int[] pendingIndexes = new int[INITIAL_CAPACITY];
+    private int pendingCount = 0;
+
+    //  handler to grade text answers with a delay
+    private Handler handler = new Handler(Looper.getMainLooper());
+    private Runnable gradePendingRunnable = new Runnable() {
+        @Override
+        public void run() {
+            gradePending();
+        }
+    };
+
+    /**
+     * constructor for QuizScoreKeeper object
+     * @param quizQuestions is the ArrayList of QuizQuestion objects, indexed by QuizQuestion.getIndex()
+     */
+    QuizScoreKeeper(ArrayList<QuizQuestion> quizQuestions) {
+        this.quizQuestions = quizQuestions;
+    }
+
+    /**
+     * method to start keeping score of a new quiz question. It is graded right away, as
+     * there might be answers restored for it already.
+     * @param quizQuestion is the QuizQuestion added
+     */
+    void onQuizQuestionAdded(QuizQuestion quizQuestion) {
+        ensureCapacity(quizQuestion.getIndex());
+        grade(quizQuestion.getIndex());
+    }
+
+    /**
+     * method called by QuizAnswerStore when an answer changes: re-grade only that quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     */
+    @Override
+    public void onAnswerChanged(int questionIndex) {
+        //  quiz question not added yet, it will be graded when added
+        if (questionIndex >= quizQuestions.size())
+            return;
+
+        if (quizQuestions.get(questionIndex).isChoiceInput()) {
+            grade(questionIndex);
+            return;
+        }
+
+        //  text is graded once the user stopped typing
+        if (!isPending[questionIndex]) {
+            isPending[questionIndex] = true;
+            pendingIndexes[pendingCount++] = questionIndex;
+        }
+        handler.removeCallbacks(gradePendingRunnable);
+        handler.postDelayed(gradePendingRunnable, TEXT_GRADING_DELAY_MILLIS);
+    }
+
+    /**
+     * method to get the number of correct answers
+     * @return number of correct answers
+     */
+    int getScore() {
+        gradePending();
+        return score;
+    }
+
+    /**
+     * method to get the number of quiz questions
+     * @return number of quiz questions
+     */
+    int getQuestionCount() {
+        return quizQuestions.size();
+    }
+
+    /**
+     * method to check whether the current answer of a quiz question is correct
+     * @param questionIndex is the index of the QuizQuestion
+     * @return true if correct
+     */
+    boolean isAnswerCorrect(int questionIndex) {
+        gradePending();
+        return questionIndex < quizQuestions.size() && isCorrect[questionIndex];
+    }
+
+    /**
+     * method to copy the correctness of current answers, e.g. to read them on another thread
+     * @return array of getQuestionCount() elements indexed by QuizQuestion.getIndex(), true if correct
+     */
+    boolean[] copyCorrectness() {
+        gradePending();
+        return Arrays.copyOf(isCorrect, quizQuestions.size());
+    }
+
+    /**
+     * method to grade quiz questions changed but not graded yet
+     */
+    private void gradePending() {
+        handler.removeCallbacks(gradePendingRunnable);
+        for (int i = 0; i < pendingCount; i++) {
+            isPending[pendingIndexes[i]] = false;
+            grade(pendingIndexes[i]);
+        }
+        pendingCount = 0;
+    }
+
+    /**
+     * method to grade a quiz question and update score
+     * @param questionIndex is the index of the QuizQuestion
+     */
+    private void grade(int questionIndex) {
+        long startNanos = QuizMetrics.startTimer();
+        boolean correct = QuizCheckAnswer.isAnswerCorrect(quizQuestions.get(questionIndex));
+        QuizMetrics.stopTimer(QuizMetrics.TIMER_GRADE, startNanos);
+        QuizMetrics.increment(QuizMetrics.COUNTER_ANSWERS_GRADED);
+        if (correct != isCorrect[questionIndex]) {
+            isCorrect[questionIndex] = correct;
+            score += correct ? 1 : -1;
+        }
+    }
+
+    /**
+     * method to make sure arrays can hold a quiz question
+     * @param questionIndex is the index of the QuizQuestion
+     */
+    private void ensureCapacity(int questionIndex) {
+        if (questionIndex >= isCorrect.length) {
+            int capacity = Math.max(questionIndex + 1, isCorrect.length * 2);
+            isCorrect = Arrays.copyOf(isCorrect, capacity);
+            isPending = Arrays.copyOf(isPending, capacity);
+            pendingIndexes = Arrays.copyOf(pendingIndexes, capacity);
+        }
+    }
+}
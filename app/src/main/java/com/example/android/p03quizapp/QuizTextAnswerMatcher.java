@@ -0,0 +1,385 @@
+package com.example.android.p03quizapp;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * class to check text answers against the accepted answers of a text question, compiled once when
+ * the quiz question is added to its QuizBank. Texts are compared normalized:
+ * - letter case is ignored
+ * - leading and trailing whitespace is dropped, any run of whitespace inside counts as a single space
+ * so "gogh", " Gogh " and "GOGH" all match the accepted answer "Gogh".
+ *
+ * Accepted answers may also be matched within a small edit distance - characters inserted, deleted
+ * or replaced - to forgive typos, e.g. "Gog" or "Pensylvania" at an edit distance of 1.
+ *
+ * Accepted answers are kept in a hash table keyed by a polynomial hash of the normalized text. To
+ * match within an edit distance of k, every text k or fewer characters shorter than an accepted
+ * answer is keyed too: two texts are within distance k if deleting at most k characters from each
+ * gives the same text. Checking an answer then hashes the text given and its own deletions - the
+ * hash of a deletion is derived from prefix hashes without building the text - and compares it to
+ * the few accepted answers found under those hashes. The work done depends on the length of the
+ * text given, linear for an edit distance of 0 or 1 and quadratic for 2, not on the number of
+ * accepted answers, and nothing is allocated once the scratch buffers of the thread are large
+ * enough.
+ *
+ * QuizTextAnswerMatcher objects never change once built, so they may be used on any thread.
+ */
+
+final class QuizTextAnswerMatcher implements QuizAnswerMatcher {
+    //  maximum number of accepted answers of a text question
+    static final int MAX_VARIANTS = 1024;
+    //  maximum edit distance, the number of deletions keyed grows quickly with it
+    static final int MAX_EDIT_DISTANCE = 2;
+
+    //  multiplier of the polynomial hash. Hashes are computed modulo 2^64, so hashes of deletions
+    //  can be derived from prefix hashes by multiplication and addition only
+    private static final long HASH_MULTIPLIER = 0x100000001B3L;
+    //  entry index meaning no entry
+    private static final int NO_ENTRY = -1;
+
+    //  scratch buffers of the thread checking an answer, grown to the longest text checked
+    private static final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+        @Override
+        protected Scratch initialValue() {
+            return new Scratch();
+        }
+    };
+
+    //  normalized accepted answers, duplicates removed
+    private final char[][] variants;
+    private final int maxEditDistance;
+    //  shortest and longest normalized accepted answer, texts far outside are not looked up
+    private final int minLength;
+    private final int maxLength;
+
+    //  open addressing hash table, a slot per distinct hash. Entries of a slot - accepted answers
+    //  keyed by the hash - are chained by entryNext
+    private final int slotMask;
+    private final long[] slotHashes;
+    private final int[] slotEntries;
+    private final int[] entryVariants;
+    private final int[] entryNext;
+
+    /**
+     * class to hold the buffers of a thread checking answers
+     */
+    private static final class Scratch {
+        private char[] chars = new char[0];
+        private long[] prefixHashes = new long[1];
+        private long[] powers = new long[1];
+        //  two rows of edit distances
+        private int[] distances = new int[0];
+
+        /**
+         * method to make room for texts of a length
+         * @param length is the length of the longest text to be normalized
+         */
+        void ensureCapacity(int length) {
+            if (chars.length < length) {
+                chars = new char[length];
+                prefixHashes = new long[length + 1];
+                powers = new long[length + 1];
+                distances = new int[2 * (length + 1)];
+            }
+        }
+    }
+
+    /**
+     * constructor for QuizTextAnswerMatcher object
+     * @param answers are the accepted answers, nulls and answers of whitespace only are ignored
+     * @param maxEditDistance is the number of characters that may differ, from 0 to MAX_EDIT_DISTANCE
+     */
+    QuizTextAnswerMatcher(List<String> answers, int maxEditDistance) {
+        if (maxEditDistance < 0 || maxEditDistance > MAX_EDIT_DISTANCE)
+            throw new IllegalArgumentException("Edit distance " + maxEditDistance + " is not between 0 and "
+                    + MAX_EDIT_DISTANCE);
+        if (answers.size() > MAX_VARIANTS)
+            throw new IllegalArgumentException("More than " + MAX_VARIANTS + " accepted answers");
+        this.maxEditDistance = maxEditDistance;
+
+        LinkedHashSet<String> normalizedAnswers = new LinkedHashSet<>();
+        for (String answer : answers) {
+            String normalizedAnswer = answer == null ? "" : normalize(answer);
+            if (!normalizedAnswer.isEmpty())
+                normalizedAnswers.add(normalizedAnswer);
+        }
+        variants = new char[normalizedAnswers.size()][];
+        int minLength = Integer.MAX_VALUE;
+        int maxLength = 0;
+        int variantIndex = 0;
+        for (String normalizedAnswer : normalizedAnswers) {
+            variants[variantIndex++] = normalizedAnswer.toCharArray();
+            minLength = Math.min(minLength, normalizedAnswer.length());
+            maxLength = Math.max(maxLength, normalizedAnswer.length());
+        }
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+
+        //  key each accepted answer by its hash and by the hashes of its deletions, once per distinct text
+        long[] keyHashes = new long[Math.max(variants.length, 1)];
+        int[] keyVariants = new int[keyHashes.length];
+        int keyCount = 0;
+        HashSet<String> deletions = new HashSet<>();
+        for (int i = 0; i < variants.length; i++) {
+            deletions.clear();
+            addDeletions(new String(variants[i]), maxEditDistance, deletions);
+            if (keyCount + deletions.size() > keyHashes.length) {
+                int capacity = Math.max(keyHashes.length * 2, keyCount + deletions.size());
+                keyHashes = Arrays.copyOf(keyHashes, capacity);
+                keyVariants = Arrays.copyOf(keyVariants, capacity);
+            }
+            for (String deletion : deletions) {
+                keyHashes[keyCount] = hash(deletion);
+                keyVariants[keyCount++] = i;
+            }
+        }
+
+        //  at most half of the slots are used, so probe sequences stay short
+        int slotCount = Integer.highestOneBit(Math.max(keyCount, 1) * 2 - 1) * 2;
+        slotMask = slotCount - 1;
+        slotHashes = new long[slotCount];
+        slotEntries = new int[slotCount];
+        Arrays.fill(slotEntries, NO_ENTRY);
+        entryVariants = Arrays.copyOf(keyVariants, keyCount);
+        entryNext = new int[keyCount];
+        for (int entry = 0; entry < keyCount; entry++) {
+            int slot = findSlot(keyHashes[entry]);
+            slotHashes[slot] = keyHashes[entry];
+            entryNext[entry] = slotEntries[slot];
+            slotEntries[slot] = entry;
+        }
+    }
+
+    /**
+     * method to normalize a text the way answers are compared: lower case, no leading or trailing
+     * whitespace, a single space for any run of whitespace
+     * @param text is the text
+     * @return the normalized text
+     */
+    static String normalize(CharSequence text) {
+        char[] chars = new char[text.length()];
+        return new String(chars, 0, normalize(text, chars, chars.length));
+    }
+
+    /**
+     * method to get the number of characters accepted answers may differ in
+     * @return the edit distance, 0 for exact matches only
+     */
+    int getMaxEditDistance() {
+        return maxEditDistance;
+    }
+
+    /**
+     * method to get the number of distinct accepted answers, once normalized
+     * @return the number of accepted answers
+     */
+    int getVariantCount() {
+        return variants.length;
+    }
+
+    /**
+     * method to check a text given against the accepted answers
+     * @param text is the text given or null
+     * @return true if the normalized text is within the edit distance of an accepted answer
+     */
+    @Override
+    public boolean matches(CharSequence text) {
+        if (text == null || variants.length == 0)
+            return false;
+        Scratch buffers = scratch.get();
+        int lengthLimit = maxLength + maxEditDistance;
+        buffers.ensureCapacity(lengthLimit);
+        int length = normalize(text, buffers.chars, lengthLimit);
+        //  a blank answer is never correct, however short the accepted answers are
+        if (length <= 0 || length + maxEditDistance < minLength)
+            return false;
+
+        char[] chars = buffers.chars;
+        long[] prefixHashes = buffers.prefixHashes;
+        long[] powers = buffers.powers;
+        prefixHashes[0] = 0;
+        powers[0] = 1;
+        for (int i = 0; i < length; i++) {
+            prefixHashes[i + 1] = prefixHashes[i] * HASH_MULTIPLIER + chars[i];
+            powers[i + 1] = powers[i] * HASH_MULTIPLIER;
+        }
+
+        //  the text itself, then the text with one and two characters deleted
+        if (matchesEntries(prefixHashes[length], chars, length, buffers.distances))
+            return true;
+        if (maxEditDistance >= 1) {
+            for (int i = 0; i < length; i++) {
+                long deletionHash = prefixHashes[i] * powers[length - 1 - i]
+                        + hash(prefixHashes, powers, i + 1, length);
+                if (matchesEntries(deletionHash, chars, length, buffers.distances))
+                    return true;
+            }
+        }
+        if (maxEditDistance >= 2) {
+            for (int i = 0; i < length; i++) {
+                for (int j = i + 1; j < length; j++) {
+                    long deletionHash = prefixHashes[i] * powers[length - 2 - i]
+                            + hash(prefixHashes, powers, i + 1, j) * powers[length - 1 - j]
+                            + hash(prefixHashes, powers, j + 1, length);
+                    if (matchesEntries(deletionHash, chars, length, buffers.distances))
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * method to compare a text to the accepted answers keyed by a hash
+     * @param keyHash is the hash
+     * @param chars is the normalized text
+     * @param length is the length of the text
+     * @param distances is the scratch buffer of edit distances
+     * @return true if any of the accepted answers is within the edit distance of the text
+     */
+    private boolean matchesEntries(long keyHash, char[] chars, int length, int[] distances) {
+        int slot = findSlot(keyHash);
+        for (int entry = slotEntries[slot]; entry != NO_ENTRY; entry = entryNext[entry]) {
+            if (isWithinEditDistance(chars, length, variants[entryVariants[entry]], distances))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * method to find the slot of a hash: the slot holding it or the empty slot it would be added to
+     * @param keyHash is the hash
+     * @return the index of the slot
+     */
+    private int findSlot(long keyHash) {
+        int slot = (int) ((keyHash ^ (keyHash >>> 32)) * 0x9E3779B9L >>> 16) & slotMask;
+        while (slotEntries[slot] != NO_ENTRY && slotHashes[slot] != keyHash) {
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    /**
+     * method to check whether a text is within the edit distance of an accepted answer. Only the
+     * band of the distance table within the edit distance of its diagonal is computed, and it stops
+     * as soon as the whole band is beyond the edit distance
+     * @param chars is the normalized text
+     * @param length is the length of the text
+     * @param variant is the normalized accepted answer
+     * @param distances is the scratch buffer of edit distances, two rows of variant.length + 1
+     * @return true if the edit distance is at most maxEditDistance
+     */
+    private boolean isWithinEditDistance(char[] chars, int length, char[] variant, int[] distances) {
+        int variantLength = variant.length;
+        if (Math.abs(length - variantLength) > maxEditDistance)
+            return false;
+        if (maxEditDistance == 0) {
+            for (int i = 0; i < length; i++) {
+                if (chars[i] != variant[i])
+                    return false;
+            }
+            return true;
+        }
+
+        //  distances beyond the edit distance are all the same to us
+        int beyond = maxEditDistance + 1;
+        int previous = 0;
+        int current = variantLength + 1;
+        for (int j = 0; j <= variantLength; j++) {
+            distances[previous + j] = Math.min(j, beyond);
+        }
+        for (int i = 1; i <= length; i++) {
+            int from = Math.max(1, i - maxEditDistance);
+            int to = Math.min(variantLength, i + maxEditDistance);
+            distances[current] = Math.min(i, beyond);
+            int rowMin = from == 1 ? distances[current] : beyond;
+            if (from > 1)
+                distances[current + from - 1] = beyond;
+            for (int j = from; j <= to; j++) {
+                int distance = distances[previous + j - 1] + (chars[i - 1] == variant[j - 1] ? 0 : 1);
+                distance = Math.min(distance, distances[previous + j] + 1);
+                distance = Math.min(distance, distances[current + j - 1] + 1);
+                distances[current + j] = Math.min(distance, beyond);
+                rowMin = Math.min(rowMin, distances[current + j]);
+            }
+            if (to < variantLength)
+                distances[current + to + 1] = beyond;
+            if (rowMin > maxEditDistance)
+                return false;
+            int swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return distances[previous + variantLength] <= maxEditDistance;
+    }
+
+    /**
+     * method to normalize a text into a buffer
+     * @param text is the text
+     * @param chars is the buffer, at least lengthLimit long
+     * @param lengthLimit is the length of the longest normalized text of interest
+     * @return the length of the normalized text or -1 if longer than lengthLimit
+     */
+    private static int normalize(CharSequence text, char[] chars, int lengthLimit) {
+        int length = 0;
+        boolean isSpacePending = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                //  whitespace before the first character is dropped, the rest collapse into a space
+                isSpacePending = length > 0;
+                continue;
+            }
+            if (length + (isSpacePending ? 1 : 0) >= lengthLimit)
+                return -1;
+            if (isSpacePending) {
+                chars[length++] = ' ';
+                isSpacePending = false;
+            }
+            chars[length++] = Character.toLowerCase(Character.toUpperCase(c));
+        }
+        return length;
+    }
+
+    /**
+     * method to add a text and all texts made of it by deleting some characters
+     * @param text is the text
+     * @param deletionCount is the maximum number of characters deleted
+     * @param deletions is the set to add texts to
+     */
+    private static void addDeletions(String text, int deletionCount, HashSet<String> deletions) {
+        if (!deletions.add(text) || deletionCount == 0)
+            return;
+        for (int i = 0; i < text.length(); i++) {
+            addDeletions(text.substring(0, i) + text.substring(i + 1), deletionCount - 1, deletions);
+        }
+    }
+
+    /**
+     * method to compute the polynomial hash of a text
+     * @param text is the text
+     * @return the hash
+     */
+    private static long hash(String text) {
+        long hash = 0;
+        for (int i = 0; i < text.length(); i++) {
+            hash = hash * HASH_MULTIPLIER + text.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * method to compute the polynomial hash of a part of a text from its prefix hashes
+     * @param prefixHashes are the hashes of the first 0, 1, 2... characters of the text
+     * @param powers are the powers of HASH_MULTIPLIER
+     * @param start is the index of the first character of the part
+     * @param end is the index after the last character of the part
+     * @return the hash of the part
+     */
+    private static long hash(long[] prefixHashes, long[] powers, int start, int end) {
+        return prefixHashes[end] - prefixHashes[start] * powers[end - start];
+    }
+}
@@ -0,0 +1,396 @@
+package com.example.android.p03quizapp;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+import android.os.Process;
+import android.support.v4.content.ContextCompat;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.util.LruCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * class to lay out question and answer text of QuizQuestionViews ahead of time:
+ * - text layouts are kept in a size bounded LRU cache, keyed by text, width and style
+ * - layouts of a window of quiz questions around the one displayed are precomputed on a background
+ *   thread for the width QuizQuestionViews are displayed at, so binding a view as the list is
+ *   scrolled only needs cache lookups. Before any is displayed, the window is the first quiz
+ *   questions loaded. Windows are capped well below cache size, so layouts precomputed ahead do
+ *   not evict each other or the ones displayed, however large the quiz
+ * - when the width changes, e.g. on orientation change, layouts of the window are precomputed
+ *   for the new width, layouts for the old width stay in the cache until evicted
+ *
+ * Layouts are built with paints owned by the cache, which are never changed after construction,
+ * so layouts can be built on any thread and drawn on the UI thread. Widths of text within a
+ * QuizQuestionView are computed here, so precomputed layouts match the ones the view asks for.
+ *
+ * The cache is retained across configuration changes along with quiz data. getLayout methods
+ * and getStats may be called on any thread, the rest must be called on the UI thread.
+ */
+
+class QuizTextLayoutCache {
+    private String logTag = QuizTextLayoutCache.class.getSimpleName();
+
+    //  text styles
+    static final int STYLE_QUESTION = 0;
+    static final int STYLE_ANSWER = 1;
+
+    //  cache size, measured in characters of text laid out
+    private static final int CACHE_SIZE_CHARS = 256 * 1024;
+    //  number of quiz questions precomputed behind and ahead of the one displayed
+    private static final int PRECOMPUTE_BEHIND = 3;
+    private static final int PRECOMPUTE_AHEAD = 8;
+    //  characters of text precomputed per window at most
+    private static final int PRECOMPUTE_WINDOW_CHARS = CACHE_SIZE_CHARS / 4;
+
+    //  dimensions of QuizQuestionView in pixels
+    private int margin;
+    private int questionMargin;
+    private int headerImageSize;
+    private int indicatorSize;
+    private int indicatorGap;
+    //  paints per text style
+    private TextPaint[] paints = new TextPaint[2];
+    //  input instructions of choice questions
+    private String multipleChoiceInstruction;
+    private String singleChoiceInstruction;
+
+    //  text layouts, thread safe
+    private LruCache<LayoutKey, StaticLayout> layoutCache;
+    //  thread precomputing text layouts
+    private ExecutorService precomputeExecutor;
+    //  quiz questions about to be displayed, to precompute text layouts of
+    private ArrayList<QuizQuestion> window = new ArrayList<>();
+    //  characters of text of quiz questions in window
+    private int windowChars = 0;
+    //  true once a window is set around a quiz question displayed, see precomputeAround
+    private boolean isDisplaying = false;
+    //  quiz questions queued for precomputing, so moving the window does not queue them again
+    private Set<QuizQuestion> pendingQuizQuestions =
+            Collections.newSetFromMap(new ConcurrentHashMap<QuizQuestion, Boolean>());
+    //  width of QuizQuestionViews in pixels, 0 if not known yet
+    private int viewWidth = 0;
+    //  incremented when width changes, precomputing for an older width is abandoned
+    private AtomicInteger generation = new AtomicInteger();
+
+    //  statistics
+    private AtomicInteger hitCount = new AtomicInteger();
+    private AtomicInteger missCount = new AtomicInteger();
+    private AtomicInteger precomputeCount = new AtomicInteger();
+
+    /**
+     * constructor for QuizTextLayoutCache object
+     * @param context is the context to take resources from. Application context is used so that
+     *                the cache can be retained across configuration changes
+     */
+    QuizTextLayoutCache(Context context) {
+        Resources resources = context.getApplicationContext().getResources();
+        margin = resources.getDimensionPixelSize(R.dimen.activity_horizontal_margin);
+        questionMargin = resources.getDimensionPixelSize(R.dimen.quiz_question_horizontal_margin);
+        headerImageSize = resources.getDimensionPixelSize(R.dimen.quiz_header_picture_size);
+        indicatorSize = resources.getDimensionPixelSize(R.dimen.quiz_choice_indicator_size);
+        indicatorGap = resources.getDimensionPixelSize(R.dimen.quiz_choice_indicator_gap);
+        multipleChoiceInstruction = resources.getString(R.string.check_all_answer_that_apply);
+        singleChoiceInstruction = resources.getString(R.string.pick_one_answer);
+
+        int textColor = ContextCompat.getColor(context.getApplicationContext(), R.color.quizText);
+        TextPaint questionPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        questionPaint.setTextSize(resources.getDimension(R.dimen.quiz_question_text_size));
+        questionPaint.setTypeface(Typeface.DEFAULT_BOLD);
+        questionPaint.setColor(textColor);
+        paints[STYLE_QUESTION] = questionPaint;
+        TextPaint answerPaint = new TextPaint(Paint.ANTI_ALIAS_FLAG);
+        answerPaint.setTextSize(resources.getDimension(R.dimen.quiz_answer_text_size));
+        answerPaint.setColor(textColor);
+        paints[STYLE_ANSWER] = answerPaint;
+
+        layoutCache = new LruCache<LayoutKey, StaticLayout>(CACHE_SIZE_CHARS) {
+            @Override
+            protected int sizeOf(LayoutKey key, StaticLayout layout) {
+                return Math.max(1, key.text.length());
+            }
+        };
+
+        precomputeExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }
+                }, logTag);
+            }
+        });
+    }
+
+    /**
+     * method to get the question layout of a QuizQuestionView, laid out next to the header image if any
+     * @param question is the question text
+     * @param hasHeaderImage is true if the quiz question has a header image
+     * @param viewWidth is the width of the QuizQuestionView in pixels
+     * @return the layout
+     */
+    StaticLayout getQuestionLayout(CharSequence question, boolean hasHeaderImage, int viewWidth) {
+        return getLayout(question, STYLE_QUESTION, viewWidth - getQuestionLeft(hasHeaderImage) - margin);
+    }
+
+    /**
+     * method to get the input instruction layout of a QuizQuestionView
+     * @param isMultipleChoice is true for checkboxes, false for radio buttons
+     * @param viewWidth is the width of the QuizQuestionView in pixels
+     * @return the layout
+     */
+    StaticLayout getInstructionLayout(boolean isMultipleChoice, int viewWidth) {
+        return getLayout(isMultipleChoice ? multipleChoiceInstruction : singleChoiceInstruction,
+                STYLE_ANSWER, viewWidth - 2 * margin);
+    }
+
+    /**
+     * method to get the layout of an answer next to its choice indicator in a QuizQuestionView
+     * @param answer is the answer text
+     * @param viewWidth is the width of the QuizQuestionView in pixels
+     * @return the layout
+     */
+    StaticLayout getAnswerLayout(CharSequence answer, int viewWidth) {
+        return getLayout(answer, STYLE_ANSWER, viewWidth - 2 * margin - indicatorSize - indicatorGap);
+    }
+
+    /**
+     * method to get the horizontal position of the question within a QuizQuestionView
+     * @param hasHeaderImage is true if the quiz question has a header image
+     * @return the left edge of the question in pixels
+     */
+    int getQuestionLeft(boolean hasHeaderImage) {
+        return hasHeaderImage ? margin + headerImageSize + questionMargin : margin;
+    }
+
+    /**
+     * method to get a text layout from cache, lay out the text and cache the layout if not cached yet
+     * @param text is the text, null for none
+     * @param style is the text style, see STYLE_ constants
+     * @param width is the width available in pixels
+     * @return the layout
+     */
+    StaticLayout getLayout(CharSequence text, int style, int width) {
+        LayoutKey key = new LayoutKey(text == null ? "" : text.toString(), style, Math.max(width, 0));
+        StaticLayout layout = layoutCache.get(key);
+        if (layout != null) {
+            hitCount.incrementAndGet();
+            return layout;
+        }
+        missCount.incrementAndGet();
+        layout = newLayout(key);
+        layoutCache.put(key, layout);
+        return layout;
+    }
+
+    /**
+     * method to precompute the text layouts of the first quiz questions loaded, until one is displayed
+     * @param newQuizQuestions is the collection of QuizQuestion objects
+     */
+    void addQuizQuestions(Collection<QuizQuestion> newQuizQuestions) {
+        for (QuizQuestion quizQuestion : newQuizQuestions) {
+            addQuizQuestion(quizQuestion);
+        }
+    }
+
+    /**
+     * method to precompute the text layouts of a quiz question just loaded for the current width,
+     * and for widths set later, as long as it is within the first window: the first quiz questions
+     * are displayed before any is bound. Only choice questions are displayed by QuizQuestionViews,
+     * others are ignored
+     * @param quizQuestion is the QuizQuestion object
+     */
+    void addQuizQuestion(QuizQuestion quizQuestion) {
+        if (isDisplaying || window.size() >= PRECOMPUTE_AHEAD)
+            return;
+        addToWindow(quizQuestion);
+    }
+
+    /**
+     * method to precompute the text layouts of quiz questions around the one displayed, e.g. when
+     * it is bound to a view, for the current width and for widths set later. Quiz questions ahead
+     * come first, they are the ones scrolled to next
+     * @param quizQuestions are the QuizQuestion objects of the list displayed
+     * @param index is the index of the QuizQuestion displayed
+     */
+    void precomputeAround(List<QuizQuestion> quizQuestions, int index) {
+        isDisplaying = true;
+        window.clear();
+        windowChars = 0;
+        int endIndex = Math.min(index + 1 + PRECOMPUTE_AHEAD, quizQuestions.size());
+        for (int i = index + 1; i < endIndex; i++) {
+            if (!addToWindow(quizQuestions.get(i)))
+                return;
+        }
+        for (int i = index - 1; i >= Math.max(index - PRECOMPUTE_BEHIND, 0); i--) {
+            if (!addToWindow(quizQuestions.get(i)))
+                return;
+        }
+    }
+
+    /**
+     * method to add a quiz question to the window and queue it for precomputing, unless the window is full
+     * @param quizQuestion is the QuizQuestion object, ignored unless displayed by QuizQuestionViews
+     * @return false if the window is full
+     */
+    private boolean addToWindow(QuizQuestion quizQuestion) {
+        if (!(QuizInputTypeRegistry.get(quizQuestion.getInputTypeCode()) instanceof QuizInputTypeChoice))
+            return true;
+        int chars = getTextLength(quizQuestion);
+        if (windowChars + chars > PRECOMPUTE_WINDOW_CHARS)
+            return false;
+        window.add(quizQuestion);
+        windowChars += chars;
+        if (viewWidth > 0 && pendingQuizQuestions.add(quizQuestion))
+            precomputeExecutor.execute(new PrecomputeTask(quizQuestion, viewWidth, generation.get()));
+        return true;
+    }
+
+    /**
+     * method to set the width QuizQuestionViews are displayed at, e.g. when the list holding them
+     * is laid out. Text layouts of the window are precomputed for the new width
+     * @param viewWidth is the width of QuizQuestionViews in pixels
+     */
+    void setViewWidth(int viewWidth) {
+        if (viewWidth <= 0 || viewWidth == this.viewWidth)
+            return;
+        this.viewWidth = viewWidth;
+        int currentGeneration = generation.incrementAndGet();
+        pendingQuizQuestions.clear();
+        for (QuizQuestion quizQuestion : window) {
+            pendingQuizQuestions.add(quizQuestion);
+            precomputeExecutor.execute(new PrecomputeTask(quizQuestion, viewWidth, currentGeneration));
+        }
+    }
+
+    /**
+     * method to stop precomputing and release cached layouts
+     */
+    void shutdown() {
+        precomputeExecutor.shutdownNow();
+        window.clear();
+        pendingQuizQuestions.clear();
+        layoutCache.evictAll();
+    }
+
+    /**
+     * method to get statistics on the cache, e.g. to be logged
+     * @return human readable statistics
+     */
+    String getStats() {
+        return String.format(Locale.US,
+                "precomputed %d text layouts; cache hits %d, misses %d; cache holds %d of %d characters",
+                precomputeCount.get(), hitCount.get(), missCount.get(), layoutCache.size(), layoutCache.maxSize());
+    }
+
+    /**
+     * method to count the characters of text of a quiz question, as counted by the cache
+     * @param quizQuestion is the QuizQuestion object
+     * @return the number of characters of question and answers
+     */
+    private static int getTextLength(QuizQuestion quizQuestion) {
+        int length = Math.max(1, quizQuestion.getQuestion() == null ? 0 : quizQuestion.getQuestion().length());
+        for (int i = 0; i < quizQuestion.size(); i++) {
+            length += Math.max(1, quizQuestion.getAnswer(i) == null ? 0 : quizQuestion.getAnswer(i).length());
+        }
+        return length;
+    }
+
+    /**
+     * method to lay out text
+     * @param key is the text, style and width
+     * @return the layout
+     */
+    private StaticLayout newLayout(LayoutKey key) {
+        return new StaticLayout(key.text, paints[key.style], key.width,
+                Layout.Alignment.ALIGN_NORMAL, 1f, 0f, false);
+    }
+
+    /**
+     * class to lay out the text of a quiz question on the background thread, unless the width
+     * has changed since queued
+     */
+    private class PrecomputeTask implements Runnable {
+        private QuizQuestion quizQuestion;
+        private int viewWidth;
+        private int taskGeneration;
+
+        PrecomputeTask(QuizQuestion quizQuestion, int viewWidth, int taskGeneration) {
+            this.quizQuestion = quizQuestion;
+            this.viewWidth = viewWidth;
+            this.taskGeneration = taskGeneration;
+        }
+
+        @Override
+        public void run() {
+            if (generation.get() != taskGeneration)
+                return;
+            pendingQuizQuestions.remove(quizQuestion);
+            precompute(quizQuestion.getQuestion(), STYLE_QUESTION,
+                    viewWidth - getQuestionLeft(quizQuestion.getHeaderImageResId() > 0) - margin);
+            int answerWidth = viewWidth - 2 * margin - indicatorSize - indicatorGap;
+            for (int i = 0; i < quizQuestion.size(); i++) {
+                precompute(quizQuestion.getAnswer(i), STYLE_ANSWER, answerWidth);
+            }
+        }
+
+        /**
+         * method to lay out text and cache the layout, unless already cached
+         * @param text is the text, null for none
+         * @param style is the text style
+         * @param width is the width available in pixels
+         */
+        private void precompute(CharSequence text, int style, int width) {
+            LayoutKey key = new LayoutKey(text == null ? "" : text.toString(), style, Math.max(width, 0));
+            if (layoutCache.get(key) == null) {
+                layoutCache.put(key, newLayout(key));
+                precomputeCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * class to key text layouts by text, style and width
+     */
+    private static final class LayoutKey {
+        private final String text;
+        private final int style;
+        private final int width;
+
+        LayoutKey(String text, int style, int width) {
+            this.text = text;
+            this.style = style;
+            this.width = width;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof LayoutKey))
+                return false;
+            LayoutKey key = (LayoutKey) other;
+            return width == key.width && style == key.style && text.equals(key.text);
+        }
+
+        @Override
+        public int hashCode() {
+            return (text.hashCode() * 31 + width) * 31 + style;
+        }
+    }
+}
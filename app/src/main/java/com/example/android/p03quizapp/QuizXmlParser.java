@@ -1,20 +1,20 @@
 package com.example.android.p03quizapp;
 
-import android.app.Activity;
-import android.content.res.Resources;
+import android.content.Context;
 import android.content.res.XmlResourceParser;
-import android.util.Log;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 
 /**
  * Created by bivanbi on 2017.02.23..
  *
- * class to parse xml resource containing quiz data into ArrayList of QuizQuestion objects
+ * class to parse XML quiz data into QuizQuestion objects
  *
  * XML should be structured like this:
  *  <quizquestions>
@@ -30,139 +30,447 @@ import java.util.ArrayList;
  *
  *      (...)
  *  </quizquestions>
+ *
+ * Choice questions - Radio, Checkbox - have at most QuizAnswerStore.MAX_CHOICES answers. Text
+ * questions - EditText - list the accepted spellings of the answer, at most
+ * QuizTextAnswerMatcher.MAX_VARIANTS of them, all correct beyond the first MAX_CHOICES. Text answers
+ * are matched ignoring case and extra whitespace; to forgive typos too, give the number of
+ * characters that may differ:
+ *          <input_type max_edit_distance="1">EditText</input_type>
+ *
+ * Numeric questions list accepted numbers, parsed into doubles once when the quiz question is added
+ * to its QuizBank, so "2.0" or "+2" match "2". A tolerance widens every accepted number, a range of
+ * min to max accepts any number within:
+ *          <input_type tolerance="0.005">Numeric</input_type>
+ *          <input_type min="3" max="4">Numeric</input_type>
+ *
+ * A QuizXmlParser object reads quiz questions one by one from any XmlPullParser - compiled
+ * resources, files, assets, gzip streams - so a quiz bank of any size is walked in constant memory:
+ *
+ *      QuizXmlParser quizXmlParser = QuizXmlParser.fromInputStream(inputStream, null, null);
+ *      QuizQuestion quizQuestion;
+ *      while ((quizQuestion = quizXmlParser.next()) != null) {
+ *          (...)
+ *      }
+ *
+ * The parser itself depends on no Android class but XmlPullParser, so it can also run on a plain JVM
+ * with an XmlPullParser implementation such as kxml2. Header image names are turned into resource ids
+ * by a HeaderImageResolver, e.g. QuizResourceImageResolver; without one, resource ids are left 0.
+ *
+ * To look at a quiz question before deciding whether it is needed, e.g. when sampling, call advance()
+ * and the getCurrent... methods; createQuizQuestion() then builds the QuizQuestion object only if asked.
+ *
+ * Static parse methods build the whole ArrayList of QuizQuestion objects of an XML resource, backed by
+ * compact QuizBank objects; to build a QuizBank of a custom selection use addCurrentQuizQuestion.
+ *
+ * There is no static state: errors are reported to the caller by exceptions, so any number of
+ * QuizXmlParser objects may be used on different threads at the same time.
  */
 
 class QuizXmlParser {
-    //  hold the last error message so calling method can include it in its error messages
-    private static String lastErrorMessage = "";
+    /**
+     * interface to receive QuizQuestion objects one by one, as soon as they are parsed,
+     * so the caller need not wait for the whole document to be read
+     */
+    interface OnQuizQuestionParsedListener {
+        /**
+         * method called when the closing </quizquestion> tag is reached
+         * @param quizQuestion is the QuizQuestion object just parsed
+         */
+        void onQuizQuestionParsed(QuizQuestion quizQuestion);
+    }
+
+    /**
+     * interface to turn header image names given in quiz data into drawable resource ids
+     */
+    interface HeaderImageResolver {
+        /**
+         * method to look up the resource id of a header image
+         * @param headerImageName is the drawable resource name
+         * @return the resource id or 0 if there is no such drawable
+         */
+        int getHeaderImageResId(String headerImageName);
+    }
+
+    /**
+     * exception thrown when XML is well formed but is not valid quiz data
+     */
+    static class QuizDataException extends XmlPullParserException {
+        QuizDataException(String message) {
+            super(message);
+        }
+    }
+
+    //  XmlPullParser reading quiz data
+    private XmlPullParser xmlParser;
+    //  resolver of header image names, null to leave resource ids 0
+    private HeaderImageResolver headerImageResolver;
+    //  tag "stack" of the current position, to know which tag text belongs to and to detect XML errors
+    private ArrayList<String> xmlTagStack = new ArrayList<>();
+    //  index of the current quiz question, -1 before the first one
+    private int currentIndex = -1;
+    //  true once the end of document is reached
+    private boolean isFinished = false;
+
+    //  fields of the current quiz question as read from XML. They are reused for every quiz question,
+    //  so no objects but Strings are created until createQuizQuestion is called
+    private String currentHeaderImageName;
+    private String currentQuestion;
+    private String currentInputType;
+    private ArrayList<String> currentAnswers = new ArrayList<>();
+    private long currentCorrectAnswerMask;
+    //  true if an answer beyond the bits of the correct answer mask is not correct
+    private boolean hasIncorrectAnswerBeyondMask;
+    private int currentMaxEditDistance;
+    private double currentNumericTolerance;
+    private double currentNumericMinimum;
+    private double currentNumericMaximum;
+
+    /**
+     * constructor for QuizXmlParser object
+     * @param xmlParser is the XmlPullParser positioned at the start of the document
+     * @param headerImageResolver is the resolver of header image names or null
+     */
+    QuizXmlParser(XmlPullParser xmlParser, HeaderImageResolver headerImageResolver) {
+        this.xmlParser = xmlParser;
+        this.headerImageResolver = headerImageResolver;
+    }
+
+    /**
+     * method to create a QuizXmlParser object reading an InputStream, e.g. a file or a gzip stream
+     * @param inputStream is the stream of XML quiz data, it is not closed
+     * @param inputEncoding is the encoding of the stream or null to detect it
+     * @param headerImageResolver is the resolver of header image names or null
+     * @return the QuizXmlParser object
+     * @throws XmlPullParserException if no XmlPullParser implementation is available
+     */
+    static QuizXmlParser fromInputStream(InputStream inputStream, String inputEncoding,
+                                         HeaderImageResolver headerImageResolver)
+            throws XmlPullParserException
+    {
+        XmlPullParser xmlParser = XmlPullParserFactory.newInstance().newPullParser();
+        xmlParser.setInput(inputStream, inputEncoding);
+        return new QuizXmlParser(xmlParser, headerImageResolver);
+    }
+
+    /**
+     * method to parse XML resource into ArrayList of QuizQuestion objects
+     * declared as static so it need not be instantiated
+     * @param context is the context to take resources from
+     * @param xmlResourceId is the resource id of XML resource to be parsed
+     * @return ArrayList of QuizQuestion objects
+     * @throws QuizDataException if XML is well formed, but not valid quiz data
+     * @throws XmlPullParserException if XML is malformed
+     * @throws IOException
+     */
+    static ArrayList<QuizQuestion> parse(Context context, int xmlResourceId)
+            throws XmlPullParserException, IOException
+    {
+        return parse(context, xmlResourceId, null);
+    }
 
     /**
-     * method to parse XML data into ArrayList of QuizQuestion objects
+     * method to parse XML resource into ArrayList of QuizQuestion objects and publish each
+     * QuizQuestion to a listener as soon as it is parsed.
      * declared as static so it need not be instantiated
-     * @param activity is the calling activity
+     * @param context is the context to take resources from
      * @param xmlResourceId is the resource id of XML resource to be parsed
-     * @return null if parse error is occurred or ArrayList of objects if successful
-     * @throws XmlPullParserException
+     * @param listener is notified of every QuizQuestion parsed, may be null
+     * @return ArrayList of QuizQuestion objects
+     * @throws QuizDataException if XML is well formed, but not valid quiz data
+     * @throws XmlPullParserException if XML is malformed
+     * @throws IOException
+     */
+    static ArrayList<QuizQuestion> parse(Context context, int xmlResourceId,
+                                         OnQuizQuestionParsedListener listener)
+            throws XmlPullParserException, IOException
+    {
+        XmlResourceParser quizDataXmlParser = context.getResources().getXml(xmlResourceId);
+        try {
+            return parse(new QuizXmlParser(quizDataXmlParser, new QuizResourceImageResolver(context)), listener);
+        } finally {
+            quizDataXmlParser.close();
+        }
+    }
+
+    /**
+     * method to read all quiz questions of a QuizXmlParser into ArrayList of QuizQuestion objects
+     * and publish each QuizQuestion to a listener as soon as its closing </quizquestion> tag is read.
+     * All quiz questions are backed by a single QuizBank, growing while they are published, so
+     * strings repeated all over the document are stored once
+     * @param quizXmlParser is the QuizXmlParser positioned at the start of the document
+     * @param listener is notified of every QuizQuestion parsed, may be null
+     * @return ArrayList of QuizQuestion objects
+     * @throws QuizDataException if XML is well formed, but not valid quiz data
+     * @throws XmlPullParserException if XML is malformed
      * @throws IOException
      */
-    static ArrayList<QuizQuestion> parse(Activity activity, int xmlResourceId)
+    static ArrayList<QuizQuestion> parse(QuizXmlParser quizXmlParser, OnQuizQuestionParsedListener listener)
             throws XmlPullParserException, IOException
     {
-        String logTag = QuizXmlParser.class.getSimpleName();
-        Resources resources = activity.getResources();
-        //  create an xml parser for res/xml/quiz_data.xml
-        XmlResourceParser quizDataXmlParser = resources.getXml(R.xml.quiz_data);
-        //  arraylist to hold tag "stack"
-        ArrayList<String> xmlTagStack = new ArrayList<>();
-        //  arraylist to hold QuizQuestion objects to parse XML data into
+        QuizBank.Builder quizBankBuilder = new QuizBank.Builder();
+        if (listener == null) {
+            while (quizXmlParser.advance()) {
+                quizXmlParser.addCurrentQuizQuestion(quizBankBuilder);
+            }
+            return quizBankBuilder.build().getQuizQuestions();
+        }
+
+        //  quiz questions are views of the QuizBank being built, indexed by their position within it
         ArrayList<QuizQuestion> quizQuestions = new ArrayList<>();
-        //  current QuizQuestion object we are parsing XML data into
-        QuizQuestion currentQuestion = null;
+        while (quizXmlParser.advance()) {
+            QuizQuestion quizQuestion =
+                    quizBankBuilder.getQuizQuestion(quizXmlParser.addCurrentQuizQuestion(quizBankBuilder));
+            quizQuestions.add(quizQuestion);
+            listener.onQuizQuestionParsed(quizQuestion);
+        }
+        //  trim the arrays of the QuizBank backing the quiz questions published
+        quizBankBuilder.build();
+        return quizQuestions;
+    }
+
+    /**
+     * method to read the next quiz question. Only the XML of that quiz question is read
+     * @return the QuizQuestion object or null if the end of document is reached
+     * @throws QuizDataException if XML is well formed, but not valid quiz data
+     * @throws XmlPullParserException if XML is malformed
+     * @throws IOException
+     */
+    QuizQuestion next() throws XmlPullParserException, IOException {
+        return advance() ? createQuizQuestion() : null;
+    }
+
+    /**
+     * method to read the next quiz question without creating a QuizQuestion object for it.
+     * Its fields can be inspected with the getCurrent... methods
+     * @return true if a quiz question is read, false if the end of document is reached
+     * @throws QuizDataException if XML is well formed, but not valid quiz data
+     * @throws XmlPullParserException if XML is malformed
+     * @throws IOException
+     */
+    boolean advance() throws XmlPullParserException, IOException {
+        if (isFinished)
+            return false;
+
+        //  true while inside a <quizquestion> tag
+        boolean isInQuestion = false;
         //  hold the parse attribute "correct" for <answer> tag
         boolean isCurrentAnswerCorrect = false;
 
-        //  step to the first "event" in XML parsing and get event type for while() loop
-        quizDataXmlParser.next();
-        int eventType = quizDataXmlParser.getEventType();
-
-        //  parse XML till "END_DOCUMENT" is reached
-        while (eventType != XmlPullParser.END_DOCUMENT)
+        //  parse XML till the end of a quiz question or "END_DOCUMENT" is reached
+        int eventType;
+        while ((eventType = xmlParser.next()) != XmlPullParser.END_DOCUMENT)
         {
-            //  begin document. Not used, just log it.
-            if(eventType == XmlPullParser.START_DOCUMENT)
-            {
-                Log.d(logTag,"Begin Document");
-            }
             //  reached an opening tag
-            else if(eventType == XmlPullParser.START_TAG)
+            if (eventType == XmlPullParser.START_TAG)
             {
-                //  get tag name
-                String tagName = quizDataXmlParser.getName();
-                //  and add it to tag stack so it can be retrieved later and also to detect XML errors
+                //  get tag name and add it to tag stack so it can be retrieved later and also to detect XML errors
+                String tagName = xmlParser.getName();
                 xmlTagStack.add(tagName);
-                Log.d(logTag,"Begin Tag "+tagName+", depth: "+xmlTagStack.size());
-                Log.d(logTag,"Tag "+tagName+" has "+quizDataXmlParser.getAttributeCount()+" attribute(s)");
 
-                // this is the beginning of a quiz question tag so create a new QuizQuestion object
-                if (tagName.equals("quizquestion")){
-                    currentQuestion = new QuizQuestion();
+                // this is the beginning of a quiz question tag so forget the previous quiz question
+                if (tagName.equals("quizquestion")) {
+                    isInQuestion = true;
+                    currentHeaderImageName = null;
+                    currentQuestion = null;
+                    currentInputType = null;
+                    currentAnswers.clear();
+                    currentCorrectAnswerMask = 0;
+                    hasIncorrectAnswerBeyondMask = false;
+                    currentMaxEditDistance = 0;
+                    currentNumericTolerance = 0;
+                    currentNumericMinimum = Double.NaN;
+                    currentNumericMaximum = Double.NaN;
+                }
+                //  this is an answer tag, make a note of its "correct" attribute for later use
+                else if (tagName.equals("answer")) {
+                    isCurrentAnswerCorrect = Boolean.parseBoolean(xmlParser.getAttributeValue(null, "correct"));
                 }
-                //  this is an answer tag, so add it to QuizQuestion Object
-                else if(tagName.equals("answer"))
-                {
-                    //  make a note of the "correct" attribute of <answer> tag for later use
-                    isCurrentAnswerCorrect = quizDataXmlParser.getAttributeBooleanValue(null,"correct",false);
-                    if (isCurrentAnswerCorrect == true) {
-                        Log.d(logTag, "Tag " + tagName + " has attribute correct = true");
-                    }
-                    else
-                    {
-                        Log.d(logTag, "Tag " + tagName + " has attribute correct = false");
-                    }
+                //  input type tag, make a note of the edit distance allowed for text answers and of the
+                //  tolerance and range of numeric answers
+                else if (tagName.equals("input_type")) {
+                    currentMaxEditDistance =
+                            parseMaxEditDistance(xmlParser.getAttributeValue(null, "max_edit_distance"));
+                    currentNumericTolerance = parseNumberAttribute("tolerance", 0);
+                    currentNumericMinimum = parseNumberAttribute("min", Double.NaN);
+                    currentNumericMaximum = parseNumberAttribute("max", Double.NaN);
                 }
             }
             //  end tag
-            else if(eventType == XmlPullParser.END_TAG)
+            else if (eventType == XmlPullParser.END_TAG)
             {
-                String tagName = quizDataXmlParser.getName();
-                if (xmlTagStack.size() < 1)
-                {
-                    lastErrorMessage = "Error 101: encountered END_TAG "+quizDataXmlParser.getName()+" while TagStack is empty";
-                    Log.e(logTag, lastErrorMessage);
-                    return null;
-                }
-                xmlTagStack.remove(xmlTagStack.size()-1);
-                Log.d(logTag,"End Tag "+quizDataXmlParser.getName()+", depth: "+xmlTagStack.size());
+                if (xmlTagStack.isEmpty())
+                    throw new QuizDataException("Error 101: encountered END_TAG " + xmlParser.getName()
+                            + " while TagStack is empty");
+                String tagName = xmlTagStack.remove(xmlTagStack.size() - 1);
 
-                //  reached the end of a quizquestion definition, so add object to the array
-                if (tagName.equals("quizquestion")){
-                    if (currentQuestion != null)
-                        quizQuestions.add(currentQuestion);
-                    currentQuestion = null;
+                //  reached the end of a quizquestion definition
+                if (tagName.equals("quizquestion") && isInQuestion) {
+                    checkCurrentAnswers();
+                    currentIndex++;
+                    return true;
                 }
             }
-            //  text between tag begin and end - question, answers, input type
-            else if(eventType == XmlPullParser.TEXT)
+            //  text between tag begin and end - question, answers, input type.
+            //  Text outside a quiz question, e.g. whitespace between tags, is ignored
+            else if (eventType == XmlPullParser.TEXT && isInQuestion && !xmlTagStack.isEmpty())
             {
-                //  read current tag name from tag stack
-                String currentTag = xmlTagStack.get(xmlTagStack.size()-1);
-                //  get tag text from parser
-                String text = quizDataXmlParser.getText();
-                Log.d(logTag,"Text: "+text+", current tag: "+currentTag+", depth: "+xmlTagStack.size());
-
-                //  check if QuizQuestion object is present. If not, either XML or our parser code has errors.
-                if (currentQuestion == null) {
-                    Log.e(logTag,"currentQuestion is not initialized! text: "+text+", current tag: "+currentTag+", depth: "+xmlTagStack.size());
-                    continue;
-                }
+                processText(xmlTagStack.get(xmlTagStack.size() - 1), xmlParser.getText(), isCurrentAnswerCorrect);
+            }
+        }
+        isFinished = true;
+        return false;
+    }
 
-                //  process current tag - add information to QuizQuestion object
-                switch (currentTag){
-                    case "header_image_src":
-                        int drawableResourceId = activity.getResources()
-                                .getIdentifier(text, "drawable", activity.getPackageName());
-                        currentQuestion.setHeaderImageResId(drawableResourceId);
-                        break;
-                    case "question":
-                        currentQuestion.setQuestion(text);
-                        break;
-                    case "answer":
-                        currentQuestion.addAnswer(text, isCurrentAnswerCorrect);
-                        break;
-                    case "input_type":
-                        currentQuestion.setInputType(text);
-                        break;
-                    default:
-                        //  unknown tag encountered
-                        Log.e(logTag,"Unexpected tag "+currentTag+" with text: "+text
-                                +", depth: "+xmlTagStack.size());
-                        break;
-                }
+    /**
+     * method to get the input type of the quiz question last read by advance()
+     * @return the input type string or null if not given
+     */
+    String getCurrentInputType() {
+        return currentInputType;
+    }
+
+    /**
+     * method to get the header image name of the quiz question last read by advance()
+     * @return the drawable resource name or null if there is no header image
+     */
+    String getCurrentHeaderImageName() {
+        return currentHeaderImageName;
+    }
+
+    /**
+     * method to create the QuizQuestion object of the quiz question last read by advance(),
+     * backed by a QuizBank of its own
+     * @return new QuizQuestion object, its index set to the position of quiz question in the document
+     */
+    QuizQuestion createQuizQuestion() {
+        QuizBank.Builder quizBankBuilder = new QuizBank.Builder(1);
+        addCurrentQuizQuestion(quizBankBuilder);
+        QuizQuestion quizQuestion = quizBankBuilder.build().getQuizQuestion(0);
+        quizQuestion.setIndex(currentIndex);
+        return quizQuestion;
+    }
+
+    /**
+     * method to add the quiz question last read by advance() to a QuizBank being built
+     * @param quizBankBuilder is the QuizBank.Builder to add to
+     * @return index of the quiz question within the bank
+     */
+    int addCurrentQuizQuestion(QuizBank.Builder quizBankBuilder) {
+        int headerImageResId = 0;
+        if (currentHeaderImageName != null && headerImageResolver != null)
+            headerImageResId = headerImageResolver.getHeaderImageResId(currentHeaderImageName);
+        return quizBankBuilder.add(currentHeaderImageName, headerImageResId, currentQuestion,
+                currentInputType, currentAnswers, currentCorrectAnswerMask, currentMaxEditDistance,
+                currentNumericTolerance, currentNumericMinimum, currentNumericMaximum);
+    }
+
+    /**
+     * method to parse a numeric attribute of the current tag, e.g. the tolerance of a Numeric question
+     * @param attributeName is the name of the attribute
+     * @param defaultValue is the value if the attribute is not given
+     * @return the number
+     * @throws QuizDataException if the value is not a number
+     */
+    private double parseNumberAttribute(String attributeName, double defaultValue) throws QuizDataException {
+        String attributeValue = xmlParser.getAttributeValue(null, attributeName);
+        if (attributeValue == null)
+            return defaultValue;
+        double value = QuizNumericAnswerMatcher.parse(attributeValue);
+        if (Double.isNaN(value))
+            throw new QuizDataException("Error 105: " + attributeName + " \"" + attributeValue
+                    + "\" is not a number for question " + currentQuestion);
+        return value;
+    }
+
+    /**
+     * method to parse the max_edit_distance attribute of the <input_type> tag
+     * @param maxEditDistance is the attribute value or null if not given
+     * @return the edit distance, 0 if not given
+     * @throws QuizDataException if the value is not a number from 0 to QuizTextAnswerMatcher.MAX_EDIT_DISTANCE
+     */
+    private int parseMaxEditDistance(String maxEditDistance) throws QuizDataException {
+        if (maxEditDistance == null)
+            return 0;
+        try {
+            int parsed = Integer.parseInt(maxEditDistance.trim());
+            if (parsed >= 0 && parsed <= QuizTextAnswerMatcher.MAX_EDIT_DISTANCE)
+                return parsed;
+        } catch (NumberFormatException e) {
+            //  reported below, like numbers out of range
+        }
+        throw new QuizDataException("Error 104: max_edit_distance \"" + maxEditDistance + "\" is not between 0 and "
+                + QuizTextAnswerMatcher.MAX_EDIT_DISTANCE + " for question " + currentQuestion);
+    }
+
+    /**
+     * method to check the answers of the current quiz question against the limits of its input type.
+     * It is checked once the whole quiz question is read, as <input_type> may follow the answers
+     * @throws QuizDataException if there are too many answers or answers of a Numeric question are
+     *                           not valid
+     */
+    private void checkCurrentAnswers() throws QuizDataException {
+        int inputTypeCode = QuizInputTypeRegistry.getCode(currentInputType);
+        if (QuizInputTypeRegistry.getKind(inputTypeCode) == QuizInputType.KIND_NUMERIC) {
+            //  the same checks QuizNumericAnswerMatcher makes, reported as quiz data errors
+            if (!(currentNumericTolerance >= 0) || Double.isInfinite(currentNumericTolerance))
+                throw new QuizDataException("Error 108: tolerance " + currentNumericTolerance
+                        + " is negative or infinite for question " + currentQuestion);
+            if ((!Double.isNaN(currentNumericMinimum) || !Double.isNaN(currentNumericMaximum))
+                    && !(currentNumericMinimum <= currentNumericMaximum))
+                throw new QuizDataException("Error 106: min " + currentNumericMinimum + " and max "
+                        + currentNumericMaximum + " are not a valid range for question " + currentQuestion);
+            for (String answer : currentAnswers) {
+                if (Double.isNaN(QuizNumericAnswerMatcher.parse(answer)))
+                    throw new QuizDataException("Error 107: answer \"" + answer
+                            + "\" is not a number for question " + currentQuestion);
             }
-            //  step to next parser event
-            eventType = quizDataXmlParser.next();
         }
-        Log.d(logTag,"End Document");
-        return quizQuestions;
+        if (QuizInputTypeRegistry.isChoiceInput(inputTypeCode)) {
+            if (currentAnswers.size() > QuizAnswerStore.MAX_CHOICES)
+                throw new QuizDataException("Error 102: more than " + QuizAnswerStore.MAX_CHOICES
+                        + " answers for question " + currentQuestion);
+        } else if (hasIncorrectAnswerBeyondMask) {
+            throw new QuizDataException("Error 103: incorrect answer beyond the first " + QuizAnswerStore.MAX_CHOICES
+                    + " answers of text question " + currentQuestion);
+        }
+    }
+
+    /**
+     * method to store text of a tag in the fields of the current quiz question
+     * @param currentTag is the name of the tag text belongs to
+     * @param text is the text
+     * @param isCurrentAnswerCorrect is the "correct" attribute of the current <answer> tag
+     * @throws QuizDataException if there are too many answers
+     */
+    private void processText(String currentTag, String text, boolean isCurrentAnswerCorrect)
+            throws QuizDataException
+    {
+        switch (currentTag) {
+            case "header_image_src":
+                currentHeaderImageName = text;
+                break;
+            case "question":
+                currentQuestion = text;
+                break;
+            case "answer":
+                //  answers given are stored as a bitmask, one bit per possible answer. Text questions
+                //  may list more accepted answers, beyond the bits of the bitmask
+                if (currentAnswers.size() >= QuizTextAnswerMatcher.MAX_VARIANTS)
+                    throw new QuizDataException("Error 102: more than " + QuizTextAnswerMatcher.MAX_VARIANTS
+                            + " answers for question " + currentQuestion);
+                if (currentAnswers.size() >= QuizAnswerStore.MAX_CHOICES)
+                    hasIncorrectAnswerBeyondMask |= !isCurrentAnswerCorrect;
+                else if (isCurrentAnswerCorrect)
+                    currentCorrectAnswerMask |= 1L << currentAnswers.size();
+                currentAnswers.add(text);
+                break;
+            case "input_type":
+                currentInputType = text;
+                break;
+            default:
+                //  text of unknown tag or whitespace between tags of a quiz question, ignored
+                break;
+        }
     }
 }
@@ -0,0 +1,89 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizAnswerStatistics: answers recorded by several threads at once added up by
+ * snapshots, for quiz questions packed into several blocks and added while answers are recorded
+ */
+public class QuizAnswerStatisticsTest {
+    //  enough quiz questions of 64 answers to fill several blocks
+    private static final int QUESTION_COUNT = 100;
+    private static final int THREAD_COUNT = 8;
+    private static final int RECORD_COUNT = 1000;
+
+    @Test
+    public void concurrentRecords_addUp() throws Exception {
+        List<String> choices = Collections.nCopies(QuizAnswerStore.MAX_CHOICES, "Choice");
+        QuizBank.Builder builder = new QuizBank.Builder();
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            builder.add(null, 0, "Checkbox " + i, "Checkbox", i % 2 == 0 ? choices : choices.subList(0, 3), 0b1L);
+        }
+        final QuizAnswerStatistics answerStatistics = new QuizAnswerStatistics(builder.build());
+
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int r = 0; r < RECORD_COUNT; r++) {
+                        for (int i = 0; i < QUESTION_COUNT; i++) {
+                            //  the first and the last possible answer, the rest of the mask ignored
+                            answerStatistics.record(i, (1L << 63) | 0b101L, true, r % 2 == 0);
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        QuizAnswerStatistics.Snapshot snapshot = answerStatistics.snapshot();
+        long recordCount = THREAD_COUNT * RECORD_COUNT;
+        assertEquals(QUESTION_COUNT, snapshot.getQuestionCount());
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            assertEquals(recordCount, snapshot.getAttemptCount(i));
+            assertEquals(recordCount / 2, snapshot.getCorrectCount(i));
+            assertEquals(0, snapshot.getUnansweredCount(i));
+            assertEquals(recordCount, snapshot.getSelectedCount(i, 0));
+            assertEquals(0, snapshot.getSelectedCount(i, 1));
+            assertEquals(recordCount, snapshot.getSelectedCount(i, 2));
+            assertEquals(i % 2 == 0 ? recordCount : 0, snapshot.getSelectedCount(i, 63));
+            assertEquals(2, snapshot.getMostSelectedWrongAnswer(i));
+        }
+    }
+
+    @Test
+    public void quizQuestionsAdded_keepCountsRecorded() throws Exception {
+        QuizAnswerStatistics answerStatistics = new QuizAnswerStatistics();
+        answerStatistics.record(0, 0b1L, true, true);
+        assertEquals(0, answerStatistics.snapshot().getQuestionCount());
+
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            answerStatistics.addQuestion(i, QuizAnswerStore.MAX_CHOICES, 0b1L);
+            //  counted under each quiz question added before, across growing the table
+            for (int j = 0; j <= i; j++) {
+                answerStatistics.record(j, 0b10L, true, false);
+            }
+        }
+        //  added again, counts are kept
+        answerStatistics.addQuestion(0, 2, 0b1L);
+
+        QuizAnswerStatistics.Snapshot snapshot = answerStatistics.snapshot();
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            assertEquals(QUESTION_COUNT - i, snapshot.getAttemptCount(i));
+            assertEquals(QUESTION_COUNT - i, snapshot.getSelectedCount(i, 1));
+            assertEquals(QuizAnswerStore.MAX_CHOICES, snapshot.getAnswerCount(i));
+        }
+        assertEquals(0, snapshot.getMostFailedQuestion());
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizAttemptJournal: attempts written read back, and damaged records cut off both by
+ * Reader and by recovery on opening the journal
+ */
+public class QuizAttemptJournalTest {
+    //  size of the journal header, see QuizAttemptJournal
+    private static final int HEADER_SIZE = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void attempts_roundTrip() throws Exception {
+        File file = folder.newFile();
+        QuizAttemptJournal.Attempt attempt = new QuizAttemptJournal.Attempt(1000, 70);
+        attempt.setSelectedAnswerMask(0, 0x5);
+        attempt.setInputText(1, "van Gogh \u00e9");
+        attempt.setInputText(2, "");
+        attempt.setCorrect(0, true);
+        attempt.setCorrect(69, true);
+        writeJournal(file, attempt, new QuizAttemptJournal.Attempt(2000, 0));
+
+        ArrayList<QuizAttemptJournal.Attempt> attempts = readJournal(file, false);
+        assertEquals(2, attempts.size());
+        QuizAttemptJournal.Attempt readAttempt = attempts.get(0);
+        assertEquals(1000, readAttempt.getTimeMillis());
+        assertEquals(70, readAttempt.getQuestionCount());
+        assertEquals(0x5, readAttempt.getSubmission().getSelectedAnswerMask(0));
+        assertEquals("van Gogh \u00e9", readAttempt.getSubmission().getInputText(1));
+        assertEquals("", readAttempt.getSubmission().getInputText(2));
+        assertNull(readAttempt.getSubmission().getInputText(3));
+        assertEquals(0, readAttempt.getSubmission().getSelectedAnswerMask(3));
+        assertTrue(readAttempt.isCorrect(0));
+        assertFalse(readAttempt.isCorrect(1));
+        assertTrue(readAttempt.isCorrect(69));
+        assertEquals(2, readAttempt.getScore());
+        assertEquals(2000, attempts.get(1).getTimeMillis());
+        assertEquals(0, attempts.get(1).getQuestionCount());
+    }
+
+    @Test
+    public void groupCommits_appendInOrder() throws Exception {
+        File file = folder.newFile();
+        //  each journal opened recovers the attempts before and appends its own groups
+        for (int session = 0; session < 3; session++) {
+            QuizAttemptJournal journal = new QuizAttemptJournal(file);
+            for (int i = 0; i < 50; i++) {
+                journal.append(new QuizAttemptJournal.Attempt(session * 50 + i, 3));
+                if (i % 10 == 9)
+                    Thread.sleep(5);
+            }
+            journal.shutdown();
+            assertTrue(journal.awaitTermination(10000));
+            assertTrue(journal.getStats(), journal.getStats().startsWith("50 attempts written in "));
+            assertTrue(journal.getStats(), journal.getStats().endsWith(
+                    "0 failed; recovered " + session * 50 + " attempts, truncated 0 bytes"));
+        }
+
+        ArrayList<QuizAttemptJournal.Attempt> attempts = readJournal(file, false);
+        assertEquals(150, attempts.size());
+        for (int i = 0; i < attempts.size(); i++) {
+            assertEquals(i, attempts.get(i).getTimeMillis());
+        }
+    }
+
+    @Test
+    public void pendingAttempts_areBuiltByWriter() throws Exception {
+        File file = folder.newFile();
+        final ArrayList<String> threadNames = new ArrayList<>();
+        QuizAttemptJournal journal = new QuizAttemptJournal(file);
+        for (int i = 0; i < 3; i++) {
+            final int timeMillis = i;
+            journal.append(new QuizAttemptJournal.PendingAttempt() {
+                @Override
+                public QuizAttemptJournal.Attempt build() {
+                    threadNames.add(Thread.currentThread().getName());
+                    if (timeMillis == 1)
+                        throw new IllegalStateException("Broken attempt");
+                    return new QuizAttemptJournal.Attempt(timeMillis, 2);
+                }
+            });
+        }
+        journal.shutdown();
+        assertTrue(journal.awaitTermination(10000));
+        //  the attempt failing to build is dropped, the ones after it are written
+        assertTrue(journal.getStats(), journal.getStats().startsWith("2 attempts written in "));
+        assertTrue(journal.getStats(), journal.getStats().contains(", 1 failed;"));
+
+        assertEquals(3, threadNames.size());
+        for (String threadName : threadNames) {
+            assertNotEquals(Thread.currentThread().getName(), threadName);
+        }
+        ArrayList<QuizAttemptJournal.Attempt> attempts = readJournal(file, false);
+        assertEquals(2, attempts.size());
+        assertEquals(0, attempts.get(0).getTimeMillis());
+        assertEquals(2, attempts.get(1).getTimeMillis());
+    }
+
+    @Test
+    public void recordCutShortMidPayload_isDropped() throws Exception {
+        File file = folder.newFile();
+        long firstRecordEnd = writeJournal(file, new QuizAttemptJournal.Attempt(1, 4));
+        long length = writeJournal(file, new QuizAttemptJournal.Attempt(2, 4));
+        setLength(file, length - 3);
+
+        assertEquals(1, readJournal(file, true).size());
+        assertRecovered(file, firstRecordEnd, length - 3 - firstRecordEnd);
+    }
+
+    @Test
+    public void crcMismatch_isDropped() throws Exception {
+        File file = folder.newFile();
+        long firstRecordEnd = writeJournal(file, new QuizAttemptJournal.Attempt(1, 4));
+        long length = writeJournal(file, new QuizAttemptJournal.Attempt(2, 4),
+                new QuizAttemptJournal.Attempt(3, 4));
+        //  flip a bit of the time of the second attempt, past its length and CRC
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        try {
+            journal.seek(firstRecordEnd + 8 + 7);
+            int b = journal.read();
+            journal.seek(firstRecordEnd + 8 + 7);
+            journal.write(b ^ 1);
+        } finally {
+            journal.close();
+        }
+
+        assertEquals(1, readJournal(file, true).size());
+        assertRecovered(file, firstRecordEnd, length - firstRecordEnd);
+    }
+
+    @Test
+    public void corruptLength_isDropped() throws Exception {
+        File file = folder.newFile();
+        long firstRecordEnd = writeJournal(file, new QuizAttemptJournal.Attempt(1, 4));
+        long length = writeJournal(file, new QuizAttemptJournal.Attempt(2, 4));
+        for (int payloadSize : new int[]{-1, Integer.MAX_VALUE, 1000}) {
+            RandomAccessFile journal = new RandomAccessFile(file, "rw");
+            try {
+                journal.seek(firstRecordEnd);
+                journal.writeInt(payloadSize);
+            } finally {
+                journal.close();
+            }
+            assertEquals(1, readJournal(file, true).size());
+        }
+        assertRecovered(file, firstRecordEnd, length - firstRecordEnd);
+    }
+
+    @Test
+    public void headerCutShort_startsNewJournal() throws Exception {
+        File file = folder.newFile();
+        writeJournal(file, new QuizAttemptJournal.Attempt(1, 4));
+        setLength(file, HEADER_SIZE - 3);
+
+        QuizAttemptJournal journal = new QuizAttemptJournal(file);
+        journal.shutdown();
+        assertTrue(journal.awaitTermination(10000));
+        assertEquals(HEADER_SIZE, file.length());
+        assertEquals(0, readJournal(file, false).size());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFile_isNotRead() throws Exception {
+        File file = folder.newFile();
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        try {
+            journal.writeInt(0x12345678);
+            journal.writeInt(QuizAttemptJournal.VERSION);
+        } finally {
+            journal.close();
+        }
+        new QuizAttemptJournal.Reader(file);
+    }
+
+    /**
+     * method to open a journal, check it is truncated after the last intact record, and that
+     * attempts appended then are read back after the intact ones
+     * @param file is the journal file
+     * @param intactLength is the length of the intact part of the journal
+     * @param damagedLength is the number of bytes of damaged records
+     */
+    private static void assertRecovered(File file, long intactLength, long damagedLength) throws Exception {
+        QuizAttemptJournal journal = new QuizAttemptJournal(file);
+        journal.append(new QuizAttemptJournal.Attempt(9, 4));
+        journal.shutdown();
+        assertTrue(journal.awaitTermination(10000));
+        assertTrue(journal.getStats(),
+                journal.getStats().endsWith("recovered 1 attempts, truncated " + damagedLength + " bytes"));
+
+        ArrayList<QuizAttemptJournal.Attempt> attempts = readJournal(file, false);
+        assertEquals(2, attempts.size());
+        assertEquals(1, attempts.get(0).getTimeMillis());
+        assertEquals(9, attempts.get(1).getTimeMillis());
+        assertTrue(file.length() > intactLength);
+    }
+
+    /**
+     * method to append attempts to a journal and wait for them to be written
+     * @param file is the journal file
+     * @param attempts are the attempts
+     * @return the length of the journal
+     */
+    private static long writeJournal(File file, QuizAttemptJournal.Attempt... attempts) throws Exception {
+        QuizAttemptJournal journal = new QuizAttemptJournal(file);
+        for (QuizAttemptJournal.Attempt attempt : attempts) {
+            journal.append(attempt);
+        }
+        journal.shutdown();
+        assertTrue(journal.awaitTermination(10000));
+        assertFalse(journal.isFailed());
+        return file.length();
+    }
+
+    /**
+     * method to read all the attempts of a journal
+     * @param file is the journal file
+     * @param isDamaged is true if reading is expected to stop at a damaged record
+     * @return the attempts
+     */
+    private static ArrayList<QuizAttemptJournal.Attempt> readJournal(File file, boolean isDamaged)
+            throws IOException {
+        ArrayList<QuizAttemptJournal.Attempt> attempts = new ArrayList<>();
+        QuizAttemptJournal.Reader reader = new QuizAttemptJournal.Reader(file);
+        try {
+            QuizAttemptJournal.Attempt attempt;
+            while ((attempt = reader.next()) != null) {
+                attempts.add(attempt);
+            }
+            assertNull(reader.next());
+            assertEquals(isDamaged, reader.isDamaged());
+        } finally {
+            reader.close();
+        }
+        return attempts;
+    }
+
+    private static void setLength(File file, long length) throws IOException {
+        RandomAccessFile journal = new RandomAccessFile(file, "rw");
+        try {
+            journal.setLength(length);
+        } finally {
+            journal.close();
+        }
+    }
+}
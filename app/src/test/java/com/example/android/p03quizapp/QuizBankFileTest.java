@@ -0,0 +1,245 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kxml2.io.KXmlParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of the binary quiz bank format: quiz questions written by QuizBankWriter read back by
+ * QuizBankReader field by field, and truncated or corrupt files rejected
+ */
+public class QuizBankFileTest {
+    private static final String QUIZ_DATA = "<quizquestions>"
+            + "<quizquestion><header_image_src>washington_dc</header_image_src>"
+            + "<question>Capital of U.S.A.?</question><input_type>Radio</input_type>"
+            + "<answer correct=\"false\">New York City</answer><answer correct=\"true\">Washington D.C.</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Vincent Willem van ...?</question>"
+            + "<input_type max_edit_distance=\"2\">EditText</input_type>"
+            + "<answer correct=\"true\">Gogh</answer><answer correct=\"true\">van Gogh \u00e9\u20ac</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Square root of 4?</question><input_type>Checkbox</input_type>"
+            + "<answer correct=\"true\">2</answer><answer correct=\"false\">4</answer>"
+            + "<answer correct=\"true\">-2</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Pi to two decimals?</question>"
+            + "<input_type tolerance=\"0.005\" min=\"3.1\" max=\"3.2\">Numeric</input_type>"
+            + "<answer correct=\"true\">3.14</answer><answer correct=\"true\">3,14</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Capital of U.S.A.?</question><input_type>Radio</input_type>"
+            + "<answer correct=\"true\">Washington D.C.</answer><answer correct=\"false\">Chicago</answer>"
+            + "</quizquestion>"
+            + "</quizquestions>";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void quizBank_roundTrips() throws Exception {
+        ArrayList<QuizQuestion> quizQuestions = parse(QUIZ_DATA);
+        File bankFile = write(quizQuestions);
+
+        QuizBankReader reader = new QuizBankReader(bankFile, new QuizXmlParser.HeaderImageResolver() {
+            @Override
+            public int getHeaderImageResId(String headerImageName) {
+                return headerImageName.equals("washington_dc") ? 0x7f020001 : 0;
+            }
+        });
+        try {
+            assertEquals(quizQuestions.size(), reader.size());
+            ArrayList<QuizQuestion> readQuizQuestions = reader.readQuizBank().getQuizQuestions();
+            assertEquals(quizQuestions.size(), readQuizQuestions.size());
+            for (int i = 0; i < quizQuestions.size(); i++) {
+                assertSameQuizQuestion(quizQuestions.get(i), readQuizQuestions.get(i));
+                assertSameQuizQuestion(quizQuestions.get(i), reader.getQuizQuestion(i));
+                assertEquals(i, reader.getQuizQuestion(i).getIndex());
+            }
+            assertEquals(0x7f020001, readQuizQuestions.get(0).getHeaderImageResId());
+            assertEquals(0, readQuizQuestions.get(1).getHeaderImageResId());
+
+            //  accepted answers are compiled again when read
+            assertTrue(readQuizQuestions.get(1).getAnswerMatcher().matches("VAN GOGH \u00c9\u20ac"));
+            assertTrue(readQuizQuestions.get(3).getAnswerMatcher().matches("3,15"));
+            assertFalse(readQuizQuestions.get(3).getAnswerMatcher().matches("3.09"));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void convertedXml_readsLikeParsedXml() throws Exception {
+        File bankFile = folder.newFile();
+        FileOutputStream outputStream = new FileOutputStream(bankFile);
+        try {
+            assertEquals(5, QuizBankWriter.convertXml(new ByteArrayInputStream(QUIZ_DATA.getBytes("UTF-8")),
+                    outputStream));
+        } finally {
+            outputStream.close();
+        }
+
+        ArrayList<QuizQuestion> quizQuestions = parse(QUIZ_DATA);
+        ArrayList<QuizQuestion> readQuizQuestions = read(bankFile);
+        for (int i = 0; i < quizQuestions.size(); i++) {
+            assertSameQuizQuestion(quizQuestions.get(i), readQuizQuestions.get(i));
+        }
+    }
+
+    @Test
+    public void emptyQuizBank_roundTrips() throws Exception {
+        assertEquals(0, read(write(new ArrayList<QuizQuestion>())).size());
+    }
+
+    @Test
+    public void truncatedFile_isRejected() throws Exception {
+        File bankFile = write(parse(QUIZ_DATA));
+        byte[] bytes = readBytes(bankFile);
+        for (int length = 0; length < bytes.length; length++) {
+            File truncatedFile = folder.newFile();
+            writeBytes(truncatedFile, bytes, length);
+            try {
+                new QuizBankReader(truncatedFile, null).close();
+                fail("Quiz bank cut short at " + length + " of " + bytes.length + " bytes");
+            } catch (IOException e) {
+                //  expected
+            }
+        }
+    }
+
+    @Test
+    public void otherFileOrVersion_isRejected() throws Exception {
+        byte[] bytes = readBytes(write(parse(QUIZ_DATA)));
+        assertRejected(bytes, QuizBankFile.HEADER_MAGIC, 0x12345678, "Not a quiz bank");
+        assertRejected(bytes, QuizBankFile.HEADER_VERSION, QuizBankFile.VERSION - 1, "Unsupported quiz bank version");
+        assertRejected(bytes, QuizBankFile.HEADER_QUESTION_COUNT, 1 << 30, "Corrupt quiz bank header");
+        assertRejected(bytes, QuizBankFile.HEADER_STRING_COUNT, -1, "Corrupt quiz bank header");
+    }
+
+    @Test
+    public void corruptRecord_failsReading() throws Exception {
+        File bankFile = write(parse(QUIZ_DATA));
+        int firstRecord = QuizBankFile.HEADER_SIZE + 4 * 5;
+        int[][] corruptions = {
+                {QuizBankFile.RECORD_QUESTION, 1 << 20},
+                {QuizBankFile.RECORD_MAX_EDIT_DISTANCE, QuizTextAnswerMatcher.MAX_EDIT_DISTANCE + 1},
+                {QuizBankFile.RECORD_ANSWER_COUNT, -1},
+                {QuizBankFile.RECORD_ANSWERS, -2},
+        };
+        for (int[] corruption : corruptions) {
+            File corruptFile = folder.newFile();
+            byte[] bytes = readBytes(bankFile);
+            writeBytes(corruptFile, bytes, bytes.length);
+            writeInt(corruptFile, firstRecord + corruption[0], corruption[1]);
+            QuizBankReader reader = new QuizBankReader(corruptFile, null);
+            try {
+                reader.readQuizBank();
+                fail("Record field at " + corruption[0] + " set to " + corruption[1]);
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Corrupt quiz bank"));
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    private static void assertSameQuizQuestion(QuizQuestion expected, QuizQuestion actual) {
+        assertEquals(expected.getHeaderImageName(), actual.getHeaderImageName());
+        assertEquals(expected.getQuestion(), actual.getQuestion());
+        assertEquals(expected.getInputType(), actual.getInputType());
+        assertEquals(expected.getInputTypeCode(), actual.getInputTypeCode());
+        assertEquals(expected.getCorrectAnswerMask(), actual.getCorrectAnswerMask());
+        assertEquals(expected.getMaxEditDistance(), actual.getMaxEditDistance());
+        assertEquals(expected.getNumericTolerance(), actual.getNumericTolerance(), 0);
+        assertEquals(expected.getNumericMinimum(), actual.getNumericMinimum(), 0);
+        assertEquals(expected.getNumericMaximum(), actual.getNumericMaximum(), 0);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getAnswer(i), actual.getAnswer(i));
+        }
+    }
+
+    /**
+     * method to open a quiz bank file, change an int of the header and check it is rejected
+     * @param bytes are the bytes of a valid quiz bank
+     * @param offset is the offset of the header field
+     * @param value is the value to write
+     * @param message is the start of the message expected
+     */
+    private void assertRejected(byte[] bytes, int offset, int value, String message) throws IOException {
+        File bankFile = folder.newFile();
+        writeBytes(bankFile, bytes, bytes.length);
+        writeInt(bankFile, offset, value);
+        try {
+            new QuizBankReader(bankFile, null).close();
+            fail(message);
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+        }
+    }
+
+    private static ArrayList<QuizQuestion> parse(String quizData) throws Exception {
+        KXmlParser xmlParser = new KXmlParser();
+        xmlParser.setInput(new StringReader(quizData));
+        return QuizXmlParser.parse(new QuizXmlParser(xmlParser, null), null);
+    }
+
+    private File write(ArrayList<QuizQuestion> quizQuestions) throws IOException {
+        File bankFile = folder.newFile();
+        FileOutputStream outputStream = new FileOutputStream(bankFile);
+        try {
+            new QuizBankWriter().write(quizQuestions, outputStream);
+        } finally {
+            outputStream.close();
+        }
+        return bankFile;
+    }
+
+    private static ArrayList<QuizQuestion> read(File bankFile) throws IOException {
+        QuizBankReader reader = new QuizBankReader(bankFile, null);
+        try {
+            return reader.readQuizBank().getQuizQuestions();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static byte[] readBytes(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(bytes);
+            return bytes;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static void writeBytes(File file, byte[] bytes, int length) throws IOException {
+        FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(bytes, 0, length);
+        } finally {
+            outputStream.close();
+        }
+    }
+
+    private static void writeInt(File file, long offset, int value) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+        try {
+            randomAccessFile.seek(offset);
+            randomAccessFile.writeInt(value);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
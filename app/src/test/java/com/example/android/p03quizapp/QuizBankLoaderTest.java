@@ -0,0 +1,156 @@
+package com.example.android.p03quizapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizBankLoader: quiz banks merged in the order of sources no matter which one finishes
+ * first, renumbered from 0, and a source failing to load leaving the others alone
+ */
+public class QuizBankLoaderTest {
+    private QuizBankLoader quizBankLoader;
+
+    @Before
+    public void setUp() throws Exception {
+        quizBankLoader = new QuizBankLoader(4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        quizBankLoader.shutdown();
+    }
+
+    @Test
+    public void quizBanks_mergeInOrderOfSources() throws Exception {
+        //  the first source waits for the last one to finish
+        CountDownLatch lastFinished = new CountDownLatch(1);
+        QuizBankLoader.Result result = quizBankLoader.load(Arrays.asList(
+                new MemorySource("first", 2, lastFinished, null),
+                new MemorySource("second", 3, null, null),
+                new MemorySource("third", 1, null, lastFinished)));
+
+        assertTrue(result.isSuccessful());
+        assertTrue(result.getFailures().isEmpty());
+        assertQuizQuestions(result.getQuizQuestions(), "first 0", "first 1", "second 0", "second 1", "second 2",
+                "third 0");
+    }
+
+    @Test
+    public void failingSource_leavesOthersLoaded() throws Exception {
+        QuizBankLoader.Result result = quizBankLoader.load(Arrays.asList(
+                new MemorySource("first", 2, null, null),
+                new MemorySource("broken", -1, null, null),
+                new MemorySource("third", 1, null, null),
+                new MemorySource("unreadable", -2, null, null)));
+
+        assertFalse(result.isSuccessful());
+        assertEquals(Arrays.asList("broken", "unreadable"), new ArrayList<>(result.getFailures().keySet()));
+        assertTrue(result.getFailures().get("broken") instanceof XmlPullParserException);
+        assertTrue(result.getFailures().get("unreadable") instanceof IOException);
+        assertQuizQuestions(result.getQuizQuestions(), "first 0", "first 1", "third 0");
+    }
+
+    @Test
+    public void allSourcesFailing_loadsNothing() throws Exception {
+        QuizBankLoader.Result result = quizBankLoader.load(Arrays.asList(
+                new MemorySource("broken", -1, null, null),
+                new MemorySource("unreadable", -2, null, null)));
+
+        assertFalse(result.isSuccessful());
+        assertEquals(2, result.getFailures().size());
+        assertTrue(result.getQuizQuestions().isEmpty());
+    }
+
+    @Test(expected = AssertionError.class)
+    public void errorOfSource_isRethrown() throws Exception {
+        quizBankLoader.load(Arrays.asList(new MemorySource("first", 1, null, null),
+                new MemorySource("erroneous", -3, null, null)));
+    }
+
+    /**
+     * method to check merged QuizQuestion objects: their questions and their indexes from 0
+     * @param quizQuestions are the merged QuizQuestion objects
+     * @param questions are the questions expected, in order
+     */
+    private static void assertQuizQuestions(ArrayList<QuizQuestion> quizQuestions, String... questions) {
+        assertEquals(questions.length, quizQuestions.size());
+        for (int i = 0; i < questions.length; i++) {
+            assertEquals(questions[i], quizQuestions.get(i).getQuestion());
+            assertEquals(i, quizQuestions.get(i).getIndex());
+        }
+    }
+
+    /**
+     * class of a quiz bank held in memory, parsed from XML when loaded
+     */
+    private static class MemorySource implements QuizBankLoader.Source {
+        private String name;
+        private int questionCount;
+        private CountDownLatch waitFor;
+        private CountDownLatch finished;
+
+        /**
+         * constructor for MemorySource object
+         * @param name is the name of the quiz bank, questions are named after it
+         * @param questionCount is the number of questions; -1 for malformed XML, -2 to fail reading,
+         *                      -3 to throw an Error
+         * @param waitFor is the latch to wait for before loading or null
+         * @param finished is the latch to count down when loaded or null
+         */
+        MemorySource(String name, int questionCount, CountDownLatch waitFor, CountDownLatch finished) {
+            this.name = name;
+            this.questionCount = questionCount;
+            this.waitFor = waitFor;
+            this.finished = finished;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public ArrayList<QuizQuestion> load() throws XmlPullParserException, IOException {
+            try {
+                if (waitFor != null && !waitFor.await(10, TimeUnit.SECONDS))
+                    throw new IOException("Timed out waiting for other sources");
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            if (questionCount == -2)
+                throw new IOException("Cannot read " + name);
+            if (questionCount == -3)
+                throw new AssertionError("Broken " + name);
+
+            StringBuilder quizData = new StringBuilder("<quizquestions>");
+            for (int i = 0; i < questionCount; i++) {
+                quizData.append("<quizquestion><question>").append(name).append(' ').append(i)
+                        .append("</question><input_type>Radio</input_type>")
+                        .append("<answer correct=\"true\">Yes</answer><answer correct=\"false\">No</answer>")
+                        .append("</quizquestion>");
+            }
+            if (questionCount == -1)
+                quizData.append("<quizquestion><question>");
+            quizData.append("</quizquestions>");
+
+            KXmlParser xmlParser = new KXmlParser();
+            xmlParser.setInput(new StringReader(quizData.toString()));
+            ArrayList<QuizQuestion> quizQuestions = QuizXmlParser.parse(new QuizXmlParser(xmlParser, null), null);
+            if (finished != null)
+                finished.countDown();
+            return quizQuestions;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizBank: quiz questions copied into a bank read back through its getters and its
+ * QuizQuestion views like the source QuizQuestion objects, while being built and once built
+ */
+public class QuizBankTest {
+    private static final String QUIZ_DATA = "<quizquestions>"
+            + "<quizquestion><header_image_src>washington_dc</header_image_src>"
+            + "<question>Capital of U.S.A.?</question><input_type>Radio</input_type>"
+            + "<answer correct=\"false\">New York City</answer><answer correct=\"true\">Washington D.C.</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Vincent Willem van ...?</question>"
+            + "<input_type max_edit_distance=\"2\">EditText</input_type>"
+            + "<answer correct=\"true\">Gogh</answer><answer correct=\"true\">van Gogh \u00e9\u20ac</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Square root of 4?</question><input_type>Checkbox</input_type>"
+            + "<answer correct=\"true\">2</answer><answer correct=\"false\">4</answer>"
+            + "<answer correct=\"true\">-2</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Pi to two decimals?</question>"
+            + "<input_type tolerance=\"0.005\" min=\"3.1\" max=\"3.2\">Numeric</input_type>"
+            + "<answer correct=\"true\">3.14</answer><answer correct=\"true\">3,14</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Capital of U.S.A.?</question><input_type>Radio</input_type>"
+            + "<answer correct=\"true\">Washington D.C.</answer><answer correct=\"false\">Chicago</answer>"
+            + "</quizquestion>"
+            + "</quizquestions>";
+
+    @Test
+    public void builtBank_readsLikeSourceQuizQuestions() throws Exception {
+        ArrayList<QuizQuestion> sourceQuizQuestions = parse(QUIZ_DATA);
+        QuizBank.Builder builder = new QuizBank.Builder(1);
+        for (int i = 0; i < sourceQuizQuestions.size(); i++) {
+            assertEquals(i, builder.add(sourceQuizQuestions.get(i)));
+        }
+        assertEquals(sourceQuizQuestions.size(), builder.size());
+        QuizBank quizBank = builder.build();
+
+        assertEquals(sourceQuizQuestions.size(), quizBank.size());
+        ArrayList<QuizQuestion> quizQuestions = quizBank.getQuizQuestions();
+        for (int i = 0; i < sourceQuizQuestions.size(); i++) {
+            assertSameFields(sourceQuizQuestions.get(i), quizBank, i);
+            assertSameQuizQuestion(sourceQuizQuestions.get(i), quizQuestions.get(i));
+            assertSameQuizQuestion(sourceQuizQuestions.get(i), quizBank.getQuizQuestion(i));
+            assertEquals(i, quizQuestions.get(i).getIndex());
+        }
+    }
+
+    @Test
+    public void addedFields_readBack() throws Exception {
+        QuizBank.Builder builder = new QuizBank.Builder();
+        builder.add("flag", 0x7f020000, "Pick two", "Checkbox", Arrays.asList("a", "b", "c", "d"), 0b1010L);
+        builder.add(null, 0, "Spell it", "EditText", Arrays.asList("Gogh", "van Gogh"), 0b01L, 1);
+        builder.add(null, 0, "A number", "Numeric", Arrays.asList("2"), 0b1L, 0, 0.5, 10, 20);
+        QuizBank quizBank = builder.build();
+
+        assertEquals("flag", quizBank.getHeaderImageName(0));
+        assertEquals(0x7f020000, quizBank.getHeaderImageResId(0));
+        assertEquals("Pick two", quizBank.getQuestion(0));
+        assertEquals("Checkbox", quizBank.getInputType(0));
+        assertEquals(QuizInputTypeRegistry.getCode("Checkbox"), quizBank.getInputTypeCode(0));
+        assertEquals(0b1010L, quizBank.getCorrectAnswerMask(0));
+        assertEquals(4, quizBank.getAnswerCount(0));
+        assertEquals("c", quizBank.getAnswer(0, 2));
+        assertNull(quizBank.getAnswerMatcher(0));
+        assertTrue(Double.isNaN(quizBank.getNumericMinimum(0)));
+
+        assertNull(quizBank.getHeaderImageName(1));
+        assertEquals(0, quizBank.getHeaderImageResId(1));
+        assertEquals(1, quizBank.getMaxEditDistance(1));
+        //  only the answer with its bit set is accepted
+        assertTrue(quizBank.getAnswerMatcher(1).matches("gog"));
+        assertFalse(quizBank.getAnswerMatcher(1).matches("van Gogh"));
+
+        assertEquals(0.5, quizBank.getNumericTolerance(2), 0);
+        assertEquals(10, quizBank.getNumericMinimum(2), 0);
+        assertEquals(20, quizBank.getNumericMaximum(2), 0);
+        assertTrue(quizBank.getAnswerMatcher(2).matches("2.5"));
+        assertTrue(quizBank.getAnswerMatcher(2).matches("15"));
+        assertFalse(quizBank.getAnswerMatcher(2).matches("3"));
+
+        QuizQuestion quizQuestion = quizBank.getQuizQuestion(0);
+        assertEquals(2, quizQuestion.getCorrectAnswerCount());
+        assertEquals("b", quizQuestion.getCorrectAnswer(0));
+        assertEquals("d", quizQuestion.getCorrectAnswer(1));
+        try {
+            quizQuestion.getCorrectAnswer(2);
+            fail("Third of two correct answers");
+        } catch (IndexOutOfBoundsException e) {
+            //  expected
+        }
+    }
+
+    @Test
+    public void growingBank_readsWhileBuilt() throws Exception {
+        ArrayList<QuizQuestion> sourceQuizQuestions = parse(QUIZ_DATA);
+        QuizBank.Builder builder = new QuizBank.Builder(1);
+        ArrayList<QuizQuestion> quizQuestions = new ArrayList<>();
+        for (QuizQuestion sourceQuizQuestion : sourceQuizQuestions) {
+            quizQuestions.add(builder.getQuizQuestion(builder.add(sourceQuizQuestion)));
+            //  views handed out before stay readable as the arrays grow
+            for (int i = 0; i < quizQuestions.size(); i++) {
+                assertSameQuizQuestion(sourceQuizQuestions.get(i), quizQuestions.get(i));
+            }
+        }
+
+        QuizBank quizBank = builder.build();
+        for (int i = 0; i < sourceQuizQuestions.size(); i++) {
+            assertSameQuizQuestion(sourceQuizQuestions.get(i), quizQuestions.get(i));
+            assertSameFields(sourceQuizQuestions.get(i), quizBank, i);
+        }
+
+        //  added after build go into a new bank
+        builder.add(sourceQuizQuestions.get(0));
+        assertEquals(sourceQuizQuestions.size(), quizBank.size());
+        assertEquals(sourceQuizQuestions.size() + 1, builder.build().size());
+    }
+
+    @Test
+    public void invalidQuizQuestion_leavesBuilderAsItWas() throws Exception {
+        QuizBank.Builder builder = new QuizBank.Builder();
+        builder.add(null, 0, "Yes?", "Radio", Arrays.asList("Yes", "No"), 0b01L);
+
+        List<String> tooManyChoices = Collections.nCopies(QuizAnswerStore.MAX_CHOICES + 1, "Maybe");
+        try {
+            builder.add(null, 0, "Which?", "Checkbox", tooManyChoices, 1L);
+            fail("More than " + QuizAnswerStore.MAX_CHOICES + " choices");
+        } catch (IllegalArgumentException e) {
+            //  expected
+        }
+        try {
+            builder.add(null, 0, "How much?", "Numeric", Arrays.asList("lots"), 1L);
+            fail("Numeric question with an answer not a number");
+        } catch (IllegalArgumentException e) {
+            //  expected
+        }
+
+        assertEquals(1, builder.size());
+        QuizBank quizBank = builder.build();
+        assertEquals(1, quizBank.size());
+        assertEquals(2, quizBank.getAnswerCount(0));
+        try {
+            quizBank.getQuizQuestion(1);
+            fail("Quiz question beyond size");
+        } catch (IndexOutOfBoundsException e) {
+            //  expected
+        }
+    }
+
+    @Test
+    public void emptyBank_hasNoQuizQuestions() throws Exception {
+        QuizBank quizBank = new QuizBank.Builder(0).build();
+        assertEquals(0, quizBank.size());
+        assertTrue(quizBank.getQuizQuestions().isEmpty());
+    }
+
+    /**
+     * method to compare the getters of a bank with a source QuizQuestion
+     * @param expected is the source QuizQuestion
+     * @param quizBank is the QuizBank
+     * @param bankIndex is the index of the quiz question within the bank
+     */
+    private static void assertSameFields(QuizQuestion expected, QuizBank quizBank, int bankIndex) {
+        assertEquals(expected.getHeaderImageName(), quizBank.getHeaderImageName(bankIndex));
+        assertEquals(expected.getHeaderImageResId(), quizBank.getHeaderImageResId(bankIndex));
+        assertEquals(expected.getQuestion(), quizBank.getQuestion(bankIndex));
+        assertEquals(expected.getInputType(), quizBank.getInputType(bankIndex));
+        assertEquals(expected.getInputTypeCode(), quizBank.getInputTypeCode(bankIndex));
+        assertEquals(expected.getCorrectAnswerMask(), quizBank.getCorrectAnswerMask(bankIndex));
+        assertEquals(expected.getMaxEditDistance(), quizBank.getMaxEditDistance(bankIndex));
+        assertEquals(expected.getNumericTolerance(), quizBank.getNumericTolerance(bankIndex), 0);
+        assertEquals(expected.getNumericMinimum(), quizBank.getNumericMinimum(bankIndex), 0);
+        assertEquals(expected.getNumericMaximum(), quizBank.getNumericMaximum(bankIndex), 0);
+        assertEquals(expected.getAnswerMatcher() == null, quizBank.getAnswerMatcher(bankIndex) == null);
+        assertEquals(expected.size(), quizBank.getAnswerCount(bankIndex));
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getAnswer(i), quizBank.getAnswer(bankIndex, i));
+        }
+    }
+
+    private static void assertSameQuizQuestion(QuizQuestion expected, QuizQuestion actual) {
+        assertEquals(expected.getHeaderImageName(), actual.getHeaderImageName());
+        assertEquals(expected.getQuestion(), actual.getQuestion());
+        assertEquals(expected.getInputType(), actual.getInputType());
+        assertEquals(expected.getInputKind(), actual.getInputKind());
+        assertEquals(expected.isChoiceInput(), actual.isChoiceInput());
+        assertEquals(expected.getCorrectAnswerMask(), actual.getCorrectAnswerMask());
+        assertEquals(expected.getCorrectAnswerCount(), actual.getCorrectAnswerCount());
+        for (int i = 0; i < expected.getCorrectAnswerCount(); i++) {
+            assertEquals(expected.getCorrectAnswer(i), actual.getCorrectAnswer(i));
+        }
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getAnswer(i), actual.getAnswer(i));
+        }
+    }
+
+    private static ArrayList<QuizQuestion> parse(String quizData) throws Exception {
+        KXmlParser xmlParser = new KXmlParser();
+        xmlParser.setInput(new StringReader(quizData));
+        return QuizXmlParser.parse(new QuizXmlParser(xmlParser, null), null);
+    }
+}
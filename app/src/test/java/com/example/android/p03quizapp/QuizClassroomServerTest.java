@@ -0,0 +1,335 @@
+package com.example.android.p03quizapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizClassroomServer over loopback, on a free port
+ */
+public class QuizClassroomServerTest {
+    private static final String QUIZ_DATA = "<quizquestions>"
+            + "<quizquestion><question>Capital of U.S.A.?</question><input_type>Radio</input_type>"
+            + "<answer correct=\"false\">New York City</answer><answer correct=\"true\">Washington D.C.</answer>"
+            + "<answer correct=\"false\">Chicago</answer><answer correct=\"false\">Philadelphia</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Vincent Willem van ...?</question>"
+            + "<input_type max_edit_distance=\"1\">EditText</input_type>"
+            + "<answer correct=\"true\">Gogh</answer><answer correct=\"true\">van Gogh</answer>"
+            + "</quizquestion>"
+            + "<quizquestion><question>Square root of 4?</question><input_type>Checkbox</input_type>"
+            + "<answer correct=\"true\">2</answer><answer correct=\"false\">4</answer>"
+            + "<answer correct=\"true\">-2</answer>"
+            + "</quizquestion>"
+            + "</quizquestions>";
+
+    private QuizClassroomServer server;
+
+    @Before
+    public void setUp() throws Exception {
+        server = startServer(QuizClassroomServer.DEFAULT_IDLE_TIMEOUT_SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop();
+    }
+
+    @Test
+    public void quiz_leavesOutAnswersOfTextQuestions() throws Exception {
+        Client client = new Client(server);
+        try {
+            Response response = client.request("GET", "/quiz", null);
+            assertEquals(200, response.status);
+            assertTrue(response.body.contains("\"Washington D.C.\""));
+            assertTrue(response.body.contains("\"inputType\":\"EditText\",\"choice\":false"));
+            assertFalse(response.body.contains("Gogh\""));
+            assertEquals(404, client.request("GET", "/nothing", null).status);
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void submit_isGradedAndCountedInResults() throws Exception {
+        Client client = new Client(server);
+        try {
+            Response response = client.request("POST", "/submit", "a0=1&a1=+gogh+&a2=0%2C2");
+            assertEquals(200, response.status);
+            assertTrue(response.body, response.body.endsWith(
+                    "\"score\":3,\"questionCount\":3,\"correct\":[true,true,true]}"));
+            response = client.request("POST", "/submit", "a0=0&a2=0");
+            assertTrue(response.body, response.body.endsWith(
+                    "\"score\":0,\"questionCount\":3,\"correct\":[false,false,false]}"));
+
+            response = client.request("GET", "/results", null);
+            assertEquals(200, response.status);
+            assertTrue(response.body, response.body.startsWith(
+                    "{\"submissions\":2,\"questionCount\":3,\"scores\":[1,0,0,1],"));
+            assertTrue(response.body, response.body.contains(
+                    "{\"index\":0,\"attempts\":2,\"correct\":1,\"unanswered\":0,\"selected\":[1,1,0,0]}"));
+            assertTrue(response.body, response.body.contains(
+                    "{\"index\":1,\"attempts\":2,\"correct\":1,\"unanswered\":1,\"selected\":[0,0]}"));
+            assertTrue(response.body, response.body.contains(
+                    "{\"index\":2,\"attempts\":2,\"correct\":1,\"unanswered\":0,\"selected\":[2,0,1]}"));
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void keepAlive_servesRequestsOnOneConnection() throws Exception {
+        Client client = new Client(server);
+        try {
+            for (int i = 0; i < 3; i++) {
+                Response response = client.request("GET", "/quiz", null);
+                assertEquals(200, response.status);
+                assertEquals("keep-alive", response.connection);
+            }
+            //  a request sent before the previous response is read is served after it
+            client.send("POST", "/submit", "a0=1", "");
+            client.send("GET", "/results", null, "");
+            assertTrue(client.receive().body.contains("\"score\":1"));
+            assertTrue(client.receive().body.contains("\"submissions\":1"));
+
+            Response response = client.request("GET", "/quiz", null, "Connection: close\r\n");
+            assertEquals("close", response.connection);
+            assertTrue(client.isClosedByServer());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void unknownLength_isRejected() throws Exception {
+        Client client = new Client(server);
+        try {
+            client.send("POST", "/submit", null, "Transfer-Encoding: chunked\r\n");
+            Response response = client.receive();
+            assertEquals(411, response.status);
+            assertEquals("close", response.connection);
+            assertTrue(client.isClosedByServer());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void largeRequest_isRejected() throws Exception {
+        Client client = new Client(server);
+        try {
+            client.send("POST", "/submit", null, "Content-Length: 100000\r\n");
+            Response response = client.receive();
+            assertEquals(413, response.status);
+            assertTrue(client.isClosedByServer());
+        } finally {
+            client.close();
+        }
+    }
+
+    @Test
+    public void idleConnection_isClosed() throws Exception {
+        QuizClassroomServer idleServer = startServer(1);
+        try {
+            Client silentClient = new Client(idleServer);
+            Client client = new Client(idleServer);
+            try {
+                assertEquals(200, client.request("GET", "/quiz", null).status);
+                long startMillis = System.currentTimeMillis();
+                assertTrue(silentClient.isClosedByServer());
+                assertTrue(client.isClosedByServer());
+                assertTrue(System.currentTimeMillis() - startMillis < 4000);
+            } finally {
+                silentClient.close();
+                client.close();
+            }
+        } finally {
+            idleServer.stop();
+        }
+    }
+
+    @Test
+    public void concurrentBurst_isGradedCompletely() throws Exception {
+        final int clientCount = 64;
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clientCount);
+        try {
+            List<Future<Integer>> scores = new ArrayList<>();
+            for (int i = 0; i < clientCount; i++) {
+                final String form = i % 2 == 0 ? "a0=1&a1=Gogh" : "a0=2";
+                scores.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        Client client = new Client(server);
+                        try {
+                            start.await();
+                            int score = 0;
+                            for (int j = 0; j < 5; j++) {
+                                String body = client.request("POST", "/submit", form).body;
+                                score += body.contains("\"score\":2") ? 1 : 0;
+                            }
+                            return score;
+                        } finally {
+                            client.close();
+                        }
+                    }
+                }));
+            }
+            start.countDown();
+            int perfectCount = 0;
+            for (Future<Integer> score : scores) {
+                perfectCount += score.get();
+            }
+            assertEquals(clientCount / 2 * 5, perfectCount);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Client client = new Client(server);
+        try {
+            Response response = client.request("GET", "/results", null);
+            assertTrue(response.body, response.body.startsWith(String.format(Locale.US,
+                    "{\"submissions\":%d,\"questionCount\":3,\"scores\":[%d,0,%d,0],",
+                    clientCount * 5, clientCount / 2 * 5, clientCount / 2 * 5)));
+        } finally {
+            client.close();
+        }
+    }
+
+    /**
+     * method to start a server over loopback serving QUIZ_DATA
+     * @param idleTimeoutSeconds is the idle timeout of connections
+     * @return the server
+     */
+    private static QuizClassroomServer startServer(int idleTimeoutSeconds) throws Exception {
+        KXmlParser xmlParser = new KXmlParser();
+        xmlParser.setInput(new StringReader(QUIZ_DATA));
+        ArrayList<QuizQuestion> quizQuestions = QuizXmlParser.parse(new QuizXmlParser(xmlParser, null), null);
+        QuizClassroomServer server = new QuizClassroomServer(quizQuestions, null);
+        server.setIdleTimeout(idleTimeoutSeconds);
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        return server;
+    }
+
+    /**
+     * class to hold a response: status, value of the Connection header and body
+     */
+    private static class Response {
+        private int status;
+        private String connection;
+        private String body;
+    }
+
+    /**
+     * class of a minimal HTTP/1.1 client, sending requests and reading responses on one connection
+     */
+    private static class Client {
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Client(QuizClassroomServer server) throws IOException {
+            socket = new Socket(InetAddress.getLoopbackAddress(), server.getLocalPort());
+            socket.setSoTimeout(10000);
+            in = new BufferedInputStream(socket.getInputStream());
+            out = socket.getOutputStream();
+        }
+
+        Response request(String method, String path, String body) throws IOException {
+            return request(method, path, body, "");
+        }
+
+        Response request(String method, String path, String body, String headers) throws IOException {
+            send(method, path, body, headers);
+            return receive();
+        }
+
+        /**
+         * method to send a request
+         * @param method is the request method
+         * @param path is the request path
+         * @param body is the request body, null to leave out Content-Length
+         * @param headers are headers to add, each ended by \r\n
+         */
+        void send(String method, String path, String body, String headers) throws IOException {
+            byte[] bodyBytes = body == null ? new byte[0] : body.getBytes("UTF-8");
+            String request = method + " " + path + " HTTP/1.1\r\nHost: localhost\r\n" + headers
+                    + (body == null ? "" : "Content-Length: " + bodyBytes.length + "\r\n") + "\r\n";
+            out.write(request.getBytes("ISO-8859-1"));
+            out.write(bodyBytes);
+            out.flush();
+        }
+
+        /**
+         * method to read a response
+         * @return the response
+         */
+        Response receive() throws IOException {
+            ByteArrayOutputStream header = new ByteArrayOutputStream();
+            while (!header.toString("ISO-8859-1").endsWith("\r\n\r\n")) {
+                int b = in.read();
+                if (b < 0)
+                    throw new IOException("Connection closed within header");
+                header.write(b);
+            }
+            Response response = new Response();
+            int contentLength = 0;
+            String[] lines = header.toString("ISO-8859-1").split("\r\n");
+            response.status = Integer.parseInt(lines[0].split(" ")[1]);
+            for (String line : lines) {
+                if (line.startsWith("Content-Length: "))
+                    contentLength = Integer.parseInt(line.substring("Content-Length: ".length()));
+                else if (line.startsWith("Connection: "))
+                    response.connection = line.substring("Connection: ".length());
+            }
+            byte[] body = new byte[contentLength];
+            for (int read = 0; read < contentLength; ) {
+                int count = in.read(body, read, contentLength - read);
+                if (count < 0)
+                    throw new IOException("Connection closed within body");
+                read += count;
+            }
+            response.body = new String(body, "UTF-8");
+            return response;
+        }
+
+        /**
+         * method to wait for the server to close the connection
+         * @return true if closed, false if anything else is received
+         */
+        boolean isClosedByServer() throws IOException {
+            try {
+                return in.read() < 0;
+            } catch (SocketException e) {
+                //  connection reset
+                return true;
+            }
+        }
+
+        void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.android.p03quizapp;
+
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizGradingEngine: submissions graded like QuizCheckAnswer.isAnswerCorrect grades the
+ * same answers given through input handlers, for choice questions of up to 64 answers, text and
+ * Numeric questions, and streams of submissions delivered in order and summed up
+ */
+public class QuizGradingEngineTest {
+    //  more than 64 quiz questions, so correctness bits span several words
+    private static final int QUESTION_COUNT = 150;
+
+    private QuizBank quizBank;
+    private QuizGradingEngine gradingEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        List<String> choices = new ArrayList<>();
+        for (int i = 0; i < QuizAnswerStore.MAX_CHOICES; i++) {
+            choices.add("Choice " + i);
+        }
+        QuizBank.Builder builder = new QuizBank.Builder();
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            switch (i % 5) {
+                case 0:
+                    builder.add(null, 0, "Radio " + i, "Radio", choices.subList(0, 4), 1L << (i % 4));
+                    break;
+                case 1:
+                    //  as many choices as fit the bitmask, the last one correct
+                    builder.add(null, 0, "Checkbox " + i, "Checkbox", choices, 0b1011L | (1L << 63));
+                    break;
+                case 2:
+                    builder.add(null, 0, "Checkbox " + i, "Checkbox", choices.subList(0, 3), 0b101L);
+                    break;
+                case 3:
+                    builder.add(null, 0, "EditText " + i, "EditText", Arrays.asList("Gogh", "van Gogh", "Vincent"),
+                            0b011L, i % 3);
+                    break;
+                default:
+                    builder.add(null, 0, "Numeric " + i, "Numeric", Arrays.asList("3.14", "2.72"), 0b01L, 0,
+                            0.01, 10, 20);
+                    break;
+            }
+        }
+        quizBank = builder.build();
+        gradingEngine = new QuizGradingEngine(quizBank, 4);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        gradingEngine.shutdown();
+    }
+
+    @Test
+    public void grade_matchesIsAnswerCorrect() throws Exception {
+        ArrayList<QuizQuestion> quizQuestions = quizBank.getQuizQuestions();
+        for (long id = 0; id < 500; id++) {
+            QuizGradingEngine.Submission submission = newSubmission(id);
+            QuizGradingEngine.GradedSubmission gradedSubmission = gradingEngine.grade(submission);
+            int score = 0;
+            for (QuizQuestion quizQuestion : quizQuestions) {
+                int i = quizQuestion.getIndex();
+                quizQuestion.setInputHandler(new FakeInputHandler(submission.getSelectedAnswerMask(i),
+                        submission.getInputText(i)));
+                boolean isCorrect = QuizCheckAnswer.isAnswerCorrect(quizQuestion);
+                assertEquals("Submission " + id + ", " + quizQuestion, isCorrect, gradedSubmission.isCorrect(i));
+                if (isCorrect)
+                    score++;
+            }
+            assertEquals(id, gradedSubmission.getId());
+            assertEquals(score, gradedSubmission.getScore());
+        }
+    }
+
+    @Test
+    public void grade_choiceRules() throws Exception {
+        QuizGradingEngine.Submission submission = new QuizGradingEngine.Submission(1, QUESTION_COUNT);
+        //  exactly the correct answers, including the 64th
+        submission.setSelectedAnswerMask(1, 0b1011L | (1L << 63));
+        //  one correct answer missing
+        submission.setSelectedAnswerMask(6, 0b1011L);
+        //  one incorrect answer too
+        submission.setSelectedAnswerMask(2, 0b111L);
+        submission.setSelectedAnswerMask(7, 0b101L);
+        submission.setSelectedAnswerMask(0, 0b1L);
+        //  typed in, within edit distance and range
+        submission.setInputText(3, " VAN gogh ");
+        submission.setInputText(4, "15");
+        QuizGradingEngine.GradedSubmission gradedSubmission = gradingEngine.grade(submission);
+
+        assertTrue(gradedSubmission.isCorrect(1));
+        assertFalse(gradedSubmission.isCorrect(6));
+        assertFalse(gradedSubmission.isCorrect(2));
+        assertTrue(gradedSubmission.isCorrect(7));
+        assertTrue(gradedSubmission.isCorrect(0));
+        assertTrue(gradedSubmission.isCorrect(3));
+        assertTrue(gradedSubmission.isCorrect(4));
+        //  nothing selected or typed in
+        assertFalse(gradedSubmission.isCorrect(5));
+        assertFalse(gradedSubmission.isCorrect(QUESTION_COUNT - 1));
+        assertEquals(5, gradedSubmission.getScore());
+    }
+
+    @Test
+    public void choicesOverBitmask_areRejected() throws Exception {
+        List<String> choices = Collections.nCopies(QuizAnswerStore.MAX_CHOICES + 1, "Choice");
+        try {
+            new QuizBank.Builder().add(null, 0, "Checkbox", "Checkbox", choices, 1L);
+            fail("More than " + QuizAnswerStore.MAX_CHOICES + " choices");
+        } catch (IllegalArgumentException e) {
+            //  expected
+        }
+    }
+
+    @Test
+    public void gradeAll_deliversInOrderAndSumsUp() throws Exception {
+        //  several batches, the last one partial
+        final int submissionCount = 5 * QuizGradingEngine.BATCH_SIZE + 7;
+        final ArrayList<QuizGradingEngine.GradedSubmission> gradedSubmissions = new ArrayList<>();
+        QuizGradingEngine.Summary summary = gradingEngine.gradeAll(new SubmissionIterator(submissionCount),
+                new QuizGradingEngine.OnSubmissionGradedListener() {
+                    @Override
+                    public void onSubmissionGraded(QuizGradingEngine.GradedSubmission gradedSubmission) {
+                        gradedSubmissions.add(gradedSubmission);
+                    }
+                });
+
+        assertEquals(submissionCount, gradedSubmissions.size());
+        long totalScore = 0;
+        long[] correctCounts = new long[QUESTION_COUNT];
+        long[] scoreCounts = new long[QUESTION_COUNT + 1];
+        for (int id = 0; id < submissionCount; id++) {
+            QuizGradingEngine.GradedSubmission gradedSubmission = gradedSubmissions.get(id);
+            assertEquals(id, gradedSubmission.getId());
+            QuizGradingEngine.GradedSubmission expected = gradingEngine.grade(newSubmission(id));
+            assertEquals(expected.getScore(), gradedSubmission.getScore());
+            totalScore += gradedSubmission.getScore();
+            scoreCounts[gradedSubmission.getScore()]++;
+            for (int i = 0; i < QUESTION_COUNT; i++) {
+                assertEquals(expected.isCorrect(i), gradedSubmission.isCorrect(i));
+                if (gradedSubmission.isCorrect(i))
+                    correctCounts[i]++;
+            }
+        }
+
+        assertEquals(submissionCount, summary.getSubmissionCount());
+        assertEquals(totalScore, summary.getTotalScore());
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            assertEquals(correctCounts[i], summary.getCorrectCount(i));
+        }
+        for (int score = 0; score <= QUESTION_COUNT; score++) {
+            assertEquals(scoreCounts[score], summary.getScoreCount(score));
+        }
+    }
+
+    @Test
+    public void gradeAll_withoutSubmissions() throws Exception {
+        QuizGradingEngine.Summary summary = gradingEngine.gradeAll(new SubmissionIterator(0), null);
+        assertEquals(0, summary.getSubmissionCount());
+        assertEquals(0, summary.getTotalScore());
+    }
+
+    /**
+     * method to create a submission of random answers, the same ones for the same id: right, wrong,
+     * near misses and none
+     * @param id is the id of the submission
+     * @return the submission
+     */
+    private QuizGradingEngine.Submission newSubmission(long id) {
+        Random random = new Random(id);
+        QuizGradingEngine.Submission submission = new QuizGradingEngine.Submission(id, QUESTION_COUNT);
+        for (int i = 0; i < QUESTION_COUNT; i++) {
+            if (QuizInputTypeRegistry.isChoiceInput(quizBank.getInputTypeCode(i))) {
+                long correctAnswerMask = quizBank.getCorrectAnswerMask(i);
+                long[] selectedAnswerMasks = {correctAnswerMask, 0,
+                        correctAnswerMask ^ (1L << random.nextInt(quizBank.getAnswerCount(i))), random.nextLong()};
+                submission.setSelectedAnswerMask(i, selectedAnswerMasks[random.nextInt(selectedAnswerMasks.length)]);
+            } else if (quizBank.getInputType(i).equals("Numeric")) {
+                String[] inputTexts = {"3.14", "3,145", "2.72", "2.8", "12", "20.5", "pi", "", null};
+                submission.setInputText(i, inputTexts[random.nextInt(inputTexts.length)]);
+            } else {
+                String[] inputTexts = {"Gogh", " van GOGH", "Gog", "Gohg", "Vincent", "Vincent van Gogh", "", null};
+                submission.setInputText(i, inputTexts[random.nextInt(inputTexts.length)]);
+            }
+        }
+        return submission;
+    }
+
+    /**
+     * class to stream submissions, created as they are read
+     */
+    private class SubmissionIterator implements Iterator<QuizGradingEngine.Submission> {
+        private int submissionCount;
+        private int nextId = 0;
+
+        SubmissionIterator(int submissionCount) {
+            this.submissionCount = submissionCount;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextId < submissionCount;
+        }
+
+        @Override
+        public QuizGradingEngine.Submission next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            return newSubmission(nextId++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * class to give a fixed answer in place of input views
+     */
+    private static class FakeInputHandler implements QuizInputHandler {
+        private long selectedAnswerMask;
+        private String inputText;
+
+        FakeInputHandler(long selectedAnswerMask, String inputText) {
+            this.selectedAnswerMask = selectedAnswerMask;
+            this.inputText = inputText;
+        }
+
+        @Override
+        public long getSelectedAnswerMask() {
+            return selectedAnswerMask;
+        }
+
+        @Override
+        public String getInputText() {
+            return inputText;
+        }
+
+        @Override
+        public void resetInput() {
+        }
+
+        @Override
+        public void bind(View inputView) {
+        }
+
+        @Override
+        public void unbind() {
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizNumericAnswerMatcher: parsing numbers as typed in, and matching them against
+ * accepted answers, tolerances and ranges
+ */
+public class QuizNumericAnswerMatcherTest {
+    @Test
+    public void parse_acceptsNumberForms() throws Exception {
+        assertEquals(2.0, QuizNumericAnswerMatcher.parse("2"), 0);
+        assertEquals(2.0, QuizNumericAnswerMatcher.parse("+2"), 0);
+        assertEquals(2.0, QuizNumericAnswerMatcher.parse("2.0"), 0);
+        assertEquals(2.0, QuizNumericAnswerMatcher.parse("2e0"), 0);
+        assertEquals(2.0, QuizNumericAnswerMatcher.parse(" 2E0 "), 0);
+        assertEquals(-2.0, QuizNumericAnswerMatcher.parse("\u22122"), 0);
+        assertEquals(-2.0, QuizNumericAnswerMatcher.parse("-2"), 0);
+        assertEquals(0.5, QuizNumericAnswerMatcher.parse(".5"), 0);
+        assertEquals(5.0, QuizNumericAnswerMatcher.parse("5."), 0);
+        assertEquals(250.0, QuizNumericAnswerMatcher.parse("2.5e+2"), 0);
+        assertEquals(0.025, QuizNumericAnswerMatcher.parse("2.5e-2"), 0);
+        assertEquals(Double.POSITIVE_INFINITY, QuizNumericAnswerMatcher.parse("1e400"), 0);
+        assertEquals(0.0, QuizNumericAnswerMatcher.parse("1e-400"), 0);
+    }
+
+    @Test
+    public void parse_rejectsNonNumbers() throws Exception {
+        for (String text : new String[]{"", " ", "-", "+", ".", "e5", "2e", "2e+", "2.0.0", "2 0", "--2",
+                "two", "0x10", "1,2,3"}) {
+            assertTrue("'" + text + "'", Double.isNaN(QuizNumericAnswerMatcher.parse(text)));
+        }
+    }
+
+    @Test
+    public void parse_takesCommaForDecimalSeparatorUnlessThreeDigitsFollow() throws Exception {
+        assertEquals(1.5, QuizNumericAnswerMatcher.parse("1,5"), 0);
+        assertEquals(1.25, QuizNumericAnswerMatcher.parse("1,25"), 0);
+        assertEquals(1.0625, QuizNumericAnswerMatcher.parse("1,0625"), 0);
+        assertEquals(0.5, QuizNumericAnswerMatcher.parse(",5"), 0);
+        //  a thousand or one? Neither
+        assertTrue(Double.isNaN(QuizNumericAnswerMatcher.parse("1,000")));
+        assertTrue(Double.isNaN(QuizNumericAnswerMatcher.parse("12,345")));
+        assertTrue(Double.isNaN(QuizNumericAnswerMatcher.parse("1,000e3")));
+        assertTrue(Double.isNaN(QuizNumericAnswerMatcher.parse(",000")));
+        assertEquals(1.0, QuizNumericAnswerMatcher.parse("1.000"), 0);
+    }
+
+    @Test
+    public void parse_matchesParseDouble() throws Exception {
+        //  up to 15 significant digits parse exactly
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            long mantissa = (long) (random.nextDouble() * 1e15);
+            int exponent = random.nextInt(40) - 20;
+            String text = mantissa + "e" + exponent;
+            assertEquals(text, Double.parseDouble(text), QuizNumericAnswerMatcher.parse(text), 0);
+            text = String.format(Locale.US, "%.6f", random.nextDouble() * 1000);
+            assertEquals(text, Double.parseDouble(text), QuizNumericAnswerMatcher.parse(text), 0);
+        }
+    }
+
+    @Test
+    public void matches_withinTolerance() throws Exception {
+        QuizNumericAnswerMatcher matcher = new QuizNumericAnswerMatcher(Arrays.asList("2", "3.5"), 0.25,
+                Double.NaN, Double.NaN);
+        assertEquals(2, matcher.getRangeCount());
+        assertTrue(matcher.matches("2"));
+        assertTrue(matcher.matches("+2.0"));
+        assertTrue(matcher.matches("1.75"));
+        assertTrue(matcher.matches("2,25"));
+        assertTrue(matcher.matches("3.5e0"));
+        assertFalse(matcher.matches("1.7"));
+        assertFalse(matcher.matches("3"));
+        assertFalse(matcher.matches("1e400"));
+        assertFalse(matcher.matches("two"));
+        assertFalse(matcher.matches(null));
+    }
+
+    @Test
+    public void matches_rangeAndMergedRanges() throws Exception {
+        QuizNumericAnswerMatcher matcher = new QuizNumericAnswerMatcher(Arrays.asList("1", "1.5", "10"), 0.5,
+                5, 8);
+        //  0.5 to 2 merged, 5 to 8, 9.5 to 10.5
+        assertEquals(3, matcher.getRangeCount());
+        assertTrue(matcher.matches("0.5"));
+        assertTrue(matcher.matches("1.9"));
+        assertTrue(matcher.matches("6"));
+        assertTrue(matcher.matches("10.5"));
+        assertFalse(matcher.matches("2.1"));
+        assertFalse(matcher.matches("9"));
+        assertFalse(matcher.matches("1,000"));
+
+        matcher = new QuizNumericAnswerMatcher(Collections.<String>emptyList(), 0, -1, 1);
+        assertTrue(matcher.matches("\u22121"));
+        assertFalse(matcher.matches("-1.01"));
+    }
+
+    @Test
+    public void invalidAnswers_areRejected() throws Exception {
+        assertInvalid(Arrays.asList("1,000"), 0, Double.NaN, Double.NaN);
+        assertInvalid(Arrays.asList("2"), -1, Double.NaN, Double.NaN);
+        assertInvalid(Arrays.asList("2"), Double.POSITIVE_INFINITY, Double.NaN, Double.NaN);
+        assertInvalid(Arrays.asList("2"), 0, 3, 1);
+        assertInvalid(Arrays.asList("2"), 0, 3, Double.NaN);
+    }
+
+    private static void assertInvalid(List<String> answers, double tolerance, double minimum,
+                                      double maximum) {
+        try {
+            new QuizNumericAnswerMatcher(answers, tolerance, minimum, maximum);
+            fail(answers + " tolerance " + tolerance + " range " + minimum + " to " + maximum);
+        } catch (IllegalArgumentException e) {
+            //  expected
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizParseCache, caching quizzes of a source held in memory: hits, misses, and cache
+ * files replaced when a quiz changes or deleted when corrupt
+ */
+public class QuizParseCacheTest {
+    private static final int QUIZ_ID = 1;
+    private static final int OTHER_QUIZ_ID = 2;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File cacheDir;
+    private MemoryQuizSource quizSource;
+
+    @Before
+    public void setUp() throws Exception {
+        cacheDir = new File(folder.getRoot(), "cache");
+        quizSource = new MemoryQuizSource();
+        quizSource.put(QUIZ_ID, "quiz_data", quizData("Capital of U.S.A.?", "Washington D.C."));
+        quizSource.put(OTHER_QUIZ_ID, "quiz_other", quizData("Capital of France?", "Paris"));
+    }
+
+    @Test
+    public void unchangedQuiz_isParsedOnce() throws Exception {
+        ArrayList<QuizQuestion> parsedQuizQuestions = new QuizParseCache(cacheDir, quizSource).parse(QUIZ_ID, null);
+        assertEquals(1, quizSource.parseCount);
+        assertEquals(1, getCacheFiles("quiz_data").length);
+
+        //  a new cache object, as after a restart of the app
+        ArrayList<QuizQuestion> cachedQuizQuestions = new QuizParseCache(cacheDir, quizSource).parse(QUIZ_ID, null);
+        assertEquals(1, quizSource.parseCount);
+        assertEquals(parsedQuizQuestions.size(), cachedQuizQuestions.size());
+        for (int i = 0; i < parsedQuizQuestions.size(); i++) {
+            assertEquals(parsedQuizQuestions.get(i).getQuestion(), cachedQuizQuestions.get(i).getQuestion());
+            assertEquals(parsedQuizQuestions.get(i).getAnswer(1), cachedQuizQuestions.get(i).getAnswer(1));
+            assertEquals(parsedQuizQuestions.get(i).getCorrectAnswerMask(),
+                    cachedQuizQuestions.get(i).getCorrectAnswerMask());
+        }
+    }
+
+    @Test
+    public void cacheHit_publishesEveryQuizQuestion() throws Exception {
+        QuizParseCache quizParseCache = new QuizParseCache(cacheDir, quizSource);
+        quizParseCache.parse(QUIZ_ID, null);
+        final ArrayList<QuizQuestion> publishedQuizQuestions = new ArrayList<>();
+        ArrayList<QuizQuestion> cachedQuizQuestions = quizParseCache.parse(QUIZ_ID,
+                new QuizXmlParser.OnQuizQuestionParsedListener() {
+                    @Override
+                    public void onQuizQuestionParsed(QuizQuestion quizQuestion) {
+                        publishedQuizQuestions.add(quizQuestion);
+                    }
+                });
+        assertEquals(1, quizSource.parseCount);
+        assertEquals(cachedQuizQuestions, publishedQuizQuestions);
+    }
+
+    @Test
+    public void changedQuiz_isParsedAgainAndReplacesCacheFile() throws Exception {
+        QuizParseCache quizParseCache = new QuizParseCache(cacheDir, quizSource);
+        quizParseCache.parse(QUIZ_ID, null);
+        quizParseCache.parse(OTHER_QUIZ_ID, null);
+        File[] oldCacheFiles = getCacheFiles("quiz_data");
+
+        quizSource.put(QUIZ_ID, "quiz_data", quizData("Capital of Hungary?", "Budapest"));
+        ArrayList<QuizQuestion> quizQuestions = quizParseCache.parse(QUIZ_ID, null);
+        assertEquals(3, quizSource.parseCount);
+        assertEquals("Capital of Hungary?", quizQuestions.get(0).getQuestion());
+
+        //  the stale cache file of the resource is gone, the one of the other resource is kept
+        File[] cacheFiles = getCacheFiles("quiz_data");
+        assertEquals(1, cacheFiles.length);
+        assertNotEquals(oldCacheFiles[0], cacheFiles[0]);
+        assertEquals(1, getCacheFiles("quiz_other").length);
+
+        quizParseCache.parse(QUIZ_ID, null);
+        assertEquals(3, quizSource.parseCount);
+    }
+
+    @Test
+    public void corruptCacheFile_isDeletedAndParsedAgain() throws Exception {
+        QuizParseCache quizParseCache = new QuizParseCache(cacheDir, quizSource);
+        quizParseCache.parse(QUIZ_ID, null);
+        File cacheFile = getCacheFiles("quiz_data")[0];
+        FileOutputStream outputStream = new FileOutputStream(cacheFile);
+        try {
+            outputStream.write(new byte[]{'Q', 'Z', 'B', 'K', 0, 0});
+        } finally {
+            outputStream.close();
+        }
+
+        ArrayList<QuizQuestion> quizQuestions = quizParseCache.parse(QUIZ_ID, null);
+        assertEquals(2, quizSource.parseCount);
+        assertEquals("Capital of U.S.A.?", quizQuestions.get(0).getQuestion());
+        //  written again in one piece
+        assertTrue(cacheFile.length() > QuizBankFile.HEADER_SIZE);
+        quizParseCache.parse(QUIZ_ID, null);
+        assertEquals(2, quizSource.parseCount);
+    }
+
+    @Test
+    public void unreadableQuiz_isParsedWithoutCaching() throws Exception {
+        quizSource.isOpenFailing = true;
+        QuizParseCache quizParseCache = new QuizParseCache(cacheDir, quizSource);
+        assertEquals(2, quizParseCache.parse(QUIZ_ID, null).size());
+        assertEquals(2, quizParseCache.parse(QUIZ_ID, null).size());
+        assertEquals(2, quizSource.parseCount);
+        assertEquals(0, getCacheFiles("quiz_data").length);
+    }
+
+    private File[] getCacheFiles(String resourceName) {
+        File[] files = cacheDir.listFiles();
+        ArrayList<File> cacheFiles = new ArrayList<>();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith(resourceName + "-") && file.getName().endsWith(".qbk"))
+                    cacheFiles.add(file);
+            }
+        }
+        return cacheFiles.toArray(new File[cacheFiles.size()]);
+    }
+
+    private static String quizData(String question, String correctAnswer) {
+        return "<quizquestions>"
+                + "<quizquestion><question>" + question + "</question><input_type>Radio</input_type>"
+                + "<answer correct=\"false\">Chicago</answer><answer correct=\"true\">" + correctAnswer
+                + "</answer></quizquestion>"
+                + "<quizquestion><question>" + question + " Really?</question><input_type>EditText</input_type>"
+                + "<answer correct=\"true\">" + correctAnswer + "</answer><answer correct=\"true\">Yes</answer>"
+                + "</quizquestion>"
+                + "</quizquestions>";
+    }
+
+    /**
+     * class to hold XML quizzes in memory by resource id, counting the times they are parsed
+     */
+    private static class MemoryQuizSource implements QuizParseCache.QuizSource {
+        private HashMap<Integer, String> names = new HashMap<>();
+        private HashMap<Integer, String> quizData = new HashMap<>();
+        private int parseCount;
+        private boolean isOpenFailing;
+
+        void put(int xmlResourceId, String name, String data) {
+            names.put(xmlResourceId, name);
+            quizData.put(xmlResourceId, data);
+        }
+
+        @Override
+        public String getName(int xmlResourceId) {
+            return names.get(xmlResourceId);
+        }
+
+        @Override
+        public InputStream open(int xmlResourceId) throws IOException {
+            if (isOpenFailing)
+                throw new IOException("No raw resource " + xmlResourceId);
+            return new ByteArrayInputStream(quizData.get(xmlResourceId).getBytes("UTF-8"));
+        }
+
+        @Override
+        public ArrayList<QuizQuestion> parse(int xmlResourceId, QuizXmlParser.OnQuizQuestionParsedListener listener)
+                throws XmlPullParserException, IOException {
+            parseCount++;
+            KXmlParser xmlParser = new KXmlParser();
+            xmlParser.setInput(new StringReader(quizData.get(xmlResourceId)));
+            return QuizXmlParser.parse(new QuizXmlParser(xmlParser, null), listener);
+        }
+
+        @Override
+        public QuizXmlParser.HeaderImageResolver getHeaderImageResolver() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Test;
+import org.kxml2.io.KXmlParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizSampler, reading quiz banks generated on the fly by kxml2
+ */
+public class QuizSamplerTest {
+    //  input types of generated quiz questions, in turn
+    private static final String[] INPUT_TYPES = {"Radio", "Checkbox", "EditText"};
+
+    @Test
+    public void sameSeed_givesSameExam() throws Exception {
+        ArrayList<String> exam = getQuestions(new QuizSampler(20, 42).sample(parser(1000)));
+        assertEquals(20, exam.size());
+        assertEquals(exam, getQuestions(new QuizSampler(20, 42).sample(parser(1000))));
+        assertNotEquals(exam, getQuestions(new QuizSampler(20, 43).sample(parser(1000))));
+    }
+
+    @Test
+    public void exam_isInQuizBankOrderIndexedFromZero() throws Exception {
+        ArrayList<QuizQuestion> exam = new QuizSampler(50, 7).sample(parser(1000));
+        int previousNumber = -1;
+        for (int i = 0; i < exam.size(); i++) {
+            assertEquals(i, exam.get(i).getIndex());
+            int number = Integer.parseInt(exam.get(i).getQuestion().substring("Question ".length()));
+            assertTrue(number > previousNumber);
+            previousNumber = number;
+        }
+    }
+
+    @Test
+    public void filters_chooseMatchingQuizQuestionsOnly() throws Exception {
+        QuizSampler quizSampler = new QuizSampler(30, 1);
+        quizSampler.setInputTypes(QuizInputTypeRegistry.getCode("Radio"));
+        quizSampler.setHeaderImageFilter(QuizSampler.HEADER_IMAGE_REQUIRED);
+        ArrayList<QuizQuestion> exam = quizSampler.sample(parser(900));
+
+        assertEquals(30, exam.size());
+        assertEquals(900, quizSampler.getScannedCount());
+        //  Radio every 3rd, header image every 4th quiz question
+        assertEquals(75, quizSampler.getMatchingCount());
+        for (QuizQuestion quizQuestion : exam) {
+            assertEquals("Radio", quizQuestion.getInputType());
+            assertNotNull(quizQuestion.getHeaderImageName());
+        }
+    }
+
+    @Test
+    public void fewerMatching_givesAllMatching() throws Exception {
+        QuizSampler quizSampler = new QuizSampler(100, 1);
+        quizSampler.setHeaderImageFilter(QuizSampler.HEADER_IMAGE_NONE);
+        ArrayList<QuizQuestion> exam = quizSampler.sample(parser(40));
+        assertEquals(30, exam.size());
+        for (QuizQuestion quizQuestion : exam) {
+            assertNull(quizQuestion.getHeaderImageName());
+        }
+    }
+
+    @Test
+    public void quizQuestionsBuilt_dependOnSampleSizeOnly() throws Exception {
+        //  reservoir sampling replaces about sampleSize * ln(bankSize / sampleSize) quiz questions,
+        //  the rest are never built; the document itself is streamed, never held in memory
+        int sampleSize = 10;
+        int[] bankSizes = {1000, 200000};
+        for (int bankSize : bankSizes) {
+            CountingQuizXmlParser quizXmlParser = new CountingQuizXmlParser(bankSize);
+            QuizSampler quizSampler = new QuizSampler(sampleSize, 5);
+            ArrayList<QuizQuestion> exam = quizSampler.sample(quizXmlParser);
+
+            assertEquals(sampleSize, exam.size());
+            assertEquals(bankSize, quizSampler.getScannedCount());
+            assertTrue("built " + quizXmlParser.createdCount + " of " + bankSize,
+                    quizXmlParser.createdCount < sampleSize * (2 + Math.log(bankSize)));
+        }
+    }
+
+    /**
+     * method to create a QuizXmlParser reading a generated quiz bank
+     * @param size is the number of quiz questions
+     * @return the QuizXmlParser
+     */
+    private static QuizXmlParser parser(int size) throws XmlPullParserException {
+        KXmlParser xmlParser = new KXmlParser();
+        xmlParser.setInput(new QuizBankXmlReader(size));
+        return new QuizXmlParser(xmlParser, null);
+    }
+
+    /**
+     * method to get the question texts of an exam
+     * @param quizQuestions are the QuizQuestion objects
+     * @return ArrayList of question texts
+     */
+    private static ArrayList<String> getQuestions(ArrayList<QuizQuestion> quizQuestions) {
+        ArrayList<String> questions = new ArrayList<>(quizQuestions.size());
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            questions.add(quizQuestion.getQuestion());
+        }
+        return questions;
+    }
+
+    /**
+     * class to count the QuizQuestion objects built by QuizSampler
+     */
+    private static class CountingQuizXmlParser extends QuizXmlParser {
+        private int createdCount = 0;
+
+        CountingQuizXmlParser(int size) throws XmlPullParserException {
+            super(newXmlParser(size), null);
+        }
+
+        private static KXmlParser newXmlParser(int size) throws XmlPullParserException {
+            KXmlParser xmlParser = new KXmlParser();
+            xmlParser.setInput(new QuizBankXmlReader(size));
+            return xmlParser;
+        }
+
+        @Override
+        QuizQuestion createQuizQuestion() {
+            createdCount++;
+            return super.createQuizQuestion();
+        }
+    }
+
+    /**
+     * class to generate the XML of a quiz bank quiz question by quiz question, as it is read
+     */
+    private static class QuizBankXmlReader extends Reader {
+        private final int size;
+        private int nextQuestion = 0;
+        private StringBuilder chunk = new StringBuilder("<quizquestions>");
+        private int chunkPosition = 0;
+        private boolean isEnded = false;
+
+        QuizBankXmlReader(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (chunkPosition == chunk.length() && !nextChunk())
+                return -1;
+            int count = Math.min(length, chunk.length() - chunkPosition);
+            chunk.getChars(chunkPosition, chunkPosition + count, buffer, offset);
+            chunkPosition += count;
+            return count;
+        }
+
+        private boolean nextChunk() {
+            if (isEnded)
+                return false;
+            chunk.setLength(0);
+            chunkPosition = 0;
+            if (nextQuestion == size) {
+                chunk.append("</quizquestions>");
+                isEnded = true;
+                return true;
+            }
+            int i = nextQuestion++;
+            chunk.append("<quizquestion>");
+            if (i % 4 == 0)
+                chunk.append("<header_image_src>image").append(i).append("</header_image_src>");
+            chunk.append("<question>Question ").append(i).append("</question>");
+            chunk.append("<input_type>").append(INPUT_TYPES[i % INPUT_TYPES.length]).append("</input_type>");
+            chunk.append("<answer correct=\"true\">True</answer><answer correct=\"false\">False</answer>");
+            chunk.append("</quizquestion>");
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.android.p03quizapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * JVM tests of QuizTextAnswerMatcher: normalization, edit distances at the bounds of text length
+ * and many accepted answers, checked against a plain edit distance where it matters
+ */
+public class QuizTextAnswerMatcherTest {
+    @Test
+    public void normalizedText_matches() throws Exception {
+        QuizTextAnswerMatcher matcher = matcher(0, "Gogh");
+        assertTrue(matcher.matches("gogh"));
+        assertTrue(matcher.matches(" Gogh "));
+        assertTrue(matcher.matches("\tGOGH\n"));
+        assertFalse(matcher.matches("van Gogh"));
+        assertFalse(matcher.matches("Go gh"));
+
+        matcher = matcher(0, "Gogh", "van Gogh");
+        assertTrue(matcher.matches("van Gogh"));
+        assertTrue(matcher.matches("  VAN \t gogh "));
+        assertFalse(matcher.matches("vangogh"));
+    }
+
+    @Test
+    public void blankText_neverMatches() throws Exception {
+        QuizTextAnswerMatcher matcher = matcher(2, "a", null, "  ");
+        assertEquals(1, matcher.getVariantCount());
+        assertTrue(matcher.matches("b"));
+        assertFalse(matcher.matches(""));
+        assertFalse(matcher.matches("   "));
+        assertFalse(matcher.matches(null));
+        assertFalse(matcher(1, "", " ").matches("a"));
+    }
+
+    @Test
+    public void duplicateVariants_areKeptOnce() throws Exception {
+        assertEquals(1, matcher(1, "Gogh", " gogh ", "GOGH").getVariantCount());
+    }
+
+    @Test
+    public void editDistance1_forgivesOneTypo() throws Exception {
+        QuizTextAnswerMatcher matcher = matcher(1, "Pennsylvania");
+        assertTrue(matcher.matches("Pensylvania"));
+        assertTrue(matcher.matches("Pennsylvaniaa"));
+        assertTrue(matcher.matches("Pennsylvanie"));
+        assertTrue(matcher.matches("Xennsylvania"));
+        assertFalse(matcher.matches("Pensylvanie"));
+        assertFalse(matcher.matches("Pennsylvaniaaa"));
+    }
+
+    @Test
+    public void editDistance2_forgivesTwoTypos() throws Exception {
+        QuizTextAnswerMatcher matcher = matcher(2, "Pennsylvania");
+        assertTrue(matcher.matches("Pensylvanie"));
+        assertTrue(matcher.matches("ennsylvani"));
+        assertTrue(matcher.matches("Pennsylvaniaaa"));
+        assertFalse(matcher.matches("Pnsylvanie"));
+        assertFalse(matcher.matches("Pennsylvaniaaaa"));
+    }
+
+    @Test
+    public void editDistance_atLengthBounds() throws Exception {
+        //  texts as short and as long as the edit distance allows, and a character beyond
+        QuizTextAnswerMatcher matcher = matcher(1, "Gogh");
+        assertTrue(matcher.matches("gog"));
+        assertTrue(matcher.matches("ogh"));
+        assertFalse(matcher.matches("gh"));
+        assertTrue(matcher.matches("goghs"));
+        assertTrue(matcher.matches("xgogh"));
+        assertFalse(matcher.matches("xgoghs"));
+
+        matcher = matcher(2, "Gogh");
+        assertTrue(matcher.matches("gh"));
+        assertTrue(matcher.matches("go"));
+        assertFalse(matcher.matches("g"));
+        assertTrue(matcher.matches("xgoghs"));
+        assertFalse(matcher.matches("xgoghsx"));
+
+        //  shortest and longest of several accepted answers
+        matcher = matcher(2, "ab", "abcdefgh");
+        assertTrue(matcher.matches("x"));
+        assertTrue(matcher.matches("abcdefghij"));
+        assertFalse(matcher.matches("abcdefghijk"));
+    }
+
+    @Test
+    public void textOverLengthLimit_doesNotMatch() throws Exception {
+        QuizTextAnswerMatcher matcher = matcher(2, "Gogh");
+        char[] longText = new char[100000];
+        Arrays.fill(longText, 'g');
+        assertFalse(matcher.matches(new String(longText)));
+
+        //  whitespace around is not counted, only the normalized text is limited
+        Arrays.fill(longText, ' ');
+        "Gogh".getChars(0, 4, longText, 50000);
+        assertTrue(matcher.matches(new String(longText)));
+    }
+
+    @Test
+    public void manyVariants_allMatch() throws Exception {
+        List<String> answers = new ArrayList<>();
+        for (int i = 0; i < QuizTextAnswerMatcher.MAX_VARIANTS; i++) {
+            answers.add("Answer number " + i);
+        }
+        QuizTextAnswerMatcher matcher = new QuizTextAnswerMatcher(answers, 1);
+        assertEquals(QuizTextAnswerMatcher.MAX_VARIANTS, matcher.getVariantCount());
+        for (int i = 0; i < answers.size(); i++) {
+            assertTrue(matcher.matches(" answer  NUMBER " + i));
+            assertTrue(matcher.matches("answer numbr " + i));
+        }
+        assertFalse(matcher.matches("answer numbr 10000"));
+        assertFalse(matcher.matches("question number 1"));
+
+        answers.add("one too many");
+        try {
+            new QuizTextAnswerMatcher(answers, 1);
+            fail("More than " + QuizTextAnswerMatcher.MAX_VARIANTS + " accepted answers");
+        } catch (IllegalArgumentException e) {
+            //  expected
+        }
+    }
+
+    @Test
+    public void randomTexts_matchLikeEditDistance() throws Exception {
+        //  a small alphabet makes near misses and hash keys of deletions common
+        Random random = new Random(42);
+        for (int maxEditDistance = 0; maxEditDistance <= QuizTextAnswerMatcher.MAX_EDIT_DISTANCE;
+             maxEditDistance++) {
+            for (int round = 0; round < 200; round++) {
+                List<String> answers = new ArrayList<>();
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    answers.add(randomText(random, 1 + random.nextInt(6)));
+                }
+                QuizTextAnswerMatcher matcher = new QuizTextAnswerMatcher(answers, maxEditDistance);
+                for (int i = 0; i < 50; i++) {
+                    String text = randomText(random, 1 + random.nextInt(9));
+                    boolean isExpected = false;
+                    for (String answer : answers) {
+                        //  blank accepted answers are ignored
+                        String normalizedAnswer = QuizTextAnswerMatcher.normalize(answer);
+                        isExpected |= !normalizedAnswer.isEmpty() && editDistance(normalizedAnswer,
+                                QuizTextAnswerMatcher.normalize(text)) <= maxEditDistance;
+                    }
+                    isExpected &= !QuizTextAnswerMatcher.normalize(text).isEmpty();
+                    assertEquals(answers + " " + maxEditDistance + " '" + text + "'",
+                            isExpected, matcher.matches(text));
+                }
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void editDistanceOverLimit_isRejected() throws Exception {
+        matcher(QuizTextAnswerMatcher.MAX_EDIT_DISTANCE + 1, "Gogh");
+    }
+
+    private static QuizTextAnswerMatcher matcher(int maxEditDistance, String... answers) {
+        return new QuizTextAnswerMatcher(Arrays.asList(answers), maxEditDistance);
+    }
+
+    private static String randomText(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = "abAB ".charAt(random.nextInt(5));
+        }
+        return new String(chars);
+    }
+
+    /**
+     * method to compute the edit distance of two texts, the plain way
+     * @param text is a text
+     * @param otherText is the other text
+     * @return the number of characters inserted, deleted or replaced to turn one into the other
+     */
+    private static int editDistance(String text, String otherText) {
+        int[][] distances = new int[text.length() + 1][otherText.length() + 1];
+        for (int i = 0; i <= text.length(); i++) {
+            for (int j = 0; j <= otherText.length(); j++) {
+                if (i == 0 || j == 0)
+                    distances[i][j] = i + j;
+                else
+                    distances[i][j] = Collections.min(Arrays.asList(
+                            distances[i - 1][j - 1] + (text.charAt(i - 1) == otherText.charAt(j - 1) ? 0 : 1),
+                            distances[i - 1][j] + 1, distances[i][j - 1] + 1));
+            }
+        }
+        return distances[text.length()][otherText.length()];
+    }
+}
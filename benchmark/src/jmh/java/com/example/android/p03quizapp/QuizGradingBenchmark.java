@@ -0,0 +1,122 @@
+package com.example.android.p03quizapp;
+
+import android.view.View;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of grading answers by QuizCheckAnswer.isAnswerCorrect, with answers given by fake input
+ * handlers, and by QuizGradingEngine, with the same answers given as a submission. About half of
+ * the answers are correct. An operation grades all questionCount questions
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizGradingBenchmark {
+    @Param({"64", "1024"})
+    public int questionCount;
+
+    //  weights of Checkbox, Radio, EditText and Numeric questions, see SyntheticQuizBank
+    @Param({"1:1:1", "1:0:0", "0:0:1", "0:0:0:1"})
+    public String inputTypeMix;
+
+    private ArrayList<QuizQuestion> quizQuestions;
+    private QuizGradingEngine gradingEngine;
+    private QuizGradingEngine.Submission submission;
+
+    @Setup
+    public void setUp() {
+        QuizBank quizBank = new SyntheticQuizBank(questionCount, inputTypeMix, 42).toQuizBank();
+        quizQuestions = quizBank.getQuizQuestions();
+        gradingEngine = new QuizGradingEngine(quizBank, 1);
+        submission = new QuizGradingEngine.Submission(0, questionCount);
+        Random random = new Random(42);
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            boolean correct = random.nextBoolean();
+            if (quizQuestion.isChoiceInput()) {
+                long mask = quizQuestion.getCorrectAnswerMask();
+                quizQuestion.setInputHandler(new FakeInputHandler(correct ? mask : mask ^ 1, null));
+                submission.setSelectedAnswerMask(quizQuestion.getIndex(), correct ? mask : mask ^ 1);
+            } else {
+                //  a copy, so the answer is compared by content as text typed in by user would be
+                String answer = new String(quizQuestion.getCorrectAnswer(0).toCharArray());
+                quizQuestion.setInputHandler(new FakeInputHandler(0, correct ? answer : answer + "?"));
+                submission.setInputText(quizQuestion.getIndex(), correct ? answer : answer + "?");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        gradingEngine.shutdown();
+    }
+
+    @Benchmark
+    public int gradeAll() {
+        int score = 0;
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            if (QuizCheckAnswer.isAnswerCorrect(quizQuestion))
+                score++;
+        }
+        return score;
+    }
+
+    @Benchmark
+    public QuizGradingEngine.GradedSubmission gradeSubmission() {
+        return gradingEngine.grade(submission);
+    }
+
+    /**
+     * class to give a fixed answer in place of input views
+     */
+    private static class FakeInputHandler implements QuizInputHandler {
+        private long selectedAnswerMask;
+        private String inputText;
+
+        FakeInputHandler(long selectedAnswerMask, String inputText) {
+            this.selectedAnswerMask = selectedAnswerMask;
+            this.inputText = inputText;
+        }
+
+        @Override
+        public long getSelectedAnswerMask() {
+            return selectedAnswerMask;
+        }
+
+        @Override
+        public String getInputText() {
+            return inputText;
+        }
+
+        @Override
+        public void resetInput() {
+        }
+
+        @Override
+        public void bind(View inputView) {
+        }
+
+        @Override
+        public void unbind() {
+        }
+    }
+}
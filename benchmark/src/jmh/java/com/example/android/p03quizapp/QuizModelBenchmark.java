@@ -0,0 +1,66 @@
+package com.example.android.p03quizapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of building the quiz model and reading correct answers from it. Quiz questions are
+ * built by QuizBank.Builder.add, which took the place of QuizQuestion.addAnswer. An operation
+ * goes through all questionCount questions
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizModelBenchmark {
+    @Param({"64", "1024"})
+    public int questionCount;
+
+    //  weights of Checkbox, Radio and EditText questions, see SyntheticQuizBank
+    @Param({"1:1:1", "1:0:0"})
+    public String inputTypeMix;
+
+    private SyntheticQuizBank syntheticQuizBank;
+    private ArrayList<QuizQuestion> quizQuestions;
+
+    @Setup
+    public void setUp() {
+        syntheticQuizBank = new SyntheticQuizBank(questionCount, inputTypeMix, 42);
+        quizQuestions = syntheticQuizBank.toQuizBank().getQuizQuestions();
+    }
+
+    @Benchmark
+    public QuizBank buildQuizBank() {
+        return syntheticQuizBank.toQuizBank();
+    }
+
+    @Benchmark
+    public ArrayList<QuizQuestion> buildQuizQuestions() {
+        return syntheticQuizBank.toQuizBank().getQuizQuestions();
+    }
+
+    @Benchmark
+    public void getCorrectAnswer(Blackhole blackhole) {
+        for (QuizQuestion quizQuestion : quizQuestions) {
+            for (int i = 0; i < quizQuestion.getCorrectAnswerCount(); i++) {
+                blackhole.consume(quizQuestion.getCorrectAnswer(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.android.p03quizapp;
+
+import org.kxml2.io.KXmlParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmark of parsing quiz XML into QuizQuestion objects by QuizXmlParser, without a listener,
+ * i.e. into a single QuizBank. An operation parses a whole document of questionCount questions
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizParseBenchmark {
+    @Param({"64", "1024"})
+    public int questionCount;
+
+    //  weights of Checkbox, Radio and EditText questions, see SyntheticQuizBank
+    @Param({"1:1:1", "1:0:0", "0:0:1"})
+    public String inputTypeMix;
+
+    private String xml;
+
+    @Setup
+    public void setUp() {
+        xml = new SyntheticQuizBank(questionCount, inputTypeMix, 42).toXml();
+    }
+
+    @Benchmark
+    public ArrayList<QuizQuestion> parse() throws XmlPullParserException, IOException {
+        KXmlParser xmlParser = new KXmlParser();
+        xmlParser.setInput(new StringReader(xml));
+        return QuizXmlParser.parse(new QuizXmlParser(xmlParser, null), null);
+    }
+}
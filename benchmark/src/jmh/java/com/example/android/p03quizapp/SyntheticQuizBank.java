@@ -0,0 +1,151 @@
+package com.example.android.p03quizapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * class to generate quiz data for benchmarks: a given number of quiz questions with input types
+ * mixed in a given ratio, as quiz XML or as a QuizBank. The same seed gives the same quiz data.
+ *
+ * The input type mix is given as weights of Checkbox, Radio and EditText questions and optionally
+ * Numeric questions, e.g. "1:1:1" for an even mix, "0:1:0" for Radio questions only or "0:0:0:1"
+ * for Numeric questions only.
+ */
+
+class SyntheticQuizBank {
+    //  input types in the order of weights in the mix
+    private static final String[] INPUT_TYPES = {"Checkbox", "Radio", "EditText", "Numeric"};
+    //  number of possible answers of choice questions
+    static final int CHOICE_COUNT = 4;
+
+    //  header image names, a few images shared by all quiz questions
+    private String[] headerImageNames;
+    private String[] inputTypes;
+    private String[] questions;
+    private List<List<String>> answers = new ArrayList<>();
+    private long[] correctAnswerMasks;
+
+    /**
+     * constructor for SyntheticQuizBank object
+     * @param questionCount is the number of quiz questions
+     * @param inputTypeMix is the weights of Checkbox, Radio, EditText and optionally Numeric questions,
+     *                     e.g. "2:1:1"
+     * @param seed is the seed of the random generator
+     */
+    SyntheticQuizBank(int questionCount, String inputTypeMix, long seed) {
+        int[] weights = parseMix(inputTypeMix);
+        int totalWeight = 0;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+        Random random = new Random(seed);
+
+        headerImageNames = new String[questionCount];
+        inputTypes = new String[questionCount];
+        questions = new String[questionCount];
+        correctAnswerMasks = new long[questionCount];
+        for (int i = 0; i < questionCount; i++) {
+            int pick = random.nextInt(totalWeight);
+            int type = 0;
+            while (pick >= weights[type]) {
+                pick -= weights[type++];
+            }
+            headerImageNames[i] = "image_" + (i % 16);
+            inputTypes[i] = INPUT_TYPES[type];
+            questions[i] = "Synthetic question #" + i + ": which of the following is answer "
+                    + random.nextInt(CHOICE_COUNT) + " of " + CHOICE_COUNT + "?";
+
+            ArrayList<String> questionAnswers = new ArrayList<>();
+            if (type == 2) {
+                questionAnswers.add("answer " + i);
+                correctAnswerMasks[i] = 1;
+            } else if (type == 3) {
+                questionAnswers.add(Double.toString(i * 0.25 - 100));
+                correctAnswerMasks[i] = 1;
+            } else {
+                for (int j = 0; j < CHOICE_COUNT; j++) {
+                    questionAnswers.add("Answer " + j + " of question " + i);
+                }
+                correctAnswerMasks[i] = type == 0
+                        ? 1 + random.nextInt((1 << CHOICE_COUNT) - 1)
+                        : 1L << random.nextInt(CHOICE_COUNT);
+            }
+            answers.add(questionAnswers);
+        }
+    }
+
+    /**
+     * method to parse the input type mix
+     * @param inputTypeMix is the weights of Checkbox, Radio, EditText and optionally Numeric questions,
+     *                     e.g. "2:1:1"
+     * @return the weights of all input types, 0 for Numeric if not given
+     */
+    private static int[] parseMix(String inputTypeMix) {
+        String[] parts = inputTypeMix.split(":");
+        if (parts.length != INPUT_TYPES.length && parts.length != INPUT_TYPES.length - 1)
+            throw new IllegalArgumentException("Input type mix must be Checkbox:Radio:EditText[:Numeric] weights, got "
+                    + inputTypeMix);
+        int[] weights = new int[INPUT_TYPES.length];
+        for (int i = 0; i < parts.length; i++) {
+            weights[i] = Integer.parseInt(parts[i].trim());
+            if (weights[i] < 0)
+                throw new IllegalArgumentException("Negative weight in input type mix " + inputTypeMix);
+        }
+        if (weights[0] + weights[1] + weights[2] + weights[3] == 0)
+            throw new IllegalArgumentException("All weights are 0 in input type mix " + inputTypeMix);
+        return weights;
+    }
+
+    /**
+     * method to get the number of quiz questions
+     * @return the number of quiz questions
+     */
+    int size() {
+        return questions.length;
+    }
+
+    /**
+     * method to get the quiz data as quiz XML, see res/xml/quiz_data.xml
+     * @return the quiz XML
+     */
+    String toXml() {
+        StringBuilder xml = new StringBuilder(size() * 400);
+        xml.append("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n<quizquestions>\n");
+        for (int i = 0; i < size(); i++) {
+            xml.append("    <quizquestion>\n");
+            xml.append("        <header_image_src>").append(headerImageNames[i]).append("</header_image_src>\n");
+            xml.append("        <question>").append(questions[i]).append("</question>\n");
+            xml.append("        <input_type>").append(inputTypes[i]).append("</input_type>\n");
+            List<String> questionAnswers = answers.get(i);
+            for (int j = 0; j < questionAnswers.size(); j++) {
+                xml.append("        <answer correct=\"").append((correctAnswerMasks[i] & (1L << j)) != 0)
+                        .append("\">").append(questionAnswers.get(j)).append("</answer>\n");
+            }
+            xml.append("    </quizquestion>\n");
+        }
+        xml.append("</quizquestions>\n");
+        return xml.toString();
+    }
+
+    /**
+     * method to add the quiz questions to a QuizBank.Builder
+     * @param quizBankBuilder is the builder
+     */
+    void addTo(QuizBank.Builder quizBankBuilder) {
+        for (int i = 0; i < size(); i++) {
+            quizBankBuilder.add(headerImageNames[i], 0, questions[i], inputTypes[i], answers.get(i),
+                    correctAnswerMasks[i]);
+        }
+    }
+
+    /**
+     * method to build a QuizBank of the quiz questions
+     * @return the QuizBank
+     */
+    QuizBank toQuizBank() {
+        QuizBank.Builder quizBankBuilder = new QuizBank.Builder(size());
+        addTo(quizBankBuilder);
+        return quizBankBuilder.build();
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.android.p03quizapp;
+
+/**
+ * build config of the app classes compiled into the benchmark module, in place of the one generated
+ * by the Android plugin. Instrumentation is off, as in release builds, see QuizMetrics
+ */
+
+public final class BuildConfig {
+    public static final boolean QUIZ_METRICS = false;
+}
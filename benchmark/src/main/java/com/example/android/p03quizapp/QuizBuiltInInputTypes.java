@@ -0,0 +1,50 @@
+package com.example.android.p03quizapp;
+
+/**
+ * input types built into the app, registered in place of the ones of the app, whose input handlers
+ * are not available on the JVM. Names and kinds are the same, so quiz questions are graded the same
+ * way. They have no input views, see QuizInputViewFactory
+ */
+
+final class QuizBuiltInInputTypes {
+    private QuizBuiltInInputTypes() {
+    }
+
+    /**
+     * method to register the built in input types, called once by QuizInputTypeRegistry
+     */
+    static void register() {
+        QuizInputTypeRegistry.register(new GradedInputType("EditText", QuizInputType.KIND_TEXT));
+        QuizInputTypeRegistry.register(new GradedInputType("Checkbox", QuizInputType.KIND_MULTIPLE_CHOICE));
+        QuizInputTypeRegistry.register(new GradedInputType("Radio", QuizInputType.KIND_SINGLE_CHOICE));
+        QuizInputTypeRegistry.register(new GradedInputType("Numeric", QuizInputType.KIND_NUMERIC));
+    }
+
+    /**
+     * class of an input type that is graded but never displayed
+     */
+    private static class GradedInputType implements QuizInputType {
+        private final String name;
+        private final int kind;
+
+        GradedInputType(String name, int kind) {
+            this.name = name;
+            this.kind = kind;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public int getKind() {
+            return kind;
+        }
+
+        @Override
+        public QuizInputHandler createInputHandler(QuizAnswerStore answerStore, QuizQuestion quizQuestion) {
+            return null;
+        }
+    }
+}
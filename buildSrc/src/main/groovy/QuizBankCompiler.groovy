@@ -0,0 +1,429 @@
+import org.gradle.api.GradleException
+
+/**
+ * class to validate quiz banks - res/xml/*.xml files having a <quizquestions> root tag - and
+ * generate the Java classes compiled quiz banks are loaded from, see app/quizbank.gradle
+ */
+
+class QuizBankCompiler {
+    //  kinds of input types, see QuizInputType.KIND_ constants
+    static final String KIND_SINGLE_CHOICE = 'SINGLE_CHOICE'
+    static final String KIND_MULTIPLE_CHOICE = 'MULTIPLE_CHOICE'
+    static final String KIND_TEXT = 'TEXT'
+    static final String KIND_NUMERIC = 'NUMERIC'
+    //  input types answers are typed in for, see QuizInputTypeRegistry.isChoiceInput
+    static final List<String> TEXT_KINDS = [KIND_TEXT, KIND_NUMERIC]
+    //  NAME and KIND constants of QuizInputType implementations
+    static final String NAME_PATTERN = /static\s+final\s+String\s+NAME\s*=\s*"([^"]+)"/
+    static final String KIND_PATTERN = /static\s+final\s+int\s+KIND\s*=\s*(?:QuizInputType\.)?KIND_(\w+)/
+    //  tags allowed inside <quizquestion>
+    static final List<String> QUESTION_TAGS = ['header_image_src', 'question', 'input_type', 'answer']
+    //  maximum number of answers per choice question, see QuizAnswerStore.MAX_CHOICES
+    static final int MAX_CHOICES = 64
+    //  maximum number of accepted answers per text or Numeric question, see QuizTextAnswerMatcher.MAX_VARIANTS
+    static final int MAX_TEXT_ANSWERS = 1024
+    //  maximum edit distance of text answers, see QuizTextAnswerMatcher.MAX_EDIT_DISTANCE
+    static final int MAX_EDIT_DISTANCE = 2
+    //  numbers as parsed by QuizNumericAnswerMatcher.parse: a comma or a point as decimal separator,
+    //  a minus sign for negative numbers too
+    static final String NUMBER_PATTERN = '\\s*[+\\-\u2212]?(\\d+([.,]\\d*)?|[.,]\\d+)([eE][+\\-]?\\d+)?\\s*'
+    //  a comma followed by exactly three digits, taken for a thousands separator: not a number
+    static final String THOUSANDS_PATTERN = '.*,\\d{3}(\\D.*)?'
+    //  strings written into a Java string literal as they are: printable ASCII but quote and backslash
+    static final String PLAIN_STRING_PATTERN = /[\x20-\x7e&&[^"\\]]*/
+    //  estimated bytecode size of a generated method, a quarter of the 64K limit of a single method
+    static final int MAX_METHOD_CODE_SIZE = 16384
+    //  distinct constants of a generated class, each string, number or drawable id takes up to three
+    //  of the 65535 constant pool entries of a class
+    static final int MAX_CLASS_CONSTANTS = 20000
+    //  maximum length of a string constant in bytes of modified UTF-8, as stored in a class file
+    static final int MAX_STRING_CONSTANT_SIZE = 65535
+
+    /**
+     * method to check whether an XML file is a quiz bank
+     * @param xmlFile is the XML file
+     * @return true if root tag is <quizquestions>
+     */
+    static boolean isQuizBank(File xmlFile) {
+        return new XmlSlurper().parse(xmlFile).name() == 'quizquestions'
+    }
+
+    /**
+     * method to find the input types of the app: the NAME and KIND constants QuizInputType
+     * implementations declare
+     * @param javaFiles are the Java source files of the app
+     * @return map of input type names to kinds, see KIND_ constants
+     * @throws GradleException if an input type has an unknown kind or its name is declared twice
+     */
+    static Map<String, String> readInputTypes(Collection<File> javaFiles) {
+        def inputTypes = new TreeMap<String, String>()
+        javaFiles.each { javaFile ->
+            def source = javaFile.getText('UTF-8')
+            def name = source =~ NAME_PATTERN
+            def kind = source =~ KIND_PATTERN
+            if (!name.find() || !kind.find())
+                return
+            if (!(kind.group(1) in [KIND_SINGLE_CHOICE, KIND_MULTIPLE_CHOICE, KIND_TEXT, KIND_NUMERIC]))
+                throw new GradleException("${javaFile}: unknown input type kind KIND_${kind.group(1)}")
+            if (inputTypes.containsKey(name.group(1)))
+                throw new GradleException("${javaFile}: input type '${name.group(1)}' declared twice")
+            inputTypes[name.group(1)] = kind.group(1)
+        }
+        return inputTypes
+    }
+
+    /**
+     * method to validate a quiz bank and read it into a list of maps, one per question
+     * @param xmlFile is the quiz bank XML file
+     * @param drawableNames is the set of drawable resource names header images may refer to
+     * @param inputTypes maps input type names to kinds, see readInputTypes()
+     * @return list of questions with keys image, question, inputType, inputKind, maxEditDistance,
+     * numericTolerance, numericMinimum, numericMaximum, answers, correct
+     * @throws GradleException listing all errors found
+     */
+    static List<Map> read(File xmlFile, Set<String> drawableNames, Map<String, String> inputTypes) {
+        def errors = []
+        def questions = []
+        def root = new XmlSlurper().parse(xmlFile)
+        root.children().eachWithIndex { quizQuestion, index ->
+            def where = "${xmlFile.name}: question ${index + 1}"
+            if (quizQuestion.name() != 'quizquestion') {
+                errors << "${where}: unexpected tag <${quizQuestion.name()}>"
+                return
+            }
+            quizQuestion.children().each { tag ->
+                if (!QUESTION_TAGS.contains(tag.name()))
+                    errors << "${where}: unexpected tag <${tag.name()}>"
+            }
+
+            def image = quizQuestion.header_image_src.text()
+            if (image && !drawableNames.contains(image))
+                errors << "${where}: no drawable resource named '${image}'"
+
+            def question = quizQuestion.question.text()
+            if (!question.trim())
+                errors << "${where}: question text is missing"
+
+            def inputType = quizQuestion.input_type.text()
+            def inputKind = inputTypes[inputType]
+            if (inputKind == null)
+                errors << "${where}: input_type '${inputType}' is not one of ${inputTypes.keySet()}"
+
+            int maxEditDistance = 0
+            def maxEditDistanceText = quizQuestion.input_type.@max_edit_distance.text()
+            if (maxEditDistanceText) {
+                if (!maxEditDistanceText.isInteger() || !(maxEditDistanceText.toInteger() in 0..MAX_EDIT_DISTANCE))
+                    errors << "${where}: max_edit_distance '${maxEditDistanceText}' is not between 0 and " +
+                            "${MAX_EDIT_DISTANCE}"
+                else if (inputKind != KIND_TEXT)
+                    errors << "${where}: max_edit_distance is only allowed for text input"
+                else
+                    maxEditDistance = maxEditDistanceText.toInteger()
+            }
+
+            //  tolerance and range of accepted numbers of numeric questions
+            def numeric = [tolerance: 0d, min: Double.NaN, max: Double.NaN]
+            numeric.keySet().each { attributeName ->
+                def attributeText = quizQuestion.input_type."@${attributeName}".text()
+                if (!attributeText)
+                    return
+                if (inputKind != KIND_NUMERIC)
+                    errors << "${where}: ${attributeName} is only allowed for numeric input"
+                else if (parseNumber(attributeText) == null)
+                    errors << "${where}: ${attributeName} '${attributeText}' is not a number"
+                else
+                    numeric[attributeName] = parseNumber(attributeText)
+            }
+            boolean hasRange = !numeric.min.isNaN() || !numeric.max.isNaN()
+            if (numeric.tolerance < 0 || numeric.tolerance.isInfinite())
+                errors << "${where}: tolerance must not be negative"
+            if (hasRange && !(numeric.min <= numeric.max))
+                errors << "${where}: min and max must both be given, min not above max"
+
+            //  text and numeric questions list accepted answers, those beyond the bits of the correct
+            //  answer mask are all accepted
+            def answers = quizQuestion.answer.collect { it.text() }
+            def correct = quizQuestion.answer.collect { it.@correct.text().equalsIgnoreCase('true') }
+            int correctCount = correct.count { it }
+            boolean isTextInput = TEXT_KINDS.contains(inputKind)
+            int maxAnswerCount = isTextInput ? MAX_TEXT_ANSWERS : MAX_CHOICES
+            if (answers.isEmpty() && !hasRange)
+                errors << "${where}: no answers"
+            if (answers.size() > maxAnswerCount)
+                errors << "${where}: more than ${maxAnswerCount} answers"
+            if (correctCount == 0 && !hasRange)
+                errors << "${where}: no correct answer"
+            if (inputKind == KIND_SINGLE_CHOICE && correctCount > 1)
+                errors << "${where}: ${inputType} input must have a single correct answer"
+            if (isTextInput && correct.drop(MAX_CHOICES).contains(false))
+                errors << "${where}: ${inputType} answers beyond the first ${MAX_CHOICES} must be correct"
+            if (inputKind == KIND_NUMERIC)
+                answers.findAll { parseNumber(it) == null }.each {
+                    errors << "${where}: answer '${it}' is not a number"
+                }
+
+            ([question] + answers).findAll { constantSize(it) > MAX_STRING_CONSTANT_SIZE }.each {
+                errors << "${where}: text '${it.take(20)}...' is longer than ${MAX_STRING_CONSTANT_SIZE} bytes"
+            }
+
+            questions << [image: image, question: question, inputType: inputType, inputKind: inputKind,
+                          maxEditDistance: maxEditDistance, numericTolerance: numeric.tolerance,
+                          numericMinimum: numeric.min, numericMaximum: numeric.max,
+                          answers: answers, correct: correct]
+        }
+        if (errors)
+            throw new GradleException("Invalid quiz bank ${xmlFile}:\n  " + errors.join('\n  '))
+        return questions
+    }
+
+    /**
+     * method to generate the Java classes holding the questions of a single quiz bank: the bank class
+     * loading the quiz bank, and part classes adding the questions to its QuizBank.Builder
+     * @param packageName is the Java package of the app, i.e. the package of R
+     * @param className is the name of the generated bank class, part classes are named after it
+     * @param questions is the list of questions returned by read()
+     * @return map of class names to Java source code, bank class first
+     */
+    static Map<String, String> generateBankClasses(String packageName, String className, List<Map> questions) {
+        def parts = partition(questions)
+        def classes = new LinkedHashMap<String, String>()
+        def out = new StringBuilder()
+        out << "package ${packageName};\n\n"
+        out << "import java.util.ArrayList;\n\n"
+        out << "/**\n * generated by compileQuizBanks from res/xml, do not edit\n */\n\n"
+        out << "final class ${className} {\n"
+        out << "    private ${className}() {\n    }\n\n"
+        out << "    static ArrayList<QuizQuestion> load() {\n"
+        out << "        QuizBank.Builder quizBankBuilder = new QuizBank.Builder(${questions.size()});\n"
+        parts.eachWithIndex { part, partIndex ->
+            out << "        ${className}Part${partIndex}.addQuestions(quizBankBuilder);\n"
+        }
+        out << "        return quizBankBuilder.build().getQuizQuestions();\n    }\n"
+        out << "}\n"
+        classes[className] = out.toString()
+
+        parts.eachWithIndex { part, partIndex ->
+            def partClassName = "${className}Part${partIndex}"
+            classes[partClassName] = generatePartClass(packageName, partClassName, part)
+        }
+        return classes
+    }
+
+    /**
+     * method to generate a part class, adding some of the questions of a quiz bank
+     * @param packageName is the Java package of the app, i.e. the package of R
+     * @param className is the name of the part class
+     * @param methods are the questions of the part, a list of questions per method
+     * @return Java source code
+     */
+    static String generatePartClass(String packageName, String className, List<List<Map>> methods) {
+        def out = new StringBuilder()
+        out << "package ${packageName};\n\n"
+        out << "import java.util.Arrays;\n\n"
+        out << "/**\n * generated by compileQuizBanks from res/xml, do not edit\n */\n\n"
+        out << "final class ${className} {\n"
+        out << "    private ${className}() {\n    }\n\n"
+        out << "    static void addQuestions(QuizBank.Builder quizBankBuilder) {\n"
+        methods.eachWithIndex { method, methodIndex ->
+            out << "        addQuestions${methodIndex}(quizBankBuilder);\n"
+        }
+        out << "    }\n"
+
+        methods.eachWithIndex { method, methodIndex ->
+            out << "\n    private static void addQuestions${methodIndex}(QuizBank.Builder quizBankBuilder) {\n"
+            method.each { q ->
+                def imageName = q.image ? javaString(q.image) : 'null'
+                def image = q.image ? "R.drawable.${q.image}" : '0'
+                def answers = q.answers.collect { javaString(it) }.join(', ')
+                def correctAnswerMask = "0x${Long.toHexString(correctAnswerMask(q))}L"
+                out << "        quizBankBuilder.add(${imageName}, ${image},\n"
+                out << "                ${javaString(q.question)}, ${javaString(q.inputType)},\n"
+                out << "                Arrays.asList(${answers}),\n"
+                if (q.inputKind == KIND_NUMERIC) {
+                    out << "                ${correctAnswerMask}, ${q.maxEditDistance},\n"
+                    out << "                ${javaDouble(q.numericTolerance)}, ${javaDouble(q.numericMinimum)}, "
+                    out << "${javaDouble(q.numericMaximum)});\n"
+                } else {
+                    out << "                ${correctAnswerMask}, ${q.maxEditDistance});\n"
+                }
+            }
+            out << "    }\n"
+        }
+        out << "}\n"
+        return out.toString()
+    }
+
+    /**
+     * method to split the questions of a quiz bank into part classes and their methods, keeping
+     * question order: a method takes questions up to MAX_METHOD_CODE_SIZE estimated bytes of code,
+     * a class up to MAX_CLASS_CONSTANTS distinct constants
+     * @param questions is the list of questions returned by read()
+     * @return list of part classes, each a list of methods, each a list of questions
+     */
+    static List<List<List<Map>>> partition(List<Map> questions) {
+        def parts = []
+        Set<String> partConstants = null
+        List<Map> method = null
+        int methodCodeSize = 0
+        questions.each { q ->
+            def questionConstants = constants(q)
+            if (partConstants == null ||
+                    partConstants.size() + questionConstants.count { !partConstants.contains(it) } > MAX_CLASS_CONSTANTS) {
+                parts << []
+                partConstants = new HashSet<String>()
+                method = null
+            }
+            if (method == null || methodCodeSize + codeSize(q) > MAX_METHOD_CODE_SIZE) {
+                method = []
+                parts.last() << method
+                methodCodeSize = 0
+            }
+            method << q
+            methodCodeSize += codeSize(q)
+            partConstants.addAll(questionConstants)
+        }
+        return parts
+    }
+
+    /**
+     * method to estimate the bytecode size of adding a question in a generated method: up to 8 bytes
+     * per answer stored into the Arrays.asList array, and less than 64 for the other arguments and calls
+     * @param question is a question returned by read()
+     * @return estimated code size in bytes
+     */
+    static int codeSize(Map question) {
+        return 64 + 8 * question.answers.size()
+    }
+
+    /**
+     * method to list the constants adding a question refers to, a superset of the constant pool
+     * entries it needs
+     * @param question is a question returned by read()
+     * @return set of constants, prefixed by type so equal strings and numbers are told apart
+     */
+    static Set<String> constants(Map question) {
+        def constants = new HashSet<String>()
+        ([question.image, question.question, question.inputType] + question.answers).each {
+            constants << 'S' + it
+        }
+        constants << 'J' + correctAnswerMask(question)
+        [question.numericTolerance, question.numericMinimum, question.numericMaximum].each {
+            constants << 'D' + it
+        }
+        return constants
+    }
+
+    /**
+     * method to get the correct answer mask of a question, see QuizBank.Builder.add
+     * @param question is a question returned by read()
+     * @return bitmask with bit n set if answer n is correct
+     */
+    static long correctAnswerMask(Map question) {
+        long correctAnswerMask = 0
+        question.correct.eachWithIndex { isCorrect, i ->
+            if (isCorrect && i < MAX_CHOICES)
+                correctAnswerMask |= 1L << i
+        }
+        return correctAnswerMask
+    }
+
+    /**
+     * method to get the size of a string constant in a class file, encoded in modified UTF-8
+     * @param text is the string
+     * @return size in bytes
+     */
+    static int constantSize(String text) {
+        int size = 0
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i)
+            size += ch >= 0x800 ? 3 : ch >= 0x80 || ch == 0 ? 2 : 1
+        }
+        return size
+    }
+
+    /**
+     * method to generate the Java class looking up compiled quiz banks by resource id
+     * @param packageName is the Java package of the app, i.e. the package of R
+     * @param classNames maps XML resource names to the generated class names
+     * @return Java source code
+     */
+    static String generateIndexClass(String packageName, Map<String, String> classNames) {
+        def out = new StringBuilder()
+        out << "package ${packageName};\n\n"
+        out << "import java.util.ArrayList;\n\n"
+        out << "/**\n * generated by compileQuizBanks from res/xml, do not edit\n */\n\n"
+        out << "final class CompiledQuizBanks {\n"
+        out << "    private CompiledQuizBanks() {\n    }\n\n"
+        out << "    /**\n     * method to get the QuizQuestion objects of a quiz bank compiled at build time\n"
+        out << "     * @param xmlResourceId is the resource id of the quiz bank XML\n"
+        out << "     * @return ArrayList of QuizQuestion objects or null if not compiled\n     */\n"
+        out << "    static ArrayList<QuizQuestion> load(int xmlResourceId) {\n"
+        classNames.each { resourceName, className ->
+            out << "        if (xmlResourceId == R.xml.${resourceName})\n"
+            out << "            return ${className}.load();\n"
+        }
+        out << "        return null;\n    }\n"
+        out << "}\n"
+        return out.toString()
+    }
+
+    /**
+     * method to turn a resource name into a Java class name, e.g. quiz_data to CompiledQuizBankQuizData
+     * @param resourceName is the XML resource name
+     * @return the class name
+     */
+    static String className(String resourceName) {
+        return 'CompiledQuizBank' + resourceName.split('_').collect { it.capitalize() }.join('')
+    }
+
+    /**
+     * method to parse a number the way QuizNumericAnswerMatcher.parse does
+     * @param text is the text
+     * @return the number or null if the text is not a number
+     */
+    static Double parseNumber(String text) {
+        if (!(text ==~ NUMBER_PATTERN) || text ==~ THOUSANDS_PATTERN)
+            return null
+        return new BigDecimal(text.trim().replace(',', '.').replace('\u2212', '-')).doubleValue()
+    }
+
+    /**
+     * method to write a double as a Java literal
+     * @param value is the number
+     * @return Java double literal
+     */
+    static String javaDouble(double value) {
+        if (Double.isNaN(value))
+            return 'Double.NaN'
+        if (Double.isInfinite(value))
+            return value > 0 ? 'Double.POSITIVE_INFINITY' : 'Double.NEGATIVE_INFINITY'
+        return Double.toString(value) + 'd'
+    }
+
+    /**
+     * method to quote a string as a Java string literal
+     * @param text is the string
+     * @return Java string literal
+     */
+    static String javaString(String text) {
+        if (text ==~ PLAIN_STRING_PATTERN)
+            return '"' + text + '"'
+        def out = new StringBuilder('"')
+        text.each { String c ->
+            char ch = c.charAt(0)
+            switch (c) {
+                case '"': out << '\\"'; break
+                case '\\': out << '\\\\'; break
+                case '\n': out << '\\n'; break
+                case '\r': out << '\\r'; break
+                case '\t': out << '\\t'; break
+                default:
+                    if (ch < 0x20 || ch > 0x7e)
+                        out << String.format('\\u%04x', (int) ch)
+                    else
+                        out << c
+            }
+        }
+        return out.append('"').toString()
+    }
+}
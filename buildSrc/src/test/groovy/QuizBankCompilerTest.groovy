@@ -0,0 +1,196 @@
+import org.gradle.api.GradleException
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+
+import javax.tools.ToolProvider
+import java.lang.reflect.Method
+
+import static org.junit.Assert.*
+
+/**
+ * JVM tests of QuizBankCompiler: generated classes of a large quiz bank compile against stand-ins of
+ * QuizBank, QuizQuestion and R, and add all the questions in order
+ */
+class QuizBankCompilerTest {
+    static final String PACKAGE_NAME = 'com.example.android.p03quizapp'
+    //  stand-ins of the app classes generated code refers to, adding questions to a list
+    static final String STAND_IN_SOURCE = '''
+package com.example.android.p03quizapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class QuizQuestion {
+    final String question;
+    final int answerCount;
+
+    QuizQuestion(String question, int answerCount) {
+        this.question = question;
+        this.answerCount = answerCount;
+    }
+}
+
+final class QuizBank {
+    private final ArrayList<QuizQuestion> quizQuestions;
+
+    private QuizBank(ArrayList<QuizQuestion> quizQuestions) {
+        this.quizQuestions = quizQuestions;
+    }
+
+    ArrayList<QuizQuestion> getQuizQuestions() {
+        return quizQuestions;
+    }
+
+    static final class Builder {
+        private final ArrayList<QuizQuestion> quizQuestions;
+
+        Builder(int capacity) {
+            quizQuestions = new ArrayList<>(capacity);
+        }
+
+        int add(String headerImageName, int headerImageResId, String question, String inputType,
+                List<String> quizAnswers, long correctAnswerMask, int maxEditDistance) {
+            quizQuestions.add(new QuizQuestion(question, quizAnswers.size()));
+            return quizQuestions.size() - 1;
+        }
+
+        int add(String headerImageName, int headerImageResId, String question, String inputType,
+                List<String> quizAnswers, long correctAnswerMask, int maxEditDistance,
+                double numericTolerance, double numericMinimum, double numericMaximum) {
+            return add(headerImageName, headerImageResId, question, inputType, quizAnswers,
+                    correctAnswerMask, maxEditDistance);
+        }
+
+        QuizBank build() {
+            return new QuizBank(quizQuestions);
+        }
+    }
+}
+
+final class R {
+    static final class drawable {
+        static final int flag = 0x7f020000;
+    }
+}
+'''
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder()
+
+    @Test
+    void largeBank_compilesAndLoadsInOrder() throws Exception {
+        //  more distinct strings than the constant pool of a single class holds, and text questions
+        //  with as many accepted answers as allowed, more code than fits a method of 50 of them
+        def questions = []
+        for (int i = 0; i < 9000; i++) {
+            questions << choiceQuestion(i % 100 == 0 ? 'flag' : '', "Question ${i}",
+                    (0..<4).collect { "Answer ${i}.${it}".toString() }, i % 4)
+        }
+        for (int i = 0; i < 20; i++) {
+            questions << textQuestion("Text question ${i}",
+                    (0..<QuizBankCompiler.MAX_TEXT_ANSWERS).collect { "Text ${i}.${it}".toString() })
+        }
+        questions << numericQuestion('Numeric question', ['3.5', '-1e3'], 0.25d)
+
+        def classes = QuizBankCompiler.generateBankClasses(PACKAGE_NAME, 'CompiledQuizBankLarge', questions)
+        assertEquals('CompiledQuizBankLarge', classes.keySet().first())
+        assertTrue(classes.keySet().toString(), classes.size() > 3)
+
+        def loadedQuestions = compileAndLoad(classes, 'CompiledQuizBankLarge')
+        assertEquals(questions.size(), loadedQuestions.size())
+        loadedQuestions.eachWithIndex { loadedQuestion, i ->
+            assertEquals(questions[i].question, loadedQuestion.question)
+            assertEquals(questions[i].answers.size(), loadedQuestion.answerCount)
+        }
+    }
+
+    @Test
+    void emptyBank_compiles() throws Exception {
+        def classes = QuizBankCompiler.generateBankClasses(PACKAGE_NAME, 'CompiledQuizBankEmpty', [])
+        assertEquals(['CompiledQuizBankEmpty'], classes.keySet() as List)
+        assertEquals(0, compileAndLoad(classes, 'CompiledQuizBankEmpty').size())
+    }
+
+    @Test
+    void partition_staysWithinLimits() throws Exception {
+        def questions = []
+        for (int i = 0; i < 12000; i++) {
+            //  every other question repeats the answers of the one before
+            questions << choiceQuestion('', "Question ${i}",
+                    (0..<3).collect { "Answer ${i >> 1}.${it}".toString() }, 1)
+        }
+        def parts = QuizBankCompiler.partition(questions)
+        assertTrue(parts.size() > 1)
+        assertEquals(questions, parts.flatten())
+        parts.each { part ->
+            def partConstants = new HashSet<String>()
+            part.each { method ->
+                assertTrue(method.sum { QuizBankCompiler.codeSize(it) } <= QuizBankCompiler.MAX_METHOD_CODE_SIZE)
+                method.each { partConstants.addAll(QuizBankCompiler.constants(it)) }
+            }
+            assertTrue(partConstants.size() <= QuizBankCompiler.MAX_CLASS_CONSTANTS)
+        }
+    }
+
+    @Test
+    void textOverConstantSize_isRejected() throws Exception {
+        def xmlFile = folder.newFile('quiz_long.xml')
+        xmlFile.setText('<quizquestions><quizquestion><question>' + '\u00e9' * 40000 + '</question>' +
+                '<input_type>Radio</input_type><answer correct="true">Yes</answer></quizquestion>' +
+                '</quizquestions>', 'UTF-8')
+        try {
+            QuizBankCompiler.read(xmlFile, [] as Set, [Radio: QuizBankCompiler.KIND_SINGLE_CHOICE])
+            fail('Question of 80000 bytes')
+        } catch (GradleException e) {
+            assertTrue(e.message, e.message.contains('longer than 65535 bytes'))
+        }
+    }
+
+    static Map choiceQuestion(String image, String question, List<String> answers, int correctIndex) {
+        return [image: image, question: question.toString(), inputType: 'Radio',
+                inputKind: QuizBankCompiler.KIND_SINGLE_CHOICE, maxEditDistance: 0, numericTolerance: 0d,
+                numericMinimum: Double.NaN, numericMaximum: Double.NaN, answers: answers,
+                correct: answers.indices.collect { it == correctIndex }]
+    }
+
+    static Map textQuestion(String question, List<String> answers) {
+        return [image: '', question: question.toString(), inputType: 'EditText', inputKind: QuizBankCompiler.KIND_TEXT,
+                maxEditDistance: 1, numericTolerance: 0d, numericMinimum: Double.NaN,
+                numericMaximum: Double.NaN, answers: answers, correct: answers.collect { true }]
+    }
+
+    static Map numericQuestion(String question, List<String> answers, double tolerance) {
+        return [image: '', question: question, inputType: 'Numeric', inputKind: QuizBankCompiler.KIND_NUMERIC,
+                maxEditDistance: 0, numericTolerance: tolerance, numericMinimum: Double.NaN,
+                numericMaximum: Double.NaN, answers: answers, correct: answers.collect { true }]
+    }
+
+    /**
+     * method to compile generated classes with the stand-ins and call load() of the bank class
+     * @param classes maps class names to Java source code, see QuizBankCompiler.generateBankClasses
+     * @param className is the name of the bank class
+     * @return the QuizQuestion stand-ins loaded
+     */
+    List compileAndLoad(Map<String, String> classes, String className) {
+        def sourceDir = folder.newFolder('src')
+        def classDir = folder.newFolder('classes')
+        def sourceFiles = [new File(sourceDir, 'StandIns.java')]
+        sourceFiles[0].setText(STAND_IN_SOURCE, 'UTF-8')
+        classes.each { name, source ->
+            def sourceFile = new File(sourceDir, "${name}.java")
+            sourceFile.setText(source, 'UTF-8')
+            sourceFiles << sourceFile
+        }
+
+        def errors = new ByteArrayOutputStream()
+        int result = ToolProvider.getSystemJavaCompiler().run(null, null, errors, '-encoding', 'UTF-8',
+                '-d', classDir.path, *sourceFiles.collect { it.path })
+        assertEquals(errors.toString('UTF-8'), 0, result)
+
+        def classLoader = new URLClassLoader([classDir.toURI().toURL()] as URL[], (ClassLoader) null)
+        Method load = classLoader.loadClass("${PACKAGE_NAME}.${className}").getDeclaredMethod('load')
+        load.accessible = true
+        return load.invoke(null) as List
+    }
+}